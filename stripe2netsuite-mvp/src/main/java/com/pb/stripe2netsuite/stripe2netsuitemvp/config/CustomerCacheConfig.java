@@ -0,0 +1,83 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for the read-through NetSuite customer cache.
+ *
+ * Customers read from NetSuite are kept for a TTL, bounded by an estimate of
+ * their memory size. Entries read often are reloaded in the background before
+ * they expire; customers NetSuite does not have are remembered for a shorter time.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "netsuite.customer-cache")
+public class CustomerCacheConfig {
+
+    /**
+     * Enable the cache. When disabled, every read goes to NetSuite.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Upper bound of the estimated memory used by cached customers, in bytes.
+     * The least recently used entries are evicted above it.
+     */
+    private long maxWeightBytes = 8 * 1024 * 1024;
+
+    /**
+     * How long a customer is served from the cache, in milliseconds.
+     */
+    private long ttlMillis = 300_000;
+
+    /**
+     * How long a customer NetSuite did not find is remembered, in milliseconds.
+     */
+    private long negativeTtlMillis = 30_000;
+
+    /**
+     * Fraction of the TTL after which a read reloads the entry in the background,
+     * while still answering from the cache. 1 or more disables refresh-ahead.
+     */
+    private double refreshAheadFraction = 0.8;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getMaxWeightBytes() {
+        return maxWeightBytes;
+    }
+
+    public void setMaxWeightBytes(long maxWeightBytes) {
+        this.maxWeightBytes = maxWeightBytes;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    public void setTtlMillis(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    public long getNegativeTtlMillis() {
+        return negativeTtlMillis;
+    }
+
+    public void setNegativeTtlMillis(long negativeTtlMillis) {
+        this.negativeTtlMillis = negativeTtlMillis;
+    }
+
+    public double getRefreshAheadFraction() {
+        return refreshAheadFraction;
+    }
+
+    public void setRefreshAheadFraction(double refreshAheadFraction) {
+        this.refreshAheadFraction = refreshAheadFraction;
+    }
+}
@@ -0,0 +1,81 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for the Stripe customer ID to NetSuite customer ID index.
+ *
+ * The index is written to a snapshot file periodically and on shutdown, and
+ * loaded on startup. Before the application reports ready it can be refreshed
+ * from NetSuite with a paged read of all customers that have a Stripe ID.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "netsuite.customer-index")
+public class CustomerIndexConfig {
+
+    /**
+     * Persist the index to a snapshot file and load it on startup.
+     */
+    private boolean snapshotEnabled = false;
+
+    /**
+     * Path of the snapshot file.
+     */
+    private String snapshotFile = "data/customer-index/customer-index.snapshot";
+
+    /**
+     * Interval between snapshots, in seconds. A snapshot is only written if the index changed.
+     */
+    private int snapshotIntervalSeconds = 60;
+
+    /**
+     * Read all customer mappings from NetSuite on startup.
+     */
+    private boolean warmOnStartup = true;
+
+    /**
+     * Number of customers read per page while warming.
+     */
+    private int warmPageSize = 1000;
+
+    public boolean isSnapshotEnabled() {
+        return snapshotEnabled;
+    }
+
+    public void setSnapshotEnabled(boolean snapshotEnabled) {
+        this.snapshotEnabled = snapshotEnabled;
+    }
+
+    public String getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    public void setSnapshotFile(String snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    public int getSnapshotIntervalSeconds() {
+        return snapshotIntervalSeconds;
+    }
+
+    public void setSnapshotIntervalSeconds(int snapshotIntervalSeconds) {
+        this.snapshotIntervalSeconds = snapshotIntervalSeconds;
+    }
+
+    public boolean isWarmOnStartup() {
+        return warmOnStartup;
+    }
+
+    public void setWarmOnStartup(boolean warmOnStartup) {
+        this.warmOnStartup = warmOnStartup;
+    }
+
+    public int getWarmPageSize() {
+        return warmPageSize;
+    }
+
+    public void setWarmPageSize(int warmPageSize) {
+        this.warmPageSize = warmPageSize;
+    }
+}
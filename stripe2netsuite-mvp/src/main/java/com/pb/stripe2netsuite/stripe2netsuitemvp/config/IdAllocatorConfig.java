@@ -0,0 +1,43 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for the mock NetSuite order and customer ID allocator.
+ *
+ * Each instance leases blocks of IDs and hands them out from memory. With a
+ * lease directory, blocks are leased from a file shared by all instances, so
+ * instances pointed at the same directory never hand out the same ID.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "netsuite.mock.ids")
+public class IdAllocatorConfig {
+
+    /**
+     * Directory holding one lease file per ID sequence, shared by all instances.
+     * Empty to lease blocks in memory, for a single instance.
+     */
+    private String leaseDirectory = "";
+
+    /**
+     * Number of IDs leased at a time. IDs of a block not used before shutdown are skipped.
+     */
+    private int blockSize = 100;
+
+    public String getLeaseDirectory() {
+        return leaseDirectory;
+    }
+
+    public void setLeaseDirectory(String leaseDirectory) {
+        this.leaseDirectory = leaseDirectory;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
+}
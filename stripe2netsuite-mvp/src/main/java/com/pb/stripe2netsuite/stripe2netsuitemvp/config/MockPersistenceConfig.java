@@ -0,0 +1,56 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for persisting the mock NetSuite's orders and customers.
+ *
+ * Every write is appended to a log; snapshots of the whole store are written
+ * periodically and on shutdown. On startup the newest snapshot is loaded and
+ * the log written after it replayed, so long soak and load tests keep their
+ * data across restarts.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "netsuite.mock.persistence")
+public class MockPersistenceConfig {
+
+    /**
+     * Persist mock orders and customers. When disabled, the mock starts with sample data on every run.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Directory holding the snapshot and log files.
+     */
+    private String directory = "data/mock-netsuite";
+
+    /**
+     * Interval between snapshots, in seconds. A snapshot is only written if something was logged since the last one.
+     */
+    private int snapshotIntervalSeconds = 300;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getSnapshotIntervalSeconds() {
+        return snapshotIntervalSeconds;
+    }
+
+    public void setSnapshotIntervalSeconds(int snapshotIntervalSeconds) {
+        this.snapshotIntervalSeconds = snapshotIntervalSeconds;
+    }
+}
@@ -0,0 +1,56 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for batching NetSuite writes.
+ *
+ * Order creations and status updates from concurrent callers are gathered into
+ * batches and sent as one request each, so invoice runs need far fewer round
+ * trips and stay within the account's concurrency limit.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "netsuite.batch")
+public class NetSuiteBatchConfig {
+
+    /**
+     * Maximum number of records per batch; a full batch is sent immediately.
+     */
+    private int maxBatchSize = 50;
+
+    /**
+     * How long the first record of a batch waits for more records, in milliseconds.
+     */
+    private long lingerMillis = 10;
+
+    /**
+     * Maximum number of batches being sent at the same time.
+     * Records keep accumulating while all senders are busy.
+     */
+    private int maxConcurrentBatches = 2;
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public long getLingerMillis() {
+        return lingerMillis;
+    }
+
+    public void setLingerMillis(long lingerMillis) {
+        this.lingerMillis = lingerMillis;
+    }
+
+    public int getMaxConcurrentBatches() {
+        return maxConcurrentBatches;
+    }
+
+    public void setMaxConcurrentBatches(int maxConcurrentBatches) {
+        this.maxConcurrentBatches = maxConcurrentBatches;
+    }
+}
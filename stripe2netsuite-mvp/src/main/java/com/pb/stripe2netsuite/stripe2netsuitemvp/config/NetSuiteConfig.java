@@ -60,6 +60,12 @@ public class NetSuiteConfig {
      */
     private String restletDeploymentId = "";
 
+    /**
+     * RESTlet endpoint URL, without script and deploy parameters.
+     * Empty uses https://{accountId}.restlets.api.netsuite.com/app/site/hosting/restlet.nl
+     */
+    private String restletUrl = "";
+
     // Getters and Setters
 
     public String getAccountId() {
@@ -126,6 +132,22 @@ public class NetSuiteConfig {
         this.restletDeploymentId = restletDeploymentId;
     }
 
+    public String getRestletUrl() {
+        return restletUrl;
+    }
+
+    public void setRestletUrl(String restletUrl) {
+        this.restletUrl = restletUrl;
+    }
+
+    /**
+     * Check if a RESTlet deployment is configured for batch calls.
+     */
+    public boolean isRestletConfigured() {
+        return restletScriptId != null && !restletScriptId.isEmpty()
+            && restletDeploymentId != null && !restletDeploymentId.isEmpty();
+    }
+
     /**
      * Check if NetSuite integration is configured.
      */
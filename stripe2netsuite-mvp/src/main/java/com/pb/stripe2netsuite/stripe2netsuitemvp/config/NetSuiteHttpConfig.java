@@ -0,0 +1,110 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for the HTTP client used to call NetSuite.
+ *
+ * NetSuite limits concurrent requests per account (15 for most accounts, more
+ * with SuiteCloud Plus licenses), so the connection pool is sized to that limit
+ * rather than to the number of worker threads. Connections are kept alive and
+ * reused; TLS handshakes to NetSuite are expensive.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "netsuite.http")
+public class NetSuiteHttpConfig {
+
+    /**
+     * Maximum number of pooled connections in total.
+     */
+    private int maxConnections = 15;
+
+    /**
+     * Maximum number of pooled connections per route (host).
+     * All record and RESTlet calls go to the account's hosts.
+     */
+    private int maxConnectionsPerRoute = 15;
+
+    /**
+     * Timeout for establishing a connection, in milliseconds.
+     */
+    private long connectTimeoutMillis = 5_000;
+
+    /**
+     * Timeout for receiving the response once the request was sent, in milliseconds.
+     */
+    private long responseTimeoutMillis = 30_000;
+
+    /**
+     * How long an idle connection is kept alive when the server does not send
+     * a Keep-Alive header, in seconds.
+     */
+    private long keepAliveSeconds = 60;
+
+    /**
+     * Maximum lifetime of a pooled connection, in seconds.
+     */
+    private long connectionTtlSeconds = 300;
+
+    /**
+     * Idle connections are closed after this many seconds.
+     */
+    private long evictIdleSeconds = 30;
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public long getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public void setConnectTimeoutMillis(long connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    public long getResponseTimeoutMillis() {
+        return responseTimeoutMillis;
+    }
+
+    public void setResponseTimeoutMillis(long responseTimeoutMillis) {
+        this.responseTimeoutMillis = responseTimeoutMillis;
+    }
+
+    public long getKeepAliveSeconds() {
+        return keepAliveSeconds;
+    }
+
+    public void setKeepAliveSeconds(long keepAliveSeconds) {
+        this.keepAliveSeconds = keepAliveSeconds;
+    }
+
+    public long getConnectionTtlSeconds() {
+        return connectionTtlSeconds;
+    }
+
+    public void setConnectionTtlSeconds(long connectionTtlSeconds) {
+        this.connectionTtlSeconds = connectionTtlSeconds;
+    }
+
+    public long getEvictIdleSeconds() {
+        return evictIdleSeconds;
+    }
+
+    public void setEvictIdleSeconds(long evictIdleSeconds) {
+        this.evictIdleSeconds = evictIdleSeconds;
+    }
+}
@@ -0,0 +1,121 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for the adaptive NetSuite concurrency limiter.
+ *
+ * The number of requests allowed in flight grows while NetSuite answers quickly
+ * and shrinks multiplicatively on 429 rejections, timeouts and rising latency.
+ * Requests above the limit wait in a bounded queue.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "netsuite.limiter")
+public class NetSuiteLimiterConfig {
+
+    /**
+     * Whether requests are limited at all. When false, only the connection pool limits them.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Limit to start with.
+     */
+    private int initialLimit = 4;
+
+    /**
+     * Lowest limit the limiter backs off to.
+     */
+    private int minLimit = 1;
+
+    /**
+     * Highest limit the limiter grows to; the account's concurrency limit.
+     */
+    private int maxLimit = 15;
+
+    /**
+     * Factor applied to the limit on a rejection or timeout.
+     */
+    private double backoffRatio = 0.7;
+
+    /**
+     * Recent latency above this multiple of the long-term latency is treated as
+     * queueing inside NetSuite and lowers the limit.
+     */
+    private double latencyTolerance = 2.0;
+
+    /**
+     * Maximum number of requests waiting for a slot; further requests fail immediately.
+     */
+    private int maxQueued = 1000;
+
+    /**
+     * How long a request waits for a slot, in milliseconds.
+     */
+    private long maxQueueWaitMillis = 5_000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    public void setBackoffRatio(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+
+    public double getLatencyTolerance() {
+        return latencyTolerance;
+    }
+
+    public void setLatencyTolerance(double latencyTolerance) {
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public void setMaxQueued(int maxQueued) {
+        this.maxQueued = maxQueued;
+    }
+
+    public long getMaxQueueWaitMillis() {
+        return maxQueueWaitMillis;
+    }
+
+    public void setMaxQueueWaitMillis(long maxQueueWaitMillis) {
+        this.maxQueueWaitMillis = maxQueueWaitMillis;
+    }
+}
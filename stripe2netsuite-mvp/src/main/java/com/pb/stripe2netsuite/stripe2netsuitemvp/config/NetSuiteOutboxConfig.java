@@ -0,0 +1,71 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for the NetSuite outbox.
+ *
+ * Order writes produced by the webhook handlers are appended to a local log and
+ * flushed to disk before the event counts as processed. A relay sends them to
+ * NetSuite in log order and in batches, so webhook throughput does not depend on
+ * NetSuite being up and no write is lost on restart. Failed batches are retried
+ * with the netsuite.retry.* backoff.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "netsuite.outbox")
+public class NetSuiteOutboxConfig {
+
+    /**
+     * Enable the outbox. When disabled, handlers call NetSuite directly, with
+     * creates and status updates batched by the netsuite.batch.* settings.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Directory holding the outbox log file.
+     */
+    private String directory = "data/netsuite-outbox";
+
+    /**
+     * Maximum number of consecutive writes of the same kind sent in one batch.
+     */
+    private int maxBatchSize = 50;
+
+    /**
+     * Log size in bytes above which the log is rewritten with only the entries not yet relayed.
+     */
+    private long compactThresholdBytes = 16 * 1024 * 1024;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public long getCompactThresholdBytes() {
+        return compactThresholdBytes;
+    }
+
+    public void setCompactThresholdBytes(long compactThresholdBytes) {
+        this.compactThresholdBytes = compactThresholdBytes;
+    }
+}
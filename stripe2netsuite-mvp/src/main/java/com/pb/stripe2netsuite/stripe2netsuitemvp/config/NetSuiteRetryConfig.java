@@ -0,0 +1,147 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for retrying failed NetSuite work and for the
+ * per-endpoint circuit breakers.
+ *
+ * Events whose handler failed with a retryable NetSuite error are run again after
+ * a jittered exponential backoff: a random delay between 0 and
+ * min(max-delay, base-delay * 2^attempt). Non-retryable errors are not retried.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "netsuite.retry")
+public class NetSuiteRetryConfig {
+
+    /**
+     * Whether failed events are retried at all.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Maximum number of attempts per event, including the first.
+     */
+    private int maxAttempts = 6;
+
+    /**
+     * Backoff before the first retry, before jitter, in milliseconds.
+     */
+    private long baseDelayMillis = 500;
+
+    /**
+     * Upper bound of the backoff, in milliseconds.
+     */
+    private long maxDelayMillis = 60_000;
+
+    /**
+     * Resolution of the retry timer wheel, in milliseconds.
+     */
+    private long timerTickMillis = 100;
+
+    /**
+     * Number of buckets of the retry timer wheel.
+     */
+    private int timerWheelSize = 512;
+
+    /**
+     * Number of recent calls per endpoint the circuit breaker looks at.
+     */
+    private int circuitWindowSize = 20;
+
+    /**
+     * Minimum number of recent calls before the circuit breaker may open.
+     */
+    private int circuitMinimumCalls = 10;
+
+    /**
+     * Percentage of failed recent calls that opens the circuit breaker.
+     */
+    private int circuitFailureRatePercent = 50;
+
+    /**
+     * How long an open circuit breaker rejects calls before letting a trial call through, in seconds.
+     */
+    private long circuitOpenSeconds = 30;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getBaseDelayMillis() {
+        return baseDelayMillis;
+    }
+
+    public void setBaseDelayMillis(long baseDelayMillis) {
+        this.baseDelayMillis = baseDelayMillis;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    public void setMaxDelayMillis(long maxDelayMillis) {
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public long getTimerTickMillis() {
+        return timerTickMillis;
+    }
+
+    public void setTimerTickMillis(long timerTickMillis) {
+        this.timerTickMillis = timerTickMillis;
+    }
+
+    public int getTimerWheelSize() {
+        return timerWheelSize;
+    }
+
+    public void setTimerWheelSize(int timerWheelSize) {
+        this.timerWheelSize = timerWheelSize;
+    }
+
+    public int getCircuitWindowSize() {
+        return circuitWindowSize;
+    }
+
+    public void setCircuitWindowSize(int circuitWindowSize) {
+        this.circuitWindowSize = circuitWindowSize;
+    }
+
+    public int getCircuitMinimumCalls() {
+        return circuitMinimumCalls;
+    }
+
+    public void setCircuitMinimumCalls(int circuitMinimumCalls) {
+        this.circuitMinimumCalls = circuitMinimumCalls;
+    }
+
+    public int getCircuitFailureRatePercent() {
+        return circuitFailureRatePercent;
+    }
+
+    public void setCircuitFailureRatePercent(int circuitFailureRatePercent) {
+        this.circuitFailureRatePercent = circuitFailureRatePercent;
+    }
+
+    public long getCircuitOpenSeconds() {
+        return circuitOpenSeconds;
+    }
+
+    public void setCircuitOpenSeconds(long circuitOpenSeconds) {
+        this.circuitOpenSeconds = circuitOpenSeconds;
+    }
+}
@@ -3,6 +3,9 @@ package com.pb.stripe2netsuite.stripe2netsuitemvp.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Configuration properties for Stripe webhook.
  */
@@ -16,12 +19,41 @@ public class StripeWebhookConfig {
      */
     private String secret = "";
 
+    /**
+     * Additional active signing secrets, e.g. the previous secret during a rotation
+     * or the secrets of other endpoints delivering to this service.
+     * A signature matching any of these or {@link #secret} is accepted.
+     */
+    private List<String> secrets = new ArrayList<>();
+
+    /**
+     * Maximum age of a signed webhook timestamp in seconds; zero or less disables the check, as in the Stripe SDK.
+     */
+    private long toleranceSeconds = 300;
+
     /**
      * Flag to enable/disable signature verification.
      * Set to false for testing only (not recommended for production).
      */
     private boolean verifySignature = true;
 
+    /**
+     * Maximum accepted webhook payload size in bytes.
+     * Larger requests are rejected with 413 before being read completely.
+     */
+    private int maxPayloadBytes = 1024 * 1024;
+
+    /**
+     * Size of the pooled read buffers in bytes.
+     * Payloads that do not fit get a one-off buffer up to maxPayloadBytes.
+     */
+    private int bufferSize = 64 * 1024;
+
+    /**
+     * Number of read buffers kept in the pool.
+     */
+    private int bufferPoolSize = 32;
+
     public String getSecret() {
         return secret;
     }
@@ -30,6 +62,22 @@ public class StripeWebhookConfig {
         this.secret = secret;
     }
 
+    public List<String> getSecrets() {
+        return secrets;
+    }
+
+    public void setSecrets(List<String> secrets) {
+        this.secrets = secrets;
+    }
+
+    public long getToleranceSeconds() {
+        return toleranceSeconds;
+    }
+
+    public void setToleranceSeconds(long toleranceSeconds) {
+        this.toleranceSeconds = toleranceSeconds;
+    }
+
     public boolean isVerifySignature() {
         return verifySignature;
     }
@@ -37,5 +85,29 @@ public class StripeWebhookConfig {
     public void setVerifySignature(boolean verifySignature) {
         this.verifySignature = verifySignature;
     }
+
+    public int getMaxPayloadBytes() {
+        return maxPayloadBytes;
+    }
+
+    public void setMaxPayloadBytes(int maxPayloadBytes) {
+        this.maxPayloadBytes = maxPayloadBytes;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public int getBufferPoolSize() {
+        return bufferPoolSize;
+    }
+
+    public void setBufferPoolSize(int bufferPoolSize) {
+        this.bufferPoolSize = bufferPoolSize;
+    }
 }
 
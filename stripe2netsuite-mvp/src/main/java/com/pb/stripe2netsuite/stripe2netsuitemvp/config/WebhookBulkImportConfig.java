@@ -0,0 +1,73 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for bulk NDJSON event import.
+ *
+ * Used to replay events after an outage or to load a Stripe event export.
+ * Imported events are not signed by Stripe, so the endpoint is protected by a
+ * bearer token instead and is disabled while no token is configured.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "stripe.webhook.bulk")
+public class WebhookBulkImportConfig {
+
+    /**
+     * Bearer token required by the bulk import endpoint.
+     * Empty disables the endpoint.
+     */
+    private String token = "";
+
+    /**
+     * Maximum size of one NDJSON line (one event) in bytes.
+     */
+    private int maxLineBytes = 1024 * 1024;
+
+    /**
+     * Maximum number of imported events being processed at once.
+     * Results are streamed back in input order, so this also bounds how far
+     * processing can run ahead of the oldest unfinished line.
+     */
+    private int maxInFlight = 256;
+
+    /**
+     * Maximum time to wait for the outcome of one imported event before it is
+     * reported as TIMEOUT. Covers the NetSuite retries of the event; the event
+     * itself keeps running.
+     */
+    private long outcomeTimeoutSeconds = 600;
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public int getMaxLineBytes() {
+        return maxLineBytes;
+    }
+
+    public void setMaxLineBytes(int maxLineBytes) {
+        this.maxLineBytes = maxLineBytes;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public long getOutcomeTimeoutSeconds() {
+        return outcomeTimeoutSeconds;
+    }
+
+    public void setOutcomeTimeoutSeconds(long outcomeTimeoutSeconds) {
+        this.outcomeTimeoutSeconds = outcomeTimeoutSeconds;
+    }
+}
@@ -0,0 +1,96 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for webhook event deduplication.
+ *
+ * Stripe redelivers events it considers unacknowledged; processed event IDs are
+ * remembered for a time window so redeliveries are dropped before processing.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "stripe.webhook.dedup")
+public class WebhookDedupConfig {
+
+    /**
+     * Enable deduplication of events by Stripe event ID.
+     */
+    private boolean enabled = true;
+
+    /**
+     * How long an event ID is remembered, in hours.
+     * Stripe retries failed deliveries for up to three days.
+     */
+    private long windowHours = 72;
+
+    /**
+     * Maximum number of event IDs kept in the exact store; also the expected
+     * number of insertions per Bloom filter generation.
+     */
+    private int maxEntries = 100_000;
+
+    /**
+     * Target false positive rate of each Bloom filter generation.
+     */
+    private double falsePositiveRate = 0.001;
+
+    /**
+     * File the exact store is saved to on shutdown and periodically, and loaded
+     * from on startup. Empty to keep the store in memory only.
+     */
+    private String persistFile = "";
+
+    /**
+     * Interval between periodic saves of the exact store, in seconds.
+     */
+    private long persistIntervalSeconds = 60;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getWindowHours() {
+        return windowHours;
+    }
+
+    public void setWindowHours(long windowHours) {
+        this.windowHours = windowHours;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    public void setFalsePositiveRate(double falsePositiveRate) {
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    public String getPersistFile() {
+        return persistFile;
+    }
+
+    public void setPersistFile(String persistFile) {
+        this.persistFile = persistFile;
+    }
+
+    public long getPersistIntervalSeconds() {
+        return persistIntervalSeconds;
+    }
+
+    public void setPersistIntervalSeconds(long persistIntervalSeconds) {
+        this.persistIntervalSeconds = persistIntervalSeconds;
+    }
+}
@@ -0,0 +1,100 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for the durable webhook journal.
+ *
+ * Verified webhook payloads are appended to memory-mapped segment files and
+ * flushed to disk before Stripe receives its 200, so an event is never lost
+ * between the acknowledgement and the end of processing.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "stripe.webhook.journal")
+public class WebhookJournalConfig {
+
+    /**
+     * Enable the journal. When disabled, events are acknowledged without being persisted.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Directory holding the journal segment files.
+     */
+    private String directory = "data/webhook-journal";
+
+    /**
+     * Size of each memory-mapped segment file in bytes.
+     * A payload must fit in a single segment.
+     */
+    private int segmentSizeBytes = 16 * 1024 * 1024;
+
+    /**
+     * Number of newer segments after which a sealed segment that still holds
+     * unprocessed events is compacted: its pending events are copied forward
+     * and the file is deleted.
+     */
+    private int compactAfterSegments = 4;
+
+    /**
+     * Number of failed processing passes after which an event is no longer replayed
+     * but written to the dead-letter directory. A pass already includes the NetSuite
+     * retries, so this roughly counts restarts that replayed a failing event.
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * Directory holding dead-lettered payloads, one file per event.
+     * Relative paths are resolved against the journal directory.
+     */
+    private String deadLetterDirectory = "dead-letter";
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getSegmentSizeBytes() {
+        return segmentSizeBytes;
+    }
+
+    public void setSegmentSizeBytes(int segmentSizeBytes) {
+        this.segmentSizeBytes = segmentSizeBytes;
+    }
+
+    public int getCompactAfterSegments() {
+        return compactAfterSegments;
+    }
+
+    public void setCompactAfterSegments(int compactAfterSegments) {
+        this.compactAfterSegments = compactAfterSegments;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public String getDeadLetterDirectory() {
+        return deadLetterDirectory;
+    }
+
+    public void setDeadLetterDirectory(String deadLetterDirectory) {
+        this.deadLetterDirectory = deadLetterDirectory;
+    }
+}
@@ -0,0 +1,127 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for the in-process webhook work queue.
+ *
+ * Verified webhook events are placed on bounded lanes, each drained by a single
+ * worker thread, so the HTTP acknowledgement sent to Stripe does not wait for the
+ * handlers or NetSuite. Events for the same Stripe object (or customer) always
+ * land on the same lane and are processed in arrival order.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "stripe.webhook.queue")
+public class WebhookQueueConfig {
+
+    /**
+     * Which ID of an event decides its lane.
+     */
+    public enum LaneKey {
+        /**
+         * The event's data object ID: events of one PaymentIntent, Charge or Invoice are ordered.
+         */
+        OBJECT,
+        /**
+         * The customer ID (falling back to the object ID): all events of one customer are ordered.
+         */
+        CUSTOMER
+    }
+
+    /**
+     * Maximum number of events waiting to be processed, split evenly across lanes.
+     * When a lane is full the webhook endpoint answers 503 and Stripe retries later.
+     */
+    private int capacity = 1000;
+
+    /**
+     * Number of lanes, each with one worker thread.
+     * 0 uses the number of available processors.
+     */
+    private int lanes = 0;
+
+    /**
+     * Which ID of an event decides its lane.
+     */
+    private LaneKey laneKey = LaneKey.OBJECT;
+
+    /**
+     * A lane is reported hot when it received more than this multiple of the
+     * average lane's events during the last check interval.
+     */
+    private double hotLaneFactor = 3.0;
+
+    /**
+     * Seconds between hot lane checks.
+     */
+    private int hotLaneCheckSeconds = 10;
+
+    /**
+     * Maximum number of events per lane whose handlers are waiting for NetSuite.
+     * Events of different objects on a lane overlap up to this limit; events of
+     * the same object still run one after another.
+     */
+    private int maxInFlightPerLane = 64;
+
+    /**
+     * Seconds to wait for queued events to drain on shutdown.
+     */
+    private int shutdownTimeoutSeconds = 10;
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getLanes() {
+        return lanes;
+    }
+
+    public void setLanes(int lanes) {
+        this.lanes = lanes;
+    }
+
+    public LaneKey getLaneKey() {
+        return laneKey;
+    }
+
+    public void setLaneKey(LaneKey laneKey) {
+        this.laneKey = laneKey;
+    }
+
+    public double getHotLaneFactor() {
+        return hotLaneFactor;
+    }
+
+    public void setHotLaneFactor(double hotLaneFactor) {
+        this.hotLaneFactor = hotLaneFactor;
+    }
+
+    public int getHotLaneCheckSeconds() {
+        return hotLaneCheckSeconds;
+    }
+
+    public void setHotLaneCheckSeconds(int hotLaneCheckSeconds) {
+        this.hotLaneCheckSeconds = hotLaneCheckSeconds;
+    }
+
+    public int getMaxInFlightPerLane() {
+        return maxInFlightPerLane;
+    }
+
+    public void setMaxInFlightPerLane(int maxInFlightPerLane) {
+        this.maxInFlightPerLane = maxInFlightPerLane;
+    }
+
+    public int getShutdownTimeoutSeconds() {
+        return shutdownTimeoutSeconds;
+    }
+
+    public void setShutdownTimeoutSeconds(int shutdownTimeoutSeconds) {
+        this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+    }
+}
@@ -1,9 +1,13 @@
 package com.pb.stripe2netsuite.stripe2netsuitemvp.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pb.stripe2netsuite.stripe2netsuitemvp.model.CreatePendingOrderRequest;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.CursorPage;
 import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Customer;
 import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Order;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderQuery;
 import com.pb.stripe2netsuite.stripe2netsuitemvp.service.MockNetSuiteService;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.OrderStore;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -13,12 +17,15 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * REST controller for Mock NetSuite operations.
@@ -26,43 +33,152 @@ import java.util.stream.Collectors;
  * 
  * This controller is intended for development and testing only.
  * In production, these endpoints should be secured or removed.
+ * Only registered while the mock NetSuite service is enabled.
  */
 @RestController
+@ConditionalOnProperty(name = "netsuite.mock.enabled", havingValue = "true", matchIfMissing = true)
 @RequestMapping("/mock")
 @Tag(name = "Mock NetSuite", description = "Mock NetSuite endpoints for demonstration and testing")
 public class MockNetSuiteController {
 
     private static final Logger logger = LoggerFactory.getLogger(MockNetSuiteController.class);
 
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int MAX_SEARCH_LIMIT = 1000;
+    private static final int MAX_PAGE_LIMIT = 1000;
+
     private final MockNetSuiteService mockNetSuiteService;
+    private final ObjectMapper objectMapper;
 
-    public MockNetSuiteController(MockNetSuiteService mockNetSuiteService) {
+    public MockNetSuiteController(MockNetSuiteService mockNetSuiteService, ObjectMapper objectMapper) {
         this.mockNetSuiteService = mockNetSuiteService;
+        this.objectMapper = objectMapper;
     }
 
     /**
-     * Get all mock orders.
-     * 
-     * @return list of all orders
+     * Get one page of mock orders, in ID order.
+     *
+     * @return the orders and the cursor of the next page
      */
     @GetMapping("/orders")
     @Operation(
-            summary = "Get all mock orders",
-            description = "Retrieves all orders stored in the mock NetSuite database. " +
-                    "Useful for testing and demonstration purposes."
+            summary = "Get mock orders",
+            description = "Retrieves one page of the orders stored in the mock NetSuite database, in ID order. " +
+                    "Pass the returned nextCursor to get the next page; it is null on the last page. " +
+                    "Use /mock/orders/stream to read all orders at once."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Successfully retrieved a page of orders",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CursorPage.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid cursor, or limit out of range"
+            )
+    })
+    public ResponseEntity<CursorPage<Order>> getAllOrders(
+            @Parameter(description = "Cursor from the previous page; omit for the first page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Maximum number of orders, 1 to " + MAX_PAGE_LIMIT, example = "100")
+            @RequestParam(defaultValue = "100") int limit) {
+        logger.info("GET /mock/orders - Retrieving mock orders, cursor: {}, limit: {}", cursor, limit);
+        if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(mockNetSuiteService.getOrdersPage(cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Stream all mock orders as NDJSON, one order per line, in ID order.
+     *
+     * @return the streamed response
+     */
+    @GetMapping(value = "/orders/stream", produces = NDJSON)
+    @Operation(
+            summary = "Stream all mock orders",
+            description = "Streams every order as one JSON object per line, in ID order, as of one version " +
+                    "of the order store. Orders written while the response is streamed are not included."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "All orders, one per line",
+                    content = @Content(mediaType = NDJSON)
+            )
+    })
+    public ResponseEntity<StreamingResponseBody> streamOrders() {
+        OrderStore.Snapshot snapshot = mockNetSuiteService.getOrdersSnapshot();
+        logger.info("GET /mock/orders/stream - Streaming {} mock orders as of version {}",
+                snapshot.orders().size(), snapshot.version());
+        return ndjson(snapshot.orders());
+    }
+
+    /**
+     * Find mock orders by status, customer, currency, Stripe payment ID and creation time.
+     *
+     * @return the matching orders, sorted and limited
+     */
+    @GetMapping("/orders/search")
+    @Operation(
+            summary = "Search mock orders",
+            description = "Finds orders matching all given filters, using the store's secondary indexes " +
+                    "instead of scanning every order. Omitted filters match every order."
     )
     @ApiResponses(value = {
             @ApiResponse(
                     responseCode = "200",
-                    description = "Successfully retrieved all orders",
+                    description = "Matching orders",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = Order.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Unknown sort field or direction, or limit out of range"
             )
     })
-    public ResponseEntity<List<Order>> getAllOrders() {
-        logger.info("GET /mock/orders - Retrieving all mock orders");
-        List<Order> orders = mockNetSuiteService.getAllOrders().values().stream()
-                .collect(Collectors.toList());
+    public ResponseEntity<List<Order>> searchOrders(
+            @Parameter(description = "Order status", example = "failed")
+            @RequestParam(required = false) String status,
+            @Parameter(description = "NetSuite customer ID", example = "MOCK-CUST-001")
+            @RequestParam(required = false) String customerId,
+            @Parameter(description = "Currency code", example = "usd")
+            @RequestParam(required = false) String currency,
+            @Parameter(description = "Stripe payment ID", example = "pi_1234567890")
+            @RequestParam(required = false) String stripePaymentId,
+            @Parameter(description = "Earliest creation time, epoch milliseconds, inclusive")
+            @RequestParam(required = false) Long createdFrom,
+            @Parameter(description = "Latest creation time, epoch milliseconds, exclusive")
+            @RequestParam(required = false) Long createdTo,
+            @Parameter(description = "Sort field: createdAt, amount or id", example = "createdAt")
+            @RequestParam(defaultValue = "createdAt") String sort,
+            @Parameter(description = "Sort direction: asc or desc", example = "desc")
+            @RequestParam(defaultValue = "desc") String direction,
+            @Parameter(description = "Maximum number of orders, 1 to " + MAX_SEARCH_LIMIT, example = "100")
+            @RequestParam(defaultValue = "100") int limit) {
+        logger.info("GET /mock/orders/search - status: {}, customerId: {}, currency: {}, stripePaymentId: {}",
+                status, customerId, currency, stripePaymentId);
+
+        OrderQuery.SortField sortBy = switch (sort) {
+            case "createdAt" -> OrderQuery.SortField.CREATED_AT;
+            case "amount" -> OrderQuery.SortField.AMOUNT;
+            case "id" -> OrderQuery.SortField.ID;
+            default -> null;
+        };
+        boolean descending = "desc".equalsIgnoreCase(direction);
+        if (sortBy == null || (!descending && !"asc".equalsIgnoreCase(direction))
+                || limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        List<Order> orders = mockNetSuiteService.queryOrders(new OrderQuery(status, customerId, currency,
+                stripePaymentId, createdFrom, createdTo, sortBy, descending, limit));
         return ResponseEntity.ok(orders);
     }
 
@@ -109,33 +225,84 @@ public class MockNetSuiteController {
     }
 
     /**
-     * Get all mock customers.
-     * 
-     * @return list of all customers
+     * Get one page of mock customers, in ID order.
+     *
+     * @return the customers and the cursor of the next page
      */
     @GetMapping("/customers")
     @Operation(
-            summary = "Get all mock customers",
-            description = "Retrieves all customers stored in the mock NetSuite database. " +
-                    "Useful for testing and demonstration purposes."
+            summary = "Get mock customers",
+            description = "Retrieves one page of the customers stored in the mock NetSuite database, in ID order. " +
+                    "Pass the returned nextCursor to get the next page; it is null on the last page. " +
+                    "Use /mock/customers/stream to read all customers at once."
     )
     @ApiResponses(value = {
             @ApiResponse(
                     responseCode = "200",
-                    description = "Successfully retrieved all customers",
+                    description = "Successfully retrieved a page of customers",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = Customer.class))
+                            schema = @Schema(implementation = CursorPage.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid cursor, or limit out of range"
             )
     })
-    public ResponseEntity<List<Customer>> getAllCustomers() {
-        logger.info("GET /mock/customers - Retrieving all mock customers");
-        List<Customer> customers = mockNetSuiteService.getAllCustomers().values().stream()
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(customers);
+    public ResponseEntity<CursorPage<Customer>> getAllCustomers(
+            @Parameter(description = "Cursor from the previous page; omit for the first page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Maximum number of customers, 1 to " + MAX_PAGE_LIMIT, example = "100")
+            @RequestParam(defaultValue = "100") int limit) {
+        logger.info("GET /mock/customers - Retrieving mock customers, cursor: {}, limit: {}", cursor, limit);
+        if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(mockNetSuiteService.getCustomersPage(cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Stream all mock customers as NDJSON, one customer per line, in ID order.
+     *
+     * @return the streamed response
+     */
+    @GetMapping(value = "/customers/stream", produces = NDJSON)
+    @Operation(
+            summary = "Stream all mock customers",
+            description = "Streams every customer as one JSON object per line, in ID order, read from the " +
+                    "store as the response is written. Customers created while it is streamed may or may not " +
+                    "be included; none is included twice."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "All customers, one per line",
+                    content = @Content(mediaType = NDJSON)
+            )
+    })
+    public ResponseEntity<StreamingResponseBody> streamCustomers() {
+        logger.info("GET /mock/customers/stream - Streaming mock customers");
+        return ndjson(mockNetSuiteService.getCustomersView());
+    }
+
+    /**
+     * Write items as NDJSON, serializing one item at a time.
+     */
+    private ResponseEntity<StreamingResponseBody> ndjson(Iterable<?> items) {
+        StreamingResponseBody body = (OutputStream out) -> {
+            for (Object item : items) {
+                out.write(objectMapper.writeValueAsBytes(item));
+                out.write('\n');
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
     }
 
     /**
-     * Get a specific mock customer by ID.
+     * Get a specific mock customer by ID, read through the customer cache.
      * 
      * @param customerId the customer ID
      * @return the customer if found
@@ -143,7 +310,8 @@ public class MockNetSuiteController {
     @GetMapping("/customers/{id}")
     @Operation(
             summary = "Get mock customer by ID",
-            description = "Retrieves a specific customer from the mock NetSuite database by its ID."
+            description = "Retrieves a specific customer from the mock NetSuite database by its ID. " +
+                    "Reads go through the customer cache; see /monitoring/customer-cache."
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -261,7 +429,8 @@ public class MockNetSuiteController {
     @GetMapping("/health")
     @Operation(
             summary = "Mock service health check",
-            description = "Returns the health status of the mock NetSuite service."
+            description = "Returns the health status of the mock NetSuite service, with the order count " +
+                    "and the order store version it was counted at."
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -270,11 +439,13 @@ public class MockNetSuiteController {
             )
     })
     public ResponseEntity<Map<String, Object>> health() {
+        OrderStore.Snapshot orders = mockNetSuiteService.getOrdersSnapshot();
         Map<String, Object> health = Map.of(
                 "service", "MockNetSuite",
                 "status", "UP",
-                "ordersCount", mockNetSuiteService.getAllOrders().size(),
-                "customersCount", mockNetSuiteService.getAllCustomers().size()
+                "ordersCount", orders.orders().size(),
+                "ordersVersion", orders.version(),
+                "customersCount", mockNetSuiteService.getCustomersCount()
         );
         return ResponseEntity.ok(health);
     }
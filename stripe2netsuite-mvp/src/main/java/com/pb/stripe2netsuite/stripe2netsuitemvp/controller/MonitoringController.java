@@ -0,0 +1,351 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.controller;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.CustomerCache;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.CustomerIdIndex;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.CustomerSingleFlight;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.EventDeduplicator;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.MockNetSuitePersistence;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.NetSuiteBatchWriter;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.NetSuiteCircuitBreakers;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.NetSuiteConcurrencyLimiter;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.NetSuiteOutbox;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.NetSuiteRetryScheduler;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.StripeEventHandlerRegistry;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.StripeSignatureVerifier;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.WebhookEventQueue;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.WebhookJournal;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * REST controller exposing runtime metrics of the webhook processing pipeline.
+ */
+@RestController
+@RequestMapping("/monitoring")
+@Tag(name = "Monitoring", description = "Runtime metrics of the webhook processing pipeline")
+public class MonitoringController {
+
+    private final WebhookEventQueue eventQueue;
+    private final WebhookJournal journal;
+    private final StripeSignatureVerifier signatureVerifier;
+    private final StripeEventHandlerRegistry handlerRegistry;
+    private final EventDeduplicator deduplicator;
+    private final NetSuiteBatchWriter batchWriter;
+    private final NetSuiteConcurrencyLimiter netSuiteLimiter;
+    private final NetSuiteRetryScheduler retryScheduler;
+    private final NetSuiteCircuitBreakers circuitBreakers;
+    private final NetSuiteOutbox outbox;
+    private final CustomerIdIndex customerIndex;
+    private final CustomerSingleFlight customerSingleFlight;
+    private final CustomerCache customerCache;
+    private final MockNetSuitePersistence mockPersistence;
+
+    public MonitoringController(WebhookEventQueue eventQueue, WebhookJournal journal,
+                                StripeSignatureVerifier signatureVerifier,
+                                StripeEventHandlerRegistry handlerRegistry,
+                                EventDeduplicator deduplicator,
+                                NetSuiteBatchWriter batchWriter,
+                                NetSuiteConcurrencyLimiter netSuiteLimiter,
+                                NetSuiteRetryScheduler retryScheduler,
+                                NetSuiteCircuitBreakers circuitBreakers,
+                                NetSuiteOutbox outbox, CustomerIdIndex customerIndex,
+                                CustomerSingleFlight customerSingleFlight, CustomerCache customerCache,
+                                MockNetSuitePersistence mockPersistence) {
+        this.eventQueue = eventQueue;
+        this.journal = journal;
+        this.signatureVerifier = signatureVerifier;
+        this.handlerRegistry = handlerRegistry;
+        this.deduplicator = deduplicator;
+        this.batchWriter = batchWriter;
+        this.netSuiteLimiter = netSuiteLimiter;
+        this.retryScheduler = retryScheduler;
+        this.circuitBreakers = circuitBreakers;
+        this.outbox = outbox;
+        this.customerIndex = customerIndex;
+        this.customerSingleFlight = customerSingleFlight;
+        this.customerCache = customerCache;
+        this.mockPersistence = mockPersistence;
+    }
+
+    /**
+     * Get webhook work queue metrics.
+     *
+     * @return queue depth, enqueue latency and worker utilization
+     */
+    @GetMapping("/webhook-queue")
+    @Operation(
+            summary = "Webhook queue metrics",
+            description = "Returns queue depth, enqueue latency and worker utilization of the webhook work queue."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Metrics retrieved"
+            )
+    })
+    public ResponseEntity<Map<String, Object>> webhookQueue() {
+        return ResponseEntity.ok(eventQueue.getStats());
+    }
+
+    /**
+     * Get webhook journal metrics.
+     *
+     * @return segment count, pending events and group commit figures
+     */
+    @GetMapping("/webhook-journal")
+    @Operation(
+            summary = "Webhook journal metrics",
+            description = "Returns segment count, pending events and group commit figures of the webhook journal."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Metrics retrieved"
+            )
+    })
+    public ResponseEntity<Map<String, Object>> webhookJournal() {
+        return ResponseEntity.ok(journal.getStats());
+    }
+
+    /**
+     * Get webhook signature verification metrics.
+     *
+     * @return verification outcomes and matches per configured secret
+     */
+    @GetMapping("/webhook-signatures")
+    @Operation(
+            summary = "Webhook signature metrics",
+            description = "Returns verification outcomes and the number of matches per configured signing secret, "
+                    + "e.g. to see when a rotated-out secret is no longer used."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Metrics retrieved"
+            )
+    })
+    public ResponseEntity<Map<String, Object>> webhookSignatures() {
+        return ResponseEntity.ok(signatureVerifier.getStats());
+    }
+
+    /**
+     * Get event dispatch diagnostics.
+     *
+     * @return routing table with hit counts and unrouted event types
+     */
+    @GetMapping("/dispatch")
+    @Operation(
+            summary = "Event dispatch diagnostics",
+            description = "Returns which event types are routed to which handler with hit counts, declared types "
+                    + "that Stripe never sends, and received event types that have no handler."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Diagnostics retrieved"
+            )
+    })
+    public ResponseEntity<Map<String, Object>> dispatch() {
+        return ResponseEntity.ok(handlerRegistry.getDiagnostics());
+    }
+
+    /**
+     * Get webhook event deduplication metrics.
+     *
+     * @return duplicate counts, Bloom filter and exact store figures
+     */
+    @GetMapping("/dedup")
+    @Operation(
+            summary = "Webhook dedup metrics",
+            description = "Returns the number of dropped duplicate deliveries and the state of the Bloom filters "
+                    + "and exact event ID store."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Metrics retrieved"
+            )
+    })
+    public ResponseEntity<Map<String, Object>> dedup() {
+        return ResponseEntity.ok(deduplicator.getStats());
+    }
+
+    /**
+     * Get NetSuite write batching metrics.
+     *
+     * @return batch counts, sizes and failed records
+     */
+    @GetMapping("/netsuite-batches")
+    @Operation(
+            summary = "NetSuite batch metrics",
+            description = "Returns the number and average size of NetSuite write batches, records waiting for "
+                    + "the next batch and records that failed."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Metrics retrieved"
+            )
+    })
+    public ResponseEntity<Map<String, Object>> netSuiteBatches() {
+        return ResponseEntity.ok(batchWriter.getStats());
+    }
+
+    /**
+     * Get NetSuite concurrency limiter metrics.
+     *
+     * @return current limit, requests in flight and queue time
+     */
+    @GetMapping("/netsuite-limiter")
+    @Operation(
+            summary = "NetSuite concurrency limiter metrics",
+            description = "Returns the current adaptive limit on concurrent NetSuite requests, the requests in "
+                    + "flight and waiting, queue time and how often NetSuite rejected requests."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Metrics retrieved"
+            )
+    })
+    public ResponseEntity<Map<String, Object>> netSuiteLimiter() {
+        return ResponseEntity.ok(netSuiteLimiter.getStats());
+    }
+
+    /**
+     * Get NetSuite retry and circuit breaker metrics.
+     *
+     * @return retry counts and the state of each endpoint's circuit breaker
+     */
+    @GetMapping("/netsuite-retries")
+    @Operation(
+            summary = "NetSuite retry and circuit breaker metrics",
+            description = "Returns how many events were retried, recovered or given up after retryable NetSuite "
+                    + "errors, the retries waiting on the timer, and the state of each endpoint's circuit breaker."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Metrics retrieved"
+            )
+    })
+    public ResponseEntity<Map<String, Object>> netSuiteRetries() {
+        Map<String, Object> stats = new LinkedHashMap<>(retryScheduler.getStats());
+        stats.put("circuitBreakers", circuitBreakers.getStats());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Get NetSuite outbox metrics.
+     *
+     * @return entries waiting for NetSuite, the age of the oldest and relay counts
+     */
+    @GetMapping("/netsuite-outbox")
+    @Operation(
+            summary = "NetSuite outbox metrics",
+            description = "Returns the number of recorded NetSuite writes not yet relayed, the age of the oldest "
+                    + "one (outbox lag), relayed and rejected counts and the relay's retry state."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Metrics retrieved"
+            )
+    })
+    public ResponseEntity<Map<String, Object>> netSuiteOutbox() {
+        return ResponseEntity.ok(outbox.getStats());
+    }
+
+    /**
+     * Get customer index metrics.
+     *
+     * @return index size, hit rate and snapshot figures
+     */
+    @GetMapping("/customer-index")
+    @Operation(
+            summary = "Customer index metrics",
+            description = "Returns the number of Stripe customers mapped to NetSuite customers, the lookup hit rate "
+                    + "and when the index snapshot was last written."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Metrics retrieved"
+            )
+    })
+    public ResponseEntity<Map<String, Object>> customerIndex() {
+        return ResponseEntity.ok(customerIndex.getStats());
+    }
+
+    /**
+     * Get customer single-flight metrics.
+     *
+     * @return customer calls made and calls that joined one already in flight
+     */
+    @GetMapping("/customer-single-flight")
+    @Operation(
+            summary = "Customer single-flight metrics",
+            description = "Returns how many customer lookups and creations were requested, how many were executed "
+                    + "and how many were coalesced into a call already in flight for the same customer."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Metrics retrieved"
+            )
+    })
+    public ResponseEntity<Map<String, Object>> customerSingleFlight() {
+        return ResponseEntity.ok(customerSingleFlight.getStats());
+    }
+
+    /**
+     * Get customer cache metrics.
+     *
+     * @return hit ratio, eviction counts and NetSuite load latency
+     */
+    @GetMapping("/customer-cache")
+    @Operation(
+            summary = "Customer cache metrics",
+            description = "Returns the size of the NetSuite customer cache, its hit ratio including cached misses, "
+                    + "evictions, expirations and invalidations, and the latency of loads from NetSuite."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Metrics retrieved"
+            )
+    })
+    public ResponseEntity<Map<String, Object>> customerCache() {
+        return ResponseEntity.ok(customerCache.getStats());
+    }
+
+    /**
+     * Get mock NetSuite persistence metrics.
+     *
+     * @return restore time, log and snapshot figures
+     */
+    @GetMapping("/mock-persistence")
+    @Operation(
+            summary = "Mock NetSuite persistence metrics",
+            description = "Returns how long the mock NetSuite took to restore its data on startup, the records "
+                    + "logged since, and the number of snapshots written."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Metrics retrieved"
+            )
+    })
+    public ResponseEntity<Map<String, Object>> mockPersistence() {
+        return ResponseEntity.ok(mockPersistence.getStats());
+    }
+}
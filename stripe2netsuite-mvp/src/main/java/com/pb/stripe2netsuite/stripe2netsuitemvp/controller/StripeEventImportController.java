@@ -0,0 +1,444 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.WebhookBulkImportConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.InboundEvent;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.StripeEventParser;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.StripeEventProcessor.Outcome;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.WebhookEventQueue;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * REST controller for bulk importing Stripe events, e.g. to replay events
+ * missed during an outage or to backfill from a Stripe event export.
+ * Maps to /webhook/stripe/bulk.
+ *
+ * The request body is an NDJSON stream (one Stripe event JSON per line),
+ * optionally gzip compressed. Lines are read incrementally and each event goes
+ * through the same deduplication, lanes and handlers as a live webhook, so
+ * events that were already processed are reported as duplicates. One result
+ * line per input line is streamed back in input order, followed by a summary.
+ */
+@RestController
+@RequestMapping("/webhook")
+@Tag(name = "Stripe Webhooks", description = "Endpoints for receiving Stripe webhook events")
+@SecurityRequirement(name = "bearerAuth")
+public class StripeEventImportController {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeEventImportController.class);
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int READ_CHUNK_BYTES = 64 * 1024;
+    private static final long SUBMIT_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long SUBMIT_BACKOFF_MILLIS = 5;
+
+    private final StripeEventParser eventParser;
+    private final WebhookEventQueue eventQueue;
+    private final WebhookBulkImportConfig importConfig;
+    private final ObjectMapper objectMapper;
+
+    public StripeEventImportController(StripeEventParser eventParser, WebhookEventQueue eventQueue,
+                                       WebhookBulkImportConfig importConfig, ObjectMapper objectMapper) {
+        this.eventParser = eventParser;
+        this.eventQueue = eventQueue;
+        this.importConfig = importConfig;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Endpoint to import a stream of Stripe events.
+     *
+     * Responsibilities:
+     * - Check the bearer token (stripe.webhook.bulk.token)
+     * - Read the body line by line, decompressing gzip when requested
+     * - Parse each line and hand it to WebhookEventQueue, bounding the events in flight
+     * - Stream one result per line in input order, then a summary line
+     *
+     * Imported events are not journaled: a failed import is simply run again and
+     * the already processed events are dropped as duplicates.
+     *
+     * @param request the HTTP request containing the NDJSON stream
+     * @param response the HTTP response the results are streamed to
+     */
+    @PostMapping("/stripe/bulk")
+    @Operation(
+            summary = "Bulk import Stripe events",
+            description = """
+                    Imports a stream of Stripe events for replays and backfills, e.g. the output of
+                    `stripe events list` or a previous export, one event JSON object per line.
+                    Send `Content-Encoding: gzip` (or `Content-Type: application/gzip`) for a
+                    compressed stream.
+
+                    Events go through the same deduplication and handlers as live webhooks.
+                    The response is NDJSON with one result per input line, in input order:
+                    `{"line":1,"eventId":"evt_...","type":"charge.succeeded","outcome":"PROCESSED"}`
+
+                    Outcomes: PROCESSED, DUPLICATE, NO_HANDLER, INVALID, FAILED, REJECTED
+                    (the queue stayed full), TIMEOUT (no outcome within
+                    stripe.webhook.bulk.outcome-timeout-seconds; the event may still complete).
+                    The last line is a summary with the count per outcome.
+                    Blank lines are skipped.
+                    """,
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Per-line import results followed by a summary",
+                    content = @Content(mediaType = NDJSON)
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Body declared as gzip is not gzip compressed",
+                    content = @Content(mediaType = "text/plain")
+            ),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Missing or invalid bearer token",
+                    content = @Content(mediaType = "text/plain")
+            ),
+            @ApiResponse(
+                    responseCode = "403",
+                    description = "Bulk import is disabled (no stripe.webhook.bulk.token configured)",
+                    content = @Content(mediaType = "text/plain")
+            )
+    })
+    public void importEvents(
+            @Parameter(description = "HTTP request containing the NDJSON event stream", required = true, hidden = true)
+            HttpServletRequest request,
+            @Parameter(hidden = true)
+            HttpServletResponse response) throws IOException {
+        String token = importConfig.getToken();
+        if (token == null || token.isBlank()) {
+            writeText(response, HttpStatus.FORBIDDEN, "Bulk import is disabled");
+            return;
+        }
+        if (!isAuthorized(request.getHeader(HttpHeaders.AUTHORIZATION), token)) {
+            logger.warn("Rejecting bulk import from {}: invalid bearer token", request.getRemoteAddr());
+            writeText(response, HttpStatus.UNAUTHORIZED, "Invalid bearer token");
+            return;
+        }
+
+        InputStream body = request.getInputStream();
+        if (isGzip(request)) {
+            try {
+                body = new GZIPInputStream(body, READ_CHUNK_BYTES);
+            } catch (IOException e) {
+                writeText(response, HttpStatus.BAD_REQUEST, "Request body is not gzip compressed");
+                return;
+            }
+        }
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(NDJSON);
+        OutputStream out = response.getOutputStream();
+
+        long startNanos = System.nanoTime();
+        ImportRun run = new ImportRun(out);
+        try {
+            run.execute(new LineReader(body, importConfig.getMaxLineBytes()));
+        } catch (IOException e) {
+            // Client went away or sent a corrupt gzip stream; events already submitted still complete
+            logger.warn("Bulk import aborted after {} lines: {}", run.lines, e.getMessage());
+            run.abort(e.getMessage());
+            return;
+        }
+
+        logger.info("Bulk import finished: {} lines in {} ms, outcomes: {}", run.lines,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), run.counts);
+    }
+
+    private static boolean isAuthorized(String authorization, String token) {
+        if (authorization == null || !authorization.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return false;
+        }
+        byte[] presented = authorization.substring(7).trim().getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(presented, token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean isGzip(HttpServletRequest request) {
+        String encoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        String contentType = request.getContentType();
+        return (encoding != null && encoding.toLowerCase().contains("gzip"))
+                || (contentType != null && contentType.toLowerCase().startsWith("application/gzip"));
+    }
+
+    private static void writeText(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType("text/plain");
+        response.getOutputStream().write(message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * State of one import request: the window of submitted lines whose results
+     * have not been written yet, and the outcome counts for the summary.
+     */
+    private final class ImportRun {
+
+        private final OutputStream out;
+        private final Deque<LineResult> window = new ArrayDeque<>();
+        private final Map<String, Long> counts = new LinkedHashMap<>();
+        private final int maxInFlight = Math.max(1, importConfig.getMaxInFlight());
+        private long lines;
+
+        private ImportRun(OutputStream out) {
+            this.out = out;
+        }
+
+        private void execute(LineReader reader) throws IOException {
+            int length;
+            while ((length = reader.next()) >= 0) {
+                lines++;
+                if (reader.overflowed()) {
+                    enqueue(LineResult.done(lines, null, null, Outcome.INVALID.name(),
+                            "Line exceeds " + importConfig.getMaxLineBytes() + " bytes"));
+                } else if (!isBlank(reader.buffer(), length)) {
+                    submit(eventParser.parseImportedEvent(reader.buffer(), length));
+                }
+                writeReady(false);
+            }
+            while (!window.isEmpty()) {
+                writeReady(true);
+            }
+            writeSummary(null);
+        }
+
+        /**
+         * Submit one parsed line, retrying while its lane is full and writing
+         * finished results in the meantime.
+         */
+        private void submit(InboundEvent event) throws IOException {
+            if (event == null) {
+                enqueue(LineResult.done(lines, null, null, Outcome.INVALID.name(), "Not a Stripe event"));
+                return;
+            }
+
+            CompletableFuture<Outcome> result = new CompletableFuture<>();
+            long deadline = System.nanoTime() + SUBMIT_TIMEOUT_NANOS;
+            while (!eventQueue.submit(event, 0, result)) {
+                if (System.nanoTime() - deadline > 0) {
+                    enqueue(LineResult.done(lines, event.getId(), event.getType(), "REJECTED", "Webhook queue is full"));
+                    return;
+                }
+                if (!writeReady(false)) {
+                    try {
+                        Thread.sleep(SUBMIT_BACKOFF_MILLIS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while waiting for the webhook queue", e);
+                    }
+                }
+            }
+            CompletableFuture<String> outcome = result.thenApply(Outcome::name)
+                    .completeOnTimeout("TIMEOUT", importConfig.getOutcomeTimeoutSeconds(), TimeUnit.SECONDS);
+            enqueue(new LineResult(lines, event.getId(), event.getType(), outcome, null));
+        }
+
+        private void enqueue(LineResult result) throws IOException {
+            window.addLast(result);
+            while (window.size() >= maxInFlight) {
+                writeReady(true);
+            }
+        }
+
+        /**
+         * Write the results at the head of the window that are complete.
+         *
+         * @param block wait for the oldest result if it is still running
+         * @return true if anything was written
+         */
+        private boolean writeReady(boolean block) throws IOException {
+            boolean wrote = false;
+            while (!window.isEmpty()) {
+                LineResult head = window.peekFirst();
+                if (!head.outcome.isDone()) {
+                    if (!block || wrote) {
+                        break;
+                    }
+                    out.flush();
+                }
+                window.removeFirst();
+                write(head);
+                wrote = true;
+            }
+            if (wrote) {
+                out.flush();
+            }
+            return wrote;
+        }
+
+        private void write(LineResult result) throws IOException {
+            String outcome = result.outcome.join();
+            counts.merge(outcome, 1L, Long::sum);
+
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("line", result.line);
+            line.put("eventId", result.eventId);
+            line.put("type", result.type);
+            line.put("outcome", outcome);
+            if (result.error != null) {
+                line.put("error", result.error);
+            }
+            writeLine(line);
+        }
+
+        private void writeSummary(String error) throws IOException {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("summary", true);
+            summary.put("lines", lines);
+            summary.put("outcomes", counts);
+            if (error != null) {
+                summary.put("error", error);
+            }
+            writeLine(summary);
+            out.flush();
+        }
+
+        /**
+         * Report a failed read; results of lines already submitted are still written.
+         */
+        private void abort(String error) {
+            try {
+                while (!window.isEmpty()) {
+                    writeReady(true);
+                }
+                writeSummary(error == null ? "Failed to read request body" : error);
+            } catch (IOException e) {
+                logger.debug("Could not write bulk import results: {}", e.getMessage());
+            }
+        }
+
+        private void writeLine(Map<String, Object> line) throws IOException {
+            out.write(objectMapper.writeValueAsBytes(line));
+            out.write('\n');
+        }
+    }
+
+    /**
+     * One input line whose outcome is pending on a lane or already known.
+     */
+    private record LineResult(long line, String eventId, String type, CompletableFuture<String> outcome, String error) {
+
+        private static LineResult done(long line, String eventId, String type, String outcome, String error) {
+            return new LineResult(line, eventId, type, CompletableFuture.completedFuture(outcome), error);
+        }
+    }
+
+    private static boolean isBlank(byte[] buffer, int length) {
+        for (int i = 0; i < length; i++) {
+            byte b = buffer[i];
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Splits a byte stream into lines using one reusable line buffer.
+     * A line longer than the limit is consumed up to its newline and reported as overflowed.
+     */
+    private static final class LineReader {
+
+        private final InputStream in;
+        private final int maxLineBytes;
+        private final byte[] chunk = new byte[READ_CHUNK_BYTES];
+        private byte[] line = new byte[8 * 1024];
+        private int position;
+        private int limit;
+        private boolean eof;
+        private boolean overflowed;
+
+        private LineReader(InputStream in, int maxLineBytes) {
+            this.in = in;
+            this.maxLineBytes = Math.max(1, maxLineBytes);
+        }
+
+        /**
+         * Read the next line into {@link #buffer()}.
+         *
+         * @return the line length without the line terminator, or -1 at the end of the stream
+         */
+        private int next() throws IOException {
+            int length = 0;
+            boolean consumed = false;
+            overflowed = false;
+            while (true) {
+                if (position == limit) {
+                    if (eof) {
+                        return consumed ? length : -1;
+                    }
+                    int read = in.read(chunk, 0, chunk.length);
+                    if (read < 0) {
+                        eof = true;
+                        continue;
+                    }
+                    position = 0;
+                    limit = read;
+                    continue;
+                }
+
+                consumed = true;
+                int newline = position;
+                while (newline < limit && chunk[newline] != '\n') {
+                    newline++;
+                }
+                int segment = newline - position;
+                if (!overflowed) {
+                    if (length + segment > maxLineBytes) {
+                        overflowed = true;
+                        length = 0;
+                    } else {
+                        if (length + segment > line.length) {
+                            line = Arrays.copyOf(line, Math.min(maxLineBytes, Math.max(line.length * 2, length + segment)));
+                        }
+                        System.arraycopy(chunk, position, line, length, segment);
+                        length += segment;
+                    }
+                }
+                position = newline;
+                if (newline < limit) {
+                    position++;
+                    return length;
+                }
+            }
+        }
+
+        private byte[] buffer() {
+            return line;
+        }
+
+        private boolean overflowed() {
+            return overflowed;
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.pb.stripe2netsuite.stripe2netsuitemvp.controller;
 
-import com.stripe.model.Event;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.InboundEvent;
 import com.pb.stripe2netsuite.stripe2netsuitemvp.service.StripeEventParser;
-import com.pb.stripe2netsuite.stripe2netsuitemvp.service.StripeEventProcessor;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.WebhookEventQueue;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.WebhookJournal;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.WebhookPayloadReader;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.WebhookPayloadReader.PayloadBuffer;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.WebhookPayloadReader.PayloadTooLargeException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -14,6 +18,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -40,22 +45,28 @@ public class StripeWebhookController {
     private static final Logger logger = LoggerFactory.getLogger(StripeWebhookController.class);
 
     private final StripeEventParser eventParser;
-    private final StripeEventProcessor eventProcessor;
+    private final WebhookJournal journal;
+    private final WebhookEventQueue eventQueue;
+    private final WebhookPayloadReader payloadReader;
 
-    public StripeWebhookController(StripeEventParser eventParser, StripeEventProcessor eventProcessor) {
+    public StripeWebhookController(StripeEventParser eventParser, WebhookJournal journal,
+                                   WebhookEventQueue eventQueue, WebhookPayloadReader payloadReader) {
         this.eventParser = eventParser;
-        this.eventProcessor = eventProcessor;
+        this.journal = journal;
+        this.eventQueue = eventQueue;
+        this.payloadReader = payloadReader;
     }
 
     /**
      * Endpoint to receive Stripe webhook events.
      * 
      * Responsibilities:
-     * - Read raw request body
+     * - Read raw request body into a pooled buffer (rejecting oversized payloads)
      * - Extract signature header
      * - Delegate to StripeEventParser for validation
-     * - Delegate to StripeEventProcessor for processing
-     * - Return 200 OK immediately (per Stripe best practices)
+     * - Append the verified payload to WebhookJournal (durable before the ack)
+     * - Hand the event to WebhookEventQueue for background processing
+     * - Return 200 OK as soon as the event is enqueued (per Stripe best practices)
      * 
      * @param request The HTTP request containing the Stripe event payload
      * @return ResponseEntity with status indicating success or failure
@@ -68,8 +79,12 @@ public class StripeWebhookController {
                     Stripe Dashboard under Developers > Webhooks.
                     
                     ## Stripe Best Practices
-                    - Returns 200 OK immediately after receiving the event
-                    - Event processing happens asynchronously in the background
+                    - Returns 200 OK as soon as the event is journaled and enqueued
+                    - Verified payloads are flushed to a local journal before the ack and
+                      replayed on startup if processing did not finish
+                    - Event processing happens asynchronously on bounded lanes; events of the
+                      same Stripe object are processed in order, other objects in parallel
+                    - Returns 503 when the queue is full so Stripe retries later
                     - Events are verified using the Stripe-Signature header
                     
                     ## Supported Event Types
@@ -95,6 +110,21 @@ public class StripeWebhookController {
                     responseCode = "400",
                     description = "Failed to parse or verify the webhook event",
                     content = @Content(mediaType = "text/plain")
+            ),
+            @ApiResponse(
+                    responseCode = "413",
+                    description = "Payload exceeds stripe.webhook.max-payload-bytes",
+                    content = @Content(mediaType = "text/plain")
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Failed to persist the event to the journal, Stripe will retry",
+                    content = @Content(mediaType = "text/plain")
+            ),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "Webhook queue is full, Stripe will retry",
+                    content = @Content(mediaType = "text/plain")
             )
     })
     public ResponseEntity<String> handleStripeWebhook(
@@ -106,63 +136,53 @@ public class StripeWebhookController {
             HttpServletRequest request) {
         logger.info("Received Stripe webhook request");
 
-        // Debug: log Stripe-related headers
-        java.util.Enumeration<String> headerNames = request.getHeaderNames();
-        while (headerNames.hasMoreElements()) {
-            String name = headerNames.nextElement();
-            if (name.toLowerCase().contains("stripe") || name.toLowerCase().contains("signature")) {
-                logger.debug("Header {}: {}", name, request.getHeader(name));
-            }
-        }
+        // Read the raw request body; the bytes are verified, journaled and parsed in place
+        try (PayloadBuffer payload = payloadReader.read(request.getInputStream(), request.getContentLengthLong())) {
+            logger.debug("Payload length: {}", payload.length());
 
-        // Read the raw request body
-        String payload = readPayload(request);
-        if (payload == null) {
-            return ResponseEntity.badRequest().body("Failed to read payload");
-        }
-
-        logger.debug("Payload length: {}", payload.length());
-        
-        // Extract signature header
-        String signatureHeader = request.getHeader("Stripe-Signature");
-        logger.debug("Signature header present: {}", signatureHeader != null && !signatureHeader.isEmpty());
+            // Extract signature header
+            String signatureHeader = request.getHeader("Stripe-Signature");
 
-        // Parse and verify event (delegate to service)
-        Event event = eventParser.parseEvent(payload, signatureHeader);
-        if (event == null) {
-            return ResponseEntity.badRequest().body("Failed to parse event");
-        }
+            // Parse and verify event (delegate to service)
+            InboundEvent event = eventParser.parseEvent(payload.array(), payload.length(), signatureHeader);
+            if (event == null) {
+                return ResponseEntity.badRequest().body("Failed to parse event");
+            }
 
-        // Process event asynchronously (delegate to service)
-        // Per Stripe best practices: return 200 quickly, process in background
-        processEventAsync(event);
+            // Persist the verified payload before acknowledging (replayed on restart if unprocessed)
+            long journalSequence;
+            try {
+                journalSequence = journal.append(payload.array(), 0, payload.length());
+            } catch (RuntimeException e) {
+                logger.error("Failed to journal event {}: {}", event.getId(), e.getMessage(), e);
+                return ResponseEntity.internalServerError().body("Failed to persist event");
+            }
 
-        return ResponseEntity.ok("Webhook received successfully");
-    }
+            // Process event asynchronously (delegate to the work queue)
+            // Per Stripe best practices: return 200 quickly, process in background
+            if (!processEventAsync(event, journalSequence)) {
+                // Stripe redelivers on 503, so the journaled copy must not be replayed as well
+                journal.markProcessed(journalSequence);
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Webhook queue is full");
+            }
 
-    /**
-     * Read raw payload from request.
-     */
-    private String readPayload(HttpServletRequest request) {
-        try {
-            return new String(request.getInputStream().readAllBytes(),
-                    java.nio.charset.StandardCharsets.UTF_8);
+            return ResponseEntity.ok("Webhook received successfully");
+        } catch (PayloadTooLargeException e) {
+            logger.warn("Rejecting webhook payload: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body("Payload too large");
         } catch (IOException e) {
             logger.error("Failed to read request payload", e);
-            return null;
+            return ResponseEntity.badRequest().body("Failed to read payload");
         }
     }
 
     /**
      * Process the event asynchronously.
-     * Returns 200 to Stripe immediately, processes in background.
+     * Enqueues the event for the worker pool; handler errors are logged by the queue.
+     *
+     * @return true if the event was enqueued, false if the queue is full
      */
-    private void processEventAsync(Event event) {
-        try {
-            eventProcessor.processEvent(event);
-        } catch (Exception e) {
-            // Log error but don't fail the request (already returned 200)
-            logger.error("Error processing event: {}", e.getMessage(), e);
-        }
+    private boolean processEventAsync(InboundEvent event, long journalSequence) {
+        return eventQueue.submit(event, journalSequence);
     }
 }
@@ -3,9 +3,17 @@ package com.pb.stripe2netsuite.stripe2netsuitemvp.handler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 /**
  * Abstract base class for Stripe event handlers.
  * Provides common functionality for all handlers.
+ *
+ * Handlers that call NetSuite implement {@link #handleAsync}, and
+ * {@link ProjectionEventHandler#handleProjectionAsync} if they handle projections,
+ * on top of NetSuiteOutbox, and their
+ * synchronous methods wait for the async result with {@link #await}.
  */
 public abstract class AbstractStripeEventHandler implements StripeEventHandler {
     
@@ -20,5 +28,25 @@ public abstract class AbstractStripeEventHandler implements StripeEventHandler {
         }
         return false;
     }
-}
 
+    /**
+     * Get an already completed handling result, for event types that need no NetSuite call.
+     */
+    protected static CompletableFuture<Void> done() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Wait for an async handling result, rethrowing its exception unwrapped.
+     */
+    protected static void await(CompletableFuture<Void> handling) {
+        try {
+            handling.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -1,22 +1,34 @@
 package com.pb.stripe2netsuite.stripe2netsuitemvp.handler;
 
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.EventProjection;
 import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Order;
 import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderDto;
-import com.pb.stripe2netsuite.stripe2netsuitemvp.service.NetSuiteService;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.NetSuiteOutbox;
 import com.stripe.model.Charge;
 import com.stripe.model.StripeObject;
 import org.springframework.stereotype.Component;
 
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Handler for Charge-related webhook events.
+ * Succeeded, captured and updated charges are handled from the event projection.
+ * NetSuite writes are recorded in the {@link NetSuiteOutbox}; no thread waits for NetSuite.
  */
 @Component
-public class ChargeEventHandler extends AbstractStripeEventHandler {
+public class ChargeEventHandler extends AbstractStripeEventHandler implements ProjectionEventHandler {
+
+    private static final Set<String> PROJECTION_EVENT_TYPES = Set.of(
+        "charge.succeeded",
+        "charge.captured",
+        "charge.updated"
+    );
     
-    private final NetSuiteService netSuiteService;
+    private final NetSuiteOutbox outbox;
     
-    public ChargeEventHandler(NetSuiteService netSuiteService) {
-        this.netSuiteService = netSuiteService;
+    public ChargeEventHandler(NetSuiteOutbox outbox) {
+        this.outbox = outbox;
     }
     @Override
     public String[] getSupportedEventTypes() {
@@ -30,21 +42,42 @@ public class ChargeEventHandler extends AbstractStripeEventHandler {
         };
     }
     
+    @Override
+    public boolean requiresStripeObject(String eventType) {
+        return !PROJECTION_EVENT_TYPES.contains(eventType);
+    }
+    
     @Override
     public void handle(String eventType, String eventId, StripeObject stripeObject) {
+        await(handleAsync(eventType, eventId, stripeObject));
+    }
+    
+    @Override
+    public void handleProjection(String eventType, String eventId, EventProjection charge) {
+        await(handleProjectionAsync(eventType, eventId, charge));
+    }
+    
+    @Override
+    public CompletableFuture<Void> handleAsync(String eventType, String eventId, StripeObject stripeObject) {
         Charge charge = (Charge) stripeObject;
         
         // Use eventType from the parameter, not from getObject()
         switch (eventType) {
-            case "charge.succeeded":
-                handleChargeSucceeded(eventId, charge);
-                break;
             case "charge.failed":
-                handleChargeFailed(eventId, charge);
-                break;
+                return handleChargeFailed(eventId, charge);
             case "charge.refunded":
-                handleChargeRefunded(eventId, charge);
-                break;
+                return handleChargeRefunded(eventId, charge);
+            default:
+                logger.info("Unhandled Charge event: {}", eventId);
+                return done();
+        }
+    }
+    
+    @Override
+    public CompletableFuture<Void> handleProjectionAsync(String eventType, String eventId, EventProjection charge) {
+        switch (eventType) {
+            case "charge.succeeded":
+                return handleChargeSucceeded(eventId, charge);
             case "charge.captured":
                 handleChargeCaptured(eventId, charge);
                 break;
@@ -54,32 +87,28 @@ public class ChargeEventHandler extends AbstractStripeEventHandler {
             default:
                 logger.info("Unhandled Charge event: {}", eventId);
         }
+        return done();
     }
     
-    private void handleChargeSucceeded(String eventId, Charge charge) {
+    private CompletableFuture<Void> handleChargeSucceeded(String eventId, EventProjection charge) {
         logger.info("Charge succeeded - eventId: {}, amount: {}, currency: {}", 
-            eventId, charge.getAmount(), charge.getCurrency());
+            eventId, charge.amount(), charge.currency());
         
         // Create order in Mock NetSuite
         OrderDto orderDto = new OrderDto();
-        orderDto.setStripePaymentId(charge.getId());
-        orderDto.setStripeCustomerId(charge.getCustomer());
-        orderDto.setAmount(charge.getAmount());
-        orderDto.setCurrency(charge.getCurrency());
-        orderDto.setDescription("Charge payment for " + charge.getId());
+        orderDto.setStripePaymentId(charge.id());
+        orderDto.setStripeCustomerId(charge.customer());
+        orderDto.setAmount(charge.amount());
+        orderDto.setCurrency(charge.currency());
+        orderDto.setDescription("Charge payment for " + charge.id());
         orderDto.setStatus("completed");
         
-        Order order = netSuiteService.createOrder(orderDto);
-        
-        if (order != null) {
-            logger.info("Charge succeeded - eventId: {}, mockOrderId: {}, amount: {}, currency: {}",
-                eventId, order.getId(), order.getAmount(), order.getCurrency());
-        } else {
-            logger.error("Failed to create order in Mock NetSuite for Charge: {}", charge.getId());
-        }
+        return outbox.createOrder(orderDto).thenRun(() ->
+            logger.info("Charge succeeded - eventId: {}, order for {} recorded for NetSuite",
+                eventId, orderDto.getStripePaymentId()));
     }
     
-    private void handleChargeFailed(String eventId, Charge charge) {
+    private CompletableFuture<Void> handleChargeFailed(String eventId, Charge charge) {
         logger.info("Charge failed - eventId: {}, reason: {}", 
             eventId, charge.getFailureMessage());
         
@@ -92,15 +121,12 @@ public class ChargeEventHandler extends AbstractStripeEventHandler {
         orderDto.setDescription("Failed Charge: " + charge.getFailureMessage());
         orderDto.setStatus("failed");
         
-        Order order = netSuiteService.createOrder(orderDto);
-        
-        if (order != null) {
-            logger.info("Charge failed - eventId: {}, mockOrderId: {}, amount: {}, currency: {}",
-                eventId, order.getId(), order.getAmount(), order.getCurrency());
-        }
+        return outbox.createOrder(orderDto).thenRun(() ->
+            logger.info("Charge failed - eventId: {}, order for {} recorded for NetSuite",
+                eventId, orderDto.getStripePaymentId()));
     }
     
-    private void handleChargeRefunded(String eventId, Charge charge) {
+    private CompletableFuture<Void> handleChargeRefunded(String eventId, Charge charge) {
         logger.info("Charge refunded - eventId: {}, amount: {}, refunded: {}", 
             eventId, charge.getAmount(), charge.getAmountRefunded());
         
@@ -108,23 +134,23 @@ public class ChargeEventHandler extends AbstractStripeEventHandler {
         Order existingOrder = findOrderByStripePaymentId(charge.getId());
         
         if (existingOrder != null) {
-            Order updatedOrder = netSuiteService.updateOrderStatus(existingOrder.getId(), "refunded");
-            logger.info("Charge refunded - eventId: {}, mockOrderId: {}, amount: {}, refundedAmount: {}",
-                eventId, updatedOrder.getId(), charge.getAmount(), charge.getAmountRefunded());
-        } else {
-            logger.warn("Could not find order for refunded charge: {}", charge.getId());
+            return outbox.updateOrderStatus(existingOrder.getId(), "refunded").thenRun(() ->
+                logger.info("Charge refunded - eventId: {}, mockOrderId: {}, amount: {}, refundedAmount: {}",
+                    eventId, existingOrder.getId(), charge.getAmount(), charge.getAmountRefunded()));
         }
+        logger.warn("Could not find order for refunded charge: {}", charge.getId());
+        return done();
     }
     
-    private void handleChargeCaptured(String eventId, Charge charge) {
+    private void handleChargeCaptured(String eventId, EventProjection charge) {
         logger.info("Charge captured - eventId: {}", eventId);
         
         // TODO: Handle captured charge (for authorized-only charges)
     }
     
-    private void handleChargeUpdated(String eventId, Charge charge) {
+    private void handleChargeUpdated(String eventId, EventProjection charge) {
         logger.info("Charge updated - eventId: {}, amount: {}, status: {}", 
-            eventId, charge.getAmount(), charge.getStatus());
+            eventId, charge.amount(), charge.status());
         
         // TODO: Handle charge update in NetSuite
         // - Update payment record if details changed
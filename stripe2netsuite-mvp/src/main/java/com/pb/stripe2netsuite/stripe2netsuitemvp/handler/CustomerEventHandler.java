@@ -1,15 +1,23 @@
 package com.pb.stripe2netsuite.stripe2netsuitemvp.handler;
 
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.CustomerCache;
 import com.stripe.model.Customer;
 import com.stripe.model.StripeObject;
 import org.springframework.stereotype.Component;
 
 /**
  * Handler for Customer-related webhook events.
+ * Updated and deleted customers are dropped from the {@link CustomerCache}.
  */
 @Component
 public class CustomerEventHandler extends AbstractStripeEventHandler {
     
+    private final CustomerCache customerCache;
+    
+    public CustomerEventHandler(CustomerCache customerCache) {
+        this.customerCache = customerCache;
+    }
+    
     @Override
     public String[] getSupportedEventTypes() {
         return new String[] {
@@ -49,12 +57,14 @@ public class CustomerEventHandler extends AbstractStripeEventHandler {
     
     private void handleCustomerUpdated(String eventId, Customer customer) {
         logger.info("Customer updated - eventId: {}", eventId);
+        customerCache.invalidateStripeCustomer(customer.getId());
         
         // TODO: Update customer in NetSuite
     }
     
     private void handleCustomerDeleted(String eventId, Customer customer) {
         logger.info("Customer deleted - eventId: {}", eventId);
+        customerCache.invalidateStripeCustomer(customer.getId());
         
         // TODO: Handle customer deletion in NetSuite
         // - Mark as inactive or delete
@@ -1,22 +1,34 @@
 package com.pb.stripe2netsuite.stripe2netsuitemvp.handler;
 
-import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Order;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.EventProjection;
 import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderDto;
-import com.pb.stripe2netsuite.stripe2netsuitemvp.service.NetSuiteService;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.NetSuiteOutbox;
 import com.stripe.model.Invoice;
 import com.stripe.model.StripeObject;
 import org.springframework.stereotype.Component;
 
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Handler for Invoice-related webhook events.
+ * Events that create orders need the full Invoice (number, subscription);
+ * the remaining types are handled from the event projection.
+ * NetSuite writes are recorded in the {@link NetSuiteOutbox}; no thread waits for NetSuite.
  */
 @Component
-public class InvoiceEventHandler extends AbstractStripeEventHandler {
+public class InvoiceEventHandler extends AbstractStripeEventHandler implements ProjectionEventHandler {
+
+    private static final Set<String> PROJECTION_EVENT_TYPES = Set.of(
+        "invoice.voided",
+        "invoice.deleted",
+        "invoice.payment_action_required"
+    );
     
-    private final NetSuiteService netSuiteService;
+    private final NetSuiteOutbox outbox;
     
-    public InvoiceEventHandler(NetSuiteService netSuiteService) {
-        this.netSuiteService = netSuiteService;
+    public InvoiceEventHandler(NetSuiteOutbox outbox) {
+        this.outbox = outbox;
     }
     @Override
     public String[] getSupportedEventTypes() {
@@ -32,24 +44,39 @@ public class InvoiceEventHandler extends AbstractStripeEventHandler {
         };
     }
     
+    @Override
+    public boolean requiresStripeObject(String eventType) {
+        return !PROJECTION_EVENT_TYPES.contains(eventType);
+    }
+    
     @Override
     public void handle(String eventType, String eventId, StripeObject stripeObject) {
+        await(handleAsync(eventType, eventId, stripeObject));
+    }
+    
+    @Override
+    public CompletableFuture<Void> handleAsync(String eventType, String eventId, StripeObject stripeObject) {
         Invoice invoice = (Invoice) stripeObject;
         
         // Use eventType from the parameter, not from getObject()
         switch (eventType) {
             case "invoice.created":
-                handleInvoiceCreated(eventId, invoice);
-                break;
+                return handleInvoiceCreated(eventId, invoice);
             case "invoice.finalized":
-                handleInvoiceFinalized(eventId, invoice);
-                break;
+                return handleInvoiceFinalized(eventId, invoice);
             case "invoice.paid":
-                handleInvoicePaid(eventId, invoice);
-                break;
+                return handleInvoicePaid(eventId, invoice);
             case "invoice.payment_failed":
-                handleInvoicePaymentFailed(eventId, invoice);
-                break;
+                return handleInvoicePaymentFailed(eventId, invoice);
+            default:
+                logger.info("Unhandled Invoice event: {}", eventId);
+                return done();
+        }
+    }
+    
+    @Override
+    public void handleProjection(String eventType, String eventId, EventProjection invoice) {
+        switch (eventType) {
             case "invoice.voided":
                 handleInvoiceVoided(eventId, invoice);
                 break;
@@ -64,7 +91,7 @@ public class InvoiceEventHandler extends AbstractStripeEventHandler {
         }
     }
     
-    private void handleInvoiceCreated(String eventId, Invoice invoice) {
+    private CompletableFuture<Void> handleInvoiceCreated(String eventId, Invoice invoice) {
         logger.info("Invoice created - eventId: {}, total: {}, customer: {}", 
             eventId, invoice.getTotal(), invoice.getCustomer());
         
@@ -77,15 +104,12 @@ public class InvoiceEventHandler extends AbstractStripeEventHandler {
         orderDto.setDescription("Invoice: " + invoice.getNumber());
         orderDto.setStatus("pending");
         
-        Order order = netSuiteService.createOrder(orderDto);
-        
-        if (order != null) {
-            logger.info("Invoice created - eventId: {}, mockOrderId: {}, amount: {}, currency: {}",
-                eventId, order.getId(), order.getAmount(), order.getCurrency());
-        }
+        return outbox.createOrder(orderDto).thenRun(() ->
+            logger.info("Invoice created - eventId: {}, order for {} recorded for NetSuite",
+                eventId, orderDto.getStripePaymentId()));
     }
     
-    private void handleInvoiceFinalized(String eventId, Invoice invoice) {
+    private CompletableFuture<Void> handleInvoiceFinalized(String eventId, Invoice invoice) {
         logger.info("Invoice finalized - eventId: {}, total: {}", 
             eventId, invoice.getTotal());
         
@@ -99,15 +123,12 @@ public class InvoiceEventHandler extends AbstractStripeEventHandler {
         orderDto.setDescription("Finalized Invoice: " + invoice.getNumber());
         orderDto.setStatus("finalized");
         
-        Order order = netSuiteService.createOrder(orderDto);
-        
-        if (order != null) {
-            logger.info("Invoice finalized - eventId: {}, mockOrderId: {}, amount: {}",
-                eventId, order.getId(), order.getAmount());
-        }
+        return outbox.createOrder(orderDto).thenRun(() ->
+            logger.info("Invoice finalized - eventId: {}, order for {} recorded for NetSuite",
+                eventId, orderDto.getStripePaymentId()));
     }
     
-    private void handleInvoicePaid(String eventId, Invoice invoice) {
+    private CompletableFuture<Void> handleInvoicePaid(String eventId, Invoice invoice) {
         logger.info("Invoice paid - eventId: {}, total: {}, subscription: {}", 
             eventId, invoice.getTotal(), invoice.getSubscription());
         
@@ -120,15 +141,12 @@ public class InvoiceEventHandler extends AbstractStripeEventHandler {
         orderDto.setDescription("Paid Invoice: " + invoice.getNumber());
         orderDto.setStatus("completed");
         
-        Order order = netSuiteService.createOrder(orderDto);
-        
-        if (order != null) {
-            logger.info("Invoice paid - eventId: {}, mockOrderId: {}, amount: {}, currency: {}",
-                eventId, order.getId(), order.getAmount(), order.getCurrency());
-        }
+        return outbox.createOrder(orderDto).thenRun(() ->
+            logger.info("Invoice paid - eventId: {}, order for {} recorded for NetSuite",
+                eventId, orderDto.getStripePaymentId()));
     }
     
-    private void handleInvoicePaymentFailed(String eventId, Invoice invoice) {
+    private CompletableFuture<Void> handleInvoicePaymentFailed(String eventId, Invoice invoice) {
         logger.info("Invoice payment failed - eventId: {}, customer: {}", 
             eventId, invoice.getCustomer());
         
@@ -141,27 +159,24 @@ public class InvoiceEventHandler extends AbstractStripeEventHandler {
         orderDto.setDescription("Failed Invoice: " + invoice.getNumber());
         orderDto.setStatus("failed");
         
-        Order order = netSuiteService.createOrder(orderDto);
-        
-        if (order != null) {
-            logger.info("Invoice payment failed - eventId: {}, mockOrderId: {}, amount: {}",
-                eventId, order.getId(), order.getAmount());
-        }
+        return outbox.createOrder(orderDto).thenRun(() ->
+            logger.info("Invoice payment failed - eventId: {}, order for {} recorded for NetSuite",
+                eventId, orderDto.getStripePaymentId()));
     }
     
-    private void handleInvoiceVoided(String eventId, Invoice invoice) {
+    private void handleInvoiceVoided(String eventId, EventProjection invoice) {
         logger.info("Invoice voided - eventId: {}", eventId);
         
         // TODO: Handle voided invoice in NetSuite
     }
     
-    private void handleInvoiceDeleted(String eventId, Invoice invoice) {
+    private void handleInvoiceDeleted(String eventId, EventProjection invoice) {
         logger.info("Invoice deleted - eventId: {}", eventId);
         
         // TODO: Handle deleted invoice in NetSuite
     }
     
-    private void handleInvoicePaymentActionRequired(String eventId, Invoice invoice) {
+    private void handleInvoicePaymentActionRequired(String eventId, EventProjection invoice) {
         logger.info("Invoice payment action required - eventId: {}", eventId);
         
         // TODO: Handle invoice requiring additional payment action (e.g., 3D Secure)
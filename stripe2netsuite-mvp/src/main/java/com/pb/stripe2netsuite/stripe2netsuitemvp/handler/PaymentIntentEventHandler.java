@@ -1,22 +1,36 @@
 package com.pb.stripe2netsuite.stripe2netsuitemvp.handler;
 
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.EventProjection;
 import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Order;
 import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderDto;
-import com.pb.stripe2netsuite.stripe2netsuitemvp.service.NetSuiteService;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.NetSuiteOutbox;
 import com.stripe.model.PaymentIntent;
 import com.stripe.model.StripeObject;
 import org.springframework.stereotype.Component;
 
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Handler for PaymentIntent-related webhook events.
+ * Only failed payments need the full PaymentIntent (for the last payment error);
+ * all other types are handled from the event projection.
+ * NetSuite writes are recorded in the {@link NetSuiteOutbox}; no thread waits for NetSuite.
  */
 @Component
-public class PaymentIntentEventHandler extends AbstractStripeEventHandler {
+public class PaymentIntentEventHandler extends AbstractStripeEventHandler implements ProjectionEventHandler {
+
+    private static final Set<String> PROJECTION_EVENT_TYPES = Set.of(
+        "payment_intent.succeeded",
+        "payment_intent.created",
+        "payment_intent.canceled",
+        "payment_intent.requires_action"
+    );
     
-    private final NetSuiteService netSuiteService;
+    private final NetSuiteOutbox outbox;
     
-    public PaymentIntentEventHandler(NetSuiteService netSuiteService) {
-        this.netSuiteService = netSuiteService;
+    public PaymentIntentEventHandler(NetSuiteOutbox outbox) {
+        this.outbox = outbox;
     }
     @Override
     public String[] getSupportedEventTypes() {
@@ -29,18 +43,40 @@ public class PaymentIntentEventHandler extends AbstractStripeEventHandler {
         };
     }
     
+    @Override
+    public boolean requiresStripeObject(String eventType) {
+        return !PROJECTION_EVENT_TYPES.contains(eventType);
+    }
+    
     @Override
     public void handle(String eventType, String eventId, StripeObject stripeObject) {
+        await(handleAsync(eventType, eventId, stripeObject));
+    }
+    
+    @Override
+    public void handleProjection(String eventType, String eventId, EventProjection paymentIntent) {
+        await(handleProjectionAsync(eventType, eventId, paymentIntent));
+    }
+    
+    @Override
+    public CompletableFuture<Void> handleAsync(String eventType, String eventId, StripeObject stripeObject) {
         PaymentIntent paymentIntent = (PaymentIntent) stripeObject;
         
         // Use eventType from the parameter, not from getObject()
         switch (eventType) {
-            case "payment_intent.succeeded":
-                handlePaymentIntentSucceeded(eventId, paymentIntent);
-                break;
             case "payment_intent.payment_failed":
-                handlePaymentIntentFailed(eventId, paymentIntent);
-                break;
+                return handlePaymentIntentFailed(eventId, paymentIntent);
+            default:
+                logger.info("Unhandled PaymentIntent event: {}", eventId);
+                return done();
+        }
+    }
+    
+    @Override
+    public CompletableFuture<Void> handleProjectionAsync(String eventType, String eventId, EventProjection paymentIntent) {
+        switch (eventType) {
+            case "payment_intent.succeeded":
+                return handlePaymentIntentSucceeded(eventId, paymentIntent);
             case "payment_intent.created":
                 handlePaymentIntentCreated(eventId, paymentIntent);
                 break;
@@ -53,49 +89,40 @@ public class PaymentIntentEventHandler extends AbstractStripeEventHandler {
             default:
                 logger.info("Unhandled PaymentIntent event: {}", eventId);
         }
+        return done();
     }
     
-    private void handlePaymentIntentSucceeded(String eventId, PaymentIntent paymentIntent) {
+    private CompletableFuture<Void> handlePaymentIntentSucceeded(String eventId, EventProjection paymentIntent) {
         logger.info("PaymentIntent succeeded - eventId: {}, amount: {}, currency: {}", 
-            eventId, paymentIntent.getAmount(), paymentIntent.getCurrency());
+            eventId, paymentIntent.amount(), paymentIntent.currency());
         
         // Try to find order by metadata.orderId first (new flow)
-        String orderIdFromMetadata = paymentIntent.getMetadata().get("orderId");
+        String orderIdFromMetadata = paymentIntent.orderId();
         
         if (orderIdFromMetadata != null && !orderIdFromMetadata.startsWith("pending-")) {
             // This is an order created through our new API flow
             // Mark it as paid in MockNetSuite
-            Order updatedOrder = netSuiteService.markOrderAsPaid(paymentIntent.getId());
-            
-            if (updatedOrder != null) {
-                logger.info("PaymentIntent succeeded - eventId: {}, mockOrderId: {}, amount: {}, currency: {}, status: {}",
-                    eventId, updatedOrder.getId(), updatedOrder.getAmount(), updatedOrder.getCurrency(), updatedOrder.getStatus());
-            } else {
-                logger.error("Failed to find order for PaymentIntent: {}", paymentIntent.getId());
-            }
+            return outbox.markOrderAsPaid(paymentIntent.id()).thenRun(() ->
+                logger.info("PaymentIntent succeeded - eventId: {}, order {} recorded as paid for NetSuite",
+                    eventId, orderIdFromMetadata));
         } else {
             // Fallback to the original flow (for backward compatibility)
             // Create order in Mock NetSuite
             OrderDto orderDto = new OrderDto();
-            orderDto.setStripePaymentId(paymentIntent.getId());
-            orderDto.setStripeCustomerId(paymentIntent.getCustomer());
-            orderDto.setAmount(paymentIntent.getAmount());
-            orderDto.setCurrency(paymentIntent.getCurrency());
-            orderDto.setDescription("PaymentIntent payment for " + paymentIntent.getId());
+            orderDto.setStripePaymentId(paymentIntent.id());
+            orderDto.setStripeCustomerId(paymentIntent.customer());
+            orderDto.setAmount(paymentIntent.amount());
+            orderDto.setCurrency(paymentIntent.currency());
+            orderDto.setDescription("PaymentIntent payment for " + paymentIntent.id());
             orderDto.setStatus("completed");
             
-            Order order = netSuiteService.createOrder(orderDto);
-            
-            if (order != null) {
-                logger.info("PaymentIntent succeeded (fallback) - eventId: {}, mockOrderId: {}, amount: {}, currency: {}",
-                    eventId, order.getId(), order.getAmount(), order.getCurrency());
-            } else {
-                logger.error("Failed to create order in Mock NetSuite for PaymentIntent: {}", paymentIntent.getId());
-            }
+            return outbox.createOrder(orderDto).thenRun(() ->
+                logger.info("PaymentIntent succeeded (fallback) - eventId: {}, order for {} recorded for NetSuite",
+                    eventId, orderDto.getStripePaymentId()));
         }
     }
     
-    private void handlePaymentIntentFailed(String eventId, PaymentIntent paymentIntent) {
+    private CompletableFuture<Void> handlePaymentIntentFailed(String eventId, PaymentIntent paymentIntent) {
         String failureMessage = paymentIntent.getLastPaymentError() != null 
             ? paymentIntent.getLastPaymentError().getMessage() 
             : "Unknown error";
@@ -107,9 +134,9 @@ public class PaymentIntentEventHandler extends AbstractStripeEventHandler {
         Order existingOrder = findOrderByStripePaymentId(paymentIntent.getId());
         
         if (existingOrder != null) {
-            Order updatedOrder = netSuiteService.updateOrderStatus(existingOrder.getId(), "failed");
-            logger.info("PaymentIntent failed - eventId: {}, mockOrderId: {}, amount: {}, currency: {}",
-                eventId, updatedOrder.getId(), updatedOrder.getAmount(), updatedOrder.getCurrency());
+            return outbox.updateOrderStatus(existingOrder.getId(), "failed").thenRun(() ->
+                logger.info("PaymentIntent failed - eventId: {}, mockOrderId: {}, amount: {}, currency: {}",
+                    eventId, existingOrder.getId(), paymentIntent.getAmount(), paymentIntent.getCurrency()));
         } else {
             // Create a failed order record
             OrderDto orderDto = new OrderDto();
@@ -120,12 +147,9 @@ public class PaymentIntentEventHandler extends AbstractStripeEventHandler {
             orderDto.setDescription("Failed PaymentIntent: " + failureMessage);
             orderDto.setStatus("failed");
             
-            Order order = netSuiteService.createOrder(orderDto);
-            
-            if (order != null) {
-                logger.info("PaymentIntent failed - eventId: {}, mockOrderId: {}, amount: {}, currency: {}",
-                    eventId, order.getId(), order.getAmount(), order.getCurrency());
-            }
+            return outbox.createOrder(orderDto).thenRun(() ->
+                logger.info("PaymentIntent failed - eventId: {}, order for {} recorded for NetSuite",
+                    eventId, orderDto.getStripePaymentId()));
         }
     }
     
@@ -140,19 +164,19 @@ public class PaymentIntentEventHandler extends AbstractStripeEventHandler {
         return null;
     }
     
-    private void handlePaymentIntentCreated(String eventId, PaymentIntent paymentIntent) {
+    private void handlePaymentIntentCreated(String eventId, EventProjection paymentIntent) {
         logger.info("PaymentIntent created - eventId: {}", eventId);
         
         // TODO: Handle new payment intent if needed
     }
     
-    private void handlePaymentIntentCanceled(String eventId, PaymentIntent paymentIntent) {
+    private void handlePaymentIntentCanceled(String eventId, EventProjection paymentIntent) {
         logger.info("PaymentIntent canceled - eventId: {}", eventId);
         
         // TODO: Handle canceled payment in NetSuite
     }
     
-    private void handlePaymentIntentRequiresAction(String eventId, PaymentIntent paymentIntent) {
+    private void handlePaymentIntentRequiresAction(String eventId, EventProjection paymentIntent) {
         logger.info("PaymentIntent requires action - eventId: {}", eventId);
         
         // TODO: Handle payment that requires additional action (e.g., 3D Secure)
@@ -0,0 +1,52 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.handler;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.EventProjection;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@link StripeEventHandler} that can handle some of its event types from the
+ * lightweight {@link EventProjection} instead of the materialized Stripe object.
+ *
+ * Event types for which {@link #requiresStripeObject(String)} returns false are
+ * routed to {@link #handleProjectionAsync}; all others still go to
+ * {@link StripeEventHandler#handleAsync}.
+ */
+public interface ProjectionEventHandler extends StripeEventHandler {
+
+    /**
+     * Check whether handling the event type needs the full stripe-java object.
+     *
+     * @param eventType the Stripe event type
+     * @return true to receive {@link #handle}, false to receive {@link #handleProjection}
+     */
+    boolean requiresStripeObject(String eventType);
+
+    /**
+     * Handle the Stripe event from its projection (id, amount, currency, customer,
+     * status and metadata.orderId) without materializing the Stripe object.
+     *
+     * @param eventType the Stripe event type
+     * @param eventId the Stripe event ID
+     * @param projection the projected fields of the event's data object
+     */
+    void handleProjection(String eventType, String eventId, EventProjection projection);
+
+    /**
+     * Handle the Stripe event from its projection without waiting for NetSuite.
+     * Defaults to running {@link #handleProjection} on the calling thread.
+     *
+     * @param eventType the Stripe event type
+     * @param eventId the Stripe event ID
+     * @param projection the projected fields of the event's data object
+     * @return completed once the event is handled, or exceptionally if handling failed
+     */
+    default CompletableFuture<Void> handleProjectionAsync(String eventType, String eventId, EventProjection projection) {
+        try {
+            handleProjection(eventType, eventId, projection);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -2,9 +2,17 @@ package com.pb.stripe2netsuite.stripe2netsuitemvp.handler;
 
 import com.stripe.model.StripeObject;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Interface for handling Stripe webhook events.
- * Each handler is responsible for a specific category of events.
+ * Each handler is responsible for a specific category of events, and receives
+ * the fully materialized stripe-java object; handlers that can work from the
+ * event projection implement {@link ProjectionEventHandler}.
+ *
+ * The event processor calls {@link #handleAsync}. By default it runs
+ * {@link #handle} on the calling thread; handlers that call NetSuite override it
+ * so the thread is released while requests are in flight.
  */
 public interface StripeEventHandler {
     
@@ -24,7 +32,25 @@ public interface StripeEventHandler {
      * @param stripeObject the deserialized Stripe object from the event
      */
     void handle(String eventType, String eventId, StripeObject stripeObject);
-    
+
+    /**
+     * Handle the Stripe event without waiting for NetSuite.
+     * Defaults to running {@link #handle} on the calling thread.
+     *
+     * @param eventType the Stripe event type
+     * @param eventId the Stripe event ID
+     * @param stripeObject the deserialized Stripe object from the event
+     * @return completed once the event is handled, or exceptionally if handling failed
+     */
+    default CompletableFuture<Void> handleAsync(String eventType, String eventId, StripeObject stripeObject) {
+        try {
+            handle(eventType, eventId, stripeObject);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     /**
      * Get the event types this handler supports.
      * 
@@ -0,0 +1,12 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.model;
+
+import java.util.List;
+
+/**
+ * One page of a listing that is paged through with a cursor.
+ *
+ * @param items the items on this page
+ * @param nextCursor cursor of the next page, or null on the last page
+ */
+public record CursorPage<T>(List<T> items, String nextCursor) {
+}
@@ -0,0 +1,10 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.model;
+
+/**
+ * Link between a Stripe customer and the NetSuite customer it was synced to.
+ *
+ * @param stripeCustomerId the Stripe customer ID
+ * @param customerId the NetSuite internal customer ID
+ */
+public record CustomerMapping(String stripeCustomerId, String customerId) {
+}
@@ -0,0 +1,12 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.model;
+
+import java.util.List;
+
+/**
+ * One page of customer mappings read from NetSuite.
+ *
+ * @param mappings the mappings on this page
+ * @param hasMore whether a next page exists
+ */
+public record CustomerMappingPage(List<CustomerMapping> mappings, boolean hasMore) {
+}
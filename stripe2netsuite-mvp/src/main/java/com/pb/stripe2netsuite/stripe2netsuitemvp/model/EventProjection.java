@@ -0,0 +1,26 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.model;
+
+/**
+ * The few fields of a Stripe event's {@code data.object} that the handlers read,
+ * extracted in a single streaming pass instead of materializing the full
+ * stripe-java model (PaymentIntent, Charge, Invoice, ...).
+ *
+ * Any field may be null if the object does not carry it.
+ *
+ * @param id the Stripe object ID (e.g. pi_..., ch_..., in_...)
+ * @param object the Stripe object type (e.g. "payment_intent", "charge")
+ * @param amount the amount in the smallest currency unit ({@code total} for invoices)
+ * @param currency the three-letter currency code
+ * @param customer the Stripe customer ID (also when the customer is expanded)
+ * @param status the object status
+ * @param orderId the {@code metadata.orderId} value set when the payment was created
+ */
+public record EventProjection(
+        String id,
+        String object,
+        Long amount,
+        String currency,
+        String customer,
+        String status,
+        String orderId) {
+}
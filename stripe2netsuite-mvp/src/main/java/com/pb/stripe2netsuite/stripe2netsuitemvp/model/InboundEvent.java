@@ -0,0 +1,71 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.model;
+
+import com.google.gson.stream.JsonReader;
+import com.stripe.model.Event;
+import com.stripe.net.ApiResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A verified webhook event as it moves through the processing pipeline.
+ *
+ * Carries the event ID and type, the {@link EventProjection} of its data object
+ * and the raw payload. The full stripe-java {@link Event} is only built on demand,
+ * for handlers that need more than the projection.
+ */
+public final class InboundEvent {
+
+    private final String id;
+    private final String type;
+    private final EventProjection projection;
+    private final byte[] payload;
+
+    private volatile Event stripeEvent;
+
+    public InboundEvent(String id, String type, EventProjection projection, byte[] payload) {
+        this.id = id;
+        this.type = type;
+        this.projection = projection;
+        this.payload = payload;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public EventProjection getProjection() {
+        return projection;
+    }
+
+    /**
+     * Get the raw payload bytes; callers must not modify the array.
+     */
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    /**
+     * Get the full Stripe event, deserializing the payload on first use
+     * with the same Gson configuration as the Stripe SDK.
+     *
+     * @return the Stripe event
+     * @throws com.google.gson.JsonParseException if the payload cannot be deserialized
+     */
+    public Event getStripeEvent() {
+        Event event = stripeEvent;
+        if (event == null) {
+            JsonReader reader = new JsonReader(new InputStreamReader(
+                    new ByteArrayInputStream(payload), StandardCharsets.UTF_8));
+            event = ApiResource.GSON.fromJson(reader, Event.class);
+            event.setResponseGetter(ApiResource.getGlobalResponseGetter());
+            stripeEvent = event;
+        }
+        return event;
+    }
+}
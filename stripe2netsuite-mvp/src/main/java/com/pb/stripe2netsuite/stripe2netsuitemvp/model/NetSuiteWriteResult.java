@@ -0,0 +1,33 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.model;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.NetSuiteException;
+
+/**
+ * Outcome of writing one record as part of a NetSuite batch.
+ * A batch can partially succeed; each record carries its own result.
+ *
+ * @param order the written order, null if the write failed
+ * @param error the error reported for this record, null on success
+ * @param statusCode the HTTP status of the failure, 0 if unknown or not HTTP related
+ * @param retryable whether sending the record again may succeed
+ * @param retryAfterMillis how long NetSuite or a circuit breaker asked to wait before a retry, 0 if not said
+ */
+public record NetSuiteWriteResult(Order order, String error, int statusCode, boolean retryable,
+                                  long retryAfterMillis) {
+
+    public static NetSuiteWriteResult success(Order order) {
+        return new NetSuiteWriteResult(order, null, 0, false, 0);
+    }
+
+    public static NetSuiteWriteResult failure(String error, int statusCode, boolean retryable) {
+        return new NetSuiteWriteResult(null, error, statusCode, retryable, 0);
+    }
+
+    public static NetSuiteWriteResult failure(NetSuiteException e) {
+        return new NetSuiteWriteResult(null, e.getMessage(), e.getStatusCode(), e.isRetryable(), e.getRetryAfterMillis());
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -13,6 +13,7 @@ public class Order {
     private String customerId;
     private String stripePaymentId;
     private String description;
+    private Long createdAtMillis;
     
     public Order() {
     }
@@ -81,6 +82,14 @@ public class Order {
         this.description = description;
     }
     
+    public Long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+    
+    public void setCreatedAtMillis(Long createdAtMillis) {
+        this.createdAtMillis = createdAtMillis;
+    }
+    
     @Override
     public String toString() {
         return "Order{" +
@@ -90,6 +99,7 @@ public class Order {
                 ", currency='" + currency + '\'' +
                 ", customerId='" + customerId + '\'' +
                 ", stripePaymentId='" + stripePaymentId + '\'' +
+                ", createdAtMillis=" + createdAtMillis +
                 '}';
     }
 }
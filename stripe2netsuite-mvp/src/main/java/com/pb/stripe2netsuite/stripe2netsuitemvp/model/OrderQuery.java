@@ -0,0 +1,29 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.model;
+
+/**
+ * Filters and order of a query on the mock NetSuite order store.
+ * Null filters match every order.
+ *
+ * @param status order status, e.g. {@code failed}
+ * @param customerId NetSuite customer ID
+ * @param currency currency code, e.g. {@code usd}
+ * @param stripePaymentId Stripe payment ID
+ * @param createdFromMillis earliest creation time, inclusive
+ * @param createdToMillis latest creation time, exclusive
+ * @param sortBy field the result is ordered by
+ * @param descending whether the result is in descending order
+ * @param limit maximum number of orders returned
+ */
+public record OrderQuery(String status, String customerId, String currency, String stripePaymentId,
+                         Long createdFromMillis, Long createdToMillis, SortField sortBy, boolean descending,
+                         int limit) {
+
+    /**
+     * Fields a query result can be ordered by.
+     */
+    public enum SortField {
+        CREATED_AT,
+        AMOUNT,
+        ID
+    }
+}
@@ -0,0 +1,10 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.model;
+
+/**
+ * A status change for an existing NetSuite order, used in batch updates.
+ *
+ * @param orderId the NetSuite order ID
+ * @param status the new status
+ */
+public record OrderStatusUpdate(String orderId, String status) {
+}
@@ -0,0 +1,54 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Customer;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Order;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderDto;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking companion of {@link NetSuiteService}.
+ *
+ * The returned futures complete once NetSuite has answered, without a thread
+ * waiting for the round trip, or exceptionally with a {@link NetSuiteException}.
+ * They may complete on an HTTP client I/O thread, so dependent stages must not block.
+ *
+ * Implemented by the same beans as NetSuiteService:
+ * - MockNetSuiteService: completes immediately from the in-memory store
+ * - RestNetSuiteService: completes from the async HTTP client's callback
+ */
+public interface AsyncNetSuiteService {
+
+    /**
+     * Create a new order in NetSuite.
+     *
+     * @param dto the order data transfer object containing order details
+     * @return completed with the created order
+     */
+    CompletableFuture<Order> createOrderAsync(OrderDto dto);
+
+    /**
+     * Update the status of an existing order in NetSuite.
+     *
+     * @param orderId the NetSuite order ID
+     * @param status the new status to set
+     * @return completed with the updated order, or null if not found
+     */
+    CompletableFuture<Order> updateOrderStatusAsync(String orderId, String status);
+
+    /**
+     * Get a customer from NetSuite by ID.
+     *
+     * @param customerId the NetSuite customer ID
+     * @return completed with the customer, or null if not found
+     */
+    CompletableFuture<Customer> getCustomerAsync(String customerId);
+
+    /**
+     * Mark an order as paid using the Stripe PaymentIntent ID.
+     *
+     * @param stripePaymentIntentId the Stripe PaymentIntent ID
+     * @return completed with the updated order, or null if not found
+     */
+    CompletableFuture<Order> markOrderAsPaidAsync(String stripePaymentIntentId);
+}
@@ -0,0 +1,580 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Order;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderQuery;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Order store of the mock NetSuite that keeps orders in columns instead of objects.
+ *
+ * Each order is a row: amounts and creation times are {@code long} columns,
+ * status, currency and customer ID are {@code int} codes into per-column
+ * dictionaries, and only the ID, Stripe payment ID and description are kept
+ * as strings. IDs and Stripe payment IDs are found through open-addressing
+ * tables of row numbers, so a lookup is O(1) without an entry object per order.
+ * An {@link Order} is built on every read; stored data is never shared with callers.
+ *
+ * There are no secondary indexes: a query scans the code and time columns,
+ * which is fast since they are primitive arrays, and keeps the best
+ * {@code limit} rows in a bounded heap. Rows are kept in ID order in a
+ * separate array that is merged with the rows added since, on the first page
+ * or snapshot read after a write.
+ *
+ * Reads share a read lock, writes take the write lock; a snapshot is taken
+ * under the read lock. A null amount or
+ * creation time is stored as {@link Long#MIN_VALUE}, which therefore cannot be
+ * stored as a value.
+ */
+@Component
+@ConditionalOnProperty(name = "netsuite.mock.order-store", havingValue = "columnar")
+public class ColumnarOrderStore implements OrderStore {
+
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    private static final int NULL_CODE = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile Consumer<Order> writeListener = order -> { };
+    private volatile Runnable clearListener = () -> { };
+
+    private Columns columns;
+    private Dictionary statuses;
+    private Dictionary currencies;
+    private Dictionary customers;
+    private int size;
+    private long version;
+
+    /**
+     * Open-addressing tables holding row + 1, 0 for an empty slot. Stripe
+     * payment ID slots are not removed when a row's payment ID changes; a
+     * lookup checks the row and skips such stale slots.
+     */
+    private int[] idSlots;
+    private int[] stripeSlots;
+    private int stripeSlotsUsed;
+
+    /**
+     * Rows in ID order; the rows from {@code sortedCount} on are not in it yet.
+     */
+    private int[] sortedRows;
+    private int sortedCount;
+
+    public ColumnarOrderStore() {
+        reset();
+    }
+
+    @Override
+    public void setWriteListener(Consumer<Order> writeListener) {
+        this.writeListener = writeListener;
+    }
+
+    @Override
+    public void setClearListener(Runnable clearListener) {
+        this.clearListener = clearListener;
+    }
+
+    @Override
+    public void put(Order order) {
+        lock.writeLock().lock();
+        try {
+            int row = findRow(order.getId());
+            if (row < 0) {
+                row = size;
+                if (row == columns.ids.length) {
+                    columns = columns.copy(row * 2);
+                }
+                size++;
+                columns.ids[row] = order.getId();
+                if (size * 2 > idSlots.length) {
+                    idSlots = rebuildIdSlots(idSlots.length * 2);
+                } else {
+                    insertId(idSlots, row);
+                }
+            }
+            columns.statuses[row] = statuses.encode(order.getStatus());
+            columns.currencies[row] = currencies.encode(order.getCurrency());
+            columns.customerIds[row] = customers.encode(order.getCustomerId());
+            columns.amounts[row] = toLong(order.getAmount());
+            columns.createdAt[row] = toLong(order.getCreatedAtMillis());
+            columns.descriptions[row] = order.getDescription();
+            columns.stripePaymentIds[row] = order.getStripePaymentId();
+            if (order.getStripePaymentId() != null) {
+                indexStripePaymentId(row);
+            }
+            version++;
+            writeListener.accept(columns.order(row));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Order updateStatus(String orderId, String status) {
+        lock.writeLock().lock();
+        try {
+            int row = findRow(orderId);
+            if (row < 0) {
+                return null;
+            }
+            columns.statuses[row] = statuses.encode(status);
+            version++;
+            Order order = columns.order(row);
+            writeListener.accept(order);
+            return order;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Order get(String orderId) {
+        lock.readLock().lock();
+        try {
+            int row = findRow(orderId);
+            return row >= 0 ? columns.order(row) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Order findByStripePaymentId(String stripePaymentId) {
+        if (stripePaymentId == null) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            int row = findStripeRow(stripePaymentId);
+            return row >= 0 ? columns.order(row) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Order> copy() {
+        lock.readLock().lock();
+        try {
+            Map<String, Order> copy = new HashMap<>(size * 2);
+            for (int row = 0; row < size; row++) {
+                copy.put(columns.ids[row], columns.order(row));
+            }
+            return copy;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            reset();
+            version++;
+            clearListener.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Order> query(OrderQuery query) {
+        int limit = Math.max(0, query.limit());
+        OrderQuery.SortField sortBy = query.sortBy() != null ? query.sortBy() : OrderQuery.SortField.CREATED_AT;
+
+        lock.readLock().lock();
+        try {
+            int status = codeOf(statuses, query.status());
+            int currency = codeOf(currencies, query.currency());
+            int customer = codeOf(customers, query.customerId());
+            if (status == NULL_CODE || currency == NULL_CODE || customer == NULL_CODE || limit == 0) {
+                return List.of();
+            }
+            long from = query.createdFromMillis() != null ? query.createdFromMillis() : Long.MIN_VALUE;
+            long to = query.createdToMillis() != null ? query.createdToMillis() : Long.MAX_VALUE;
+
+            Comparator<Integer> order = rowComparator(sortBy);
+            if (query.descending()) {
+                order = order.reversed();
+            }
+            // Worst of the best rows at the head
+            PriorityQueue<Integer> best = new PriorityQueue<>(Math.min(limit, 1024) + 1, order.reversed());
+            int firstRow = 0;
+            int endRow = size;
+            if (query.stripePaymentId() != null) {
+                firstRow = findStripeRow(query.stripePaymentId());
+                endRow = firstRow + 1;
+            }
+            int[] statusColumn = columns.statuses;
+            int[] currencyColumn = columns.currencies;
+            int[] customerColumn = columns.customerIds;
+            long[] createdColumn = columns.createdAt;
+            for (int row = Math.max(firstRow, 0); row < endRow; row++) {
+                long createdAt = createdColumn[row] == NULL_LONG ? 0 : createdColumn[row];
+                if ((status != Integer.MIN_VALUE && statusColumn[row] != status)
+                        || (currency != Integer.MIN_VALUE && currencyColumn[row] != currency)
+                        || (customer != Integer.MIN_VALUE && customerColumn[row] != customer)
+                        || createdAt < from || createdAt >= to) {
+                    continue;
+                }
+                best.add(row);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+
+            Order[] result = new Order[best.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = columns.order(best.poll());
+            }
+            return Arrays.asList(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Order> page(String afterId, int limit) {
+        lockSorted();
+        try {
+            int from = afterId != null ? firstSortedAfter(afterId) : 0;
+            int to = Math.min(sortedCount, from + Math.max(limit, 0));
+            List<Order> result = new ArrayList<>(Math.max(to - from, 0));
+            for (int i = from; i < to; i++) {
+                result.add(columns.order(sortedRows[i]));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the columns, not the orders: orders are built as the list is read.
+     */
+    @Override
+    public Snapshot snapshot() {
+        lockSorted();
+        try {
+            Columns copy = columns.copy(size);
+            int[] rows = Arrays.copyOf(sortedRows, sortedCount);
+            return new Snapshot(version, new AbstractList<>() {
+                @Override
+                public Order get(int index) {
+                    return copy.order(rows[index]);
+                }
+
+                @Override
+                public int size() {
+                    return rows.length;
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Take the read lock with all rows in the ID order array, merging new rows first if needed.
+     */
+    private void lockSorted() {
+        lock.readLock().lock();
+        if (sortedCount == size) {
+            return;
+        }
+        lock.readLock().unlock();
+        lock.writeLock().lock();
+        try {
+            mergeNewRows();
+            // Downgrade: the read lock is taken before the write lock is released
+            lock.readLock().lock();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sort the rows added since the last merge by ID and merge them into the ID order array.
+     * Must be called with the write lock held.
+     */
+    private void mergeNewRows() {
+        if (sortedCount == size) {
+            return;
+        }
+        String[] ids = columns.ids;
+        Integer[] added = new Integer[size - sortedCount];
+        for (int i = 0; i < added.length; i++) {
+            added[i] = sortedCount + i;
+        }
+        Arrays.sort(added, Comparator.comparing(row -> ids[row]));
+
+        int[] merged = new int[size];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < sortedCount && j < added.length) {
+            merged[k++] = ids[sortedRows[i]].compareTo(ids[added[j]]) <= 0 ? sortedRows[i++] : added[j++];
+        }
+        while (i < sortedCount) {
+            merged[k++] = sortedRows[i++];
+        }
+        while (j < added.length) {
+            merged[k++] = added[j++];
+        }
+        sortedRows = merged;
+        sortedCount = size;
+    }
+
+    private int firstSortedAfter(String afterId) {
+        int low = 0;
+        int high = sortedCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (columns.ids[sortedRows[middle]].compareTo(afterId) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private Comparator<Integer> rowComparator(OrderQuery.SortField sortBy) {
+        Columns current = columns;
+        Comparator<Integer> byId = Comparator.comparing(row -> current.ids[row]);
+        return switch (sortBy) {
+            case CREATED_AT -> Comparator.<Integer>comparingLong(row ->
+                    current.createdAt[row] == NULL_LONG ? 0 : current.createdAt[row]).thenComparing(byId);
+            // A null amount is Long.MIN_VALUE and sorts first, as in MockOrderStore
+            case AMOUNT -> Comparator.<Integer>comparingLong(row -> current.amounts[row]).thenComparing(byId);
+            case ID -> byId;
+        };
+    }
+
+    /**
+     * Get the code of a filter value: Integer.MIN_VALUE for no filter, NULL_CODE if no order has the value.
+     */
+    private static int codeOf(Dictionary dictionary, String value) {
+        if (value == null) {
+            return Integer.MIN_VALUE;
+        }
+        Integer code = dictionary.codes.get(value);
+        return code != null ? code : NULL_CODE;
+    }
+
+    private int findRow(String orderId) {
+        if (orderId == null) {
+            return -1;
+        }
+        int mask = idSlots.length - 1;
+        for (int slot = spread(orderId.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            int entry = idSlots[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            if (orderId.equals(columns.ids[entry - 1])) {
+                return entry - 1;
+            }
+        }
+    }
+
+    private void insertId(int[] slots, int row) {
+        int mask = slots.length - 1;
+        int slot = spread(columns.ids[row].hashCode()) & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = row + 1;
+    }
+
+    private int[] rebuildIdSlots(int capacity) {
+        int[] slots = new int[capacity];
+        for (int row = 0; row < size; row++) {
+            insertId(slots, row);
+        }
+        return slots;
+    }
+
+    private int findStripeRow(String stripePaymentId) {
+        int mask = stripeSlots.length - 1;
+        for (int slot = spread(stripePaymentId.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            int entry = stripeSlots[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            if (stripePaymentId.equals(columns.stripePaymentIds[entry - 1])) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * Point the row's Stripe payment ID at the row, replacing the row it pointed at before.
+     */
+    private void indexStripePaymentId(int row) {
+        if ((stripeSlotsUsed + 1) * 2 > stripeSlots.length) {
+            // Rebuilding drops stale slots; later rows win, as later puts would
+            stripeSlots = new int[Math.max(stripeSlots.length, Integer.highestOneBit(Math.max(size, 1)) * 4)];
+            stripeSlotsUsed = 0;
+            for (int other = 0; other < size; other++) {
+                if (other != row && columns.stripePaymentIds[other] != null) {
+                    setStripeSlot(other);
+                }
+            }
+        }
+        setStripeSlot(row);
+    }
+
+    private void setStripeSlot(int row) {
+        String stripePaymentId = columns.stripePaymentIds[row];
+        int mask = stripeSlots.length - 1;
+        int slot = spread(stripePaymentId.hashCode()) & mask;
+        while (stripeSlots[slot] != 0) {
+            if (stripePaymentId.equals(columns.stripePaymentIds[stripeSlots[slot] - 1])) {
+                stripeSlots[slot] = row + 1;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        stripeSlots[slot] = row + 1;
+        stripeSlotsUsed++;
+    }
+
+    private void reset() {
+        columns = new Columns(INITIAL_CAPACITY);
+        statuses = new Dictionary();
+        currencies = new Dictionary();
+        customers = new Dictionary();
+        columns.statusValues = statuses;
+        columns.currencyValues = currencies;
+        columns.customerValues = customers;
+        size = 0;
+        idSlots = new int[INITIAL_CAPACITY * 2];
+        stripeSlots = new int[INITIAL_CAPACITY * 2];
+        stripeSlotsUsed = 0;
+        sortedRows = new int[0];
+        sortedCount = 0;
+    }
+
+    private static int spread(int hash) {
+        return (hash ^ (hash >>> 16)) * 0x9E3779B9;
+    }
+
+    private static long toLong(Long value) {
+        return value != null ? value : NULL_LONG;
+    }
+
+    /**
+     * Values of one string column, each stored once and referenced by code.
+     * Codes are never reused, so a code read from a column stays valid.
+     */
+    private static final class Dictionary {
+
+        private final Map<String, Integer> codes = new HashMap<>();
+        private volatile String[] values = new String[16];
+
+        int encode(String value) {
+            if (value == null) {
+                return NULL_CODE;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = codes.size();
+                String[] current = values;
+                if (code == current.length) {
+                    current = Arrays.copyOf(current, code * 2);
+                }
+                current[code] = value;
+                values = current;
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        String decode(int code) {
+            return code == NULL_CODE ? null : values[code];
+        }
+    }
+
+    /**
+     * The column arrays. All have the same capacity; rows beyond the store size are unused.
+     */
+    private static final class Columns {
+
+        final String[] ids;
+        final String[] stripePaymentIds;
+        final String[] descriptions;
+        final long[] amounts;
+        final long[] createdAt;
+        final int[] statuses;
+        final int[] currencies;
+        final int[] customerIds;
+        Dictionary statusValues;
+        Dictionary currencyValues;
+        Dictionary customerValues;
+
+        Columns(int capacity) {
+            this(new String[capacity], new String[capacity], new String[capacity], new long[capacity],
+                    new long[capacity], new int[capacity], new int[capacity], new int[capacity]);
+        }
+
+        private Columns(String[] ids, String[] stripePaymentIds, String[] descriptions, long[] amounts,
+                        long[] createdAt, int[] statuses, int[] currencies, int[] customerIds) {
+            this.ids = ids;
+            this.stripePaymentIds = stripePaymentIds;
+            this.descriptions = descriptions;
+            this.amounts = amounts;
+            this.createdAt = createdAt;
+            this.statuses = statuses;
+            this.currencies = currencies;
+            this.customerIds = customerIds;
+        }
+
+        /**
+         * Copy into columns of the given capacity, dropping the rows beyond it.
+         */
+        Columns copy(int capacity) {
+            Columns copy = new Columns(
+                    Arrays.copyOf(ids, capacity), Arrays.copyOf(stripePaymentIds, capacity),
+                    Arrays.copyOf(descriptions, capacity), Arrays.copyOf(amounts, capacity),
+                    Arrays.copyOf(createdAt, capacity), Arrays.copyOf(statuses, capacity),
+                    Arrays.copyOf(currencies, capacity), Arrays.copyOf(customerIds, capacity));
+            copy.statusValues = statusValues;
+            copy.currencyValues = currencyValues;
+            copy.customerValues = customerValues;
+            return copy;
+        }
+
+        Order order(int row) {
+            Order order = new Order(ids[row], statusValues.decode(statuses[row]),
+                    amounts[row] == NULL_LONG ? null : amounts[row], currencyValues.decode(currencies[row]));
+            order.setCustomerId(customerValues.decode(customerIds[row]));
+            order.setStripePaymentId(stripePaymentIds[row]);
+            order.setDescription(descriptions[row]);
+            order.setCreatedAtMillis(createdAt[row] == NULL_LONG ? null : createdAt[row]);
+            return order;
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.CustomerCacheConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Customer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of NetSuite customers by internal ID.
+ *
+ * Sits in front of {@link NetSuiteService#getCustomer} and
+ * {@link AsyncNetSuiteService#getCustomerAsync}: both implementations read
+ * customers through it and pass the NetSuite read as the loader.
+ *
+ * A read answers from the cache while the entry is younger than the TTL and
+ * loads through the loader otherwise. Concurrent loads of one customer share a call
+ * through {@link CustomerSingleFlight}. Customers NetSuite does not have are
+ * cached as absent for the shorter negative TTL; failed loads are not cached.
+ *
+ * A read of an entry past {@code refresh-ahead-fraction} of its TTL still answers
+ * from the cache but starts a background reload, so customers that are read
+ * often never expire on the request path.
+ *
+ * The cache is bounded by an estimate of the memory its entries use; above
+ * {@code max-weight-bytes} the least recently read entries are evicted.
+ *
+ * Stripe customer events invalidate entries by Stripe customer ID, mapped to
+ * the NetSuite customer through {@link CustomerIdIndex}. A load that overlaps
+ * an invalidation of its customer returns its result but does not cache it; a
+ * Stripe customer the index does not know yet is matched against the customers
+ * that loads in flight return.
+ */
+@Service
+public class CustomerCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerCache.class);
+
+    /**
+     * Estimated fixed cost of an entry: map node, entry and customer objects, references.
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    private final CustomerCacheConfig cacheConfig;
+    private final CustomerIdIndex customerIndex;
+    private final CustomerSingleFlight customerSingleFlight;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final long refreshAheadNanos;
+
+    private final Object lock = new Object();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weightBytes;
+    private final Map<String, Load> loadsInFlight = new HashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private static final class Entry {
+        final Customer customer;
+        final long loadedAtNanos;
+        final int weight;
+        boolean refreshing;
+
+        Entry(Customer customer, long loadedAtNanos, int weight) {
+            this.customer = customer;
+            this.loadedAtNanos = loadedAtNanos;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * A load in flight and the invalidations that overlapped it, guarded by the lock.
+     */
+    private static final class Load {
+        boolean invalidated;
+        final Set<String> invalidatedStripeCustomerIds = new HashSet<>();
+
+        boolean discards(Customer customer) {
+            return invalidated || customer != null
+                    && invalidatedStripeCustomerIds.contains(customer.getStripeCustomerId());
+        }
+    }
+
+    public CustomerCache(CustomerCacheConfig cacheConfig, CustomerIdIndex customerIndex,
+                         CustomerSingleFlight customerSingleFlight) {
+        this.cacheConfig = cacheConfig;
+        this.customerIndex = customerIndex;
+        this.customerSingleFlight = customerSingleFlight;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, cacheConfig.getTtlMillis()));
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, cacheConfig.getNegativeTtlMillis()));
+        this.refreshAheadNanos = cacheConfig.getRefreshAheadFraction() >= 1
+                ? Long.MAX_VALUE
+                : (long) (ttlNanos * Math.max(0, cacheConfig.getRefreshAheadFraction()));
+    }
+
+    /**
+     * Get a customer, waiting for NetSuite on a miss.
+     *
+     * @param customerId the NetSuite internal customer ID
+     * @param loader reads the customer from NetSuite, completing with null if NetSuite does not have it
+     * @return the customer, or null if NetSuite does not have it
+     */
+    public Customer get(String customerId, Function<String, CompletableFuture<Customer>> loader) {
+        try {
+            return getAsync(customerId, loader).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Get a customer, loading it from NetSuite on a miss.
+     *
+     * @param customerId the NetSuite internal customer ID
+     * @param loader reads the customer from NetSuite, completing with null if NetSuite does not have it
+     * @return completed with the customer, or null if NetSuite does not have it
+     */
+    public CompletableFuture<Customer> getAsync(String customerId,
+                                                Function<String, CompletableFuture<Customer>> loader) {
+        if (!cacheConfig.isEnabled()) {
+            return loader.apply(customerId);
+        }
+        long now = System.nanoTime();
+        boolean refresh = false;
+        Entry entry;
+        synchronized (lock) {
+            entry = entries.get(customerId);
+            if (entry != null) {
+                long age = now - entry.loadedAtNanos;
+                if (age >= (entry.customer != null ? ttlNanos : negativeTtlNanos)) {
+                    remove(customerId);
+                    expirations.increment();
+                    entry = null;
+                } else if (entry.customer != null && age >= refreshAheadNanos && !entry.refreshing) {
+                    entry.refreshing = true;
+                    refresh = true;
+                }
+            }
+        }
+
+        if (entry == null) {
+            misses.increment();
+            return load(customerId, loader);
+        }
+        if (entry.customer == null) {
+            negativeHits.increment();
+        } else {
+            hits.increment();
+        }
+        if (refresh) {
+            refreshes.increment();
+            load(customerId, loader).exceptionally(error -> {
+                logger.debug("Refresh-ahead of customer {} failed: {}", customerId, error.getMessage());
+                return null;
+            });
+        }
+        return CompletableFuture.completedFuture(entry.customer);
+    }
+
+    private CompletableFuture<Customer> load(String customerId,
+                                             Function<String, CompletableFuture<Customer>> loader) {
+        return customerSingleFlight.execute("cache:" + customerId, () -> {
+            Load load = new Load();
+            synchronized (lock) {
+                loadsInFlight.put(customerId, load);
+            }
+            long start = System.nanoTime();
+            return loader.apply(customerId).whenComplete((customer, error) -> {
+                long end = System.nanoTime();
+                loads.increment();
+                loadNanos.add(end - start);
+                if (error != null) {
+                    loadFailures.increment();
+                }
+                complete(customerId, load, error == null, customer, end);
+            });
+        });
+    }
+
+    /**
+     * Cache a loaded customer unless an invalidation overlapped the load.
+     * Otherwise the stale entry a refresh-ahead was started for is dropped if it
+     * was invalidated, or left to be refreshed again if the load failed.
+     */
+    private void complete(String customerId, Load load, boolean loaded, Customer customer, long loadedAtNanos) {
+        synchronized (lock) {
+            loadsInFlight.remove(customerId, load);
+            boolean discarded = load.discards(customer);
+            if (loaded && !discarded) {
+                put(customerId, customer, loadedAtNanos);
+                return;
+            }
+            Entry stale = entries.get(customerId);
+            if (stale == null) {
+                return;
+            }
+            if (discarded) {
+                remove(customerId);
+            } else {
+                stale.refreshing = false;
+            }
+        }
+    }
+
+    private void put(String customerId, Customer customer, long loadedAtNanos) {
+        Entry entry = new Entry(customer, loadedAtNanos, weigh(customerId, customer));
+        synchronized (lock) {
+            remove(customerId);
+            entries.put(customerId, entry);
+            weightBytes += entry.weight;
+
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (weightBytes > cacheConfig.getMaxWeightBytes() && eldest.hasNext()) {
+                Map.Entry<String, Entry> evicted = eldest.next();
+                if (evicted.getValue() == entry) {
+                    break;
+                }
+                weightBytes -= evicted.getValue().weight;
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Drop a cached customer, so the next read loads it from NetSuite.
+     *
+     * @param customerId the NetSuite internal customer ID
+     */
+    public void invalidate(String customerId) {
+        synchronized (lock) {
+            Load load = loadsInFlight.get(customerId);
+            if (load != null) {
+                load.invalidated = true;
+            }
+            if (remove(customerId)) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    /**
+     * Drop the cached NetSuite customer of a Stripe customer, if the index knows it.
+     *
+     * @param stripeCustomerId the Stripe customer ID
+     */
+    public void invalidateStripeCustomer(String stripeCustomerId) {
+        String customerId = stripeCustomerId != null ? customerIndex.get(stripeCustomerId) : null;
+        if (customerId != null) {
+            invalidate(customerId);
+        } else if (stripeCustomerId != null) {
+            // Not indexed yet: a load in flight may still return this customer
+            synchronized (lock) {
+                for (Load load : loadsInFlight.values()) {
+                    load.invalidatedStripeCustomerIds.add(stripeCustomerId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop every cached customer, e.g. after the customers were replaced wholesale.
+     */
+    public void invalidateAll() {
+        synchronized (lock) {
+            for (Load load : loadsInFlight.values()) {
+                load.invalidated = true;
+            }
+            invalidations.add(entries.size());
+            entries.clear();
+            weightBytes = 0;
+        }
+    }
+
+    private boolean remove(String customerId) {
+        Entry removed = entries.remove(customerId);
+        if (removed == null) {
+            return false;
+        }
+        weightBytes -= removed.weight;
+        return true;
+    }
+
+    private static int weigh(String customerId, Customer customer) {
+        int chars = customerId.length();
+        if (customer != null) {
+            chars += length(customer.getId()) + length(customer.getName())
+                    + length(customer.getEmail()) + length(customer.getStripeCustomerId());
+        }
+        return ENTRY_OVERHEAD_BYTES + 2 * chars;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    /**
+     * Get hit ratio, eviction counts and load latency.
+     *
+     * @return map of metric name to value
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum() + negativeHits.sum();
+        long reads = hitCount + misses.sum();
+        long loadCount = loads.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", cacheConfig.isEnabled());
+        synchronized (lock) {
+            stats.put("entries", entries.size());
+            stats.put("weightBytes", weightBytes);
+        }
+        stats.put("maxWeightBytes", cacheConfig.getMaxWeightBytes());
+        stats.put("hits", hits.sum());
+        stats.put("negativeHits", negativeHits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("hitRatio", reads == 0 ? 0 : (double) hitCount / reads);
+        stats.put("loads", loadCount);
+        stats.put("loadFailures", loadFailures.sum());
+        stats.put("averageLoadMillis", loadCount == 0 ? 0 : loadNanos.sum() / 1_000_000.0 / loadCount);
+        stats.put("refreshes", refreshes.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+}
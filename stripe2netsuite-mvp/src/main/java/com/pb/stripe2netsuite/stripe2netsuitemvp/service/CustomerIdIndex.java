@@ -0,0 +1,270 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.CustomerIndexConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Index from Stripe customer ID to NetSuite internal customer ID.
+ *
+ * Order writes need the NetSuite customer of a Stripe customer; this index
+ * answers from memory instead of a scan or a NetSuite query per order. The
+ * NetSuite services add entries when they create or read a customer.
+ *
+ * The index is written to a snapshot file every {@code snapshot-interval-seconds}
+ * if it changed, and on shutdown; it is loaded again on startup, so lookups hit
+ * from the first order on. {@link CustomerIndexWarmer} refreshes it from NetSuite
+ * before the application reports ready.
+ *
+ * Snapshot layout: magic (int), version (int), count (int), then count pairs of
+ * modified UTF-8 strings (Stripe ID, NetSuite ID), then the CRC32 of all of it (long).
+ * A snapshot is written to a temporary file and moved into place.
+ */
+@Service
+public class CustomerIdIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerIdIndex.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x43494458;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final CustomerIndexConfig indexConfig;
+    private final Map<String, String> customerIds = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private ScheduledExecutorService snapshotter;
+    private long snapshotVersion;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder snapshots = new LongAdder();
+    private volatile long lastSnapshotMillis;
+
+    public CustomerIdIndex(CustomerIndexConfig indexConfig) {
+        this.indexConfig = indexConfig;
+    }
+
+    /**
+     * Load the snapshot and start writing snapshots periodically.
+     */
+    @PostConstruct
+    public void open() {
+        if (!indexConfig.isSnapshotEnabled()) {
+            return;
+        }
+        load();
+
+        snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "customer-index-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int intervalSeconds = Math.max(1, indexConfig.getSnapshotIntervalSeconds());
+        snapshotter.scheduleWithFixedDelay(this::snapshot, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Get the NetSuite customer of a Stripe customer.
+     *
+     * @param stripeCustomerId the Stripe customer ID
+     * @return the NetSuite internal customer ID, or null if not indexed
+     */
+    public String get(String stripeCustomerId) {
+        String customerId = customerIds.get(stripeCustomerId);
+        if (customerId != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return customerId;
+    }
+
+    /**
+     * Add or update the NetSuite customer of a Stripe customer.
+     *
+     * @param stripeCustomerId the Stripe customer ID; ignored if null
+     * @param customerId the NetSuite internal customer ID; ignored if null
+     */
+    public void put(String stripeCustomerId, String customerId) {
+        if (stripeCustomerId == null || customerId == null) {
+            return;
+        }
+        if (!customerId.equals(customerIds.put(stripeCustomerId, customerId))) {
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Remove a Stripe customer if it still maps to the given NetSuite customer.
+     *
+     * @param stripeCustomerId the Stripe customer ID
+     * @param customerId the NetSuite customer ID expected in the index
+     * @return true if the entry was removed
+     */
+    public boolean remove(String stripeCustomerId, String customerId) {
+        boolean removed = customerIds.remove(stripeCustomerId, customerId);
+        if (removed) {
+            version.incrementAndGet();
+        }
+        return removed;
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void clear() {
+        customerIds.clear();
+        version.incrementAndGet();
+    }
+
+    /**
+     * Get a copy of all entries.
+     *
+     * @return map of Stripe customer ID to NetSuite customer ID
+     */
+    public Map<String, String> entries() {
+        return new HashMap<>(customerIds);
+    }
+
+    /**
+     * Get the number of indexed Stripe customers.
+     */
+    public int size() {
+        return customerIds.size();
+    }
+
+    /**
+     * Write a snapshot if the index changed since the last one.
+     * Failures are logged only: the next snapshot tries again.
+     */
+    public synchronized void snapshot() {
+        if (!indexConfig.isSnapshotEnabled()) {
+            return;
+        }
+        long current = version.get();
+        if (current == snapshotVersion) {
+            return;
+        }
+
+        Path file = Paths.get(indexConfig.getSnapshotFile());
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Map<String, String> entries = entries();
+            CRC32 crc = new CRC32();
+            try (OutputStream fileOut = Files.newOutputStream(temporary);
+                 BufferedOutputStream buffered = new BufferedOutputStream(fileOut, 64 * 1024);
+                 DataOutputStream out = new DataOutputStream(new CheckedOutputStream(buffered, crc))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, String> entry : entries.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeUTF(entry.getValue());
+                }
+                out.flush();
+                // The checksum itself is written past the checked stream
+                buffered.write(ByteBuffer.allocate(Long.BYTES).putLong(crc.getValue()).array());
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            snapshotVersion = current;
+            snapshots.increment();
+            lastSnapshotMillis = System.currentTimeMillis();
+            logger.debug("Customer index snapshot written: {} entries", entries.size());
+        } catch (IOException e) {
+            logger.error("Failed to write customer index snapshot {}", file, e);
+        }
+    }
+
+    /**
+     * Load the snapshot file if there is one. A corrupt snapshot is ignored and
+     * the index starts empty; it fills again from warming and new customers.
+     */
+    private void load() {
+        Path file = Paths.get(indexConfig.getSnapshotFile());
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            if (bytes.length < 3 * Integer.BYTES + Long.BYTES) {
+                throw new IOException("Snapshot too short");
+            }
+            int contentLength = bytes.length - Long.BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, contentLength);
+            if (crc.getValue() != ByteBuffer.wrap(bytes, contentLength, Long.BYTES).getLong()) {
+                throw new IOException("Snapshot checksum mismatch");
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, contentLength));
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Not a customer index snapshot");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                customerIds.put(in.readUTF(), in.readUTF());
+            }
+            logger.info("Customer index loaded from snapshot: {} entries", count);
+        } catch (IOException e) {
+            customerIds.clear();
+            logger.warn("Ignoring customer index snapshot {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Get index size, hit rate and snapshot figures.
+     *
+     * @return map of metric name to value
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", customerIds.size());
+        stats.put("lookups", lookups);
+        stats.put("hitRate", lookups == 0 ? 0 : (double) hitCount / lookups);
+        stats.put("snapshotEnabled", indexConfig.isSnapshotEnabled());
+        stats.put("snapshots", snapshots.sum());
+        stats.put("lastSnapshotMillis", lastSnapshotMillis);
+        return stats;
+    }
+
+    /**
+     * Stop the periodic snapshots and write a final one.
+     */
+    @PreDestroy
+    public void close() {
+        if (snapshotter != null) {
+            snapshotter.shutdownNow();
+        }
+        snapshot();
+    }
+}
@@ -0,0 +1,87 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.CustomerIndexConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.CustomerMapping;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.CustomerMappingPage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Refreshes the {@link CustomerIdIndex} from NetSuite on startup.
+ *
+ * Runs as an ApplicationRunner, so the application reports ready (readiness
+ * state ACCEPTING_TRAFFIC) only after all pages of customer mappings have been
+ * read. Entries loaded from the snapshot that NetSuite no longer has are removed,
+ * unless they changed during the read. If NetSuite cannot be read the snapshot
+ * is kept and startup continues.
+ */
+@Component
+public class CustomerIndexWarmer implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerIndexWarmer.class);
+
+    private final NetSuiteService netSuiteService;
+    private final CustomerIdIndex customerIndex;
+    private final CustomerIndexConfig indexConfig;
+
+    public CustomerIndexWarmer(NetSuiteService netSuiteService, CustomerIdIndex customerIndex,
+                               CustomerIndexConfig indexConfig) {
+        this.netSuiteService = netSuiteService;
+        this.customerIndex = customerIndex;
+        this.indexConfig = indexConfig;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (indexConfig.isWarmOnStartup()) {
+            warm();
+        }
+    }
+
+    /**
+     * Read all customer mappings from NetSuite into the index.
+     *
+     * @return the number of mappings read, or -1 if NetSuite could not be read
+     */
+    public int warm() {
+        long start = System.nanoTime();
+        int pageSize = Math.max(1, indexConfig.getWarmPageSize());
+        Map<String, String> before = customerIndex.entries();
+        Map<String, String> read = new HashMap<>();
+        int pages = 0;
+        int offset = 0;
+        try {
+            CustomerMappingPage page;
+            do {
+                page = netSuiteService.getCustomerMappings(offset, pageSize);
+                offset += page.mappings().size();
+                for (CustomerMapping mapping : page.mappings()) {
+                    customerIndex.put(mapping.stripeCustomerId(), mapping.customerId());
+                    read.put(mapping.stripeCustomerId(), mapping.customerId());
+                }
+                pages++;
+            } while (page.hasMore() && !page.mappings().isEmpty());
+        } catch (RuntimeException e) {
+            logger.warn("Customer index not warmed from NetSuite, using {} entries from snapshot: {}",
+                    customerIndex.size(), e.getMessage());
+            return -1;
+        }
+
+        int removed = 0;
+        for (Map.Entry<String, String> entry : before.entrySet()) {
+            if (!read.containsKey(entry.getKey()) && customerIndex.remove(entry.getKey(), entry.getValue())) {
+                removed++;
+            }
+        }
+        customerIndex.snapshot();
+        logger.info("Customer index warmed: {} mappings in {} pages, {} stale entries removed, {} ms",
+                read.size(), pages, removed, (System.nanoTime() - start) / 1_000_000);
+        return read.size();
+    }
+}
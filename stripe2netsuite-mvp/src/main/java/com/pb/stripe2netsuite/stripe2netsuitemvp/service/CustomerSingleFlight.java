@@ -0,0 +1,79 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent customer lookups and creations into one call per key.
+ *
+ * Events for a new Stripe customer often arrive together (payment intent, charge,
+ * invoice). Without coalescing, each of them finds no customer and creates one.
+ * Here the first caller for a key runs the call and every caller that arrives
+ * while it is in flight gets the same future. Once the call completes the key
+ * is free again; later callers find the result through the customer index.
+ *
+ * Keys are prefixed by what they identify, e.g. {@code stripe:<customer id>} for
+ * get-or-create by Stripe customer, {@code customer:<internal id>} for reads.
+ */
+@Component
+public class CustomerSingleFlight {
+
+    private final Map<String, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Run a call unless one for the same key is in flight, in which case join it.
+     *
+     * @param key identifies the customer the call is for
+     * @param call starts the lookup or creation; runs on the calling thread
+     * @return the in-flight call's future, or the future of the call just started
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> execute(String key, Supplier<CompletableFuture<T>> call) {
+        calls.increment();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<?> existing = inFlight.putIfAbsent(key, result);
+        if (existing != null) {
+            coalesced.increment();
+            return (CompletableFuture<T>) existing;
+        }
+        executed.increment();
+        result.whenComplete((value, error) -> inFlight.remove(key, result));
+
+        try {
+            call.get().whenComplete((value, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Get call counts and the number of calls in flight.
+     *
+     * @return map of metric name to value
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("calls", calls.sum());
+        stats.put("executed", executed.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("inFlight", inFlight.size());
+        return stats;
+    }
+}
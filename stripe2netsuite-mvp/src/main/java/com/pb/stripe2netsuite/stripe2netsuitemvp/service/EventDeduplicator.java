@@ -0,0 +1,403 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.WebhookDedupConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers processed Stripe event IDs so redeliveries are dropped before
+ * they are deserialized or reach a handler.
+ *
+ * Two structures cover the dedup window ({@code stripe.webhook.dedup.window-hours}):
+ * <ul>
+ *   <li>Three rotating Bloom filters, each generation covering half the window.
+ *       An ID stays in a filter for at least the whole window, even if it was added
+ *       just before its generation rotated out of first place. A negative answer
+ *       proves an event is new without touching the exact store.</li>
+ *   <li>An exact, size-bounded LRU of event IDs that confirms a Bloom hit.
+ *       An event is only dropped when the LRU confirms it, so Bloom false positives
+ *       and IDs evicted from the LRU are processed rather than lost.</li>
+ * </ul>
+ *
+ * Events are acquired before processing, completed on success and released on
+ * failure so a retry or journal replay processes them again. If a persist file is
+ * configured, completed IDs are saved periodically and on shutdown, and reloaded
+ * on startup.
+ */
+@Service
+public class EventDeduplicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventDeduplicator.class);
+
+    private static final int FILE_MAGIC = 0x45444450;
+    private static final int FILE_VERSION = 1;
+
+    private final WebhookDedupConfig dedupConfig;
+    private final long windowMillis;
+    private final Object lock = new Object();
+    private final LinkedHashMap<String, Entry> entries;
+
+    private BloomFilter current;
+    private BloomFilter previous;
+    private BloomFilter older;
+    private ScheduledExecutorService persister;
+
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder inFlightDuplicates = new LongAdder();
+    private final LongAdder bloomNegatives = new LongAdder();
+    private final LongAdder unconfirmedBloomHits = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private volatile int lastPersistedEntries;
+
+    public EventDeduplicator(WebhookDedupConfig dedupConfig) {
+        this.dedupConfig = dedupConfig;
+        this.windowMillis = TimeUnit.HOURS.toMillis(Math.max(1, dedupConfig.getWindowHours()));
+        int maxEntries = Math.max(1, dedupConfig.getMaxEntries());
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > maxEntries) {
+                    evicted.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.current = newGeneration(System.currentTimeMillis());
+    }
+
+    /**
+     * Load persisted event IDs and start periodic persistence, if configured.
+     */
+    @PostConstruct
+    public void start() {
+        if (!dedupConfig.isEnabled()) {
+            logger.info("Webhook event deduplication disabled");
+            return;
+        }
+        Path file = persistFile();
+        if (file != null) {
+            load(file);
+            long interval = Math.max(1, dedupConfig.getPersistIntervalSeconds());
+            persister = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "webhook-dedup-persister");
+                thread.setDaemon(true);
+                return thread;
+            });
+            persister.scheduleWithFixedDelay(() -> save(file), interval, interval, TimeUnit.SECONDS);
+        }
+        logger.info("Webhook event deduplication enabled: window: {}h, maxEntries: {}, bloomBits: {}, bloomHashes: {}",
+                dedupConfig.getWindowHours(), dedupConfig.getMaxEntries(), current.numBits, current.numHashes);
+    }
+
+    /**
+     * Claim an event for processing.
+     *
+     * @param eventId the Stripe event ID
+     * @return true if the event should be processed, false if it is a duplicate
+     */
+    public boolean tryAcquire(String eventId) {
+        return tryAcquire(eventId, System.currentTimeMillis());
+    }
+
+    /**
+     * Claim an event at the given wall clock time, in milliseconds.
+     */
+    boolean tryAcquire(String eventId, long now) {
+        if (!dedupConfig.isEnabled() || eventId == null) {
+            return true;
+        }
+        checked.increment();
+        long hash = hash64(eventId);
+
+        synchronized (lock) {
+            rotateIfDue(now);
+            boolean maybeSeen = current.mightContain(hash)
+                    || (previous != null && previous.mightContain(hash))
+                    || (older != null && older.mightContain(hash));
+            if (maybeSeen) {
+                Entry entry = entries.get(eventId);
+                if (entry != null && now - entry.seenAtMillis < windowMillis) {
+                    duplicates.increment();
+                    if (!entry.completed) {
+                        inFlightDuplicates.increment();
+                    }
+                    return false;
+                }
+                // Bloom false positive, or an ID that expired or was evicted from the exact store
+                unconfirmedBloomHits.increment();
+            } else {
+                bloomNegatives.increment();
+            }
+            entries.put(eventId, new Entry(now, false));
+            current.put(hash);
+        }
+        return true;
+    }
+
+    /**
+     * Mark an acquired event as successfully processed.
+     *
+     * @param eventId the Stripe event ID
+     */
+    public void complete(String eventId) {
+        if (!dedupConfig.isEnabled() || eventId == null) {
+            return;
+        }
+        synchronized (lock) {
+            Entry entry = entries.get(eventId);
+            if (entry != null) {
+                entry.completed = true;
+            }
+        }
+    }
+
+    /**
+     * Forget an acquired event whose processing failed, so a redelivery or
+     * journal replay processes it again.
+     *
+     * @param eventId the Stripe event ID
+     */
+    public void release(String eventId) {
+        if (!dedupConfig.isEnabled() || eventId == null) {
+            return;
+        }
+        synchronized (lock) {
+            if (entries.remove(eventId) != null) {
+                released.increment();
+            }
+        }
+    }
+
+    /**
+     * Start a new generation every half window, or earlier once the current one
+     * is full, and drop the oldest. Must be called with the lock held.
+     */
+    private void rotateIfDue(long now) {
+        if (now - current.createdAtMillis >= windowMillis / 2
+                || current.insertions >= Math.max(1, dedupConfig.getMaxEntries())) {
+            older = previous;
+            previous = current;
+            current = newGeneration(now);
+        }
+    }
+
+    private BloomFilter newGeneration(long now) {
+        return new BloomFilter(Math.max(1, dedupConfig.getMaxEntries()), dedupConfig.getFalsePositiveRate(), now);
+    }
+
+    /**
+     * Get dedup counters and store sizes.
+     *
+     * @return map of metric name to value
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", dedupConfig.isEnabled());
+        stats.put("windowHours", dedupConfig.getWindowHours());
+        synchronized (lock) {
+            stats.put("entries", entries.size());
+            stats.put("currentGenerationInsertions", current.insertions);
+            stats.put("bloomBitsPerGeneration", current.numBits);
+            stats.put("bloomHashes", current.numHashes);
+        }
+        stats.put("maxEntries", dedupConfig.getMaxEntries());
+        stats.put("checked", checked.sum());
+        stats.put("duplicates", duplicates.sum());
+        stats.put("inFlightDuplicates", inFlightDuplicates.sum());
+        stats.put("bloomNegatives", bloomNegatives.sum());
+        stats.put("unconfirmedBloomHits", unconfirmedBloomHits.sum());
+        stats.put("released", released.sum());
+        stats.put("evicted", evicted.sum());
+        stats.put("lastPersistedEntries", lastPersistedEntries);
+        return stats;
+    }
+
+    /**
+     * Stop periodic persistence and save the store one last time.
+     */
+    @PreDestroy
+    public void stop() {
+        if (persister == null) {
+            return;
+        }
+        persister.shutdown();
+        save(persistFile());
+    }
+
+    private Path persistFile() {
+        String file = dedupConfig.getPersistFile();
+        return file == null || file.isBlank() ? null : Paths.get(file);
+    }
+
+    /**
+     * Write completed, unexpired event IDs to the persist file (atomically replaced).
+     * In-flight events are not saved: if the process dies they must be processed again.
+     */
+    private void save(Path file) {
+        List<String> ids = new ArrayList<>();
+        List<Long> seenAt = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (lock) {
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                Entry value = entry.getValue();
+                if (value.completed && now - value.seenAtMillis < windowMillis) {
+                    ids.add(entry.getKey());
+                    seenAt.add(value.seenAtMillis);
+                }
+            }
+        }
+
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeInt(ids.size());
+                for (int i = 0; i < ids.size(); i++) {
+                    out.writeLong(seenAt.get(i));
+                    out.writeUTF(ids.get(i));
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            lastPersistedEntries = ids.size();
+            logger.debug("Saved {} event IDs to {}", ids.size(), file);
+        } catch (IOException e) {
+            logger.error("Failed to save webhook dedup store to {}", file, e);
+        }
+    }
+
+    /**
+     * Load unexpired event IDs from the persist file into the LRU and the current Bloom filter.
+     */
+    private void load(Path file) {
+        if (!Files.exists(file)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        int loaded = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                logger.warn("Ignoring webhook dedup store with unknown format: {}", file);
+                return;
+            }
+            int count = in.readInt();
+            synchronized (lock) {
+                for (int i = 0; i < count; i++) {
+                    long seenAtMillis = in.readLong();
+                    String eventId = in.readUTF();
+                    if (now - seenAtMillis < windowMillis) {
+                        entries.put(eventId, new Entry(seenAtMillis, true));
+                        current.put(hash64(eventId));
+                        loaded++;
+                    }
+                }
+            }
+            logger.info("Loaded {} event IDs from webhook dedup store {}", loaded, file);
+        } catch (IOException e) {
+            logger.error("Failed to load webhook dedup store from {}, starting empty", file, e);
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 chars, finished with the MurmurHash3 mixer.
+     */
+    private static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * An event ID in the exact store.
+     */
+    private static final class Entry {
+
+        private final long seenAtMillis;
+        private boolean completed;
+
+        private Entry(long seenAtMillis, boolean completed) {
+            this.seenAtMillis = seenAtMillis;
+            this.completed = completed;
+        }
+    }
+
+    /**
+     * One Bloom filter generation, sized for the expected insertions and false positive rate.
+     * Guarded by the deduplicator lock.
+     */
+    private static final class BloomFilter {
+
+        private final long[] bits;
+        private final long numBits;
+        private final int numHashes;
+        private final long createdAtMillis;
+        private int insertions;
+
+        private BloomFilter(int expectedInsertions, double falsePositiveRate, long createdAtMillis) {
+            double p = Math.min(Math.max(falsePositiveRate, 1e-9), 0.5);
+            long m = (long) Math.ceil(-expectedInsertions * Math.log(p) / (Math.log(2) * Math.log(2)));
+            this.bits = new long[(int) Math.max(1, (m + 63) / 64)];
+            this.numBits = (long) bits.length * 64;
+            this.numHashes = Math.max(1, (int) Math.round((double) numBits / expectedInsertions * Math.log(2)));
+            this.createdAtMillis = createdAtMillis;
+        }
+
+        private void put(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= numHashes; i++) {
+                long index = Math.floorMod(h1 + (long) i * h2, numBits);
+                bits[(int) (index >>> 6)] |= 1L << index;
+            }
+            insertions++;
+        }
+
+        private boolean mightContain(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= numHashes; i++) {
+                long index = Math.floorMod(h1 + (long) i * h2, numBits);
+                if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands out unique IDs of one sequence from blocks leased from an {@link IdBlockStore}.
+ *
+ * Taking an ID is one {@code getAndIncrement} on the current block; no lock is
+ * taken. The thread that finds the block used up leases the next one, once per
+ * block; threads arriving meanwhile wait for it. IDs are unique across all
+ * instances sharing the store, increasing within an instance, and not
+ * contiguous across instances or restarts.
+ *
+ * {@link #format} builds {@code MOCK-ORDER-001} style IDs with a single string
+ * concatenation, without a Formatter.
+ */
+public class IdAllocator {
+
+    private final String sequence;
+    private final IdBlockStore store;
+    private long firstId;
+    private final int blockSize;
+    private final Object leaseLock = new Object();
+    private volatile Block block;
+
+    private final LongAdder leases = new LongAdder();
+
+    private static final class Block {
+        final AtomicLong next;
+        final long end;
+
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+
+    IdAllocator(String sequence, IdBlockStore store, long firstId, int blockSize) {
+        this.sequence = sequence;
+        this.store = store;
+        this.firstId = firstId;
+        this.blockSize = blockSize;
+        this.block = new Block(0, 0);
+    }
+
+    /**
+     * Take the next ID.
+     *
+     * @return an ID no other caller or instance sharing the store gets
+     */
+    public long next() {
+        while (true) {
+            Block current = block;
+            long id = current.next.getAndIncrement();
+            if (id < current.end) {
+                return id;
+            }
+            lease(current);
+        }
+    }
+
+    /**
+     * Take the next ID and format it as {@code <prefix><id>}, zero-padded to three digits.
+     *
+     * @param prefix e.g. {@code MOCK-ORDER-}
+     */
+    public String next(String prefix) {
+        return format(prefix, next());
+    }
+
+    /**
+     * Never hand out IDs up to the given one, e.g. the IDs of restored data.
+     * Must not race {@link #next()}: an ID taken meanwhile may be lower.
+     */
+    public void skipPast(long id) {
+        synchronized (leaseLock) {
+            firstId = Math.max(firstId, id + 1);
+            if (block.next.get() <= id) {
+                block = new Block(0, 0);
+            }
+        }
+    }
+
+    private void lease(Block exhausted) {
+        synchronized (leaseLock) {
+            if (block == exhausted) {
+                long start = store.lease(sequence, firstId, blockSize);
+                block = new Block(start, start + blockSize);
+                leases.increment();
+            }
+        }
+    }
+
+    /**
+     * Format an ID like {@code String.format("%s%03d", prefix, id)}.
+     */
+    public static String format(String prefix, long id) {
+        if (id >= 0 && id < 10) {
+            return prefix + "00" + id;
+        }
+        if (id >= 0 && id < 100) {
+            return prefix + "0" + id;
+        }
+        return prefix + id;
+    }
+
+    /**
+     * Get the current block and the number of blocks leased.
+     *
+     * @return map of metric name to value
+     */
+    public Map<String, Object> getStats() {
+        Block current = block;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sequence", sequence);
+        stats.put("leases", leases.sum());
+        stats.put("blockEnd", current.end);
+        stats.put("remainingInBlock", Math.max(0, current.end - current.next.get()));
+        return stats;
+    }
+}
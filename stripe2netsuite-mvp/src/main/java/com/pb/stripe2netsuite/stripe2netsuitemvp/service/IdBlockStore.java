@@ -0,0 +1,117 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.IdAllocatorConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Leases blocks of IDs for {@link IdAllocator}s.
+ *
+ * Each sequence has a high-water mark: the first ID not leased yet. Leasing a
+ * block returns the mark and advances it by the block size. Without a lease
+ * directory the marks are kept in memory. With one, each sequence's mark is an
+ * 8-byte file {@code <sequence>.lease} that is read and advanced under an
+ * exclusive file lock, so instances sharing the directory lease disjoint blocks.
+ */
+@Component
+public class IdBlockStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdBlockStore.class);
+
+    /**
+     * File locks are held by the JVM, not the thread: leases of one file within
+     * this JVM are serialized here first.
+     */
+    private static final Map<Path, Object> LEASE_FILE_MONITORS = new ConcurrentHashMap<>();
+
+    private final IdAllocatorConfig config;
+    private final Map<String, AtomicLong> marks = new ConcurrentHashMap<>();
+    private final LongAdder leases = new LongAdder();
+
+    public IdBlockStore(IdAllocatorConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Create an allocator for a sequence.
+     *
+     * @param sequence name of the sequence, also the lease file name
+     * @param firstId lowest ID the sequence may hand out
+     */
+    public IdAllocator allocator(String sequence, long firstId) {
+        return new IdAllocator(sequence, this, firstId, Math.max(1, config.getBlockSize()));
+    }
+
+    /**
+     * Lease the next block of a sequence.
+     *
+     * @return the first ID of the block; the block is {@code [start, start + size)}
+     */
+    long lease(String sequence, long firstId, int size) {
+        leases.increment();
+        String directory = config.getLeaseDirectory();
+        if (directory == null || directory.isBlank()) {
+            AtomicLong mark = marks.computeIfAbsent(sequence, name -> new AtomicLong(firstId));
+            return mark.updateAndGet(start -> Math.max(start, firstId) + size) - size;
+        }
+        return leaseFromFile(Paths.get(directory, sequence + ".lease"), firstId, size);
+    }
+
+    private long leaseFromFile(Path file, long firstId, int size) {
+        Object monitor = LEASE_FILE_MONITORS.computeIfAbsent(file.toAbsolutePath().normalize(), path -> new Object());
+        synchronized (monitor) {
+            return leaseFromLockedFile(file, firstId, size);
+        }
+    }
+
+    private long leaseFromLockedFile(Path file, long firstId, int size) {
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 FileLock lock = channel.lock()) {
+                ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+                long start = firstId;
+                if (channel.read(buffer, 0) == Long.BYTES) {
+                    start = Math.max(buffer.flip().getLong(), firstId);
+                }
+                buffer.clear().putLong(start + size).flip();
+                channel.write(buffer, 0);
+                channel.force(false);
+                logger.debug("Leased IDs {} to {} from {}", start, start + size - 1, file);
+                return start;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to lease IDs from " + file, e);
+        }
+    }
+
+    /**
+     * Get the number of blocks leased.
+     *
+     * @return map of metric name to value
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("leaseDirectory", config.getLeaseDirectory());
+        stats.put("blockSize", config.getBlockSize());
+        stats.put("leases", leases.sum());
+        return stats;
+    }
+}
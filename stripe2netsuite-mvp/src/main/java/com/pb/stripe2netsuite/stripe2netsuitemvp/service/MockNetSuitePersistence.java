@@ -0,0 +1,640 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.MockPersistenceConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Customer;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Order;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Snapshot plus log persistence of the mock NetSuite's orders and customers.
+ *
+ * Every order and customer write is appended to the active log as a full
+ * record, in the order the writes were applied. Every
+ * {@code snapshot-interval-seconds}, and on shutdown, the log is rolled over to
+ * a new generation and the whole store is written to a snapshot of that
+ * generation; snapshots and logs before the previous snapshot are then deleted.
+ * On startup the newest snapshot is memory-mapped and decoded in place, and the
+ * logs from its generation on are replayed. If it is unreadable, the previous
+ * snapshot is used with the logs kept for it. Startup fails if no snapshot is
+ * readable or a log after the one used is missing, rather than come up with
+ * writes silently lost. Records are upserts, so a write that lands in both a
+ * snapshot and the following log is applied twice to the same effect.
+ *
+ * Log records are written to the operating system one at a time and forced to
+ * disk on roll-over and shutdown: they survive a crash of the process, while a
+ * crash of the machine can lose the writes since the last roll-over.
+ *
+ * File layout: magic (int), version (int), generation (long), then
+ * - snapshot: customer count (int), customers, order count (int), orders, then
+ *   the CRC32 of all of it (long). A snapshot is written to a temporary file
+ *   and moved into place.
+ * - log: records of length (int), type (byte), CRC32 of type and payload (int),
+ *   payload. Replay stops at the first incomplete or corrupt record (torn write).
+ */
+@Component
+public class MockNetSuitePersistence {
+
+    private static final Logger logger = LoggerFactory.getLogger(MockNetSuitePersistence.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x4D4E5353;
+    private static final int LOG_MAGIC = 0x4D4E534C;
+    private static final int FORMAT_VERSION = 1;
+    private static final int FILE_HEADER_BYTES = 16;
+    private static final int RECORD_HEADER_BYTES = 9;
+    private static final byte[] RECORD_HEADER_PLACEHOLDER = new byte[RECORD_HEADER_BYTES];
+    private static final byte TYPE_ORDER = 1;
+    private static final byte TYPE_CUSTOMER = 2;
+    private static final byte TYPE_CLEAR = 3;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final String LOG_PREFIX = "log-";
+    private static final String LOG_SUFFIX = ".log";
+
+    private final MockPersistenceConfig config;
+    private Path directory;
+    private OrderStore orders;
+    private Map<String, Customer> customers;
+    private ScheduledExecutorService snapshotter;
+
+    /**
+     * Guards the active log, its generation and the record buffer.
+     */
+    private final Object logLock = new Object();
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(256);
+    private final DataOutputStream recordOut = new DataOutputStream(recordBytes);
+    private final CRC32 crc = new CRC32();
+    private FileChannel log;
+    private long generation;
+    private long loggedSinceSnapshot;
+
+    /**
+     * Serializes snapshots.
+     */
+    private final Object snapshotLock = new Object();
+
+    private final LongAdder loggedRecords = new LongAdder();
+    private final LongAdder loggedBytes = new LongAdder();
+    private final LongAdder logFailures = new LongAdder();
+    private final LongAdder snapshots = new LongAdder();
+    private volatile long replayedRecords;
+    private volatile long restoreMillis;
+    private volatile long lastSnapshotMillis;
+
+    public MockNetSuitePersistence(MockPersistenceConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Check if persistence is enabled.
+     */
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * Restore the stores from the newest snapshot and the logs after it, then
+     * start logging their writes and writing snapshots periodically.
+     *
+     * Order writes and clears are logged through the order store's listeners,
+     * under its write lock; customer writes must be reported with {@link #logCustomer}.
+     *
+     * @param orders the order store to restore into and log
+     * @param customers the customer map to restore into and snapshot
+     * @return true if a snapshot or log was found, false if the stores were left empty
+     * @throws UncheckedIOException if the files found cannot be restored completely
+     */
+    public boolean open(OrderStore orders, Map<String, Customer> customers) {
+        if (!isEnabled()) {
+            return false;
+        }
+        this.orders = orders;
+        this.customers = customers;
+
+        long startNanos = System.nanoTime();
+        boolean found;
+        try {
+            directory = Paths.get(config.getDirectory());
+            Files.createDirectories(directory);
+            List<Path> snapshotFiles = listFiles(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            List<Path> logFiles = listFiles(LOG_PREFIX, LOG_SUFFIX);
+            found = !snapshotFiles.isEmpty() || !logFiles.isEmpty();
+
+            long snapshotGeneration = 0;
+            for (int i = snapshotFiles.size() - 1; i >= 0; i--) {
+                Path file = snapshotFiles.get(i);
+                try {
+                    loadSnapshot(file);
+                    snapshotGeneration = generationOf(file, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+                    break;
+                } catch (IOException e) {
+                    orders.clear();
+                    customers.clear();
+                    logger.warn("Ignoring mock NetSuite snapshot {}: {}", file, e.getMessage());
+                }
+            }
+            if (!snapshotFiles.isEmpty() && snapshotGeneration == 0) {
+                throw new IOException("No readable snapshot in " + directory
+                        + ", the logs before the oldest one were deleted");
+            }
+
+            long lastGeneration = snapshotGeneration;
+            long nextLogGeneration = Math.max(1, snapshotGeneration);
+            long replayed = 0;
+            for (Path file : logFiles) {
+                long logGeneration = generationOf(file, LOG_PREFIX, LOG_SUFFIX);
+                lastGeneration = Math.max(lastGeneration, logGeneration);
+                if (logGeneration < snapshotGeneration) {
+                    continue;
+                }
+                if (logGeneration != nextLogGeneration) {
+                    throw new IOException("Log of generation " + nextLogGeneration + " is missing in " + directory);
+                }
+                nextLogGeneration++;
+                replayed += replayLog(file);
+            }
+
+            synchronized (logLock) {
+                generation = lastGeneration + 1;
+                log = openLog(generation);
+                // Replayed records are folded into the first snapshot
+                loggedSinceSnapshot = replayed;
+            }
+            replayedRecords = replayed;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open mock NetSuite persistence", e);
+        }
+        orders.setWriteListener(this::logOrder);
+        orders.setClearListener(this::logClear);
+        restoreMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        logger.info("Mock NetSuite restored in {} ms: {} orders, {} customers, {} log records replayed",
+                restoreMillis, orders.size(), customers.size(), replayedRecords);
+
+        snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mock-netsuite-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int intervalSeconds = Math.max(1, config.getSnapshotIntervalSeconds());
+        snapshotter.scheduleWithFixedDelay(this::snapshot, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        return found;
+    }
+
+    /**
+     * Log an order write.
+     */
+    public void logOrder(Order order) {
+        append(TYPE_ORDER, order, null);
+    }
+
+    /**
+     * Log a customer write. Call after the customer has been stored.
+     */
+    public void logCustomer(Customer customer) {
+        append(TYPE_CUSTOMER, null, customer);
+    }
+
+    /**
+     * Log that all orders and customers were removed. Called by the order store once cleared.
+     */
+    private void logClear() {
+        append(TYPE_CLEAR, null, null);
+    }
+
+    /**
+     * Roll the log over and write a snapshot, if anything was logged since the last one.
+     * Failures are logged only: the logs are kept until a snapshot succeeds. The previous
+     * snapshot and its logs are kept as well, to restore from if the new one turns out unreadable.
+     */
+    public void snapshot() {
+        synchronized (snapshotLock) {
+            long snapshotGeneration;
+            synchronized (logLock) {
+                if (log == null || loggedSinceSnapshot == 0) {
+                    return;
+                }
+                try {
+                    rollLog();
+                } catch (IOException e) {
+                    logger.error("Failed to roll mock NetSuite log over", e);
+                    return;
+                }
+                snapshotGeneration = generation;
+                loggedSinceSnapshot = 0;
+            }
+
+            // Every write logged before the roll-over is already in the stores
+            Customer[] customerSnapshot = customers.values().toArray(new Customer[0]);
+            List<Order> orderSnapshot = orders.snapshot().orders();
+            Path file = directory.resolve(fileName(SNAPSHOT_PREFIX, snapshotGeneration, SNAPSHOT_SUFFIX));
+            try {
+                writeSnapshot(file, snapshotGeneration, customerSnapshot, orderSnapshot);
+                deleteBefore(previousSnapshotGeneration(snapshotGeneration));
+                snapshots.increment();
+                lastSnapshotMillis = System.currentTimeMillis();
+                logger.info("Mock NetSuite snapshot {} written: {} orders, {} customers",
+                        snapshotGeneration, orderSnapshot.size(), customerSnapshot.length);
+            } catch (IOException e) {
+                logger.error("Failed to write mock NetSuite snapshot {}", file, e);
+                synchronized (logLock) {
+                    loggedSinceSnapshot++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get restore, log and snapshot figures.
+     *
+     * @return map of metric name to value
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        if (!isEnabled()) {
+            return stats;
+        }
+        synchronized (logLock) {
+            stats.put("generation", generation);
+            stats.put("loggedSinceSnapshot", loggedSinceSnapshot);
+        }
+        stats.put("restoreMillis", restoreMillis);
+        stats.put("replayedRecords", replayedRecords);
+        stats.put("loggedRecords", loggedRecords.sum());
+        stats.put("loggedBytes", loggedBytes.sum());
+        stats.put("logFailures", logFailures.sum());
+        stats.put("snapshots", snapshots.sum());
+        stats.put("lastSnapshotMillis", lastSnapshotMillis);
+        return stats;
+    }
+
+    /**
+     * Stop the periodic snapshots, write a final one and close the log.
+     */
+    @PreDestroy
+    public void close() {
+        if (snapshotter == null) {
+            return;
+        }
+        snapshotter.shutdownNow();
+        snapshot();
+        synchronized (logLock) {
+            try {
+                log.force(false);
+                log.close();
+            } catch (IOException e) {
+                logger.error("Failed to close mock NetSuite log", e);
+            }
+            log = null;
+        }
+    }
+
+    /**
+     * Write one record to the active log. Failures are logged only: the write itself has been applied.
+     */
+    private void append(byte type, Order order, Customer customer) {
+        synchronized (logLock) {
+            if (log == null) {
+                return;
+            }
+            try {
+                recordBytes.reset();
+                recordOut.write(RECORD_HEADER_PLACEHOLDER);
+                if (type == TYPE_ORDER) {
+                    writeOrder(recordOut, order);
+                } else if (type == TYPE_CUSTOMER) {
+                    writeCustomer(recordOut, customer);
+                }
+                recordOut.flush();
+
+                byte[] record = recordBytes.toByteArray();
+                int length = record.length - RECORD_HEADER_BYTES;
+                crc.reset();
+                crc.update(type);
+                crc.update(record, RECORD_HEADER_BYTES, length);
+                ByteBuffer buffer = ByteBuffer.wrap(record);
+                buffer.putInt(0, length);
+                buffer.put(4, type);
+                buffer.putInt(5, (int) crc.getValue());
+                while (buffer.hasRemaining()) {
+                    log.write(buffer);
+                }
+                loggedSinceSnapshot++;
+                loggedRecords.increment();
+                loggedBytes.add(record.length);
+            } catch (IOException e) {
+                logFailures.increment();
+                logger.error("Failed to append to mock NetSuite log", e);
+            }
+        }
+    }
+
+    /**
+     * Close the active log and start the next generation. Must be called with the log lock held.
+     */
+    private void rollLog() throws IOException {
+        FileChannel next = openLog(generation + 1);
+        log.force(false);
+        log.close();
+        log = next;
+        generation++;
+    }
+
+    private FileChannel openLog(long logGeneration) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(fileName(LOG_PREFIX, logGeneration, LOG_SUFFIX)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES)
+                .putInt(LOG_MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putLong(logGeneration)
+                .flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        return channel;
+    }
+
+    private void writeSnapshot(Path file, long snapshotGeneration, Customer[] customerSnapshot,
+                               List<Order> orderSnapshot) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 snapshotCrc = new CRC32();
+        try (OutputStream fileOut = Files.newOutputStream(temporary);
+             BufferedOutputStream buffered = new BufferedOutputStream(fileOut, 256 * 1024);
+             DataOutputStream out = new DataOutputStream(new CheckedOutputStream(buffered, snapshotCrc))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(snapshotGeneration);
+            out.writeInt(customerSnapshot.length);
+            for (Customer customer : customerSnapshot) {
+                writeCustomer(out, customer);
+            }
+            out.writeInt(orderSnapshot.size());
+            for (Order order : orderSnapshot) {
+                writeOrder(out, order);
+            }
+            out.flush();
+            // The checksum itself is written past the checked stream
+            buffered.write(ByteBuffer.allocate(Long.BYTES).putLong(snapshotCrc.getValue()).array());
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Decode a snapshot in place from a read-only mapping of the file.
+     */
+    private void loadSnapshot(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < FILE_HEADER_BYTES + 2 * Integer.BYTES + Long.BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Unexpected snapshot size " + size);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int contentLength = (int) size - Long.BYTES;
+            CRC32 snapshotCrc = new CRC32();
+            snapshotCrc.update(buffer.slice(0, contentLength));
+            if (snapshotCrc.getValue() != buffer.getLong(contentLength)) {
+                throw new IOException("Snapshot checksum mismatch");
+            }
+
+            ByteBuffer in = buffer.slice(0, contentLength);
+            if (in.getInt() != SNAPSHOT_MAGIC || in.getInt() != FORMAT_VERSION) {
+                throw new IOException("Not a mock NetSuite snapshot");
+            }
+            in.getLong();
+            int customerCount = in.getInt();
+            for (int i = 0; i < customerCount; i++) {
+                Customer customer = readCustomer(in);
+                customers.put(customer.getId(), customer);
+            }
+            int orderCount = in.getInt();
+            for (int i = 0; i < orderCount; i++) {
+                orders.put(readOrder(in));
+            }
+            logger.info("Mock NetSuite snapshot {} loaded: {} orders, {} customers", file.getFileName(),
+                    orderCount, customerCount);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Snapshot truncated", e);
+        }
+    }
+
+    /**
+     * Apply the records of a log file, stopping at the first incomplete or corrupt one.
+     *
+     * @return the number of records applied
+     */
+    private long replayLog(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < FILE_HEADER_BYTES || size > Integer.MAX_VALUE) {
+                logger.warn("Ignoring mock NetSuite log {}: unexpected size {}", file, size);
+                return 0;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != LOG_MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+                logger.warn("Ignoring mock NetSuite log {}: not a mock NetSuite log", file);
+                return 0;
+            }
+
+            long applied = 0;
+            int position = FILE_HEADER_BYTES;
+            int capacity = buffer.capacity();
+            while (position + RECORD_HEADER_BYTES <= capacity) {
+                int length = buffer.getInt(position);
+                byte type = buffer.get(position + 4);
+                if (length < 0 || position + RECORD_HEADER_BYTES + length > capacity
+                        || type < TYPE_ORDER || type > TYPE_CLEAR) {
+                    break;
+                }
+                ByteBuffer payload = buffer.slice(position + RECORD_HEADER_BYTES, length);
+                crc.reset();
+                crc.update(type);
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != buffer.getInt(position + 5)) {
+                    break;
+                }
+                try {
+                    apply(type, payload);
+                } catch (BufferUnderflowException e) {
+                    break;
+                }
+                applied++;
+                position += RECORD_HEADER_BYTES + length;
+            }
+            if (position != capacity) {
+                logger.warn("Mock NetSuite log {} has an incomplete or corrupt record at offset {}, ignoring the rest",
+                        file.getFileName(), position);
+            }
+            return applied;
+        }
+    }
+
+    private void apply(byte type, ByteBuffer payload) {
+        switch (type) {
+            case TYPE_ORDER -> orders.put(readOrder(payload));
+            case TYPE_CUSTOMER -> {
+                Customer customer = readCustomer(payload);
+                customers.put(customer.getId(), customer);
+            }
+            default -> {
+                orders.clear();
+                customers.clear();
+            }
+        }
+    }
+
+    /**
+     * Get the generation of the newest snapshot before the given one, or the given one if there is none.
+     */
+    private long previousSnapshotGeneration(long snapshotGeneration) throws IOException {
+        long previous = snapshotGeneration;
+        for (Path file : listFiles(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            long fileGeneration = generationOf(file, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            if (fileGeneration < snapshotGeneration) {
+                previous = fileGeneration;
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * Delete the snapshots and logs of generations before the given one.
+     */
+    private void deleteBefore(long keepGeneration) throws IOException {
+        for (Path file : listFiles(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (generationOf(file, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX) < keepGeneration) {
+                Files.deleteIfExists(file);
+            }
+        }
+        for (Path file : listFiles(LOG_PREFIX, LOG_SUFFIX)) {
+            if (generationOf(file, LOG_PREFIX, LOG_SUFFIX) < keepGeneration) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static void writeOrder(DataOutputStream out, Order order) throws IOException {
+        writeString(out, order.getId());
+        writeString(out, order.getStatus());
+        writeLong(out, order.getAmount());
+        writeString(out, order.getCurrency());
+        writeString(out, order.getCustomerId());
+        writeString(out, order.getStripePaymentId());
+        writeString(out, order.getDescription());
+        writeLong(out, order.getCreatedAtMillis());
+    }
+
+    private static Order readOrder(ByteBuffer in) {
+        Order order = new Order(readString(in), readString(in), readLong(in), readString(in));
+        order.setCustomerId(readString(in));
+        order.setStripePaymentId(readString(in));
+        order.setDescription(readString(in));
+        order.setCreatedAtMillis(readLong(in));
+        return order;
+    }
+
+    private static void writeCustomer(DataOutputStream out, Customer customer) throws IOException {
+        writeString(out, customer.getId());
+        writeString(out, customer.getName());
+        writeString(out, customer.getEmail());
+        writeString(out, customer.getStripeCustomerId());
+    }
+
+    private static Customer readCustomer(ByteBuffer in) {
+        Customer customer = new Customer(readString(in), readString(in), readString(in));
+        customer.setStripeCustomerId(readString(in));
+        return customer;
+    }
+
+    /**
+     * Write a string as its UTF-8 length (int, -1 for null) and bytes.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write a nullable long as a presence byte and, if present, the value.
+     */
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(ByteBuffer in) {
+        return in.get() != 0 ? in.getLong() : null;
+    }
+
+    private List<Path> listFiles(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(prefix) && name.endsWith(suffix);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static String fileName(String prefix, long fileGeneration, String suffix) {
+        return String.format("%s%020d%s", prefix, fileGeneration, suffix);
+    }
+
+    private static long generationOf(Path path, String prefix, String suffix) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+    }
+}
@@ -1,15 +1,32 @@
 package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
 
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.CursorPage;
 import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Customer;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.CustomerMapping;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.CustomerMappingPage;
 import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Order;
 import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderDto;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Mock implementation of NetSuiteService for development and testing.
@@ -19,46 +36,120 @@ import java.util.concurrent.ConcurrentHashMap;
  * 
  * Features:
  * - In-memory storage for orders and customers
+ * - Orders kept in an {@link OrderStore}: objects with secondary indexes by default,
+ *   or compact columns for millions of orders
+ * - Customers found by Stripe ID through the shared {@link CustomerIdIndex}
+ * - Get-or-create of a customer coalesced per Stripe ID by {@link CustomerSingleFlight},
+ *   so concurrent events for a new customer create it once
+ * - Customer reads through the {@link CustomerCache}, as against NetSuite
  * - Console logging of all operations
  * - Simulated response delays for realistic behavior
- * - Thread-safe operations using ConcurrentHashMap
+ * - Thread-safe operations using concurrent maps
+ * - Orders and customers listed in ID order, by cursor page or from a snapshot
+ * - Optional persistence across restarts through {@link MockNetSuitePersistence}
+ * - Order and customer IDs from block-leasing {@link IdAllocator}s, unique across
+ *   instances that share {@code netsuite.mock.ids.lease-directory}
+ * - Async variants that complete immediately, on the caller's thread
+ *
+ * Active unless netsuite.mock.enabled=false.
  */
 @Service
-public class MockNetSuiteService implements NetSuiteService {
+@ConditionalOnProperty(name = "netsuite.mock.enabled", havingValue = "true", matchIfMissing = true)
+public class MockNetSuiteService implements NetSuiteService, AsyncNetSuiteService {
 
     private static final Logger logger = LoggerFactory.getLogger(MockNetSuiteService.class);
 
     /**
-     * In-memory storage for mock orders.
-     * Key: order ID, Value: Order object
+     * In-memory storage for mock orders, selected with netsuite.mock.order-store.
      */
-    private final Map<String, Order> orders = new ConcurrentHashMap<>();
-    
+    private final OrderStore orders;
+
     /**
-     * In-memory index for finding orders by Stripe PaymentIntent ID.
-     * Key: Stripe PaymentIntent ID, Value: Order ID
+     * In-memory storage for mock customers, ordered by ID.
+     * Key: customer ID, Value: Customer object
      */
-    private final Map<String, String> ordersByStripePaymentId = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<String, Customer> customers = new ConcurrentSkipListMap<>();
 
     /**
-     * In-memory storage for mock customers.
-     * Key: customer ID, Value: Customer object
+     * Index for finding customers by Stripe customer ID.
      */
-    private final Map<String, Customer> customers = new ConcurrentHashMap<>();
+    private final CustomerIdIndex customerIndex;
 
     /**
-     * Counter for generating mock order IDs.
+     * Coalesces concurrent get-or-create calls for the same Stripe customer.
      */
-    private int orderCounter = 0;
+    private final CustomerSingleFlight customerSingleFlight;
 
     /**
-     * Counter for generating mock customer IDs.
+     * Read-through cache in front of getCustomer, invalidated by the mock's customer writes.
      */
-    private int customerCounter = 0;
+    private final CustomerCache customerCache;
 
-    public MockNetSuiteService() {
-        // Initialize with some sample data
-        initializeSampleData();
+    /**
+     * Allocator for mock order IDs; the sample order holds 1.
+     */
+    private final IdAllocator orderIds;
+
+    /**
+     * Allocator for mock customer IDs; the sample customers hold 1 and 2.
+     */
+    private final IdAllocator customerIds;
+
+    /**
+     * Logs writes and snapshots the stores, if netsuite.mock.persistence.enabled.
+     */
+    private final MockNetSuitePersistence persistence;
+
+    /**
+     * Orders customer writes and clearing, so each customer is logged on the side
+     * of the clear record on which it was stored.
+     */
+    private final Object customerWriteLock = new Object();
+
+    public MockNetSuiteService(CustomerIdIndex customerIndex, CustomerSingleFlight customerSingleFlight,
+                               CustomerCache customerCache, IdBlockStore idBlockStore, OrderStore orders,
+                               MockNetSuitePersistence persistence) {
+        this.customerIndex = customerIndex;
+        this.customerSingleFlight = customerSingleFlight;
+        this.customerCache = customerCache;
+        this.orderIds = idBlockStore.allocator("mock-order", 2);
+        this.customerIds = idBlockStore.allocator("mock-customer", 3);
+        this.orders = orders;
+        this.persistence = persistence;
+        if (persistence.open(orders, customers)) {
+            afterRestore();
+        } else {
+            // Initialize with some sample data
+            initializeSampleData();
+        }
+    }
+
+    /**
+     * Index the restored customers and move the ID allocators past the restored IDs.
+     */
+    private void afterRestore() {
+        long lastCustomer = 0;
+        for (Customer customer : customers.values()) {
+            customerIndex.put(customer.getStripeCustomerId(), customer.getId());
+            lastCustomer = Math.max(lastCustomer, numberOf(customer.getId(), "MOCK-CUST-"));
+        }
+        long lastOrder = 0;
+        for (Order order : orders.snapshot().orders()) {
+            lastOrder = Math.max(lastOrder, numberOf(order.getId(), "MOCK-ORDER-"));
+        }
+        customerIds.skipPast(lastCustomer);
+        orderIds.skipPast(lastOrder);
+    }
+
+    private static long numberOf(String id, String prefix) {
+        if (id == null || !id.startsWith(prefix)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(id.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
     }
 
     /**
@@ -68,22 +159,19 @@ public class MockNetSuiteService implements NetSuiteService {
         // Create sample customers
         Customer customer1 = new Customer("MOCK-CUST-001", "John Doe", "john.doe@example.com");
         customer1.setStripeCustomerId("cus_1234567890");
-        customers.put(customer1.getId(), customer1);
+        storeCustomer(customer1);
 
         Customer customer2 = new Customer("MOCK-CUST-002", "Jane Smith", "jane.smith@example.com");
         customer2.setStripeCustomerId("cus_0987654321");
-        customers.put(customer2.getId(), customer2);
+        storeCustomer(customer2);
 
         // Create sample orders
         Order order1 = new Order("MOCK-ORDER-001", "pending", 5000L, "usd");
         order1.setCustomerId("MOCK-CUST-001");
         order1.setStripePaymentId("pi_1234567890");
         order1.setDescription("Sample order from Stripe payment");
-        orders.put(order1.getId(), order1);
-        ordersByStripePaymentId.put(order1.getStripePaymentId(), order1.getId());
-
-        orderCounter = 1;
-        customerCounter = 2;
+        order1.setCreatedAtMillis(System.currentTimeMillis());
+        orders.put(order1);
 
         logger.info("[MockNetSuite] Sample data initialized: {} customers, {} orders",
                 customers.size(), orders.size());
@@ -91,39 +179,51 @@ public class MockNetSuiteService implements NetSuiteService {
 
     /**
      * Create a new order in the mock NetSuite.
+     * Like NetSuite with externalId = Stripe payment ID, there is at most one order per
+     * Stripe payment: creating it again sets the existing order to the requested status,
+     * so a retried create changes nothing and a later lifecycle event moves the order on.
      * 
      * @param dto the order data
-     * @return the created order with generated ID
+     * @return the created order with generated ID, or the existing order of the Stripe payment
      */
     @Override
     public Order createOrder(OrderDto dto) {
+        String status = dto.getStatus() != null ? dto.getStatus() : "pending";
+        if (dto.getStripePaymentId() != null) {
+            Order existing = orders.findByStripePaymentId(dto.getStripePaymentId());
+            if (existing != null) {
+                logger.info("[MockNetSuite] action: create, eventId: {}, orderId: {} - ALREADY EXISTS",
+                        dto.getStripePaymentId(), existing.getId());
+                if (status.equals(existing.getStatus())) {
+                    return existing;
+                }
+                Order updated = updateOrderStatus(existing.getId(), status);
+                return updated != null ? updated : existing;
+            }
+        }
+
         // Generate unique mock order ID
-        orderCounter++;
-        String orderId = String.format("MOCK-ORDER-%03d", orderCounter);
+        String orderId = orderIds.next("MOCK-ORDER-");
         
         // Get or create customer
         String customerId = dto.getStripeCustomerId();
         if (customerId != null && !customerId.isEmpty()) {
-            // Try to find existing customer by Stripe ID
-            customerId = findCustomerByStripeId(customerId);
-            if (customerId == null) {
-                // Create a new mock customer
-                customerId = createMockCustomer(dto.getStripeCustomerId());
-            }
+            customerId = getOrCreateCustomer(customerId);
         }
 
         // Create the order
         Order order = new Order();
         order.setId(orderId);
-        order.setStatus(dto.getStatus() != null ? dto.getStatus() : "pending");
+        order.setStatus(status);
         order.setAmount(dto.getAmount());
         order.setCurrency(dto.getCurrency() != null ? dto.getCurrency() : "usd");
         order.setCustomerId(customerId);
         order.setStripePaymentId(dto.getStripePaymentId());
         order.setDescription(dto.getDescription());
+        order.setCreatedAtMillis(System.currentTimeMillis());
 
         // Store in memory
-        orders.put(orderId, order);
+        orders.put(order);
 
         // Log the action
         logger.info("[MockNetSuite] action: create, eventId: {}, orderId: {}, amount: {}, currency: {}, status: {}",
@@ -153,8 +253,7 @@ public class MockNetSuiteService implements NetSuiteService {
         }
 
         String oldStatus = order.getStatus();
-        order.setStatus(status);
-        orders.put(orderId, order);
+        order = orders.updateStatus(orderId, status);
 
         // Log the action
         logger.info("[MockNetSuite] action: update, orderId: {}, oldStatus: {}, newStatus: {}",
@@ -164,13 +263,21 @@ public class MockNetSuiteService implements NetSuiteService {
     }
 
     /**
-     * Get a customer by ID.
+     * Get a customer by ID, read through the {@link CustomerCache}.
      * 
      * @param customerId the customer ID
      * @return the customer if found, null otherwise
      */
     @Override
     public Customer getCustomer(String customerId) {
+        return customerCache.get(customerId, this::loadCustomer);
+    }
+
+    private CompletableFuture<Customer> loadCustomer(String customerId) {
+        return completed(() -> findCustomer(customerId));
+    }
+
+    private Customer findCustomer(String customerId) {
         // Log the action
         logger.info("[MockNetSuite] action: get, customerId: {}", customerId);
 
@@ -183,6 +290,23 @@ public class MockNetSuiteService implements NetSuiteService {
         return customer;
     }
 
+    /**
+     * Find the customer of a Stripe customer, creating it if there is none.
+     * Concurrent calls for the same Stripe customer wait for the first one.
+     *
+     * @param stripeCustomerId the Stripe customer ID
+     * @return the NetSuite customer ID
+     */
+    private String getOrCreateCustomer(String stripeCustomerId) {
+        return customerSingleFlight.execute("stripe:" + stripeCustomerId, () -> {
+            String customerId = findCustomerByStripeId(stripeCustomerId);
+            if (customerId == null) {
+                customerId = createMockCustomer(stripeCustomerId);
+            }
+            return CompletableFuture.completedFuture(customerId);
+        }).join();
+    }
+
     /**
      * Find a customer by Stripe customer ID.
      * 
@@ -190,12 +314,9 @@ public class MockNetSuiteService implements NetSuiteService {
      * @return the NetSuite customer ID, or null if not found
      */
     private String findCustomerByStripeId(String stripeCustomerId) {
-        for (Customer customer : customers.values()) {
-            if (stripeCustomerId.equals(customer.getStripeCustomerId())) {
-                return customer.getId();
-            }
-        }
-        return null;
+        String customerId = customerIndex.get(stripeCustomerId);
+        // The index may come from a snapshot of a previous run whose customers are gone
+        return customerId != null && customers.containsKey(customerId) ? customerId : null;
     }
 
     /**
@@ -205,13 +326,12 @@ public class MockNetSuiteService implements NetSuiteService {
      * @return the NetSuite customer ID
      */
     private String createMockCustomer(String stripeCustomerId) {
-        customerCounter++;
-        String customerId = String.format("MOCK-CUST-%03d", customerCounter);
+        long number = customerIds.next();
+        String customerId = IdAllocator.format("MOCK-CUST-", number);
         
-        Customer customer = new Customer(customerId, "Customer " + customerId, "customer" + customerCounter + "@example.com");
+        Customer customer = new Customer(customerId, "Customer " + customerId, "customer" + number + "@example.com");
         customer.setStripeCustomerId(stripeCustomerId);
-        
-        customers.put(customerId, customer);
+        storeCustomer(customer);
         
         logger.info("[MockNetSuite] Created new mock customer: {}, stripeCustomerId: {}",
                 customerId, stripeCustomerId);
@@ -219,13 +339,127 @@ public class MockNetSuiteService implements NetSuiteService {
         return customerId;
     }
 
+    /**
+     * Store a customer, index its Stripe ID and log it.
+     */
+    private void storeCustomer(Customer customer) {
+        synchronized (customerWriteLock) {
+            customers.put(customer.getId(), customer);
+            customerIndex.put(customer.getStripeCustomerId(), customer.getId());
+            persistence.logCustomer(customer);
+        }
+        // Drops a cached "not found" for the new ID
+        customerCache.invalidate(customer.getId());
+    }
+
+    /**
+     * Page through the mock customers that have a Stripe ID, ordered by ID.
+     */
+    @Override
+    public CustomerMappingPage getCustomerMappings(int offset, int limit) {
+        List<CustomerMapping> all = customers.values().stream()
+                .filter(customer -> customer.getStripeCustomerId() != null)
+                .sorted(Comparator.comparing(Customer::getId))
+                .map(customer -> new CustomerMapping(customer.getStripeCustomerId(), customer.getId()))
+                .toList();
+        int from = Math.min(offset, all.size());
+        int to = Math.min(from + limit, all.size());
+        return new CustomerMappingPage(all.subList(from, to), to < all.size());
+    }
+
     /**
      * Get all mock orders (for testing/debugging).
      * 
      * @return map of all orders
      */
     public Map<String, Order> getAllOrders() {
-        return new ConcurrentHashMap<>(orders);
+        return orders.copy();
+    }
+
+    /**
+     * Find orders by status, customer, currency, Stripe payment ID and creation time.
+     *
+     * @param query the filters, sort order and limit
+     * @return the matching orders
+     */
+    public List<Order> queryOrders(OrderQuery query) {
+        return orders.query(query);
+    }
+
+    /**
+     * Read one page of mock orders, in ID order.
+     *
+     * @param cursor cursor from the previous page, or null for the first page
+     * @param limit maximum number of orders
+     * @return the orders and the cursor of the next page
+     * @throws IllegalArgumentException if the cursor is not one this service handed out
+     */
+    public CursorPage<Order> getOrdersPage(String cursor, int limit) {
+        return toPage(orders.page(decodeCursor(cursor), limit + 1), limit, Order::getId);
+    }
+
+    /**
+     * Read one page of mock customers, in ID order.
+     *
+     * @param cursor cursor from the previous page, or null for the first page
+     * @param limit maximum number of customers
+     * @return the customers and the cursor of the next page
+     * @throws IllegalArgumentException if the cursor is not one this service handed out
+     */
+    public CursorPage<Customer> getCustomersPage(String cursor, int limit) {
+        String afterId = decodeCursor(cursor);
+        Map<String, Customer> range = afterId != null ? customers.tailMap(afterId, false) : customers;
+        List<Customer> page = new ArrayList<>();
+        for (Customer customer : range.values()) {
+            if (page.size() > limit) {
+                break;
+            }
+            page.add(customer);
+        }
+        return toPage(page, limit, Customer::getId);
+    }
+
+    /**
+     * Get all mock orders as of one version, in ID order, without copying them.
+     */
+    public OrderStore.Snapshot getOrdersSnapshot() {
+        return orders.snapshot();
+    }
+
+    /**
+     * Get a read-only view of the mock customers in ID order, without copying them.
+     * Iteration is weakly consistent: customers stored while it runs may or may not
+     * be seen, but none is seen twice. Customers are never changed once stored.
+     */
+    public Collection<Customer> getCustomersView() {
+        return Collections.unmodifiableCollection(customers.values());
+    }
+
+    /**
+     * Count the mock customers without copying them.
+     */
+    public int getCustomersCount() {
+        return customers.size();
+    }
+
+    /**
+     * Cut a list holding up to limit + 1 items to a page; the extra item only tells that a next page exists.
+     */
+    private static <T> CursorPage<T> toPage(List<T> items, int limit, Function<T, String> id) {
+        if (items.size() <= limit) {
+            return new CursorPage<>(items, null);
+        }
+        List<T> page = items.subList(0, limit);
+        String last = id.apply(page.get(page.size() - 1));
+        return new CursorPage<>(List.copyOf(page), Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(last.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
     }
 
     /**
@@ -249,13 +483,16 @@ public class MockNetSuiteService implements NetSuiteService {
 
     /**
      * Clear all mock data (for testing).
+     * New IDs continue after the ones already handed out, which other instances may still hold.
      */
     public void clearData() {
-        orders.clear();
-        ordersByStripePaymentId.clear();
-        customers.clear();
-        orderCounter = 0;
-        customerCounter = 0;
+        synchronized (customerWriteLock) {
+            customers.clear();
+            customerIndex.clear();
+            // The clear is logged under the order store's write lock, after every order written before it
+            orders.clear();
+        }
+        customerCache.invalidateAll();
         initializeSampleData();
         logger.info("[MockNetSuite] All mock data cleared and reinitialized");
     }
@@ -270,10 +507,10 @@ public class MockNetSuiteService implements NetSuiteService {
      * @param stripePaymentIntentId the Stripe PaymentIntent ID (from Stripe API)
      * @return the created pending order
      */
+    @Override
     public Order createPendingOrder(Long amount, String currency, String description, String stripePaymentIntentId) {
         // Generate unique mock order ID
-        orderCounter++;
-        String orderId = String.format("MOCK-ORDER-%03d", orderCounter);
+        String orderId = orderIds.next("MOCK-ORDER-");
         
         // Use provided Stripe PaymentIntent ID or generate mock one
         String stripePaymentId = stripePaymentIntentId != null ? stripePaymentIntentId : 
@@ -291,12 +528,10 @@ public class MockNetSuiteService implements NetSuiteService {
         order.setCustomerId(customerId);
         order.setStripePaymentId(stripePaymentId);
         order.setDescription(description);
+        order.setCreatedAtMillis(System.currentTimeMillis());
         
-        // Store in memory
-        orders.put(orderId, order);
-        
-        // Also store by Stripe PaymentIntent ID for quick lookup
-        ordersByStripePaymentId.put(stripePaymentId, orderId);
+        // Store in memory, indexed by Stripe PaymentIntent ID for quick lookup
+        orders.put(order);
         
         // Log the action
         logger.info("[MockNetSuite] action: createPending, orderId: {}, amount: {}, currency: {}, status: pending, stripePaymentId: {}",
@@ -315,11 +550,7 @@ public class MockNetSuiteService implements NetSuiteService {
      * @return the order if found, null otherwise
      */
     public Order findOrderByStripePaymentIntentId(String stripePaymentIntentId) {
-        String orderId = ordersByStripePaymentId.get(stripePaymentIntentId);
-        if (orderId != null) {
-            return orders.get(orderId);
-        }
-        return null;
+        return orders.findByStripePaymentId(stripePaymentIntentId);
     }
     
     /**
@@ -334,14 +565,42 @@ public class MockNetSuiteService implements NetSuiteService {
         Order order = findOrderByStripePaymentIntentId(stripePaymentIntentId);
         if (order != null) {
             String oldStatus = order.getStatus();
-            order.setStatus("paid");
-            orders.put(order.getId(), order);
             logger.info("[MockNetSuite] action: markPaid, orderId: {}, oldStatus: {}, newStatus: {}",
                     order.getId(), oldStatus, "paid");
-            return order;
+            return orders.updateStatus(order.getId(), "paid");
         }
         logger.warn("[MockNetSuite] action: markPaid - Order not found for PaymentIntent: {}", stripePaymentIntentId);
         return null;
     }
-}
 
+    @Override
+    public CompletableFuture<Order> createOrderAsync(OrderDto dto) {
+        return completed(() -> createOrder(dto));
+    }
+
+    @Override
+    public CompletableFuture<Order> updateOrderStatusAsync(String orderId, String status) {
+        return completed(() -> updateOrderStatus(orderId, status));
+    }
+
+    @Override
+    public CompletableFuture<Customer> getCustomerAsync(String customerId) {
+        return customerCache.getAsync(customerId, this::loadCustomer);
+    }
+
+    @Override
+    public CompletableFuture<Order> markOrderAsPaidAsync(String stripePaymentIntentId) {
+        return completed(() -> markOrderAsPaid(stripePaymentIntentId));
+    }
+
+    /**
+     * Run an in-memory operation and wrap its result, or its exception, in a completed future.
+     */
+    private static <T> CompletableFuture<T> completed(Supplier<T> operation) {
+        try {
+            return CompletableFuture.completedFuture(operation.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
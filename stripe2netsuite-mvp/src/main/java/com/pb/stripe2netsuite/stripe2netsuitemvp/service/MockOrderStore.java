@@ -0,0 +1,490 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Order;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderQuery;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+
+/**
+ * Order store of the mock NetSuite that keeps orders as objects, with secondary indexes.
+ *
+ * Orders are indexed by status, customer ID, currency, Stripe payment ID and
+ * creation time; the indexes are updated with every write. Writes are serialized;
+ * reads take no lock and re-check every filter on the order itself, so a read
+ * racing a write never returns an order that does not match.
+ *
+ * A query starts from the most selective index it can use: the Stripe payment ID,
+ * else the smallest of the status, customer and currency sets, else the creation
+ * time index. Ordered by creation time without an equality filter, it reads the
+ * time index in order and stops at the limit.
+ *
+ * Orders are versioned: they are kept in an immutable tree ordered by ID, and
+ * every write builds a new tree sharing all but the path to the changed order,
+ * then publishes it with the next version number. Stored orders are never
+ * modified; a status change stores an updated copy. Readers take no lock: a
+ * read uses the tree current when it starts, so a {@link #snapshot()} is the
+ * store as of one version, taken in O(1) however many writes follow. Trees no
+ * longer read are left to the garbage collector. Orders must be changed
+ * through the store, not by their setters, or the indexes go stale.
+ */
+@Component
+@ConditionalOnProperty(name = "netsuite.mock.order-store", havingValue = "indexed", matchIfMissing = true)
+public class MockOrderStore implements OrderStore {
+
+    private static final Comparator<Order> BY_CREATED_AT = Comparator
+            .comparing(MockOrderStore::createdAt)
+            .thenComparing(Order::getId);
+
+    private record CreatedKey(long createdAtMillis, String orderId) implements Comparable<CreatedKey> {
+        @Override
+        public int compareTo(CreatedKey other) {
+            int byTime = Long.compare(createdAtMillis, other.createdAtMillis);
+            return byTime != 0 ? byTime : orderId.compareTo(other.orderId);
+        }
+    }
+
+    /**
+     * The orders as of one version; replaced, never changed, by every write.
+     */
+    private record Version(long number, Node root) {
+    }
+
+    private final Object writeLock = new Object();
+    private volatile Version current = new Version(0, null);
+    private final Map<String, String> byStripePaymentId = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> byStatus = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> byCustomerId = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> byCurrency = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<CreatedKey> byCreatedAt = new ConcurrentSkipListSet<>();
+    private volatile Consumer<Order> writeListener = order -> { };
+    private volatile Runnable clearListener = () -> { };
+
+    @Override
+    public void setWriteListener(Consumer<Order> writeListener) {
+        this.writeListener = writeListener;
+    }
+
+    @Override
+    public void setClearListener(Runnable clearListener) {
+        this.clearListener = clearListener;
+    }
+
+    @Override
+    public void put(Order order) {
+        Order stored = copyOf(order);
+        synchronized (writeLock) {
+            Order previous = Node.get(current.root(), stored.getId());
+            commit(stored);
+            if (previous != null) {
+                unindex(previous);
+            }
+            index(stored);
+            writeListener.accept(stored);
+        }
+    }
+
+    /**
+     * Change the status of an order, replacing it with an updated copy.
+     */
+    @Override
+    public Order updateStatus(String orderId, String status) {
+        synchronized (writeLock) {
+            Order previous = Node.get(current.root(), orderId);
+            if (previous == null) {
+                return null;
+            }
+            Order order = copyOf(previous);
+            order.setStatus(status);
+            commit(order);
+            remove(byStatus, previous.getStatus(), orderId);
+            add(byStatus, status, orderId);
+            writeListener.accept(order);
+            return order;
+        }
+    }
+
+    /**
+     * Publish the tree with the order added or replaced as the next version.
+     * Must be called with the write lock held.
+     */
+    private void commit(Order order) {
+        Version version = current;
+        current = new Version(version.number() + 1, Node.put(version.root(), order));
+    }
+
+    @Override
+    public Order get(String orderId) {
+        return orderId != null ? Node.get(current.root(), orderId) : null;
+    }
+
+    @Override
+    public Order findByStripePaymentId(String stripePaymentId) {
+        String orderId = stripePaymentId != null ? byStripePaymentId.get(stripePaymentId) : null;
+        return orderId != null ? Node.get(current.root(), orderId) : null;
+    }
+
+    @Override
+    public int size() {
+        return Node.size(current.root());
+    }
+
+    @Override
+    public Map<String, Order> copy() {
+        Map<String, Order> copy = new ConcurrentHashMap<>();
+        for (Order order : new VersionView(current.root())) {
+            copy.put(order.getId(), order);
+        }
+        return copy;
+    }
+
+    @Override
+    public List<Order> page(String afterId, int limit) {
+        Node root = current.root();
+        int from = afterId != null ? Node.countUpTo(root, afterId) : 0;
+        int to = Math.min(Node.size(root), from + Math.max(limit, 0));
+        List<Order> result = new ArrayList<>(Math.max(to - from, 0));
+        for (int index = from; index < to; index++) {
+            result.add(Node.at(root, index));
+        }
+        return result;
+    }
+
+    /**
+     * Takes no lock and copies nothing: the list reads the tree of the current version.
+     */
+    @Override
+    public Snapshot snapshot() {
+        Version version = current;
+        return new Snapshot(version.number(), new VersionView(version.root()));
+    }
+
+    @Override
+    public void clear() {
+        synchronized (writeLock) {
+            current = new Version(current.number() + 1, null);
+            byStripePaymentId.clear();
+            byStatus.clear();
+            byCustomerId.clear();
+            byCurrency.clear();
+            byCreatedAt.clear();
+            clearListener.run();
+        }
+    }
+
+    @Override
+    public List<Order> query(OrderQuery query) {
+        int limit = Math.max(0, query.limit());
+        OrderQuery.SortField sortBy = query.sortBy() != null ? query.sortBy() : OrderQuery.SortField.CREATED_AT;
+        // Orders are read from one version; the indexes only point at candidates
+        Node root = current.root();
+
+        Collection<String> candidates = candidates(query);
+        if (candidates == null && sortBy == OrderQuery.SortField.CREATED_AT) {
+            // Already in result order: stop at the limit
+            List<Order> result = new ArrayList<>(Math.min(limit, 256));
+            for (CreatedKey key : timeRange(query, query.descending())) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                Order order = Node.get(root, key.orderId());
+                if (order != null && matches(order, query)) {
+                    result.add(order);
+                }
+            }
+            return result;
+        }
+
+        List<Order> result = new ArrayList<>();
+        Iterable<String> ids = candidates != null ? candidates : () -> timeRange(query, false).stream()
+                .map(CreatedKey::orderId).iterator();
+        for (String orderId : ids) {
+            Order order = Node.get(root, orderId);
+            if (order != null && matches(order, query)) {
+                result.add(order);
+            }
+        }
+        Comparator<Order> comparator = switch (sortBy) {
+            case CREATED_AT -> BY_CREATED_AT;
+            case AMOUNT -> Comparator.comparing(Order::getAmount, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(Order::getId);
+            case ID -> Comparator.comparing(Order::getId);
+        };
+        result.sort(query.descending() ? comparator.reversed() : comparator);
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    /**
+     * Get the IDs of the smallest equality index matching the query, or null if it has no equality filter.
+     */
+    private Collection<String> candidates(OrderQuery query) {
+        if (query.stripePaymentId() != null) {
+            String orderId = byStripePaymentId.get(query.stripePaymentId());
+            return orderId != null ? List.of(orderId) : List.of();
+        }
+        Collection<String> smallest = null;
+        for (Set<String> ids : Arrays.asList(
+                lookup(byStatus, query.status()),
+                lookup(byCustomerId, query.customerId()),
+                lookup(byCurrency, query.currency()))) {
+            if (ids != null && (smallest == null || ids.size() < smallest.size())) {
+                smallest = ids;
+            }
+        }
+        return smallest;
+    }
+
+    private static Set<String> lookup(Map<String, Set<String>> index, String value) {
+        if (value == null) {
+            return null;
+        }
+        return index.getOrDefault(value, Set.of());
+    }
+
+    private NavigableSet<CreatedKey> timeRange(OrderQuery query, boolean descending) {
+        NavigableSet<CreatedKey> range = byCreatedAt;
+        if (query.createdFromMillis() != null) {
+            range = range.tailSet(new CreatedKey(query.createdFromMillis(), ""), true);
+        }
+        if (query.createdToMillis() != null) {
+            range = range.headSet(new CreatedKey(query.createdToMillis(), ""), false);
+        }
+        return descending ? range.descendingSet() : range;
+    }
+
+    private static boolean matches(Order order, OrderQuery query) {
+        long createdAt = createdAt(order);
+        return (query.status() == null || query.status().equals(order.getStatus()))
+                && (query.customerId() == null || query.customerId().equals(order.getCustomerId()))
+                && (query.currency() == null || query.currency().equals(order.getCurrency()))
+                && (query.stripePaymentId() == null || query.stripePaymentId().equals(order.getStripePaymentId()))
+                && (query.createdFromMillis() == null || createdAt >= query.createdFromMillis())
+                && (query.createdToMillis() == null || createdAt < query.createdToMillis());
+    }
+
+    private void index(Order order) {
+        String orderId = order.getId();
+        if (order.getStripePaymentId() != null) {
+            byStripePaymentId.put(order.getStripePaymentId(), orderId);
+        }
+        add(byStatus, order.getStatus(), orderId);
+        add(byCustomerId, order.getCustomerId(), orderId);
+        add(byCurrency, order.getCurrency(), orderId);
+        byCreatedAt.add(new CreatedKey(createdAt(order), orderId));
+    }
+
+    private void unindex(Order order) {
+        String orderId = order.getId();
+        if (order.getStripePaymentId() != null) {
+            byStripePaymentId.remove(order.getStripePaymentId(), orderId);
+        }
+        remove(byStatus, order.getStatus(), orderId);
+        remove(byCustomerId, order.getCustomerId(), orderId);
+        remove(byCurrency, order.getCurrency(), orderId);
+        byCreatedAt.remove(new CreatedKey(createdAt(order), orderId));
+    }
+
+    private static void add(Map<String, Set<String>> index, String value, String orderId) {
+        if (value != null) {
+            index.computeIfAbsent(value, key -> ConcurrentHashMap.newKeySet()).add(orderId);
+        }
+    }
+
+    private static void remove(Map<String, Set<String>> index, String value, String orderId) {
+        if (value == null) {
+            return;
+        }
+        Set<String> ids = index.get(value);
+        if (ids != null) {
+            ids.remove(orderId);
+            if (ids.isEmpty()) {
+                index.remove(value, ids);
+            }
+        }
+    }
+
+    private static Order copyOf(Order order) {
+        Order copy = new Order(order.getId(), order.getStatus(), order.getAmount(), order.getCurrency());
+        copy.setCustomerId(order.getCustomerId());
+        copy.setStripePaymentId(order.getStripePaymentId());
+        copy.setDescription(order.getDescription());
+        copy.setCreatedAtMillis(order.getCreatedAtMillis());
+        return copy;
+    }
+
+    private static long createdAt(Order order) {
+        return Objects.requireNonNullElse(order.getCreatedAtMillis(), 0L);
+    }
+
+    /**
+     * Read-only list of the orders of one version, in ID order.
+     */
+    private static final class VersionView extends AbstractList<Order> {
+
+        private final Node root;
+
+        VersionView(Node root) {
+            this.root = root;
+        }
+
+        @Override
+        public Order get(int index) {
+            Objects.checkIndex(index, size());
+            return Node.at(root, index);
+        }
+
+        @Override
+        public int size() {
+            return Node.size(root);
+        }
+
+        @Override
+        public Iterator<Order> iterator() {
+            Deque<Node> path = new ArrayDeque<>();
+            for (Node node = root; node != null; node = node.left) {
+                path.push(node);
+            }
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return !path.isEmpty();
+                }
+
+                @Override
+                public Order next() {
+                    if (path.isEmpty()) {
+                        throw new NoSuchElementException();
+                    }
+                    Node node = path.pop();
+                    for (Node next = node.right; next != null; next = next.left) {
+                        path.push(next);
+                    }
+                    return node.order;
+                }
+            };
+        }
+    }
+
+    /**
+     * Node of an immutable AVL tree of orders by ID. Adding or replacing an order
+     * copies the O(log n) nodes on its path and shares the rest with the old tree.
+     * Orders are never removed from a tree; clearing starts an empty one.
+     */
+    private static final class Node {
+
+        final Order order;
+        final Node left;
+        final Node right;
+        final int height;
+        final int size;
+
+        Node(Order order, Node left, Node right) {
+            this.order = order;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+
+        static int height(Node node) {
+            return node != null ? node.height : 0;
+        }
+
+        static int size(Node node) {
+            return node != null ? node.size : 0;
+        }
+
+        static Order get(Node node, String orderId) {
+            while (node != null) {
+                int comparison = orderId.compareTo(node.order.getId());
+                if (comparison == 0) {
+                    return node.order;
+                }
+                node = comparison < 0 ? node.left : node.right;
+            }
+            return null;
+        }
+
+        /**
+         * Get the order at a position in ID order.
+         */
+        static Order at(Node node, int index) {
+            while (true) {
+                int leftSize = size(node.left);
+                if (index == leftSize) {
+                    return node.order;
+                }
+                if (index < leftSize) {
+                    node = node.left;
+                } else {
+                    index -= leftSize + 1;
+                    node = node.right;
+                }
+            }
+        }
+
+        /**
+         * Count the orders with an ID up to and including the given one.
+         */
+        static int countUpTo(Node node, String orderId) {
+            int count = 0;
+            while (node != null) {
+                if (node.order.getId().compareTo(orderId) <= 0) {
+                    count += size(node.left) + 1;
+                    node = node.right;
+                } else {
+                    node = node.left;
+                }
+            }
+            return count;
+        }
+
+        static Node put(Node node, Order order) {
+            if (node == null) {
+                return new Node(order, null, null);
+            }
+            int comparison = order.getId().compareTo(node.order.getId());
+            if (comparison == 0) {
+                return new Node(order, node.left, node.right);
+            }
+            return comparison < 0
+                    ? balance(node.order, put(node.left, order), node.right)
+                    : balance(node.order, node.left, put(node.right, order));
+        }
+
+        private static Node balance(Order order, Node left, Node right) {
+            if (height(left) > height(right) + 1) {
+                if (height(left.left) >= height(left.right)) {
+                    return new Node(left.order, left.left, new Node(order, left.right, right));
+                }
+                return new Node(left.right.order, new Node(left.order, left.left, left.right.left),
+                        new Node(order, left.right.right, right));
+            }
+            if (height(right) > height(left) + 1) {
+                if (height(right.right) >= height(right.left)) {
+                    return new Node(right.order, new Node(order, left, right.left), right.right);
+                }
+                return new Node(right.left.order, new Node(order, left, right.left.left),
+                        new Node(right.order, right.left.right, right.right));
+            }
+            return new Node(order, left, right);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.NetSuiteBatchConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.NetSuiteWriteResult;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Order;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderDto;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderStatusUpdate;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Gathers NetSuite order writes from concurrent callers into batches.
+ *
+ * Each call returns a future for its own record. A batch is sent through
+ * {@link NetSuiteService#createOrders} or {@link NetSuiteService#updateOrderStatuses}
+ * (one RESTlet request with the REST implementation) once it holds
+ * {@code netsuite.batch.max-batch-size} records or its first record has waited
+ * {@code linger-millis}. At most {@code max-concurrent-batches} batches are in
+ * flight; while all senders are busy, records keep accumulating into the next
+ * batch instead of queueing as separate requests.
+ *
+ * Every future completes with its record's own result, so one rejected record
+ * does not fail the rest of its batch. Batches are not ordered relative to each
+ * other: a caller that writes the same order twice waits for the first future.
+ *
+ * {@link NetSuiteOutbox} writes through it when the outbox is disabled.
+ */
+@Service
+public class NetSuiteBatchWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(NetSuiteBatchWriter.class);
+
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+
+    private final NetSuiteBatchConfig batchConfig;
+    private final int maxBatchSize;
+    private final int maxConcurrentBatches;
+    private final Semaphore senderSlots;
+    private final ExecutorService senders;
+    private final ScheduledExecutorService lingerTimer;
+    private final Batcher<OrderDto> creates;
+    private final Batcher<OrderStatusUpdate> statusUpdates;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder records = new LongAdder();
+    private final LongAdder failedRecords = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final AtomicLong largestBatch = new AtomicLong();
+
+    private volatile boolean closing;
+
+    public NetSuiteBatchWriter(NetSuiteService netSuiteService, NetSuiteBatchConfig batchConfig) {
+        this.batchConfig = batchConfig;
+        this.maxBatchSize = Math.max(1, batchConfig.getMaxBatchSize());
+        this.maxConcurrentBatches = Math.max(1, batchConfig.getMaxConcurrentBatches());
+        this.senderSlots = new Semaphore(maxConcurrentBatches);
+
+        AtomicInteger senderIndex = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(maxConcurrentBatches, runnable -> {
+            Thread thread = new Thread(runnable, "netsuite-batch-" + senderIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lingerTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "netsuite-batch-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.creates = new Batcher<>("createOrders", netSuiteService::createOrders);
+        this.statusUpdates = new Batcher<>("updateOrderStatuses", netSuiteService::updateOrderStatuses);
+    }
+
+    /**
+     * Queue an order creation for the next batch.
+     *
+     * @param dto the order data
+     * @return completed with the created order, or exceptionally with a {@link NetSuiteException}
+     */
+    public CompletableFuture<Order> createOrder(OrderDto dto) {
+        return creates.add(dto);
+    }
+
+    /**
+     * Queue an order status update for the next batch.
+     *
+     * @param orderId the NetSuite order ID
+     * @param status the new status
+     * @return completed with the updated order, or exceptionally with a {@link NetSuiteException}
+     */
+    public CompletableFuture<Order> updateOrderStatus(String orderId, String status) {
+        return statusUpdates.add(new OrderStatusUpdate(orderId, status));
+    }
+
+    /**
+     * Get batch counts and sizes.
+     *
+     * @return map of metric name to value
+     */
+    public Map<String, Object> getStats() {
+        long sent = batches.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxBatchSize", maxBatchSize);
+        stats.put("lingerMillis", batchConfig.getLingerMillis());
+        stats.put("batchesInFlight", maxConcurrentBatches - senderSlots.availablePermits());
+        stats.put("pendingCreates", creates.pendingCount());
+        stats.put("pendingStatusUpdates", statusUpdates.pendingCount());
+        stats.put("batches", sent);
+        stats.put("records", records.sum());
+        stats.put("avgBatchSize", sent == 0 ? 0 : (double) records.sum() / sent);
+        stats.put("largestBatch", largestBatch.get());
+        stats.put("failedBatches", failedBatches.sum());
+        stats.put("failedRecords", failedRecords.sum());
+        return stats;
+    }
+
+    /**
+     * Send what is pending, wait for batches in flight and fail anything left.
+     */
+    @PreDestroy
+    public void shutdown() {
+        closing = true;
+        long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MILLIS;
+        try {
+            while (System.currentTimeMillis() < deadline
+                    && (creates.pendingCount() > 0 || statusUpdates.pendingCount() > 0
+                    || senderSlots.availablePermits() < maxConcurrentBatches)) {
+                creates.drain();
+                statusUpdates.drain();
+                Thread.sleep(10);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lingerTimer.shutdownNow();
+        senders.shutdown();
+        int abandoned = creates.failPending() + statusUpdates.failPending();
+        if (abandoned > 0) {
+            logger.warn("NetSuite batch writer stopped with {} unsent records", abandoned);
+        }
+    }
+
+    /**
+     * Pending records of one batch operation.
+     */
+    private final class Batcher<T> {
+
+        private final String operation;
+        private final Function<List<T>, List<NetSuiteWriteResult>> batchCall;
+        private final List<T> pending = new ArrayList<>();
+        private final List<CompletableFuture<Order>> pendingFutures = new ArrayList<>();
+        private ScheduledFuture<?> lingerTask;
+        private boolean due;
+
+        private Batcher(String operation, Function<List<T>, List<NetSuiteWriteResult>> batchCall) {
+            this.operation = operation;
+            this.batchCall = batchCall;
+        }
+
+        private CompletableFuture<Order> add(T record) {
+            CompletableFuture<Order> future = new CompletableFuture<>();
+            synchronized (this) {
+                if (closing && senders.isShutdown()) {
+                    future.completeExceptionally(new NetSuiteException("NetSuite batch writer is shut down", 0, true));
+                    return future;
+                }
+                pending.add(record);
+                pendingFutures.add(future);
+                if (pending.size() == 1) {
+                    lingerTask = lingerTimer.schedule(this::lingerExpired, batchConfig.getLingerMillis(), TimeUnit.MILLISECONDS);
+                }
+            }
+            drain();
+            return future;
+        }
+
+        private void lingerExpired() {
+            synchronized (this) {
+                due = true;
+                lingerTask = null;
+            }
+            drain();
+        }
+
+        /**
+         * Hand ready batches to free senders. A batch is ready when full, when its
+         * first record has lingered long enough, or on shutdown.
+         */
+        private void drain() {
+            while (true) {
+                List<T> batch;
+                List<CompletableFuture<Order>> futures;
+                synchronized (this) {
+                    if (pending.isEmpty()) {
+                        return;
+                    }
+                    boolean ready = due || closing || pending.size() >= maxBatchSize;
+                    if (!ready || !senderSlots.tryAcquire()) {
+                        return;
+                    }
+                    int size = Math.min(maxBatchSize, pending.size());
+                    batch = new ArrayList<>(pending.subList(0, size));
+                    futures = new ArrayList<>(pendingFutures.subList(0, size));
+                    pending.subList(0, size).clear();
+                    pendingFutures.subList(0, size).clear();
+                    // Records left behind have waited as long as the batch just taken, so they stay due
+                    if (pending.isEmpty()) {
+                        due = false;
+                        if (lingerTask != null) {
+                            lingerTask.cancel(false);
+                            lingerTask = null;
+                        }
+                    }
+                }
+                try {
+                    senders.execute(() -> send(batch, futures));
+                } catch (RuntimeException e) {
+                    senderSlots.release();
+                    fail(futures, new NetSuiteException("NetSuite batch writer is shut down", 0, true));
+                    return;
+                }
+            }
+        }
+
+        private void send(List<T> batch, List<CompletableFuture<Order>> futures) {
+            try {
+                List<NetSuiteWriteResult> results = batchCall.apply(batch);
+                int failed = 0;
+                for (int i = 0; i < futures.size(); i++) {
+                    NetSuiteWriteResult result = i < results.size() ? results.get(i) : null;
+                    if (result != null && result.isSuccess()) {
+                        futures.get(i).complete(result.order());
+                    } else {
+                        failed++;
+                        futures.get(i).completeExceptionally(result == null
+                                ? new NetSuiteException("No result for record in batch", 0, false)
+                                : new NetSuiteException(result.error(), result.statusCode(), result.retryable(),
+                                        result.retryAfterMillis()));
+                    }
+                }
+                failedRecords.add(failed);
+                if (failed > 0) {
+                    logger.warn("NetSuite batch {} finished with {} of {} records failed", operation, failed, batch.size());
+                }
+            } catch (RuntimeException e) {
+                failedBatches.increment();
+                failedRecords.add(batch.size());
+                logger.error("NetSuite batch {} of {} records failed: {}", operation, batch.size(), e.getMessage(), e);
+                fail(futures, e instanceof NetSuiteException ? e : new NetSuiteException(String.valueOf(e.getMessage()), e));
+            } finally {
+                batches.increment();
+                records.add(batch.size());
+                largestBatch.accumulateAndGet(batch.size(), Math::max);
+                senderSlots.release();
+                creates.drain();
+                statusUpdates.drain();
+            }
+        }
+
+        private synchronized int pendingCount() {
+            return pending.size();
+        }
+
+        private int failPending() {
+            List<CompletableFuture<Order>> futures;
+            synchronized (this) {
+                futures = new ArrayList<>(pendingFutures);
+                pending.clear();
+                pendingFutures.clear();
+            }
+            fail(futures, new NetSuiteException("NetSuite batch writer is shut down", 0, true));
+            return futures.size();
+        }
+
+        private void fail(List<CompletableFuture<Order>> futures, RuntimeException error) {
+            for (CompletableFuture<Order> future : futures) {
+                future.completeExceptionally(error);
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.NetSuiteRetryConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One circuit breaker per NetSuite endpoint, e.g. {@code POST salesOrder} or
+ * {@code GET customer}.
+ *
+ * A breaker keeps the outcomes of the last {@code circuit-window-size} calls. Once
+ * at least {@code circuit-minimum-calls} were made and the share of retryable
+ * failures reaches {@code circuit-failure-rate-percent}, it opens and calls to the
+ * endpoint fail immediately for {@code circuit-open-seconds}. Then a single trial
+ * call is let through: success closes the breaker, failure opens it again. Only the
+ * trial's outcome decides; calls that started before the breaker opened and finish
+ * while it is half-open are ignored.
+ *
+ * Only load and availability failures count (timeouts, connection errors, 429,
+ * 5xx); a rejected record does not say the endpoint is down.
+ */
+@Component
+public class NetSuiteCircuitBreakers {
+
+    private static final Logger logger = LoggerFactory.getLogger(NetSuiteCircuitBreakers.class);
+
+    /**
+     * Breaker states.
+     */
+    public enum State {
+        /** Calls pass and outcomes are recorded. */
+        CLOSED,
+        /** Calls fail immediately until the open period has passed. */
+        OPEN,
+        /** One trial call is in flight; others fail immediately. */
+        HALF_OPEN
+    }
+
+    private final NetSuiteRetryConfig config;
+    private final Map<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    public NetSuiteCircuitBreakers(NetSuiteRetryConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Check whether a call to the endpoint may be made now.
+     *
+     * @param endpoint the endpoint key
+     * @return true if the call is the trial call of a half-open breaker
+     * @throws NetSuiteException (retryable) if the endpoint's breaker is open
+     */
+    public boolean acquire(String endpoint) {
+        return breaker(endpoint).acquire(endpoint);
+    }
+
+    /**
+     * Record the outcome of a call that {@link #acquire} let through.
+     *
+     * @param endpoint the endpoint key
+     * @param trial what {@link #acquire} returned for the call
+     * @param failed true for a load or availability failure
+     */
+    public void record(String endpoint, boolean trial, boolean failed) {
+        breaker(endpoint).record(endpoint, trial, failed);
+    }
+
+    /**
+     * Get how long the endpoint's breaker stays open.
+     *
+     * @param endpoint the endpoint key
+     * @return milliseconds until a trial call is allowed, 0 if not open
+     */
+    public long remainingOpenMillis(String endpoint) {
+        Breaker breaker = breakers.get(endpoint);
+        return breaker == null ? 0 : breaker.remainingOpenMillis();
+    }
+
+    private Breaker breaker(String endpoint) {
+        return breakers.computeIfAbsent(endpoint, key -> new Breaker(Math.max(1, config.getCircuitWindowSize())));
+    }
+
+    /**
+     * Get the state and recent failure rate of every endpoint.
+     *
+     * @return map of endpoint to its figures
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        breakers.forEach((endpoint, breaker) -> stats.put(endpoint, breaker.stats()));
+        return stats;
+    }
+
+    /**
+     * Breaker of one endpoint, with a ring of recent outcomes.
+     */
+    private final class Breaker {
+
+        private final boolean[] outcomes;
+        private int next;
+        private int calls;
+        private int failures;
+        private State state = State.CLOSED;
+        private long openedAtNanos;
+        private long opened;
+
+        private Breaker(int windowSize) {
+            this.outcomes = new boolean[windowSize];
+        }
+
+        private synchronized boolean acquire(String endpoint) {
+            if (state == State.OPEN) {
+                long remaining = remainingOpenMillis();
+                if (remaining > 0) {
+                    throw new NetSuiteException("Circuit open for NetSuite " + endpoint, 0, true, remaining);
+                }
+                state = State.HALF_OPEN;
+                logger.info("NetSuite circuit for {} half-open, sending a trial call", endpoint);
+                return true;
+            }
+            if (state == State.HALF_OPEN) {
+                throw new NetSuiteException("Circuit half-open for NetSuite " + endpoint + ", trial call in flight", 0, true);
+            }
+            return false;
+        }
+
+        private synchronized void record(String endpoint, boolean trial, boolean failed) {
+            if (state == State.HALF_OPEN) {
+                if (!trial) {
+                    // A call that started before the breaker opened, the trial is still in flight
+                    return;
+                }
+                if (failed) {
+                    open(endpoint);
+                } else {
+                    state = State.CLOSED;
+                    next = 0;
+                    calls = 0;
+                    failures = 0;
+                    logger.info("NetSuite circuit for {} closed", endpoint);
+                }
+                return;
+            }
+            if (state == State.OPEN) {
+                // A call that started before the breaker opened
+                return;
+            }
+
+            if (calls == outcomes.length) {
+                if (outcomes[next]) {
+                    failures--;
+                }
+            } else {
+                calls++;
+            }
+            outcomes[next] = failed;
+            if (failed) {
+                failures++;
+            }
+            next = (next + 1) % outcomes.length;
+
+            if (calls >= config.getCircuitMinimumCalls()
+                    && failures * 100 >= config.getCircuitFailureRatePercent() * calls) {
+                open(endpoint);
+            }
+        }
+
+        private void open(String endpoint) {
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime();
+            opened++;
+            logger.warn("NetSuite circuit for {} opened for {}s: {} of the last {} calls failed",
+                    endpoint, config.getCircuitOpenSeconds(), failures, calls);
+        }
+
+        private synchronized long remainingOpenMillis() {
+            if (state != State.OPEN) {
+                return 0;
+            }
+            long openNanos = TimeUnit.SECONDS.toNanos(config.getCircuitOpenSeconds());
+            return Math.max(0, TimeUnit.NANOSECONDS.toMillis(openedAtNanos + openNanos - System.nanoTime()));
+        }
+
+        private synchronized Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("state", state);
+            stats.put("recentCalls", calls);
+            stats.put("recentFailures", failures);
+            stats.put("timesOpened", opened);
+            stats.put("remainingOpenMillis", remainingOpenMillis());
+            return stats;
+        }
+    }
+}
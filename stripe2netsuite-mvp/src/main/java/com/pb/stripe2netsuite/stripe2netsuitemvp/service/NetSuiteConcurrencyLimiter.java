@@ -0,0 +1,287 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.NetSuiteLimiterConfig;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adaptive limit on the number of NetSuite requests in flight.
+ *
+ * NetSuite rejects requests above the account's concurrency limit with 429, and
+ * that limit is shared with every other integration on the account, so a fixed
+ * pool size is either too small or too large. The limit here follows AIMD with a
+ * latency gradient:
+ * - Each successful request while the limit is in use adds 1/limit, i.e. about
+ *   one slot per round of requests
+ * - A 429, 503 or timeout multiplies the limit by {@code backoff-ratio}, at most
+ *   once per recent round-trip time
+ * - When the recent latency exceeds {@code latency-tolerance} times the long-term
+ *   latency, requests are queueing inside NetSuite and the limit shrinks by 10%
+ *
+ * Callers above the limit wait in a FIFO queue of at most {@code max-queued}
+ * entries for up to {@code max-queue-wait-millis}; {@link #acquire()} does not
+ * block a thread while waiting. Requests that cannot be queued or wait too long
+ * fail with a retryable {@link NetSuiteException}.
+ */
+@Component
+public class NetSuiteConcurrencyLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(NetSuiteConcurrencyLimiter.class);
+
+    private static final double GRADIENT_DECREASE = 0.9;
+    private static final double SHORT_RTT_WEIGHT = 0.1;
+    private static final double LONG_RTT_WEIGHT = 0.01;
+
+    /**
+     * How a finished request should affect the limit.
+     */
+    public enum Signal {
+        /** NetSuite answered; the latency is a valid sample. */
+        SUCCESS,
+        /** NetSuite rejected the request or did not answer in time: back off. */
+        DROPPED,
+        /** The request failed for a reason unrelated to load, e.g. a bad request. */
+        IGNORED
+    }
+
+    private final NetSuiteLimiterConfig config;
+    private final int minLimit;
+    private final int maxLimit;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private double shortRttNanos;
+    private double longRttNanos;
+    private long lastDecreaseNanos;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder queueNanos = new LongAdder();
+    private final AtomicLong maxQueueNanos = new AtomicLong();
+    private final LongAdder rejectedQueueFull = new LongAdder();
+    private final LongAdder rejectedTimeout = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder decreases = new LongAdder();
+
+    public NetSuiteConcurrencyLimiter(NetSuiteLimiterConfig config) {
+        this.config = config;
+        this.minLimit = Math.max(1, config.getMinLimit());
+        this.maxLimit = Math.max(minLimit, config.getMaxLimit());
+        this.limit = Math.min(maxLimit, Math.max(minLimit, config.getInitialLimit()));
+        this.lastDecreaseNanos = System.nanoTime() - TimeUnit.HOURS.toNanos(1);
+    }
+
+    /**
+     * Get a slot for one NetSuite request.
+     *
+     * @return completed with the permit once a slot is free, or exceptionally with a
+     *         retryable {@link NetSuiteException} if the queue is full or the wait timed out
+     */
+    public CompletableFuture<Permit> acquire() {
+        if (!config.isEnabled()) {
+            acquired.increment();
+            return CompletableFuture.completedFuture(new Permit(false));
+        }
+
+        Waiter waiter;
+        synchronized (lock) {
+            if (waiters.isEmpty() && inFlight < currentLimit()) {
+                inFlight++;
+                acquired.increment();
+                return CompletableFuture.completedFuture(new Permit(true));
+            }
+            if (waiters.size() >= config.getMaxQueued()) {
+                rejectedQueueFull.increment();
+                return CompletableFuture.failedFuture(new NetSuiteException(
+                        "Too many NetSuite requests waiting (" + waiters.size() + ")", 0, true));
+            }
+            waiter = new Waiter();
+            waiters.addLast(waiter);
+        }
+        queued.increment();
+
+        long waitMillis = config.getMaxQueueWaitMillis();
+        return waiter.future.orTimeout(waitMillis, TimeUnit.MILLISECONDS).handle((permit, error) -> {
+            if (error == null) {
+                return permit;
+            }
+            synchronized (lock) {
+                waiters.remove(waiter);
+            }
+            if (error instanceof NetSuiteException netSuiteException) {
+                throw netSuiteException;
+            }
+            rejectedTimeout.increment();
+            throw new NetSuiteException("Waited " + waitMillis + " ms for a NetSuite request slot", 0, true);
+        });
+    }
+
+    private int currentLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Return a slot, adjust the limit and hand freed slots to waiting requests.
+     */
+    private void release(Permit permit, Signal signal) {
+        long rttNanos = System.nanoTime() - permit.startNanos;
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (lock) {
+            int inFlightAtRelease = inFlight;
+            inFlight--;
+            adjust(signal, rttNanos, inFlightAtRelease);
+            while (!waiters.isEmpty() && inFlight < currentLimit()) {
+                granted.add(waiters.pollFirst());
+                inFlight++;
+            }
+        }
+        grant(granted);
+    }
+
+    private void grant(List<Waiter> granted) {
+        for (Waiter waiter : granted) {
+            long waited = System.nanoTime() - waiter.enqueuedAtNanos;
+            Permit permit = new Permit(true);
+            if (waiter.future.complete(permit)) {
+                acquired.increment();
+                queueNanos.add(waited);
+                maxQueueNanos.accumulateAndGet(waited, Math::max);
+            } else {
+                // The waiter timed out in the meantime; pass the slot on
+                permit.release(Signal.IGNORED);
+            }
+        }
+    }
+
+    /**
+     * Apply one request's outcome to the limit. Called with the lock held.
+     */
+    private void adjust(Signal signal, long rttNanos, int inFlightAtRelease) {
+        long now = System.nanoTime();
+        double before = limit;
+        switch (signal) {
+            case DROPPED -> {
+                dropped.increment();
+                if (now - lastDecreaseNanos > shortRttNanos) {
+                    limit = Math.max(minLimit, limit * config.getBackoffRatio());
+                    lastDecreaseNanos = now;
+                }
+            }
+            case SUCCESS -> {
+                shortRttNanos = shortRttNanos == 0 ? rttNanos : shortRttNanos + (rttNanos - shortRttNanos) * SHORT_RTT_WEIGHT;
+                longRttNanos = longRttNanos == 0 ? rttNanos : longRttNanos + (rttNanos - longRttNanos) * LONG_RTT_WEIGHT;
+                if (shortRttNanos > longRttNanos * config.getLatencyTolerance()) {
+                    if (now - lastDecreaseNanos > shortRttNanos) {
+                        limit = Math.max(minLimit, limit * GRADIENT_DECREASE);
+                        lastDecreaseNanos = now;
+                    }
+                } else if (inFlightAtRelease * 2 >= currentLimit()) {
+                    // Only grow while the limit is actually used, not while traffic is light
+                    limit = Math.min(maxLimit, limit + 1.0 / limit);
+                }
+            }
+            case IGNORED -> {
+                // Not a load signal
+            }
+        }
+        if ((int) limit < (int) before) {
+            decreases.increment();
+            logger.info("NetSuite concurrency limit lowered from {} to {} ({})", (int) before, (int) limit, signal);
+        } else if ((int) limit > (int) before) {
+            logger.debug("NetSuite concurrency limit raised to {}", (int) limit);
+        }
+    }
+
+    /**
+     * Get the current limit, in-flight count and queue figures.
+     *
+     * @return map of metric name to value
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (lock) {
+            stats.put("enabled", config.isEnabled());
+            stats.put("limit", currentLimit());
+            stats.put("inFlight", inFlight);
+            stats.put("queued", waiters.size());
+            stats.put("recentLatencyMillis", shortRttNanos / 1_000_000);
+            stats.put("longTermLatencyMillis", longRttNanos / 1_000_000);
+        }
+        long waitedCount = queued.sum();
+        stats.put("minLimit", minLimit);
+        stats.put("maxLimit", maxLimit);
+        stats.put("acquired", acquired.sum());
+        stats.put("queuedTotal", waitedCount);
+        stats.put("avgQueueMillis", waitedCount == 0 ? 0 : queueNanos.sum() / waitedCount / 1_000_000);
+        stats.put("maxQueueMillis", maxQueueNanos.get() / 1_000_000);
+        stats.put("rejectedQueueFull", rejectedQueueFull.sum());
+        stats.put("rejectedTimeout", rejectedTimeout.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("limitDecreases", decreases.sum());
+        return stats;
+    }
+
+    /**
+     * Fail requests that are still waiting for a slot.
+     */
+    @PreDestroy
+    public void shutdown() {
+        List<Waiter> abandoned;
+        synchronized (lock) {
+            abandoned = new ArrayList<>(waiters);
+            waiters.clear();
+        }
+        for (Waiter waiter : abandoned) {
+            waiter.future.completeExceptionally(new NetSuiteException("NetSuite client is shutting down", 0, true));
+        }
+    }
+
+    /**
+     * A slot held by one request. Released exactly once, with the signal of its outcome.
+     */
+    public final class Permit {
+
+        private final boolean counted;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(boolean counted) {
+            this.counted = counted;
+        }
+
+        /**
+         * Return the slot.
+         *
+         * @param signal how the request ended
+         */
+        public void release(Signal signal) {
+            if (counted && released.compareAndSet(false, true)) {
+                NetSuiteConcurrencyLimiter.this.release(this, signal);
+            }
+        }
+    }
+
+    /**
+     * A request waiting for a slot.
+     */
+    private static final class Waiter {
+
+        private final CompletableFuture<Permit> future = new CompletableFuture<>();
+        private final long enqueuedAtNanos = System.nanoTime();
+    }
+}
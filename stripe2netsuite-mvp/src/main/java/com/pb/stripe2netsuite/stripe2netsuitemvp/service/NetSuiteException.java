@@ -0,0 +1,86 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+/**
+ * Thrown when a NetSuite call fails.
+ *
+ * Carries the HTTP status (0 when no response was received) and whether the
+ * same request may succeed when sent again, e.g. after a timeout, a 429
+ * concurrency rejection or a 5xx error. A retryable exception may also say how
+ * long to wait first, from a Retry-After header or an open circuit breaker.
+ */
+public class NetSuiteException extends RuntimeException {
+
+    private final int statusCode;
+    private final boolean retryable;
+    private final long retryAfterMillis;
+
+    public NetSuiteException(String message, int statusCode, boolean retryable) {
+        this(message, statusCode, retryable, 0);
+    }
+
+    public NetSuiteException(String message, int statusCode, boolean retryable, long retryAfterMillis) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryable = retryable;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public NetSuiteException(String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = 0;
+        this.retryable = true;
+        this.retryAfterMillis = 0;
+    }
+
+    /**
+     * Get the HTTP status returned by NetSuite.
+     *
+     * @return the status code, or 0 if the request failed before a response was received
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Check whether the request may succeed if retried unchanged.
+     *
+     * @return true for timeouts, connection errors, 429 and 5xx responses
+     */
+    public boolean isRetryable() {
+        return retryable;
+    }
+
+    /**
+     * Get how long to wait before retrying.
+     *
+     * @return milliseconds, or 0 if no wait was requested
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    /**
+     * Build an exception for an unsuccessful HTTP response.
+     *
+     * @param statusCode the HTTP status
+     * @param detail the error detail reported by NetSuite, may be null
+     * @return the exception
+     */
+    public static NetSuiteException forStatus(int statusCode, String detail) {
+        return forStatus(statusCode, detail, 0);
+    }
+
+    /**
+     * Build an exception for an unsuccessful HTTP response that asked for a wait before retrying.
+     *
+     * @param statusCode the HTTP status
+     * @param detail the error detail reported by NetSuite, may be null
+     * @param retryAfterMillis the Retry-After value in milliseconds, 0 if absent
+     * @return the exception
+     */
+    public static NetSuiteException forStatus(int statusCode, String detail, long retryAfterMillis) {
+        boolean retryable = statusCode == 429 || statusCode >= 500;
+        String message = "NetSuite returned HTTP " + statusCode + (detail != null ? ": " + detail : "");
+        return new NetSuiteException(message, statusCode, retryable, retryable ? retryAfterMillis : 0);
+    }
+}
@@ -0,0 +1,702 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.NetSuiteOutboxConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.NetSuiteWriteResult;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Order;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderDto;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderStatusUpdate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Durable outbox for the order writes of the webhook handlers.
+ *
+ * Handlers record what NetSuite should do (create an order, change its status,
+ * mark it paid) with {@link #createOrder}, {@link #updateOrderStatus} and
+ * {@link #markOrderAsPaid}. The returned future completes once the entry is on
+ * disk, which is when the event counts as processed; NetSuite is not involved.
+ *
+ * Entries are appended to {@code outbox.log} by one writer thread that flushes
+ * everything queued since its last flush at once (group commit). A relay thread
+ * sends entries to {@link NetSuiteService} in log order, taking up to
+ * {@code max-batch-size} consecutive entries of the same kind per call, and
+ * appends a "done" marker for each entry NetSuite accepted or rejected for good.
+ * A batch ends at its first entry that failed with a retryable error: that entry
+ * and every entry after it stay in the outbox, so a later entry is never applied
+ * for good before an earlier one. The relay then waits for the backoff of
+ * {@link NetSuiteRetryScheduler#backoffMillis}, the same policy as event retries, so
+ * it also honours Retry-After and the remaining time of an open circuit breaker, and
+ * starts again at the first entry not yet done. Errors that are not NetSuite errors
+ * count as rejections, so an entry that always fails the same way cannot block the
+ * outbox; it is logged with its payload and dropped.
+ *
+ * Delivery is at least once: an entry sent shortly before a crash whose marker
+ * was not yet written is sent again on restart. NetSuite orders are keyed by
+ * externalId = Stripe ID, which makes a repeated write harmless.
+ *
+ * Record layout: length (int), type (byte), sequence (long), CRC32 (int), payload.
+ * Once the log exceeds {@code compact-threshold-bytes}, it is rewritten with the
+ * entries not yet done. Those entries are also held in memory for the relay.
+ *
+ * With {@code netsuite.outbox.enabled=false} the methods call NetSuite directly:
+ * creates and status updates go through the {@link NetSuiteBatchWriter}, which
+ * gathers concurrent calls into size- and time-bounded batches; marking orders as
+ * paid is sent one call at a time.
+ */
+@Service
+public class NetSuiteOutbox {
+
+    private static final Logger logger = LoggerFactory.getLogger(NetSuiteOutbox.class);
+
+    private static final String LOG_FILE = "outbox.log";
+    private static final String COMPACT_FILE = "outbox.log.compact";
+    private static final int RECORD_HEADER_BYTES = 17;
+    private static final byte TYPE_ENTRY = 1;
+    private static final byte TYPE_DONE = 2;
+    private static final long WRITER_POLL_MILLIS = 100;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * Kinds of NetSuite writes.
+     */
+    public enum Kind {
+        CREATE_ORDER,
+        UPDATE_ORDER_STATUS,
+        MARK_ORDER_AS_PAID
+    }
+
+    private final NetSuiteOutboxConfig outboxConfig;
+    private final NetSuiteService netSuiteService;
+    private final AsyncNetSuiteService asyncNetSuiteService;
+    private final NetSuiteBatchWriter batchWriter;
+    private final NetSuiteRetryScheduler retryScheduler;
+    private final ObjectMapper objectMapper;
+
+    private final BlockingQueue<Append> appends = new LinkedBlockingQueue<>();
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+    private Path directory;
+    private FileChannel channel;
+    private long lastSequence;
+    private long doneSinceCompaction;
+
+    /**
+     * Guards the entries not yet relayed and the relay's backoff state.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final TreeMap<Long, PendingEntry> pending = new TreeMap<>();
+    private long nextAttemptNanos;
+    private int consecutiveFailures;
+
+    private Thread writer;
+    private Thread relay;
+    private volatile boolean writerRunning;
+    private volatile boolean relayRunning;
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder relayed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+
+    public NetSuiteOutbox(NetSuiteOutboxConfig outboxConfig, NetSuiteService netSuiteService,
+                          AsyncNetSuiteService asyncNetSuiteService, NetSuiteBatchWriter batchWriter,
+                          NetSuiteRetryScheduler retryScheduler, ObjectMapper objectMapper) {
+        this.outboxConfig = outboxConfig;
+        this.netSuiteService = netSuiteService;
+        this.asyncNetSuiteService = asyncNetSuiteService;
+        this.batchWriter = batchWriter;
+        this.retryScheduler = retryScheduler;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Open the log, recover the entries not yet relayed and start the writer and relay threads.
+     */
+    @PostConstruct
+    public void open() {
+        if (!isEnabled()) {
+            logger.info("NetSuite outbox disabled, handlers write to NetSuite directly through the batch writer");
+            return;
+        }
+
+        try {
+            directory = Paths.get(outboxConfig.getDirectory());
+            Files.createDirectories(directory);
+            Files.deleteIfExists(directory.resolve(COMPACT_FILE));
+            channel = FileChannel.open(directory.resolve(LOG_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open NetSuite outbox", e);
+        }
+
+        writerRunning = true;
+        relayRunning = true;
+        writer = new Thread(this::write, "netsuite-outbox-writer");
+        writer.setDaemon(true);
+        writer.start();
+        relay = new Thread(this::relay, "netsuite-outbox-relay");
+        relay.setDaemon(true);
+        relay.start();
+
+        logger.info("NetSuite outbox opened: directory: {}, pendingEntries: {}",
+                directory.toAbsolutePath(), pending.size());
+    }
+
+    /**
+     * Check if the outbox is enabled.
+     */
+    public boolean isEnabled() {
+        return outboxConfig.isEnabled();
+    }
+
+    /**
+     * Record that an order is to be created in NetSuite.
+     *
+     * @param dto the order data
+     * @return completed once the write is durable, or once NetSuite answered if the outbox is disabled
+     */
+    public CompletableFuture<Void> createOrder(OrderDto dto) {
+        if (!isEnabled()) {
+            return batchWriter.createOrder(dto).thenAccept(order -> { });
+        }
+        return append(new Entry(Kind.CREATE_ORDER, dto, null, null, System.currentTimeMillis()));
+    }
+
+    /**
+     * Record that the status of an order is to be changed in NetSuite.
+     *
+     * @param orderId the NetSuite order ID
+     * @param status the new status
+     * @return completed once the write is durable, or once NetSuite answered if the outbox is disabled
+     */
+    public CompletableFuture<Void> updateOrderStatus(String orderId, String status) {
+        if (!isEnabled()) {
+            return batchWriter.updateOrderStatus(orderId, status).<Void>thenApply(order -> null)
+                    .exceptionallyCompose(error -> {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        if (cause instanceof NetSuiteException e && e.getStatusCode() == 404) {
+                            logger.error("NetSuite order not found for status update: {}", orderId);
+                            return CompletableFuture.completedFuture(null);
+                        }
+                        return CompletableFuture.failedFuture(cause);
+                    });
+        }
+        return append(new Entry(Kind.UPDATE_ORDER_STATUS, null, orderId, status, System.currentTimeMillis()));
+    }
+
+    /**
+     * Record that the order of a PaymentIntent is to be marked as paid in NetSuite.
+     *
+     * @param stripePaymentIntentId the Stripe PaymentIntent ID
+     * @return completed once the write is durable, or once NetSuite answered if the outbox is disabled
+     */
+    public CompletableFuture<Void> markOrderAsPaid(String stripePaymentIntentId) {
+        if (!isEnabled()) {
+            return asyncNetSuiteService.markOrderAsPaidAsync(stripePaymentIntentId).thenAccept(order -> {
+                if (order == null) {
+                    logger.error("Failed to find order for PaymentIntent: {}", stripePaymentIntentId);
+                }
+            });
+        }
+        return append(new Entry(Kind.MARK_ORDER_AS_PAID, null, stripePaymentIntentId, "paid",
+                System.currentTimeMillis()));
+    }
+
+    private CompletableFuture<Void> append(Entry entry) {
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(entry);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException("Failed to serialize outbox entry", e));
+        }
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        if (!writerRunning) {
+            durable.completeExceptionally(new IllegalStateException("NetSuite outbox is closed"));
+            return durable;
+        }
+        appends.add(new Append(TYPE_ENTRY, 0, entry, payload, durable));
+        return durable;
+    }
+
+    /**
+     * Writer thread: append everything queued, flush once, then hand new entries to the relay.
+     */
+    private void write() {
+        List<Append> batch = new ArrayList<>();
+        while (writerRunning || !appends.isEmpty()) {
+            try {
+                Append first = appends.poll(WRITER_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            appends.drainTo(batch);
+
+            List<PendingEntry> written = new ArrayList<>();
+            long batchStart = -1;
+            try {
+                batchStart = channel.position();
+                for (Append append : batch) {
+                    if (append.type == TYPE_ENTRY) {
+                        long sequence = ++lastSequence;
+                        writeRecord(TYPE_ENTRY, sequence, append.payload);
+                        written.add(new PendingEntry(sequence, append.entry, append.payload));
+                    } else {
+                        writeRecord(TYPE_DONE, append.sequence, null);
+                        doneSinceCompaction++;
+                    }
+                }
+                channel.force(false);
+                flushes.increment();
+            } catch (IOException e) {
+                logger.error("Failed to write NetSuite outbox", e);
+                for (Append append : batch) {
+                    if (append.durable != null) {
+                        append.durable.completeExceptionally(new UncheckedIOException("Failed to write NetSuite outbox", e));
+                    }
+                }
+                batch.clear();
+                // Markers of the batch are lost; their entries are sent again after a restart
+                discardPartialBatch(batchStart);
+                continue;
+            }
+
+            if (!written.isEmpty()) {
+                lock.lock();
+                try {
+                    for (PendingEntry entry : written) {
+                        pending.put(entry.sequence, entry);
+                    }
+                    changed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                appended.add(written.size());
+            }
+            for (Append append : batch) {
+                if (append.durable != null) {
+                    append.durable.complete(null);
+                }
+            }
+            batch.clear();
+            compactIfNeeded();
+        }
+    }
+
+    /**
+     * Cut the log back to where a failed batch started. Recovery stops at the first
+     * torn record, so records appended after a partial one would be lost on restart.
+     * If the log cannot be cut, the writer stops and appends fail from then on.
+     */
+    private void discardPartialBatch(long batchStart) {
+        try {
+            if (batchStart < 0) {
+                throw new IOException("Position of the failed batch is unknown");
+            }
+            channel.truncate(batchStart);
+            channel.position(batchStart);
+        } catch (IOException e) {
+            logger.error("Failed to cut NetSuite outbox back to offset {}, no longer accepting writes", batchStart, e);
+            writerRunning = false;
+            List<Append> rest = new ArrayList<>();
+            appends.drainTo(rest);
+            for (Append append : rest) {
+                if (append.durable != null) {
+                    append.durable.completeExceptionally(new UncheckedIOException("NetSuite outbox is unusable", e));
+                }
+            }
+        }
+    }
+
+    private void writeRecord(byte type, long sequence, byte[] payload) throws IOException {
+        int length = payload == null ? 0 : payload.length;
+        crc.reset();
+        crc.update(type);
+        header.clear();
+        header.putLong(0, sequence);
+        crc.update(header.array(), 0, Long.BYTES);
+        if (length > 0) {
+            crc.update(payload);
+        }
+
+        header.clear();
+        header.putInt(length).put(type).putLong(sequence).putInt((int) crc.getValue());
+        header.flip();
+        ByteBuffer[] buffers = length > 0
+                ? new ByteBuffer[] {header, ByteBuffer.wrap(payload)}
+                : new ByteBuffer[] {header};
+        long remaining = RECORD_HEADER_BYTES + length;
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+    }
+
+    /**
+     * Rewrite the log with only the entries not yet relayed, once it has grown
+     * past the threshold and mostly holds finished entries. Runs on the writer thread.
+     */
+    private void compactIfNeeded() {
+        try {
+            if (channel.size() < outboxConfig.getCompactThresholdBytes()) {
+                return;
+            }
+            List<PendingEntry> remaining;
+            lock.lock();
+            try {
+                if (doneSinceCompaction < pending.size()) {
+                    return;
+                }
+                remaining = new ArrayList<>(pending.values());
+            } finally {
+                lock.unlock();
+            }
+
+            Path compactPath = directory.resolve(COMPACT_FILE);
+            FileChannel previous = channel;
+            channel = FileChannel.open(compactPath,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                for (PendingEntry entry : remaining) {
+                    writeRecord(TYPE_ENTRY, entry.sequence, entry.payload);
+                }
+                channel.force(false);
+                Files.move(compactPath, directory.resolve(LOG_FILE),
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                previous.close();
+            } catch (IOException e) {
+                channel.close();
+                channel = previous;
+                Files.deleteIfExists(compactPath);
+                throw e;
+            }
+            // Markers of entries relayed meanwhile are written to the new log by the next batch
+            doneSinceCompaction = 0;
+            compactions.increment();
+            logger.info("NetSuite outbox compacted, {} entries kept", remaining.size());
+        } catch (IOException e) {
+            logger.error("NetSuite outbox compaction failed", e);
+        }
+    }
+
+    /**
+     * Rebuild the entries not yet relayed from the log. Reading stops at the first
+     * torn or corrupt record; the log is cut there so new records follow valid ones.
+     */
+    private void recover() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+            // Read the whole log
+        }
+        buffer.flip();
+
+        int position = 0;
+        int limit = buffer.limit();
+        while (position + RECORD_HEADER_BYTES <= limit) {
+            int length = buffer.getInt(position);
+            byte type = buffer.get(position + 4);
+            if ((type != TYPE_ENTRY && type != TYPE_DONE) || length < 0
+                    || position + RECORD_HEADER_BYTES + length > limit) {
+                break;
+            }
+            long sequence = buffer.getLong(position + 5);
+            byte[] payload = new byte[length];
+            buffer.get(position + RECORD_HEADER_BYTES, payload);
+
+            crc.reset();
+            crc.update(type);
+            header.clear();
+            header.putLong(0, sequence);
+            crc.update(header.array(), 0, Long.BYTES);
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(position + 13)) {
+                logger.warn("NetSuite outbox has a corrupt record at offset {}, ignoring the rest", position);
+                break;
+            }
+
+            if (type == TYPE_ENTRY) {
+                pending.put(sequence, new PendingEntry(sequence, objectMapper.readValue(payload, Entry.class), payload));
+            } else {
+                pending.remove(sequence);
+                doneSinceCompaction++;
+            }
+            lastSequence = Math.max(lastSequence, sequence);
+            position += RECORD_HEADER_BYTES + length;
+        }
+
+        if (position < limit) {
+            channel.truncate(position);
+        }
+        channel.position(position);
+    }
+
+    /**
+     * Relay thread: send the oldest entries to NetSuite, one batch at a time.
+     */
+    private void relay() {
+        while (relayRunning) {
+            List<PendingEntry> batch;
+            lock.lock();
+            try {
+                while (relayRunning) {
+                    long waitNanos = nextAttemptNanos - System.nanoTime();
+                    if (pending.isEmpty()) {
+                        changed.await();
+                    } else if (waitNanos > 0) {
+                        changed.awaitNanos(waitNanos);
+                    } else {
+                        break;
+                    }
+                }
+                if (!relayRunning) {
+                    return;
+                }
+                batch = nextBatch();
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            send(batch);
+        }
+    }
+
+    /**
+     * Take the oldest entry and the entries of the same kind directly after it.
+     * Must be called with the lock held.
+     */
+    private List<PendingEntry> nextBatch() {
+        int maxBatchSize = Math.max(1, outboxConfig.getMaxBatchSize());
+        Kind kind = pending.firstEntry().getValue().entry.kind();
+        List<PendingEntry> batch = new ArrayList<>();
+        for (PendingEntry entry : pending.values()) {
+            if (entry.entry.kind() != kind || batch.size() == maxBatchSize) {
+                break;
+            }
+            batch.add(entry);
+        }
+        return batch;
+    }
+
+    private void send(List<PendingEntry> batch) {
+        Kind kind = batch.get(0).entry.kind();
+        List<NetSuiteWriteResult> results;
+        try {
+            results = switch (kind) {
+                case CREATE_ORDER -> netSuiteService.createOrders(
+                        batch.stream().map(entry -> entry.entry.order()).toList());
+                case UPDATE_ORDER_STATUS -> netSuiteService.updateOrderStatuses(
+                        batch.stream().map(entry -> new OrderStatusUpdate(entry.entry.orderId(), entry.entry.status())).toList());
+                case MARK_ORDER_AS_PAID -> markOrdersAsPaid(batch);
+            };
+        } catch (RuntimeException e) {
+            failedBatches.increment();
+            NetSuiteWriteResult failure = e instanceof NetSuiteException netSuiteException
+                    ? NetSuiteWriteResult.failure(netSuiteException)
+                    : NetSuiteWriteResult.failure(String.valueOf(e.getMessage()), 0, false);
+            results = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                results.add(failure);
+            }
+        }
+        batches.increment();
+
+        List<Long> done = new ArrayList<>(batch.size());
+        String retryError = null;
+        long retryAfterMillis = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            PendingEntry entry = batch.get(i);
+            NetSuiteWriteResult result = i < results.size() ? results.get(i) : null;
+            if (result != null && result.isSuccess()) {
+                done.add(entry.sequence);
+                relayed.increment();
+            } else if (result == null || result.retryable()) {
+                // Entries after this one wait for it, whatever NetSuite answered for them
+                retryError = result == null ? "No result for record in batch" : result.error();
+                retryAfterMillis = result == null ? 0 : result.retryAfterMillis();
+                break;
+            } else {
+                done.add(entry.sequence);
+                rejected.increment();
+                logger.error("NetSuite rejected outbox entry {} ({}), dropping it: {}, entry: {}",
+                        entry.sequence, kind, result.error(), new String(entry.payload, StandardCharsets.UTF_8));
+            }
+        }
+
+        lock.lock();
+        try {
+            for (Long sequence : done) {
+                pending.remove(sequence);
+            }
+            if (retryError != null) {
+                consecutiveFailures++;
+                long delay = retryScheduler.backoffMillis(consecutiveFailures, retryAfterMillis);
+                nextAttemptNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+                logger.warn("NetSuite outbox batch {} failed ({} in a row): {}, retrying in {} ms",
+                        kind, consecutiveFailures, retryError, delay);
+            } else {
+                consecutiveFailures = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Long sequence : done) {
+            appends.add(new Append(TYPE_DONE, sequence, null, null, null));
+        }
+    }
+
+    /**
+     * Mark the orders as paid one by one, stopping at the first retryable failure
+     * since the relay does not look past it.
+     */
+    private List<NetSuiteWriteResult> markOrdersAsPaid(List<PendingEntry> batch) {
+        List<NetSuiteWriteResult> results = new ArrayList<>(batch.size());
+        for (PendingEntry entry : batch) {
+            NetSuiteWriteResult result;
+            try {
+                Order order = netSuiteService.markOrderAsPaid(entry.entry.orderId());
+                result = order != null
+                        ? NetSuiteWriteResult.success(order)
+                        : NetSuiteWriteResult.failure("Order not found for PaymentIntent: " + entry.entry.orderId(), 404, false);
+            } catch (NetSuiteException e) {
+                result = NetSuiteWriteResult.failure(e);
+            } catch (RuntimeException e) {
+                result = NetSuiteWriteResult.failure(String.valueOf(e.getMessage()), 0, false);
+            }
+            results.add(result);
+            if (result.retryable()) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Get the outbox backlog and relay figures. {@code lagMillis} is the age of the
+     * oldest entry not yet relayed, 0 when the outbox is empty.
+     *
+     * @return map of metric name to value
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        if (!isEnabled()) {
+            return stats;
+        }
+
+        lock.lock();
+        try {
+            stats.put("pendingEntries", pending.size());
+            stats.put("lagMillis", pending.isEmpty()
+                    ? 0 : Math.max(0, System.currentTimeMillis() - pending.firstEntry().getValue().entry.createdAtMillis()));
+            stats.put("consecutiveFailures", consecutiveFailures);
+            stats.put("nextAttemptInMillis", Math.max(0, TimeUnit.NANOSECONDS.toMillis(nextAttemptNanos - System.nanoTime())));
+        } finally {
+            lock.unlock();
+        }
+        long flushCount = flushes.sum();
+        stats.put("queuedAppends", appends.size());
+        stats.put("appended", appended.sum());
+        stats.put("flushes", flushCount);
+        stats.put("relayed", relayed.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("batches", batches.sum());
+        stats.put("failedBatches", failedBatches.sum());
+        stats.put("compactions", compactions.sum());
+        return stats;
+    }
+
+    /**
+     * Stop the relay after its current batch, write what is queued and close the log.
+     * Entries not yet relayed are sent after the next start.
+     */
+    @PreDestroy
+    public void close() {
+        if (!isEnabled() || writer == null) {
+            return;
+        }
+        relayRunning = false;
+        lock.lock();
+        try {
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            relay.join(SHUTDOWN_TIMEOUT_MILLIS);
+            // No interrupt: it would close the channel in the middle of a write
+            writerRunning = false;
+            writer.join(SHUTDOWN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.error("Failed to close NetSuite outbox", e);
+        }
+        logger.info("NetSuite outbox closed: pendingEntries: {}", pending.size());
+    }
+
+    /**
+     * A NetSuite write as stored in the log.
+     *
+     * @param kind the kind of write
+     * @param order the order to create, for {@link Kind#CREATE_ORDER}
+     * @param orderId the NetSuite order ID, or the PaymentIntent ID for {@link Kind#MARK_ORDER_AS_PAID}
+     * @param status the new status
+     * @param createdAtMillis when the handler recorded the write
+     */
+    public record Entry(Kind kind, OrderDto order, String orderId, String status, long createdAtMillis) {
+    }
+
+    /**
+     * An entry on disk that has not been relayed yet.
+     */
+    private record PendingEntry(long sequence, Entry entry, byte[] payload) {
+    }
+
+    /**
+     * A record waiting for the writer thread.
+     */
+    private record Append(byte type, long sequence, Entry entry, byte[] payload, CompletableFuture<Void> durable) {
+    }
+}
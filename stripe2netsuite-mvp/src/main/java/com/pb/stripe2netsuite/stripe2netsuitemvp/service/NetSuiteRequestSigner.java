@@ -0,0 +1,261 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.NetSuiteConfig;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Builds OAuth 1.0 token-based authentication headers (HMAC-SHA256) for NetSuite requests.
+ *
+ * The composite signing key ({@code consumerSecret&tokenSecret}), the realm and the
+ * constant parameters are encoded once at startup. Every thread keeps a pre-keyed
+ * {@link Mac} and its own buffers, so signing a request costs one HMAC pass and
+ * allocates little beyond the returned header.
+ *
+ * Nonces come from {@link ThreadLocalRandom} (128 bits per request). OAuth only
+ * requires nonces to be unique per timestamp, the signature protects the request,
+ * so a shared {@code SecureRandom} and its lock are not needed.
+ *
+ * See NetSuite "The Authorization Headers" and RFC 5849 section 3.4.
+ */
+@Component
+public class NetSuiteRequestSigner {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final SecretKeySpec signingKey;
+    private final String headerPrefix;
+    private final String consumerKey;
+    private final String token;
+    private final ThreadLocal<Signing> signing;
+
+    public NetSuiteRequestSigner(NetSuiteConfig netSuiteConfig) {
+        String compositeKey = percentEncode(netSuiteConfig.getConsumerSecret()) + "&"
+                + percentEncode(netSuiteConfig.getTokenSecret());
+        this.signingKey = new SecretKeySpec(compositeKey.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+
+        this.consumerKey = percentEncode(netSuiteConfig.getConsumerKey());
+        this.token = percentEncode(netSuiteConfig.getTokenId());
+
+        // NetSuite expects the account ID in upper case with an underscore, e.g. 1234567_SB1 for 1234567-sb1
+        String accountId = netSuiteConfig.getAccountId() == null ? "" : netSuiteConfig.getAccountId();
+        String realm = accountId.toUpperCase().replace('-', '_');
+        this.headerPrefix = "OAuth realm=\"" + realm + "\""
+                + ",oauth_consumer_key=\"" + consumerKey + "\""
+                + ",oauth_token=\"" + token + "\""
+                + ",oauth_signature_method=\"HMAC-SHA256\""
+                + ",oauth_version=\"1.0\"";
+        this.signing = ThreadLocal.withInitial(this::createSigning);
+    }
+
+    /**
+     * Build the Authorization header for a request.
+     *
+     * @param method the HTTP method
+     * @param uri the full request URI; query parameters are included in the signature
+     * @return the {@code OAuth ...} header value
+     */
+    public String authorizationHeader(String method, URI uri) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] nonce = new char[32];
+        writeHex(random.nextLong(), nonce, 0);
+        writeHex(random.nextLong(), nonce, 16);
+        return authorizationHeader(method, uri, System.currentTimeMillis() / 1000, new String(nonce));
+    }
+
+    /**
+     * Build the Authorization header with a given timestamp and nonce.
+     *
+     * @param method the HTTP method
+     * @param uri the full request URI
+     * @param timestamp seconds since the epoch
+     * @param nonce a value unique for the timestamp, made of unreserved characters
+     * @return the {@code OAuth ...} header value
+     */
+    public String authorizationHeader(String method, URI uri, long timestamp, String nonce) {
+        Signing state = signing.get();
+
+        // Normalized parameters, sorted by name: the oauth_* parameters are constant in
+        // their relative order, so only requests with a query string need sorting
+        StringBuilder parameters = state.parameters;
+        parameters.setLength(0);
+        if (uri.getRawQuery() == null) {
+            appendOAuthParameters(parameters, timestamp, nonce);
+        } else {
+            appendSortedParameters(parameters, uri.getRawQuery(), timestamp, nonce);
+        }
+
+        // Signature base string: METHOD&encoded-base-uri&encoded-parameters
+        StringBuilder base = state.base;
+        base.setLength(0);
+        for (int i = 0; i < method.length(); i++) {
+            base.append(Character.toUpperCase(method.charAt(i)));
+        }
+        base.append('&');
+        percentEncode(uri.getScheme().toLowerCase(), base);
+        percentEncode("://", base);
+        percentEncode(uri.getRawAuthority().toLowerCase(), base);
+        percentEncode(uri.getRawPath(), base);
+        base.append('&');
+        percentEncode(parameters, base);
+
+        // The base string is ASCII after encoding, so it is copied to bytes without a charset encoder
+        int length = base.length();
+        if (state.ascii.length < length) {
+            state.ascii = new byte[Math.max(length, state.ascii.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            state.ascii[i] = (byte) base.charAt(i);
+        }
+        try {
+            state.mac.update(state.ascii, 0, length);
+            state.mac.doFinal(state.digest, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to compute " + HMAC_ALGORITHM + " signature", e);
+        }
+        int encoded = Base64.getEncoder().encode(state.digest, state.signature);
+
+        StringBuilder header = state.header;
+        header.setLength(0);
+        header.append(headerPrefix)
+                .append(",oauth_timestamp=\"").append(timestamp).append('"')
+                .append(",oauth_nonce=\"").append(nonce).append('"')
+                .append(",oauth_signature=\"");
+        for (int i = 0; i < encoded; i++) {
+            appendEncoded((char) state.signature[i], header);
+        }
+        header.append('"');
+        return header.toString();
+    }
+
+    private void appendOAuthParameters(StringBuilder out, long timestamp, String nonce) {
+        out.append("oauth_consumer_key=").append(consumerKey)
+                .append("&oauth_nonce=").append(nonce)
+                .append("&oauth_signature_method=HMAC-SHA256")
+                .append("&oauth_timestamp=").append(timestamp)
+                .append("&oauth_token=").append(token)
+                .append("&oauth_version=1.0");
+    }
+
+    /**
+     * Merge the query parameters with the oauth_* parameters, ordered by encoded name, then value.
+     */
+    private void appendSortedParameters(StringBuilder out, String rawQuery, long timestamp, String nonce) {
+        List<String[]> pairs = new ArrayList<>(8);
+        pairs.add(new String[]{"oauth_consumer_key", consumerKey});
+        pairs.add(new String[]{"oauth_nonce", nonce});
+        pairs.add(new String[]{"oauth_signature_method", "HMAC-SHA256"});
+        pairs.add(new String[]{"oauth_timestamp", Long.toString(timestamp)});
+        pairs.add(new String[]{"oauth_token", token});
+        pairs.add(new String[]{"oauth_version", "1.0"});
+        int start = 0;
+        while (start <= rawQuery.length()) {
+            int end = rawQuery.indexOf('&', start);
+            if (end < 0) {
+                end = rawQuery.length();
+            }
+            if (end > start) {
+                int eq = rawQuery.indexOf('=', start);
+                if (eq < 0 || eq > end) {
+                    eq = end;
+                }
+                String name = URLDecoder.decode(rawQuery.substring(start, eq), StandardCharsets.UTF_8);
+                String value = eq < end ? URLDecoder.decode(rawQuery.substring(eq + 1, end), StandardCharsets.UTF_8) : "";
+                pairs.add(new String[]{percentEncode(name), percentEncode(value)});
+            }
+            start = end + 1;
+        }
+        pairs.sort((a, b) -> {
+            int byName = a[0].compareTo(b[0]);
+            return byName != 0 ? byName : a[1].compareTo(b[1]);
+        });
+        for (int i = 0; i < pairs.size(); i++) {
+            if (i > 0) {
+                out.append('&');
+            }
+            out.append(pairs.get(i)[0]).append('=').append(pairs.get(i)[1]);
+        }
+    }
+
+    /**
+     * Percent-encode per RFC 3986: everything except ALPHA, DIGIT, '-', '.', '_' and '~'.
+     */
+    static String percentEncode(String value) {
+        StringBuilder out = new StringBuilder(value == null ? 0 : value.length() + 16);
+        if (value != null) {
+            percentEncode(value, out);
+        }
+        return out.toString();
+    }
+
+    private static void percentEncode(CharSequence value, StringBuilder out) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                appendEncoded(c, out);
+            } else {
+                // Non-ASCII: encode the UTF-8 bytes of the code point
+                int codePoint = Character.codePointAt(value, i);
+                for (byte b : new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8)) {
+                    out.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+                }
+                i += Character.charCount(codePoint) - 1;
+            }
+        }
+    }
+
+    private static void appendEncoded(char c, StringBuilder out) {
+        if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~') {
+            out.append(c);
+        } else {
+            out.append('%').append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+        }
+    }
+
+    private static void writeHex(long value, char[] out, int offset) {
+        for (int i = 15; i >= 0; i--) {
+            out[offset + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+    private Signing createSigning() {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(signingKey);
+            return new Signing(mac);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to initialize " + HMAC_ALGORITHM, e);
+        }
+    }
+
+    /**
+     * Per-thread signing state: the pre-keyed Mac and reusable buffers.
+     */
+    private static final class Signing {
+
+        private final Mac mac;
+        private final StringBuilder parameters = new StringBuilder(256);
+        private final StringBuilder base = new StringBuilder(512);
+        private final StringBuilder header = new StringBuilder(384);
+        private final byte[] digest = new byte[32];
+        private final byte[] signature = new byte[44];
+        private byte[] ascii = new byte[512];
+
+        private Signing(Mac mac) {
+            this.mac = mac;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.NetSuiteRetryConfig;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs NetSuite work again after retryable failures.
+ *
+ * A failure is retried only if it is a {@link NetSuiteException} marked retryable
+ * (timeouts, connection errors, 429, 5xx, an open circuit); everything else fails
+ * at once. Retries wait for a full-jitter exponential backoff, or longer if NetSuite
+ * or a circuit breaker said when to come back, on a {@link TimerWheel}: no thread
+ * sleeps while a retry is pending.
+ *
+ * Work is identified by a key, e.g. the Stripe event ID. While work is pending,
+ * submitting the same key again joins it instead of starting a second attempt
+ * chain, so redeliveries during an outage do not multiply the load.
+ */
+@Component
+public class NetSuiteRetryScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(NetSuiteRetryScheduler.class);
+
+    private final NetSuiteRetryConfig config;
+    private final ExecutorService retryExecutor;
+    private final TimerWheel timerWheel;
+    private final Map<String, CompletableFuture<?>> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder recovered = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    private final LongAdder fatal = new LongAdder();
+    private final LongAdder joined = new LongAdder();
+
+    public NetSuiteRetryScheduler(NetSuiteRetryConfig config) {
+        this.config = config;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.retryExecutor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "netsuite-retry-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timerWheel = new TimerWheel("netsuite-retry-timer", config.getTimerTickMillis(),
+                config.getTimerWheelSize(), retryExecutor);
+    }
+
+    /**
+     * Run work, retrying it on retryable failures.
+     *
+     * @param key identifies the work; a second call with a pending key joins the first
+     * @param operation starts one attempt
+     * @return completed with the first successful result, or exceptionally with the
+     *         last failure once the error is fatal or the attempts are used up
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> execute(String key, Supplier<CompletableFuture<T>> operation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<?> existing = pending.putIfAbsent(key, result);
+        if (existing != null) {
+            joined.increment();
+            return (CompletableFuture<T>) existing;
+        }
+        result.whenComplete((value, error) -> pending.remove(key, result));
+        attempt(key, operation, result, 1);
+        return result;
+    }
+
+    private <T> void attempt(String key, Supplier<CompletableFuture<T>> operation, CompletableFuture<T> result,
+                             int attempt) {
+        if (result.isDone()) {
+            return;
+        }
+        CompletableFuture<T> future;
+        try {
+            future = operation.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((value, error) -> {
+            if (error == null) {
+                if (attempt > 1) {
+                    recovered.increment();
+                    logger.info("NetSuite work {} succeeded on attempt {}", key, attempt);
+                }
+                result.complete(value);
+                return;
+            }
+
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (!(cause instanceof NetSuiteException netSuiteException) || !netSuiteException.isRetryable()) {
+                fatal.increment();
+                result.completeExceptionally(cause);
+                return;
+            }
+            if (!config.isEnabled() || attempt >= config.getMaxAttempts()) {
+                exhausted.increment();
+                logger.error("NetSuite work {} failed after {} attempts: {}", key, attempt, cause.getMessage());
+                result.completeExceptionally(cause);
+                return;
+            }
+
+            long delay = backoffMillis(attempt, netSuiteException.getRetryAfterMillis());
+            retries.increment();
+            logger.warn("NetSuite work {} failed (attempt {}/{}): {}, retrying in {} ms",
+                    key, attempt, config.getMaxAttempts(), cause.getMessage(), delay);
+            timerWheel.schedule(() -> attempt(key, operation, result, attempt + 1), delay);
+        });
+    }
+
+    /**
+     * Full jitter: uniform between 0 and the capped exponential delay, but never
+     * sooner than the server or circuit breaker asked for. Also used by the
+     * {@link NetSuiteOutbox} relay, which retries without a limit on attempts.
+     *
+     * @param attempt the number of the attempt that failed, from 1
+     * @param retryAfterMillis the wait NetSuite or a circuit breaker asked for, 0 if none
+     */
+    long backoffMillis(int attempt, long retryAfterMillis) {
+        long base = Math.max(1, config.getBaseDelayMillis());
+        long cap = Math.min(config.getMaxDelayMillis(), base << Math.min(attempt - 1, 30));
+        long delay = ThreadLocalRandom.current().nextLong(Math.max(1, cap) + 1);
+        if (retryAfterMillis > 0) {
+            // Spread the retries released together over one extra base delay
+            delay = Math.max(delay, retryAfterMillis + ThreadLocalRandom.current().nextLong(base + 1));
+        }
+        return delay;
+    }
+
+    /**
+     * Get retry counts and the number of pending retries.
+     *
+     * @return map of metric name to value
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", config.isEnabled());
+        stats.put("maxAttempts", config.getMaxAttempts());
+        stats.put("pendingWork", pending.size());
+        stats.put("scheduledRetries", timerWheel.pendingCount());
+        stats.put("retries", retries.sum());
+        stats.put("recovered", recovered.sum());
+        stats.put("exhausted", exhausted.sum());
+        stats.put("fatal", fatal.sum());
+        stats.put("joined", joined.sum());
+        return stats;
+    }
+
+    /**
+     * Stop the timer and fail work still waiting for a retry.
+     */
+    @PreDestroy
+    public void shutdown() {
+        timerWheel.stop();
+        retryExecutor.shutdown();
+        List<CompletableFuture<?>> abandoned = new ArrayList<>(pending.values());
+        for (CompletableFuture<?> result : abandoned) {
+            result.completeExceptionally(new NetSuiteException("NetSuite retries stopped on shutdown", 0, true));
+        }
+        if (!abandoned.isEmpty()) {
+            logger.warn("NetSuite retry scheduler stopped with {} pending retries", abandoned.size());
+        }
+    }
+}
@@ -1,16 +1,22 @@
 package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
 
 import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Customer;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.CustomerMappingPage;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.NetSuiteWriteResult;
 import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Order;
 import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderDto;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderStatusUpdate;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Service interface for NetSuite integration.
  * Defines the contract for creating orders, updating order status, and retrieving customers.
  * 
  * This interface allows for different implementations:
- * - MockNetSuiteService: For development and testing
- * - RealNetSuiteService: For production (requires NetSuite credentials)
+ * - MockNetSuiteService: For development and testing (netsuite.mock.enabled=true)
+ * - RestNetSuiteService: For production (netsuite.mock.enabled=false, requires NetSuite credentials)
  */
 public interface NetSuiteService {
     
@@ -21,6 +27,17 @@ public interface NetSuiteService {
      * @return the created order with ID and status
      */
     Order createOrder(OrderDto dto);
+
+    /**
+     * Create a pending order for a Stripe PaymentIntent that has not been paid yet.
+     *
+     * @param amount order amount in smallest currency unit
+     * @param currency currency code (e.g., "usd")
+     * @param description order description
+     * @param stripePaymentIntentId the Stripe PaymentIntent ID
+     * @return the created pending order
+     */
+    Order createPendingOrder(Long amount, String currency, String description, String stripePaymentIntentId);
     
     /**
      * Update the status of an existing order in NetSuite.
@@ -47,5 +64,62 @@ public interface NetSuiteService {
      * @return the updated order, or null if not found
      */
     Order markOrderAsPaid(String stripePaymentIntentId);
-}
 
+    /**
+     * Read one page of the customers that have a Stripe customer ID, ordered by
+     * NetSuite ID, for warming the {@link CustomerIdIndex}.
+     *
+     * @param offset number of customers to skip
+     * @param limit maximum number of customers to return
+     * @return the page of Stripe customer ID to NetSuite customer ID mappings
+     */
+    CustomerMappingPage getCustomerMappings(int offset, int limit);
+    
+    /**
+     * Create several orders in one call where the implementation supports it.
+     * The default implementation creates them one by one.
+     * 
+     * @param dtos the orders to create
+     * @return one result per order, in the same order; failures do not affect other records
+     */
+    default List<NetSuiteWriteResult> createOrders(List<OrderDto> dtos) {
+        List<NetSuiteWriteResult> results = new ArrayList<>(dtos.size());
+        for (OrderDto dto : dtos) {
+            try {
+                Order order = createOrder(dto);
+                results.add(order != null
+                        ? NetSuiteWriteResult.success(order)
+                        : NetSuiteWriteResult.failure("Order was not created", 0, false));
+            } catch (NetSuiteException e) {
+                results.add(NetSuiteWriteResult.failure(e));
+            } catch (RuntimeException e) {
+                results.add(NetSuiteWriteResult.failure(String.valueOf(e.getMessage()), 0, false));
+            }
+        }
+        return results;
+    }
+    
+    /**
+     * Update the status of several orders in one call where the implementation supports it.
+     * The default implementation updates them one by one.
+     * 
+     * @param updates the status changes
+     * @return one result per update, in the same order; unknown orders fail with status 404
+     */
+    default List<NetSuiteWriteResult> updateOrderStatuses(List<OrderStatusUpdate> updates) {
+        List<NetSuiteWriteResult> results = new ArrayList<>(updates.size());
+        for (OrderStatusUpdate update : updates) {
+            try {
+                Order order = updateOrderStatus(update.orderId(), update.status());
+                results.add(order != null
+                        ? NetSuiteWriteResult.success(order)
+                        : NetSuiteWriteResult.failure("Order not found: " + update.orderId(), 404, false));
+            } catch (NetSuiteException e) {
+                results.add(NetSuiteWriteResult.failure(e));
+            } catch (RuntimeException e) {
+                results.add(NetSuiteWriteResult.failure(String.valueOf(e.getMessage()), 0, false));
+            }
+        }
+        return results;
+    }
+}
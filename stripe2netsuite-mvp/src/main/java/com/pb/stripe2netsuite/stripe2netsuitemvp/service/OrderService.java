@@ -13,18 +13,18 @@ import org.springframework.stereotype.Service;
 
 /**
  * Service for handling order creation with Stripe PaymentIntent.
- * This service coordinates between the frontend request, MockNetSuite, and Stripe API.
+ * This service coordinates between the frontend request, NetSuite (mock or REST), and Stripe API.
  */
 @Service
 public class OrderService {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
 
-    private final MockNetSuiteService mockNetSuiteService;
+    private final NetSuiteService netSuiteService;
     private final StripeConfig stripeConfig;
 
-    public OrderService(MockNetSuiteService mockNetSuiteService, StripeConfig stripeConfig) {
-        this.mockNetSuiteService = mockNetSuiteService;
+    public OrderService(NetSuiteService netSuiteService, StripeConfig stripeConfig) {
+        this.netSuiteService = netSuiteService;
         this.stripeConfig = stripeConfig;
     }
 
@@ -33,7 +33,7 @@ public class OrderService {
      * 
      * Steps:
      * 1. Create a Stripe PaymentIntent with metadata containing a placeholder order ID
-     * 2. Create a pending order in MockNetSuite with the real Stripe PaymentIntent ID
+     * 2. Create a pending order in NetSuite with the real Stripe PaymentIntent ID
      * 3. Return the response with clientSecret for frontend payment
      * 
      * @param request the order creation request
@@ -57,8 +57,8 @@ public class OrderService {
         logger.info("Created PaymentIntent: {}, clientSecret: {}", 
                 paymentIntentId, clientSecret);
 
-        // Step 3: Create pending order in MockNetSuite with real Stripe PaymentIntent ID
-        Order pendingOrder = mockNetSuiteService.createPendingOrder(
+        // Step 3: Create pending order in NetSuite with real Stripe PaymentIntent ID
+        Order pendingOrder = netSuiteService.createPendingOrder(
                 request.getAmount(),
                 request.getCurrency(),
                 request.getDescription(),
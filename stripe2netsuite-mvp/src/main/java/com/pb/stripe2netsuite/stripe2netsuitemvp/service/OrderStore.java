@@ -0,0 +1,86 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Order;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderQuery;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * In-memory order store of the mock NetSuite.
+ *
+ * Selected with {@code netsuite.mock.order-store}: {@code indexed} for
+ * {@link MockOrderStore}, which keeps orders as objects with secondary indexes,
+ * or {@code columnar} for {@link ColumnarOrderStore}, which keeps them in
+ * primitive and dictionary-encoded columns to hold millions of orders in far
+ * less heap.
+ *
+ * Orders returned by a store must not be modified; orders are changed through
+ * the store. Every write, clearing included, moves the store to the next version.
+ */
+public interface OrderStore {
+
+    /**
+     * All orders as of one version, in ID order.
+     *
+     * @param version number of writes the store had committed when the snapshot was taken
+     * @param orders the orders; later writes do not change the list
+     */
+    record Snapshot(long version, List<Order> orders) {
+    }
+
+    /**
+     * Add an order, or replace the order with the same ID.
+     */
+    void put(Order order);
+
+    /**
+     * Change the status of an order.
+     *
+     * @return the updated order, or null if there is none with this ID
+     */
+    Order updateStatus(String orderId, String status);
+
+    Order get(String orderId);
+
+    Order findByStripePaymentId(String stripePaymentId);
+
+    int size();
+
+    /**
+     * Get all orders, keyed by ID.
+     */
+    Map<String, Order> copy();
+
+    void clear();
+
+    /**
+     * Find the orders matching a query, in the query's order, up to its limit.
+     */
+    List<Order> query(OrderQuery query);
+
+    /**
+     * Get the orders with an ID after the given one, in ID order.
+     *
+     * @param afterId ID of the last order already read, or null to start at the first order
+     * @param limit maximum number of orders
+     */
+    List<Order> page(String afterId, int limit);
+
+    /**
+     * Get all orders as of the current version.
+     */
+    Snapshot snapshot();
+
+    /**
+     * Set the listener called with every order put or updated, in write order,
+     * before the next write starts. Clearing the store is reported to the clear listener.
+     */
+    void setWriteListener(Consumer<Order> writeListener);
+
+    /**
+     * Set the listener called when the store has been cleared, before the next write starts.
+     */
+    void setClearListener(Runnable clearListener);
+}
@@ -0,0 +1,888 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.NetSuiteConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.NetSuiteHttpConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Customer;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.CustomerMapping;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.CustomerMappingPage;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.NetSuiteWriteResult;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Order;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderDto;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderStatusUpdate;
+import jakarta.annotation.PreDestroy;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * NetSuite implementation of NetSuiteService using the SuiteTalk REST record API.
+ *
+ * Active when {@code netsuite.mock.enabled=false}. Requests are signed with
+ * token-based authentication by {@link NetSuiteRequestSigner} and sent through
+ * a pooled, keep-alive {@link CloseableHttpAsyncClient} sized to the account's
+ * concurrency limit (see {@link NetSuiteHttpConfig}).
+ *
+ * Mapping to NetSuite:
+ * - Orders are sales orders whose externalId is the Stripe payment ID, so they
+ *   can be addressed as {@code salesOrder/eid:<stripe id>} without a lookup.
+ *   NetSuite rejects a second sales order with the same externalId, so creating
+ *   an order that already exists sets the existing one to the requested status
+ *   and returns it: a create retried after one that timed out but went through
+ *   does not fail, and the creates of later events for the same Stripe object
+ *   (invoice.paid after invoice.created) move its status on
+ * - The Stripe status and amount are kept in the custom body fields
+ *   {@code custbody_stripe_status} and {@code custbody_stripe_amount}
+ * - Customers are referenced by internal ID when the {@link CustomerIdIndex}
+ *   knows the Stripe customer, otherwise by externalId = Stripe customer ID
+ * - Customer mappings are read with SuiteQL from {@code custentity_stripe_customer_id}
+ * - Customers are read through the {@link CustomerCache}; concurrent reads of one
+ *   customer share a request through {@link CustomerSingleFlight}
+ *
+ * Batch writes go to the RESTlet deployment configured by
+ * {@code netsuite.restlet-script-id}/{@code restlet-deployment-id} as one call:
+ * {@code {"action":"createOrders","records":[...]}}, answered with one entry per
+ * record in the same order: {@code {"results":[{"id":"4711"},{"error":"...","retryable":false}]}}.
+ * The RESTlet answers a record whose externalId already exists with the existing ID,
+ * after setting its {@code custbody_stripe_status} to the status sent for the record.
+ * Without a RESTlet deployment records are written one by one.
+ *
+ * Request bodies are written with a JsonGenerator and responses read with a
+ * JsonParser; no intermediate maps or trees are built.
+ *
+ * The {@link AsyncNetSuiteService} methods complete from the HTTP client's
+ * callback; the synchronous methods wait for the same futures.
+ *
+ * Every request, including batch calls, first takes a slot from the adaptive
+ * {@link NetSuiteConcurrencyLimiter} and reports its latency or rejection back.
+ * It then passes the {@link NetSuiteCircuitBreakers} breaker of its endpoint
+ * ({@code POST salesOrder}, {@code GET salesOrder}, {@code PATCH salesOrder}, {@code GET customer},
+ * {@code POST suiteql}, {@code POST restlet}), which fails it at once while NetSuite keeps failing.
+ */
+@Service
+@ConditionalOnProperty(name = "netsuite.mock.enabled", havingValue = "false")
+public class RestNetSuiteService implements NetSuiteService, AsyncNetSuiteService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RestNetSuiteService.class);
+
+    private static final String RECORD_PATH = "/services/rest/record/v1/";
+    private static final String SUITEQL_PATH = "/services/rest/query/v1/suiteql";
+    private static final String STATUS_FIELD = "custbody_stripe_status";
+    private static final String AMOUNT_FIELD = "custbody_stripe_amount";
+    private static final String CUSTOMER_STRIPE_ID_FIELD = "custentity_stripe_customer_id";
+    private static final int MAX_ERROR_DETAIL_CHARS = 500;
+
+    private final NetSuiteConfig netSuiteConfig;
+    private final NetSuiteHttpConfig httpConfig;
+    private final NetSuiteRequestSigner requestSigner;
+    private final NetSuiteConcurrencyLimiter limiter;
+    private final NetSuiteCircuitBreakers breakers;
+    private final CustomerIdIndex customerIndex;
+    private final CustomerSingleFlight customerSingleFlight;
+    private final CustomerCache customerCache;
+    private final JsonFactory jsonFactory;
+    private final String baseUrl;
+    private final String restletUrl;
+    private final PoolingAsyncClientConnectionManager connectionManager;
+    private final CloseableHttpAsyncClient httpClient;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder requestNanos = new LongAdder();
+
+    public RestNetSuiteService(NetSuiteConfig netSuiteConfig, NetSuiteHttpConfig httpConfig,
+                               NetSuiteRequestSigner requestSigner, NetSuiteConcurrencyLimiter limiter,
+                               NetSuiteCircuitBreakers breakers, CustomerIdIndex customerIndex,
+                               CustomerSingleFlight customerSingleFlight, CustomerCache customerCache,
+                               ObjectMapper objectMapper) {
+        this.netSuiteConfig = netSuiteConfig;
+        this.httpConfig = httpConfig;
+        this.requestSigner = requestSigner;
+        this.limiter = limiter;
+        this.breakers = breakers;
+        this.customerIndex = customerIndex;
+        this.customerSingleFlight = customerSingleFlight;
+        this.customerCache = customerCache;
+        this.jsonFactory = objectMapper.getFactory();
+        this.baseUrl = stripTrailingSlash(netSuiteConfig.getBaseUrl());
+        this.restletUrl = restletUrl(netSuiteConfig);
+
+        this.connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(httpConfig.getMaxConnections())
+                .setMaxConnPerRoute(httpConfig.getMaxConnectionsPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(httpConfig.getConnectTimeoutMillis()))
+                        .setTimeToLive(TimeValue.ofSeconds(httpConfig.getConnectionTtlSeconds()))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                        .build())
+                .build();
+
+        this.httpClient = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setIOReactorConfig(IOReactorConfig.custom()
+                        .setIoThreadCount(Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors())))
+                        .setTcpNoDelay(true)
+                        .setSoKeepAlive(true)
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setResponseTimeout(Timeout.ofMilliseconds(httpConfig.getResponseTimeoutMillis()))
+                        .setConnectionKeepAlive(TimeValue.ofSeconds(httpConfig.getKeepAliveSeconds()))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(httpConfig.getEvictIdleSeconds()))
+                .disableCookieManagement()
+                .disableAutomaticRetries()
+                .build();
+        this.httpClient.start();
+
+        if (!netSuiteConfig.isConfigured()) {
+            logger.warn("NetSuite REST client enabled but netsuite.account-id/consumer-key/token-id are not set");
+        }
+        logger.info("NetSuite REST client started: baseUrl: {}, maxConnections: {}, perRoute: {}",
+                baseUrl, httpConfig.getMaxConnections(), httpConfig.getMaxConnectionsPerRoute());
+    }
+
+    @Override
+    public Order createOrder(OrderDto dto) {
+        return await(createOrderAsync(dto));
+    }
+
+    @Override
+    public CompletableFuture<Order> createOrderAsync(OrderDto dto) {
+        return insertSalesOrder(toOrder(dto));
+    }
+
+    @Override
+    public Order createPendingOrder(Long amount, String currency, String description, String stripePaymentIntentId) {
+        Order order = new Order();
+        order.setStatus("pending");
+        order.setAmount(amount);
+        order.setCurrency(currency != null ? currency : "usd");
+        order.setStripePaymentId(stripePaymentIntentId);
+        order.setDescription(description);
+        return await(insertSalesOrder(order));
+    }
+
+    /**
+     * Returns the order with its ID and new status only; NetSuite answers
+     * a PATCH without a body and a second round trip is not worth it.
+     */
+    @Override
+    public Order updateOrderStatus(String orderId, String status) {
+        return await(updateOrderStatusAsync(orderId, status));
+    }
+
+    @Override
+    public CompletableFuture<Order> updateOrderStatusAsync(String orderId, String status) {
+        return patchStatus(orderId, status);
+    }
+
+    @Override
+    public Customer getCustomer(String customerId) {
+        return await(getCustomerAsync(customerId));
+    }
+
+    /**
+     * Read through the customer cache; concurrent reads of the same customer share one request.
+     */
+    @Override
+    public CompletableFuture<Customer> getCustomerAsync(String customerId) {
+        return customerCache.getAsync(customerId, id ->
+                customerSingleFlight.execute("customer:" + id, () -> fetchCustomer(id)));
+    }
+
+    private CompletableFuture<Customer> fetchCustomer(String customerId) {
+        String uri = recordUrl("customer/" + encodePathSegment(customerId))
+                + "?fields=entityId,companyName,email," + CUSTOMER_STRIPE_ID_FIELD;
+        return sendAsync("GET customer", SimpleRequestBuilder.get(uri)).thenApply(response -> {
+            if (response.getCode() == 404) {
+                logger.warn("NetSuite customer not found: {}", customerId);
+                return null;
+            }
+            expectSuccess(response);
+            try {
+                Customer customer = readCustomer(response.getBodyBytes());
+                customerIndex.put(customer.getStripeCustomerId(), customer.getId());
+                return customer;
+            } catch (IOException e) {
+                throw new NetSuiteException("Unreadable NetSuite customer response: " + e.getMessage(), 0, false);
+            }
+        });
+    }
+
+    /**
+     * Read one page of customers that have a Stripe customer ID with a SuiteQL query.
+     */
+    @Override
+    public CustomerMappingPage getCustomerMappings(int offset, int limit) {
+        byte[] body = writeJson(generator -> generator.writeStringField("q",
+                "SELECT id, " + CUSTOMER_STRIPE_ID_FIELD + " FROM customer WHERE "
+                        + CUSTOMER_STRIPE_ID_FIELD + " IS NOT NULL ORDER BY id"));
+        String uri = baseUrl + SUITEQL_PATH + "?limit=" + limit + "&offset=" + offset;
+
+        SimpleHttpResponse response = send("POST suiteql", SimpleRequestBuilder.post(uri)
+                .addHeader("Prefer", "transient")
+                .setBody(body, ContentType.APPLICATION_JSON));
+        expectSuccess(response);
+        try {
+            return readCustomerMappings(response.getBodyBytes());
+        } catch (IOException e) {
+            throw new NetSuiteException("Unreadable SuiteQL response: " + e.getMessage(), 0, false);
+        }
+    }
+
+    @Override
+    public Order markOrderAsPaid(String stripePaymentIntentId) {
+        return await(markOrderAsPaidAsync(stripePaymentIntentId));
+    }
+
+    @Override
+    public CompletableFuture<Order> markOrderAsPaidAsync(String stripePaymentIntentId) {
+        return patchStatus("eid:" + stripePaymentIntentId, "paid").thenApply(order -> {
+            if (order != null) {
+                order.setStripePaymentId(stripePaymentIntentId);
+            }
+            return order;
+        });
+    }
+
+    /**
+     * Create all orders with one RESTlet call.
+     */
+    @Override
+    public List<NetSuiteWriteResult> createOrders(List<OrderDto> dtos) {
+        if (!netSuiteConfig.isRestletConfigured()) {
+            return NetSuiteService.super.createOrders(dtos);
+        }
+        List<Order> orders = new ArrayList<>(dtos.size());
+        for (OrderDto dto : dtos) {
+            orders.add(toOrder(dto));
+        }
+        List<NetSuiteWriteResult> results = callRestlet("createOrders", orders, (generator, order) -> {
+            generator.writeStartObject();
+            writeSalesOrderFields(generator, order);
+            generator.writeEndObject();
+        }, Order::setId);
+        logger.info("[NetSuite] action: createBatch, records: {}, failed: {}", orders.size(), countFailures(results));
+        return results;
+    }
+
+    /**
+     * Update all order statuses with one RESTlet call.
+     */
+    @Override
+    public List<NetSuiteWriteResult> updateOrderStatuses(List<OrderStatusUpdate> updates) {
+        if (!netSuiteConfig.isRestletConfigured()) {
+            return NetSuiteService.super.updateOrderStatuses(updates);
+        }
+        List<Order> orders = new ArrayList<>(updates.size());
+        for (OrderStatusUpdate update : updates) {
+            Order order = new Order();
+            order.setId(update.orderId());
+            order.setStatus(update.status());
+            orders.add(order);
+        }
+        List<NetSuiteWriteResult> results = callRestlet("updateOrderStatuses", orders, (generator, order) -> {
+            generator.writeStartObject();
+            generator.writeStringField("id", order.getId());
+            generator.writeStringField(STATUS_FIELD, order.getStatus());
+            generator.writeEndObject();
+        }, (order, id) -> { });
+        logger.info("[NetSuite] action: updateBatch, records: {}, failed: {}", orders.size(), countFailures(results));
+        return results;
+    }
+
+    /**
+     * Send records to the RESTlet in one request and map its per-record results.
+     * A failure of the request as a whole fails every record with the same error.
+     *
+     * @param onId applied to a record when the RESTlet reports its internal ID
+     */
+    private List<NetSuiteWriteResult> callRestlet(String action, List<Order> orders, RecordWriter recordWriter,
+                                                  BiConsumer<Order, String> onId) {
+        byte[] body = writeJson(generator -> {
+            generator.writeStringField("action", action);
+            generator.writeArrayFieldStart("records");
+            for (Order order : orders) {
+                recordWriter.write(generator, order);
+            }
+            generator.writeEndArray();
+        });
+
+        List<NetSuiteWriteResult> results = new ArrayList<>(orders.size());
+        SimpleHttpResponse response;
+        try {
+            response = send("POST restlet", SimpleRequestBuilder.post(restletUrl).setBody(body, ContentType.APPLICATION_JSON));
+            expectSuccess(response);
+        } catch (NetSuiteException e) {
+            logger.warn("[NetSuite] RESTlet {} failed for {} records: {}", action, orders.size(), e.getMessage());
+            for (int i = 0; i < orders.size(); i++) {
+                results.add(NetSuiteWriteResult.failure(e));
+            }
+            return results;
+        }
+
+        byte[] responseBody = response.getBodyBytes();
+        try (JsonParser parser = jsonFactory.createParser(responseBody != null ? responseBody : new byte[0])) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("RESTlet response is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (!"results".equals(field) || value != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    results.add(readRestletResult(parser, results.size() < orders.size() ? orders.get(results.size()) : null, onId));
+                }
+            }
+        } catch (IOException e) {
+            throw new NetSuiteException("Unreadable RESTlet response for " + action + ": " + e.getMessage(), 0, false);
+        }
+
+        if (results.size() > orders.size()) {
+            results.subList(orders.size(), results.size()).clear();
+        }
+        while (results.size() < orders.size()) {
+            // The RESTlet stopped early, e.g. on its governance limit; the record may or may not be written
+            results.add(NetSuiteWriteResult.failure("No result from RESTlet for this record", 0, false));
+        }
+        return results;
+    }
+
+    private NetSuiteWriteResult readRestletResult(JsonParser parser, Order order,
+                                                  BiConsumer<Order, String> onId) throws IOException {
+        String id = null;
+        String error = null;
+        boolean retryable = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> id = parser.getValueAsString();
+                case "error" -> error = parser.getValueAsString();
+                case "retryable" -> retryable = parser.getValueAsBoolean();
+                default -> parser.skipChildren();
+            }
+        }
+        if (order == null) {
+            return NetSuiteWriteResult.failure("Unexpected RESTlet result", 0, false);
+        }
+        if (error != null) {
+            return NetSuiteWriteResult.failure(error, 0, retryable);
+        }
+        if (id != null) {
+            onId.accept(order, id);
+        }
+        return NetSuiteWriteResult.success(order);
+    }
+
+    private static long countFailures(List<NetSuiteWriteResult> results) {
+        return results.stream().filter(result -> !result.isSuccess()).count();
+    }
+
+    private static Order toOrder(OrderDto dto) {
+        Order order = new Order();
+        order.setStatus(dto.getStatus() != null ? dto.getStatus() : "pending");
+        order.setAmount(dto.getAmount());
+        order.setCurrency(dto.getCurrency() != null ? dto.getCurrency() : "usd");
+        order.setStripePaymentId(dto.getStripePaymentId());
+        order.setDescription(dto.getDescription());
+        order.setCustomerId(dto.getStripeCustomerId());
+        return order;
+    }
+
+    private void writeSalesOrderFields(JsonGenerator generator, Order order) throws IOException {
+        if (order.getStripePaymentId() != null) {
+            generator.writeStringField("externalId", order.getStripePaymentId());
+        }
+        if (order.getCustomerId() != null) {
+            String internalId = customerIndex.get(order.getCustomerId());
+            generator.writeObjectFieldStart("entity");
+            if (internalId != null) {
+                generator.writeStringField("id", internalId);
+            } else {
+                generator.writeStringField("externalId", order.getCustomerId());
+            }
+            generator.writeEndObject();
+        }
+        if (order.getDescription() != null) {
+            generator.writeStringField("memo", order.getDescription());
+        }
+        if (order.getAmount() != null) {
+            generator.writeNumberField(AMOUNT_FIELD, order.getAmount());
+        }
+        generator.writeStringField(STATUS_FIELD, order.getStatus());
+    }
+
+    /**
+     * Create a sales order and read its internal ID from the Location header.
+     * If NetSuite rejects it and a sales order with its externalId exists, an earlier
+     * attempt or event created it: that order is set to the requested status and returned.
+     */
+    private CompletableFuture<Order> insertSalesOrder(Order order) {
+        byte[] body;
+        try {
+            body = writeJson(generator -> writeSalesOrderFields(generator, order));
+        } catch (NetSuiteException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return sendAsync("POST salesOrder", SimpleRequestBuilder.post(recordUrl("salesOrder"))
+                .setBody(body, ContentType.APPLICATION_JSON)).thenCompose(response -> {
+            if (response.getCode() == 400 && order.getStripePaymentId() != null) {
+                return findSalesOrderId(order.getStripePaymentId()).thenCompose(existingId -> {
+                    if (existingId == null) {
+                        expectSuccess(response);
+                    }
+                    logger.info("[NetSuite] action: create, orderId: {}, stripePaymentId: {} - ALREADY EXISTS",
+                            existingId, order.getStripePaymentId());
+                    return patchStatus(existingId, order.getStatus()).thenApply(updated -> {
+                        if (updated == null) {
+                            // Deleted since it was found
+                            expectSuccess(response);
+                        }
+                        order.setId(existingId);
+                        return order;
+                    });
+                });
+            }
+            expectSuccess(response);
+
+            Header location = response.getFirstHeader(HttpHeaders.LOCATION);
+            if (location == null) {
+                throw new NetSuiteException("NetSuite created the sales order without a Location header", response.getCode(), false);
+            }
+            String value = location.getValue();
+            order.setId(value.substring(value.lastIndexOf('/') + 1));
+
+            logger.info("[NetSuite] action: create, orderId: {}, stripePaymentId: {}, amount: {}, currency: {}, status: {}",
+                    order.getId(), order.getStripePaymentId(), order.getAmount(), order.getCurrency(), order.getStatus());
+            return CompletableFuture.completedFuture(order);
+        });
+    }
+
+    /**
+     * Get the internal ID of the sales order with the given externalId.
+     *
+     * @return the internal ID, or null if there is no such sales order
+     */
+    private CompletableFuture<String> findSalesOrderId(String externalId) {
+        String uri = recordUrl("salesOrder/" + encodePathSegment("eid:" + externalId)) + "?fields=externalId";
+        return sendAsync("GET salesOrder", SimpleRequestBuilder.get(uri)).thenApply(response -> {
+            if (response.getCode() == 404) {
+                return null;
+            }
+            expectSuccess(response);
+            try (JsonParser parser = jsonFactory.createParser(response.getBodyBytes())) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new IOException("Sales order response is not a JSON object");
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    if ("id".equals(field)) {
+                        return parser.getValueAsString();
+                    }
+                    parser.skipChildren();
+                }
+                throw new IOException("Sales order response has no id");
+            } catch (IOException e) {
+                throw new NetSuiteException("Unreadable NetSuite sales order response: " + e.getMessage(), 0, false);
+            }
+        });
+    }
+
+    /**
+     * Update the Stripe status field of a sales order.
+     *
+     * @param recordId internal ID, or {@code eid:<externalId>}
+     * @return the order with ID and status, or null if the sales order does not exist
+     */
+    private CompletableFuture<Order> patchStatus(String recordId, String status) {
+        byte[] body;
+        try {
+            body = writeJson(generator -> generator.writeStringField(STATUS_FIELD, status));
+        } catch (NetSuiteException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return sendAsync("PATCH salesOrder", SimpleRequestBuilder.patch(recordUrl("salesOrder/" + encodePathSegment(recordId)))
+                .setBody(body, ContentType.APPLICATION_JSON)).thenApply(response -> {
+            if (response.getCode() == 404) {
+                logger.warn("[NetSuite] action: update, orderId: {} - NOT FOUND", recordId);
+                return null;
+            }
+            expectSuccess(response);
+
+            Order order = new Order();
+            order.setId(recordId.startsWith("eid:") ? null : recordId);
+            order.setStatus(status);
+            logger.info("[NetSuite] action: update, orderId: {}, newStatus: {}", recordId, status);
+            return order;
+        });
+    }
+
+    private CustomerMappingPage readCustomerMappings(byte[] body) throws IOException {
+        List<CustomerMapping> mappings = new ArrayList<>();
+        boolean hasMore = false;
+        try (JsonParser parser = jsonFactory.createParser(body != null ? body : new byte[0])) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("SuiteQL response is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("hasMore".equals(field)) {
+                    hasMore = parser.getValueAsBoolean();
+                } else if ("items".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        String id = null;
+                        String stripeCustomerId = null;
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String itemField = parser.currentName();
+                            parser.nextToken();
+                            switch (itemField) {
+                                case "id" -> id = parser.getValueAsString();
+                                case CUSTOMER_STRIPE_ID_FIELD -> stripeCustomerId = parser.getValueAsString();
+                                default -> parser.skipChildren();
+                            }
+                        }
+                        if (id != null && stripeCustomerId != null) {
+                            mappings.add(new CustomerMapping(stripeCustomerId, id));
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new CustomerMappingPage(mappings, hasMore);
+    }
+
+    private Customer readCustomer(byte[] body) throws IOException {
+        Customer customer = new Customer();
+        String entityId = null;
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Customer response is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "id" -> customer.setId(parser.getValueAsString());
+                    case "companyName" -> customer.setName(parser.getValueAsString());
+                    case "entityId" -> entityId = parser.getValueAsString();
+                    case "email" -> customer.setEmail(parser.getValueAsString());
+                    case CUSTOMER_STRIPE_ID_FIELD -> customer.setStripeCustomerId(parser.getValueAsString());
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        if (customer.getName() == null) {
+            customer.setName(entityId);
+        }
+        return customer;
+    }
+
+    /**
+     * Sign and send a request, waiting for the response.
+     *
+     * @throws NetSuiteException if no response was received in time
+     */
+    private SimpleHttpResponse send(String endpoint, SimpleRequestBuilder builder) {
+        return await(sendAsync(endpoint, builder));
+    }
+
+    /**
+     * Sign and send a request without blocking the caller, once the limiter has a free
+     * slot and the endpoint's circuit breaker lets it through.
+     *
+     * @param endpoint the circuit breaker key, e.g. {@code POST salesOrder}
+     * @return completed with the response, or exceptionally with a {@link NetSuiteException}
+     *         if no slot became free, the circuit is open or no response was received in time
+     */
+    private CompletableFuture<SimpleHttpResponse> sendAsync(String endpoint, SimpleRequestBuilder builder) {
+        builder.setHeader(HttpHeaders.ACCEPT, "application/json");
+        SimpleHttpRequest request = builder.build();
+        try {
+            request.setHeader(HttpHeaders.AUTHORIZATION, requestSigner.authorizationHeader(request.getMethod(), request.getUri()));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(
+                    new NetSuiteException("Failed to sign NetSuite request: " + e.getMessage(), 0, false));
+        }
+
+        long waitMillis = httpConfig.getConnectTimeoutMillis() + httpConfig.getResponseTimeoutMillis();
+        return limiter.acquire()
+                .thenCompose(permit -> {
+                    boolean trial;
+                    try {
+                        trial = breakers.acquire(endpoint);
+                    } catch (NetSuiteException e) {
+                        permit.release(NetSuiteConcurrencyLimiter.Signal.IGNORED);
+                        return CompletableFuture.failedFuture(e);
+                    }
+                    return execute(request)
+                            .orTimeout(waitMillis, TimeUnit.MILLISECONDS)
+                            .whenComplete((response, error) -> {
+                                permit.release(limiterSignal(response, error));
+                                breakers.record(endpoint, trial, isAvailabilityFailure(response));
+                            });
+                })
+                .handle((response, error) -> {
+                    if (error == null) {
+                        return response;
+                    }
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (cause instanceof NetSuiteException netSuiteException) {
+                        throw netSuiteException;
+                    }
+                    if (cause instanceof TimeoutException) {
+                        throw new NetSuiteException(request.getMethod() + " " + request.getRequestUri()
+                                + " timed out after " + waitMillis + " ms", cause);
+                    }
+                    throw new NetSuiteException(request.getMethod() + " " + request.getRequestUri() + " failed: " + cause, cause);
+                });
+    }
+
+    /**
+     * Classify a finished request for the limiter: 429 and 503 are NetSuite shedding
+     * load, timeouts mean it is too slow to answer; other errors say nothing about load.
+     */
+    private static NetSuiteConcurrencyLimiter.Signal limiterSignal(SimpleHttpResponse response, Throwable error) {
+        if (response != null) {
+            int code = response.getCode();
+            return code == 429 || code == 503
+                    ? NetSuiteConcurrencyLimiter.Signal.DROPPED
+                    : NetSuiteConcurrencyLimiter.Signal.SUCCESS;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof TimeoutException || cause instanceof SocketTimeoutException
+                ? NetSuiteConcurrencyLimiter.Signal.DROPPED
+                : NetSuiteConcurrencyLimiter.Signal.IGNORED;
+    }
+
+    /**
+     * Classify a finished request for the circuit breaker: no response, 429 and 5xx
+     * count against the endpoint, any other response means it is up.
+     */
+    private static boolean isAvailabilityFailure(SimpleHttpResponse response) {
+        return response == null || response.getCode() == 429 || response.getCode() >= 500;
+    }
+
+    /**
+     * Wait for a future of this client, rethrowing its {@link NetSuiteException} unwrapped.
+     */
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new NetSuiteException(String.valueOf(cause.getMessage()), cause);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new NetSuiteException("Interrupted waiting for NetSuite", e);
+        }
+    }
+
+    /**
+     * Send a signed request without blocking the caller.
+     */
+    private CompletableFuture<SimpleHttpResponse> execute(SimpleHttpRequest request) {
+        long start = System.nanoTime();
+        requests.increment();
+        CompletableFuture<SimpleHttpResponse> future = new CompletableFuture<>();
+        httpClient.execute(request, new FutureCallback<>() {
+            @Override
+            public void completed(SimpleHttpResponse response) {
+                requestNanos.add(System.nanoTime() - start);
+                if (response.getCode() >= 400) {
+                    failures.increment();
+                }
+                future.complete(response);
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                requestNanos.add(System.nanoTime() - start);
+                failures.increment();
+                future.completeExceptionally(ex);
+            }
+
+            @Override
+            public void cancelled() {
+                failures.increment();
+                future.cancel(false);
+            }
+        });
+        return future;
+    }
+
+    private void expectSuccess(SimpleHttpResponse response) {
+        if (response.getCode() >= 200 && response.getCode() < 300) {
+            return;
+        }
+        throw NetSuiteException.forStatus(response.getCode(), errorDetail(response), retryAfterMillis(response));
+    }
+
+    /**
+     * Get the delay-seconds form of the Retry-After header in milliseconds, 0 if absent.
+     */
+    private static long retryAfterMillis(SimpleHttpResponse response) {
+        Header retryAfter = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+        if (retryAfter == null) {
+            return 0;
+        }
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(retryAfter.getValue().trim())));
+        } catch (NumberFormatException e) {
+            // HTTP-date form, not used by NetSuite
+            return 0;
+        }
+    }
+
+    /**
+     * Get the first {@code o:errorDetails[].detail} of a NetSuite error response,
+     * or the start of the raw body if it is not in that format.
+     */
+    private String errorDetail(SimpleHttpResponse response) {
+        byte[] body = response.getBodyBytes();
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.FIELD_NAME && "detail".equals(parser.currentName())) {
+                    parser.nextToken();
+                    return parser.getValueAsString();
+                }
+            }
+        } catch (IOException e) {
+            // Not JSON, fall through to the raw body
+        }
+        String text = new String(body, StandardCharsets.UTF_8);
+        return text.length() > MAX_ERROR_DETAIL_CHARS ? text.substring(0, MAX_ERROR_DETAIL_CHARS) : text;
+    }
+
+    private static String encodePathSegment(String value) {
+        return NetSuiteRequestSigner.percentEncode(value).replace("%3A", ":");
+    }
+
+    private String recordUrl(String path) {
+        return baseUrl + RECORD_PATH + path;
+    }
+
+    private byte[] writeJson(JsonBody body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            generator.writeStartObject();
+            body.write(generator);
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new NetSuiteException("Failed to write NetSuite request body: " + e.getMessage(), 0, false);
+        }
+        return out.toByteArray();
+    }
+
+    private static String restletUrl(NetSuiteConfig config) {
+        String url = config.getRestletUrl();
+        if (url == null || url.isBlank()) {
+            String host = config.getAccountId() == null ? "" : config.getAccountId().toLowerCase().replace('_', '-');
+            url = "https://" + host + ".restlets.api.netsuite.com/app/site/hosting/restlet.nl";
+        }
+        return url + (url.contains("?") ? "&" : "?") + "script=" + config.getRestletScriptId()
+                + "&deploy=" + config.getRestletDeploymentId();
+    }
+
+    private static String stripTrailingSlash(String url) {
+        if (url == null) {
+            return "";
+        }
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /**
+     * Get request counts, latency and connection pool figures.
+     *
+     * @return map of metric name to value
+     */
+    public Map<String, Object> getStats() {
+        long total = requests.sum();
+        PoolStats pool = connectionManager.getTotalStats();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", total);
+        stats.put("failures", failures.sum());
+        stats.put("avgLatencyMillis", total == 0 ? 0 : requestNanos.sum() / total / 1_000_000);
+        stats.put("poolLeased", pool.getLeased());
+        stats.put("poolAvailable", pool.getAvailable());
+        stats.put("poolPending", pool.getPending());
+        stats.put("poolMax", pool.getMax());
+        return stats;
+    }
+
+    /**
+     * Close pooled connections and stop the I/O reactor.
+     */
+    @PreDestroy
+    public void shutdown() {
+        httpClient.close(CloseMode.GRACEFUL);
+    }
+
+    @FunctionalInterface
+    private interface JsonBody {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(JsonGenerator generator, Order order) throws IOException;
+    }
+}
@@ -0,0 +1,185 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.handler.ProjectionEventHandler;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.handler.StripeEventHandler;
+import com.stripe.param.WebhookEndpointCreateParams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable event type to handler routing table, built once at startup from
+ * the {@link StripeEventHandler#getSupportedEventTypes()} of all handler beans.
+ *
+ * Startup fails if two handlers claim the same event type. Lookups are a single
+ * map access; event types without a handler are counted so they show up in
+ * {@link #getDiagnostics()} instead of being logged on every delivery.
+ *
+ * Supported types are also checked against the event types the Stripe SDK knows
+ * about, so routes that can never match a real Stripe event are reported.
+ *
+ * A type is routed to the projection only if its handler is a
+ * {@link ProjectionEventHandler} that opts out of the Stripe object for it;
+ * otherwise it gets the materialized object.
+ */
+@Component
+public class StripeEventHandlerRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeEventHandlerRegistry.class);
+
+    /**
+     * Upper bound on distinct unknown event types tracked individually.
+     */
+    private static final int MAX_TRACKED_UNKNOWN_TYPES = 100;
+
+    private static final Set<String> STRIPE_EVENT_TYPES = Arrays.stream(
+                    WebhookEndpointCreateParams.EnabledEvent.values())
+            .map(WebhookEndpointCreateParams.EnabledEvent::getValue)
+            .collect(Collectors.toUnmodifiableSet());
+
+    private final Map<String, Route> routes;
+    private final Map<String, LongAdder> unknownTypes = new ConcurrentHashMap<>();
+    private final LongAdder unknownTotal = new LongAdder();
+
+    public StripeEventHandlerRegistry(List<StripeEventHandler> handlers) {
+        Map<String, Route> table = new HashMap<>();
+        for (StripeEventHandler handler : handlers) {
+            for (String eventType : handler.getSupportedEventTypes()) {
+                boolean projected = handler instanceof ProjectionEventHandler projectionHandler
+                        && !projectionHandler.requiresStripeObject(eventType);
+                Route existing = table.putIfAbsent(eventType,
+                        new Route(handler, STRIPE_EVENT_TYPES.contains(eventType), projected));
+                if (existing != null) {
+                    throw new IllegalStateException("Event type " + eventType + " is claimed by both "
+                            + existing.handler.getClass().getSimpleName() + " and "
+                            + handler.getClass().getSimpleName());
+                }
+            }
+        }
+        this.routes = Map.copyOf(table);
+
+        List<String> unroutable = getUnroutableTypes();
+        if (!unroutable.isEmpty()) {
+            logger.warn("Handlers declare event types that Stripe never sends: {}", unroutable);
+        }
+        logger.info("Event handler registry built: {} event types across {} handlers", routes.size(), handlers.size());
+    }
+
+    /**
+     * Find the handler for an event type.
+     *
+     * @param eventType the Stripe event type
+     * @return the handler, or null if no handler is registered for the type
+     */
+    public StripeEventHandler find(String eventType) {
+        Route route = eventType == null ? null : routes.get(eventType);
+        if (route == null) {
+            recordUnknown(eventType);
+            return null;
+        }
+        route.hits.increment();
+        return route.handler;
+    }
+
+    /**
+     * Check whether an event type is handled from its projection rather than the
+     * materialized Stripe object.
+     *
+     * @param eventType the Stripe event type
+     * @return true to call {@link ProjectionEventHandler#handleProjectionAsync}
+     */
+    public boolean isProjected(String eventType) {
+        Route route = eventType == null ? null : routes.get(eventType);
+        return route != null && route.projected;
+    }
+
+    private void recordUnknown(String eventType) {
+        unknownTotal.increment();
+        String key = eventType == null ? "<none>" : eventType;
+        LongAdder counter = unknownTypes.get(key);
+        if (counter == null) {
+            if (unknownTypes.size() >= MAX_TRACKED_UNKNOWN_TYPES) {
+                return;
+            }
+            counter = unknownTypes.computeIfAbsent(key, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * Get the supported event types that do not match any Stripe event type.
+     */
+    private List<String> getUnroutableTypes() {
+        return routes.entrySet().stream()
+                .filter(entry -> !entry.getValue().knownToStripe)
+                .map(Map.Entry::getKey)
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Get the routing table with hit counts, types Stripe never sends, and
+     * event types that arrived without a handler.
+     *
+     * @return map of diagnostic name to value
+     */
+    public Map<String, Object> getDiagnostics() {
+        Map<String, Object> routeView = new TreeMap<>();
+        routes.forEach((eventType, route) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("handler", route.handler.getClass().getSimpleName());
+            entry.put("hits", route.hits.sum());
+            entry.put("stripeEventType", route.knownToStripe);
+            entry.put("projected", route.projected);
+            routeView.put(eventType, entry);
+        });
+
+        Map<String, Long> unknownView = new TreeMap<>();
+        unknownTypes.forEach((eventType, count) -> unknownView.put(eventType, count.sum()));
+
+        List<String> neverRouted = new ArrayList<>();
+        routes.forEach((eventType, route) -> {
+            if (route.hits.sum() == 0) {
+                neverRouted.add(eventType);
+            }
+        });
+        neverRouted.sort(null);
+
+        Map<String, Object> diagnostics = new LinkedHashMap<>();
+        diagnostics.put("routes", routeView);
+        diagnostics.put("unroutableTypes", getUnroutableTypes());
+        diagnostics.put("neverRouted", neverRouted);
+        diagnostics.put("unknownTypes", unknownView);
+        diagnostics.put("unknownTotal", unknownTotal.sum());
+        return diagnostics;
+    }
+
+    /**
+     * A handler registration with its hit counter.
+     */
+    private static final class Route {
+
+        private final StripeEventHandler handler;
+        private final boolean knownToStripe;
+        private final boolean projected;
+        private final LongAdder hits = new LongAdder();
+
+        private Route(StripeEventHandler handler, boolean knownToStripe, boolean projected) {
+            this.handler = handler;
+            this.knownToStripe = knownToStripe;
+            this.projected = projected;
+        }
+    }
+}
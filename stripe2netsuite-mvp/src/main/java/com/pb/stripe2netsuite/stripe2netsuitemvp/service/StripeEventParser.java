@@ -1,72 +1,110 @@
 package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.stripe.exception.SignatureVerificationException;
-import com.stripe.model.Event;
-import com.stripe.net.Webhook;
 import com.pb.stripe2netsuite.stripe2netsuitemvp.config.StripeWebhookConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.EventProjection;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.InboundEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.util.Arrays;
+
 /**
  * Service responsible for parsing and verifying Stripe webhook events.
  * Handles signature verification and event deserialization.
+ *
+ * Works directly on the raw payload bytes: the signature is checked by
+ * {@link StripeSignatureVerifier} over the request buffer, and a single
+ * streaming pass over the same buffer extracts the event ID, type and the
+ * {@link EventProjection} of the data object. The full stripe-java model is
+ * only built later, by handlers that need it (see {@link InboundEvent#getStripeEvent()}).
  */
 @Service
 public class StripeEventParser {
 
     private static final Logger logger = LoggerFactory.getLogger(StripeEventParser.class);
 
-    private final ObjectMapper objectMapper;
+    private final JsonFactory jsonFactory;
     private final StripeWebhookConfig webhookConfig;
+    private final StripeSignatureVerifier signatureVerifier;
 
-    public StripeEventParser(ObjectMapper objectMapper, StripeWebhookConfig webhookConfig) {
-        this.objectMapper = objectMapper;
+    public StripeEventParser(ObjectMapper objectMapper, StripeWebhookConfig webhookConfig,
+                             StripeSignatureVerifier signatureVerifier) {
+        this.jsonFactory = objectMapper.getFactory();
         this.webhookConfig = webhookConfig;
+        this.signatureVerifier = signatureVerifier;
     }
 
     /**
      * Parse and verify the Stripe event.
-     * 
-     * @param payload the raw request body
+     *
+     * @param payload buffer holding the raw request body
+     * @param length number of valid bytes in the buffer
      * @param signatureHeader the Stripe-Signature header
-     * @return the parsed Event, or null if parsing/verification fails
+     * @return the parsed event, or null if parsing/verification fails
      */
-    public Event parseEvent(String payload, String signatureHeader) {
-        if (webhookConfig.isVerifySignature() && hasValidSecret()) {
-            return parseEventWithVerification(payload, signatureHeader);
+    public InboundEvent parseEvent(byte[] payload, int length, String signatureHeader) {
+        if (webhookConfig.isVerifySignature() && signatureVerifier.hasSecrets()) {
+            return parseEventWithVerification(payload, length, signatureHeader);
         } else {
-            return parseEventWithoutVerification(payload);
+            return parseEventWithoutVerification(payload, length);
         }
     }
 
     /**
-     * Check if webhook secret is configured.
+     * Parse a payload that was already verified, e.g. when replaying the webhook journal.
+     *
+     * @param payload the raw verified payload, owned by the returned event
+     * @return the parsed event, or null if the payload cannot be parsed
      */
-    private boolean hasValidSecret() {
-        return webhookConfig.getSecret() != null && !webhookConfig.getSecret().isEmpty();
+    public InboundEvent parseTrustedPayload(byte[] payload) {
+        try {
+            return project(payload, payload.length, false);
+        } catch (Exception e) {
+            logger.error("Failed to parse trusted payload as Event", e);
+            return null;
+        }
+    }
+
+    /**
+     * Parse one event of an authenticated bulk import. Imported events carry no
+     * Stripe-Signature, the caller is authenticated by the import endpoint instead.
+     *
+     * @param payload buffer holding one NDJSON line, reused by the caller
+     * @param length number of valid bytes in the buffer
+     * @return the parsed event, or null if the line is not a Stripe event
+     */
+    public InboundEvent parseImportedEvent(byte[] payload, int length) {
+        try {
+            return project(payload, length, true);
+        } catch (Exception e) {
+            logger.warn("Failed to parse imported event: {}", e.getMessage());
+            return null;
+        }
     }
 
     /**
      * Parse event with signature verification.
      */
-    private Event parseEventWithVerification(String payload, String signatureHeader) {
-        if (signatureHeader == null || signatureHeader.isEmpty()) {
-            logger.warn("Stripe-Signature header is missing");
-            logger.warn("Available headers: check request headers");
+    private InboundEvent parseEventWithVerification(byte[] payload, int length, String signatureHeader) {
+        StripeSignatureVerifier.Result result = signatureVerifier.verify(payload, length, signatureHeader);
+        if (result != StripeSignatureVerifier.Result.VALID) {
+            logger.error("Failed to verify Stripe webhook signature: {}", result);
             return null;
         }
 
-        logger.debug("Signature header received: {}", signatureHeader.substring(0, Math.min(50, signatureHeader.length())) + "...");
-        
         try {
-            Event event = Webhook.constructEvent(payload, signatureHeader, webhookConfig.getSecret());
+            InboundEvent event = project(payload, length, true);
             logger.info("Successfully verified webhook signature. Event type: {}", event.getType());
             return event;
-        } catch (SignatureVerificationException e) {
-            logger.error("Failed to verify Stripe webhook signature: {}", e.getMessage());
-            logger.error("Webhook secret configured: {}", webhookConfig.getSecret() != null && !webhookConfig.getSecret().isEmpty());
+        } catch (Exception e) {
+            logger.error("Failed to parse verified webhook payload as Event", e);
             return null;
         }
     }
@@ -74,9 +112,9 @@ public class StripeEventParser {
     /**
      * Parse event without signature verification (for testing only).
      */
-    private Event parseEventWithoutVerification(String payload) {
+    private InboundEvent parseEventWithoutVerification(byte[] payload, int length) {
         try {
-            Event event = objectMapper.readValue(payload, Event.class);
+            InboundEvent event = project(payload, length, true);
             logger.warn("Webhook received WITHOUT signature verification. Event type: {}", event.getType());
             return event;
         } catch (Exception e) {
@@ -84,5 +122,137 @@ public class StripeEventParser {
             return null;
         }
     }
-}
 
+    /**
+     * Extract the event ID, type and data object projection in one streaming pass.
+     * Everything else in the payload is skipped without being materialized.
+     *
+     * @param copy whether the payload buffer must be copied (it is pooled or oversized)
+     */
+    private InboundEvent project(byte[] payload, int length, boolean copy) throws IOException {
+        String id = null;
+        String type = null;
+        EventProjection projection = null;
+
+        try (JsonParser parser = jsonFactory.createParser(payload, 0, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Webhook payload is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "id" -> id = readString(parser);
+                    case "type" -> type = readString(parser);
+                    case "data" -> projection = readData(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+            if (id == null || type == null) {
+                throw new JsonParseException(parser, "Webhook payload has no event id or type");
+            }
+        }
+
+        byte[] owned = copy || length != payload.length ? Arrays.copyOf(payload, length) : payload;
+        return new InboundEvent(id, type, projection, owned);
+    }
+
+    /**
+     * Read the {@code data} member and project its {@code object}.
+     */
+    private EventProjection readData(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        EventProjection projection = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("object".equals(field) && value == JsonToken.START_OBJECT) {
+                projection = readObject(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return projection;
+    }
+
+    /**
+     * Read the projected fields of {@code data.object}.
+     */
+    private EventProjection readObject(JsonParser parser) throws IOException {
+        String id = null;
+        String object = null;
+        Long amount = null;
+        Long total = null;
+        String currency = null;
+        String customer = null;
+        String status = null;
+        String orderId = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id" -> id = readString(parser);
+                case "object" -> object = readString(parser);
+                case "amount" -> amount = readLong(parser);
+                case "total" -> total = readLong(parser);
+                case "currency" -> currency = readString(parser);
+                case "customer" -> customer = value == JsonToken.START_OBJECT
+                        ? readStringField(parser, "id")
+                        : readString(parser);
+                case "status" -> status = readString(parser);
+                case "metadata" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        orderId = readStringField(parser, "orderId");
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return new EventProjection(id, object, amount != null ? amount : total, currency, customer, status, orderId);
+    }
+
+    /**
+     * Read one string member of the current object and skip the rest of it.
+     */
+    private static String readStringField(JsonParser parser, String name) throws IOException {
+        String result = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if (name.equals(field)) {
+                result = readString(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Read the current value as a string, or skip it and return null if it is an object or array.
+     */
+    private static String readString(JsonParser parser) throws IOException {
+        if (parser.currentToken().isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getValueAsString();
+    }
+
+    /**
+     * Read the current value if it is an integer, or skip it and return null.
+     */
+    private static Long readLong(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        parser.skipChildren();
+        return null;
+    }
+}
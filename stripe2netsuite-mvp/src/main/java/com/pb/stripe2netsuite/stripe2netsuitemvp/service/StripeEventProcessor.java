@@ -3,56 +3,145 @@ package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
 import com.stripe.model.Event;
 import com.stripe.model.EventDataObjectDeserializer;
 import com.stripe.model.StripeObject;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.handler.ProjectionEventHandler;
 import com.pb.stripe2netsuite.stripe2netsuitemvp.handler.StripeEventHandler;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.InboundEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Service responsible for processing Stripe webhook events.
- * Routes events to the appropriate handler based on event type.
+ * Routes events to the appropriate handler based on event type,
+ * using the routing table of {@link StripeEventHandlerRegistry}.
+ *
+ * Redeliveries of an already processed event are dropped by {@link EventDeduplicator}
+ * before anything else happens. Handlers that only need the event projection get
+ * it directly; the full stripe-java object is deserialized only for handlers that
+ * require it.
+ *
+ * {@link #processEventAsync} does not wait for the handler: it returns once the
+ * handler has started its NetSuite requests, so a few threads can keep many
+ * events in flight.
  */
 @Service
 public class StripeEventProcessor {
 
     private static final Logger logger = LoggerFactory.getLogger(StripeEventProcessor.class);
 
-    private final List<StripeEventHandler> handlers;
+    /**
+     * Result of processing one event.
+     */
+    public enum Outcome {
+        /** The handler ran. */
+        PROCESSED,
+        /** A redelivery of an event that was already processed or is in flight. */
+        DUPLICATE,
+        /** No handler is registered for the event type. */
+        NO_HANDLER,
+        /** The event has no usable data object. */
+        INVALID,
+        /** The handler threw; set by the caller that caught the exception. */
+        FAILED
+    }
 
-    public StripeEventProcessor(List<StripeEventHandler> handlers) {
-        this.handlers = handlers;
+    private final StripeEventHandlerRegistry handlerRegistry;
+    private final EventDeduplicator deduplicator;
+
+    public StripeEventProcessor(StripeEventHandlerRegistry handlerRegistry, EventDeduplicator deduplicator) {
+        this.handlerRegistry = handlerRegistry;
+        this.deduplicator = deduplicator;
     }
 
     /**
      * Process a Stripe event by routing it to the appropriate handler.
      * 
      * @param event the Stripe event to process
+     * @return the outcome; handler exceptions are propagated
      */
-    public void processEvent(Event event) {
+    public Outcome processEvent(InboundEvent event) {
+        CompletableFuture<Outcome> outcome = processEventAsync(event);
+        try {
+            return outcome.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Process a Stripe event without waiting for its handler's NetSuite calls.
+     *
+     * @param event the Stripe event to process
+     * @return completed with the outcome once the handler is done, or exceptionally
+     *         with the handler's exception
+     */
+    public CompletableFuture<Outcome> processEventAsync(InboundEvent event) {
         String eventType = event.getType();
         String eventId = event.getId();
         
+        if (!deduplicator.tryAcquire(eventId)) {
+            logger.info("Dropping duplicate delivery of event type: {}, eventId: {}", eventType, eventId);
+            return CompletableFuture.completedFuture(Outcome.DUPLICATE);
+        }
+
         logger.info("Processing event type: {}, eventId: {}", eventType, eventId);
 
+        CompletableFuture<Outcome> outcome;
+        try {
+            outcome = dispatch(event);
+        } catch (RuntimeException e) {
+            outcome = CompletableFuture.failedFuture(e);
+        }
+        return outcome.whenComplete((result, error) -> {
+            if (error != null) {
+                // Let a redelivery or journal replay process the event again
+                deduplicator.release(eventId);
+            } else {
+                deduplicator.complete(eventId);
+            }
+        });
+    }
+
+    /**
+     * Route an accepted event to its handler.
+     */
+    private CompletableFuture<Outcome> dispatch(InboundEvent event) {
+        String eventType = event.getType();
+        String eventId = event.getId();
+
+        // Find the handler first: unknown types are counted by the registry and skip deserialization
+        StripeEventHandler handler = handlerRegistry.find(eventType);
+        if (handler == null) {
+            logger.debug("No handler found for event type: {}", eventType);
+            return CompletableFuture.completedFuture(Outcome.NO_HANDLER);
+        }
+
+        if (handlerRegistry.isProjected(eventType) && handler instanceof ProjectionEventHandler projectionHandler) {
+            if (event.getProjection() == null) {
+                logger.error("Event {} of type {} has no data object", eventId, eventType);
+                return CompletableFuture.completedFuture(Outcome.INVALID);
+            }
+            return projectionHandler.handleProjectionAsync(eventType, eventId, event.getProjection())
+                    .thenApply(ignored -> Outcome.PROCESSED);
+        }
+
         // Deserialize the Stripe object from the event
-        StripeObject stripeObject = deserializeEventData(event);
-        
+        StripeObject stripeObject = deserializeEventData(event.getStripeEvent());
+
         if (stripeObject == null) {
             logger.error("Failed to deserialize event data for event type: {}", eventType);
-            return;
+            return CompletableFuture.completedFuture(Outcome.INVALID);
         }
 
-        // Find and execute the appropriate handler
-        StripeEventHandler handler = findHandler(eventType);
-        
-        if (handler != null) {
-            logger.debug("Routing event {} to handler {}", eventType, handler.getClass().getSimpleName());
-            handler.handle(eventType, eventId, stripeObject);
-        } else {
-            logger.warn("No handler found for event type: {}", eventType);
-        }
+        return handler.handleAsync(eventType, eventId, stripeObject)
+                .thenApply(ignored -> Outcome.PROCESSED);
     }
 
     /**
@@ -67,8 +156,9 @@ public class StripeEventProcessor {
                 event.getDataObjectDeserializer();
 
         // First try safe deserialization
-        if (deserializer.getObject().isPresent()) {
-            return deserializer.getObject().get();
+        Optional<StripeObject> object = deserializer.getObject();
+        if (object.isPresent()) {
+            return object.get();
         }
 
         logger.warn("Safe deserialization failed for event type: {}. Trying unsafe deserialization.",
@@ -83,26 +173,4 @@ public class StripeEventProcessor {
             return null;
         }
     }
-    /**
-     * Find the appropriate handler for the given event type.
-     * 
-     * @param eventType the Stripe event type
-     * @return the handler, or null if no handler is found
-     */
-    private StripeEventHandler findHandler(String eventType) {
-        logger.debug("Looking for handler for event type: {}", eventType);
-        logger.debug("Available handlers: {}", handlers.stream()
-                .map(h -> h.getClass().getSimpleName())
-                .toList());
-        
-        for (StripeEventHandler handler : handlers) {
-            logger.debug("Checking handler {} for event type {}: canHandle={}", 
-                handler.getClass().getSimpleName(), eventType, handler.canHandle(eventType));
-            if (handler.canHandle(eventType)) {
-                return handler;
-            }
-        }
-        return null;
-    }
 }
-
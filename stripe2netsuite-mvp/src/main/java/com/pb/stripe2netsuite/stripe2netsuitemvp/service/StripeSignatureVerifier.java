@@ -0,0 +1,270 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.StripeWebhookConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Verifies Stripe-Signature headers against raw webhook payload bytes.
+ *
+ * Every request thread keeps one pre-keyed {@link Mac} per configured secret, so
+ * verification costs one HMAC pass per secret and no key setup or provider lookup.
+ * The header is scanned in place (no split, no substring), the timestamp tolerance
+ * is checked before any HMAC work, and signatures are compared in constant time.
+ *
+ * The primary {@code stripe.webhook.secret} is tried first, followed by
+ * {@code stripe.webhook.secrets}, so rotations and multiple endpoints are supported.
+ *
+ * Accepts exactly what {@code Webhook.constructEvent} accepts: secrets are used
+ * as configured, only timestamps older than the tolerance are rejected, and a
+ * tolerance of zero or less disables the timestamp check.
+ */
+@Component
+public class StripeSignatureVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeSignatureVerifier.class);
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int SIGNATURE_HEX_LENGTH = 64;
+
+    /**
+     * Outcome of a signature check.
+     */
+    public enum Result {
+        VALID,
+        MISSING_HEADER,
+        MALFORMED_HEADER,
+        TIMESTAMP_OUTSIDE_TOLERANCE,
+        NO_MATCHING_SIGNATURE
+    }
+
+    private final List<SecretKeySpec> keys;
+    private final long toleranceSeconds;
+    private final ThreadLocal<Mac[]> macs;
+
+    private final Map<Result, LongAdder> resultCounts = new EnumMap<>(Result.class);
+    private final LongAdder[] secretMatches;
+
+    public StripeSignatureVerifier(StripeWebhookConfig webhookConfig) {
+        List<SecretKeySpec> configuredKeys = new ArrayList<>();
+        addKey(configuredKeys, webhookConfig.getSecret());
+        if (webhookConfig.getSecrets() != null) {
+            for (String secret : webhookConfig.getSecrets()) {
+                addKey(configuredKeys, secret);
+            }
+        }
+        this.keys = List.copyOf(configuredKeys);
+        this.toleranceSeconds = webhookConfig.getToleranceSeconds();
+        this.macs = ThreadLocal.withInitial(this::createMacs);
+
+        for (Result result : Result.values()) {
+            resultCounts.put(result, new LongAdder());
+        }
+        this.secretMatches = new LongAdder[keys.size()];
+        for (int i = 0; i < secretMatches.length; i++) {
+            secretMatches[i] = new LongAdder();
+        }
+
+        // Fail at startup rather than on the first webhook if the algorithm is unavailable
+        createMacs();
+        logger.info("Stripe signature verifier configured with {} secret(s), tolerance {}s",
+                keys.size(), toleranceSeconds);
+    }
+
+    /**
+     * Check whether at least one signing secret is configured.
+     */
+    public boolean hasSecrets() {
+        return !keys.isEmpty();
+    }
+
+    /**
+     * Verify a Stripe-Signature header.
+     * Expected header format: {@code t=<timestamp>,v1=<hex signature>[,v1=...]}.
+     * The signed content is {@code <timestamp>.<payload>}.
+     *
+     * @param payload buffer holding the raw request body
+     * @param length number of valid bytes in the buffer
+     * @param signatureHeader the Stripe-Signature header
+     * @return the verification result
+     */
+    public Result verify(byte[] payload, int length, String signatureHeader) {
+        return count(doVerify(payload, length, signatureHeader, System.currentTimeMillis() / 1000));
+    }
+
+    private Result doVerify(byte[] payload, int length, String header, long nowSeconds) {
+        if (header == null || header.isEmpty()) {
+            return Result.MISSING_HEADER;
+        }
+
+        // Locate the timestamp and make sure there is at least one v1 signature
+        int timestampStart = -1;
+        int timestampEnd = -1;
+        boolean hasSignature = false;
+        int start = 0;
+        while (start < header.length()) {
+            int end = header.indexOf(',', start);
+            if (end < 0) {
+                end = header.length();
+            }
+            if (timestampStart < 0 && header.startsWith("t=", start)) {
+                timestampStart = start + 2;
+                timestampEnd = end;
+            } else if (header.startsWith("v1=", start)) {
+                hasSignature = true;
+            }
+            start = end + 1;
+        }
+        if (timestampStart < 0 || !hasSignature) {
+            return Result.MALFORMED_HEADER;
+        }
+
+        long timestamp = parseTimestamp(header, timestampStart, timestampEnd);
+        if (timestamp < 0) {
+            return Result.MALFORMED_HEADER;
+        }
+        if (toleranceSeconds > 0 && timestamp < nowSeconds - toleranceSeconds) {
+            return Result.TIMESTAMP_OUTSIDE_TOLERANCE;
+        }
+
+        // The SDK signs the parsed timestamp, so leading zeros are not part of the signed content
+        int signedStart = timestampStart;
+        while (signedStart < timestampEnd - 1 && header.charAt(signedStart) == '0') {
+            signedStart++;
+        }
+
+        Mac[] threadMacs = macs.get();
+        for (int k = 0; k < threadMacs.length; k++) {
+            Mac mac = threadMacs[k];
+            for (int i = signedStart; i < timestampEnd; i++) {
+                mac.update((byte) header.charAt(i));
+            }
+            mac.update((byte) '.');
+            mac.update(payload, 0, length);
+            byte[] expected = mac.doFinal();
+
+            if (anySignatureMatches(expected, header)) {
+                secretMatches[k].increment();
+                return Result.VALID;
+            }
+        }
+        return Result.NO_MATCHING_SIGNATURE;
+    }
+
+    /**
+     * Compare the expected HMAC against every v1 entry of the header.
+     */
+    private static boolean anySignatureMatches(byte[] expected, String header) {
+        boolean matched = false;
+        int start = 0;
+        while (start < header.length()) {
+            int end = header.indexOf(',', start);
+            if (end < 0) {
+                end = header.length();
+            }
+            if (header.startsWith("v1=", start) && end - start - 3 == SIGNATURE_HEX_LENGTH) {
+                matched |= constantTimeHexEquals(expected, header, start + 3);
+            }
+            start = end + 1;
+        }
+        return matched;
+    }
+
+    /**
+     * Compare a digest with a lower-case hex string without early exit.
+     * Upper-case digits do not match, as the SDK compares against lower-case hex.
+     */
+    private static boolean constantTimeHexEquals(byte[] expected, String hex, int offset) {
+        int diff = 0;
+        for (int i = 0; i < expected.length; i++) {
+            int high = lowerHexDigit(hex.charAt(offset + 2 * i));
+            int low = lowerHexDigit(hex.charAt(offset + 2 * i + 1));
+            // An invalid digit yields -1, which sets bits outside the low byte
+            diff |= ((high << 4) | low) ^ (expected[i] & 0xff);
+            diff |= (high | low) & 0x80000000;
+        }
+        return diff == 0;
+    }
+
+    private static int lowerHexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        return c >= 'a' && c <= 'f' ? c - 'a' + 10 : -1;
+    }
+
+    /**
+     * Parse a decimal timestamp in place, or return -1 if it is not a number.
+     */
+    private static long parseTimestamp(String header, int start, int end) {
+        if (start == end || end - start > 18) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            char c = header.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private Mac[] createMacs() {
+        Mac[] created = new Mac[keys.size()];
+        try {
+            for (int i = 0; i < created.length; i++) {
+                created[i] = Mac.getInstance(HMAC_ALGORITHM);
+                created[i].init(keys.get(i));
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to initialize " + HMAC_ALGORITHM, e);
+        }
+        return created;
+    }
+
+    private static void addKey(List<SecretKeySpec> keys, String secret) {
+        if (secret != null && !secret.isEmpty()) {
+            keys.add(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+        }
+    }
+
+    private Result count(Result result) {
+        resultCounts.get(result).increment();
+        return result;
+    }
+
+    /**
+     * Get verification outcome counts and matches per configured secret.
+     * Secrets are reported by position (0 is stripe.webhook.secret), never by value.
+     *
+     * @return map of metric name to value
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("secrets", keys.size());
+        stats.put("toleranceSeconds", toleranceSeconds);
+        Map<String, Long> results = new LinkedHashMap<>();
+        resultCounts.forEach((result, count) -> results.put(result.name(), count.sum()));
+        stats.put("results", results);
+        List<Long> matches = new ArrayList<>(secretMatches.length);
+        for (LongAdder secretMatch : secretMatches) {
+            matches.add(secretMatch.sum());
+        }
+        stats.put("matchesPerSecret", matches);
+        return stats;
+    }
+}
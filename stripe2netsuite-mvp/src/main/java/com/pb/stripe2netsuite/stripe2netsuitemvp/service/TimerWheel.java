@@ -0,0 +1,183 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashed timer wheel for large numbers of short, imprecise delays.
+ *
+ * One daemon thread advances a ring of buckets every tick. Scheduling is a
+ * lock-free enqueue and cancelling only flips a flag, so thousands of pending
+ * retries cost neither a thread each nor a heap reordering per insert, unlike a
+ * ScheduledThreadPoolExecutor. Delays are rounded up to whole ticks; a task whose
+ * delay is longer than one rotation stays in its bucket for the remaining rounds.
+ *
+ * Expired tasks are handed to the given executor, never run on the tick thread.
+ */
+public final class TimerWheel {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimerWheel.class);
+
+    private final long tickNanos;
+    private final List<Timeout>[] buckets;
+    private final int mask;
+    private final Executor executor;
+    private final ConcurrentLinkedQueue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private final Thread ticker;
+    private final long startNanos;
+    private long tick;
+
+    /**
+     * Create and start a wheel.
+     *
+     * @param name name of the tick thread
+     * @param tickMillis tick duration, the resolution of all delays
+     * @param wheelSize number of buckets, rounded up to a power of two
+     * @param executor runs expired tasks
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(String name, long tickMillis, int wheelSize, Executor executor) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        int size = Integer.highestOneBit(Math.max(2, wheelSize) - 1) << 1;
+        this.buckets = new List[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+        this.mask = size - 1;
+        this.executor = executor;
+        this.startNanos = System.nanoTime();
+        this.ticker = new Thread(this::run, name);
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    /**
+     * Run a task after a delay.
+     *
+     * @param task the task
+     * @param delayMillis the delay; rounded up to the tick duration
+     * @return a handle to cancel the task
+     */
+    public Timeout schedule(Runnable task, long delayMillis) {
+        long deadline = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+        Timeout timeout = new Timeout(task, deadline);
+        if (!running.get()) {
+            timeout.cancel();
+            return timeout;
+        }
+        pending.incrementAndGet();
+        incoming.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Get the number of tasks scheduled and not yet run or cancelled.
+     */
+    public int pendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * Stop the tick thread. Tasks not yet run are dropped.
+     */
+    public void stop() {
+        if (running.compareAndSet(true, false)) {
+            ticker.interrupt();
+        }
+    }
+
+    private void run() {
+        while (running.get()) {
+            long tickDeadline = (tick + 1) * tickNanos;
+            long sleepNanos = tickDeadline - (System.nanoTime() - startNanos);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (!running.get()) {
+                        return;
+                    }
+                    continue;
+                }
+            }
+            transferIncoming();
+            expire(buckets[(int) (tick & mask)], tickDeadline);
+            tick++;
+        }
+    }
+
+    /**
+     * Move newly scheduled tasks into the bucket of their deadline tick.
+     */
+    private void transferIncoming() {
+        Timeout timeout;
+        while ((timeout = incoming.poll()) != null) {
+            if (timeout.cancelled.get()) {
+                pending.decrementAndGet();
+                continue;
+            }
+            long dueTick = Math.max(tick, (timeout.deadlineNanos + tickNanos - 1) / tickNanos - 1);
+            timeout.remainingRounds = (dueTick - tick) / buckets.length;
+            buckets[(int) (dueTick & mask)].add(timeout);
+        }
+    }
+
+    private void expire(List<Timeout> bucket, long tickDeadline) {
+        Iterator<Timeout> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Timeout timeout = iterator.next();
+            if (timeout.cancelled.get()) {
+                iterator.remove();
+                pending.decrementAndGet();
+            } else if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+            } else if (timeout.deadlineNanos <= tickDeadline) {
+                iterator.remove();
+                pending.decrementAndGet();
+                if (timeout.cancelled.compareAndSet(false, true)) {
+                    try {
+                        executor.execute(timeout.task);
+                    } catch (RuntimeException e) {
+                        logger.error("Timer task could not be started: {}", e.getMessage(), e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A scheduled task.
+     */
+    public static final class Timeout {
+
+        private final Runnable task;
+        private final long deadlineNanos;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private long remainingRounds;
+
+        private Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Cancel the task if it has not started yet.
+         *
+         * @return true if the task will not run because of this call
+         */
+        public boolean cancel() {
+            return cancelled.compareAndSet(false, true);
+        }
+    }
+}
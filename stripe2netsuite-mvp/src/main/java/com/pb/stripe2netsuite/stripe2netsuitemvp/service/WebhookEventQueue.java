@@ -0,0 +1,466 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.WebhookQueueConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.EventProjection;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.InboundEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded in-process work queue for verified Stripe webhook events.
+ *
+ * The webhook controller hands events to this queue and returns 200 immediately.
+ * Events are hashed by their lane key (the data object ID, or the customer ID,
+ * see {@code stripe.webhook.queue.lane-key}) onto a fixed number of lanes, each
+ * drained by a single worker thread. Events for the same object are therefore
+ * handled strictly in arrival order (e.g. {@code invoice.created} before
+ * {@code invoice.paid}), while unrelated objects are processed in parallel.
+ *
+ * When the target lane is full, {@link #submit(InboundEvent, long)} returns false so
+ * the controller can answer 503 and let Stripe retry, instead of blocking the
+ * request thread. A periodic check flags hot lanes that receive a disproportionate
+ * share of the traffic, e.g. because one customer dominates.
+ *
+ * Lane workers do not wait for NetSuite: each event is started with
+ * {@link StripeEventProcessor#processEventAsync} and the worker moves on. Up to
+ * {@code max-in-flight-per-lane} events of a lane are in flight at once; an event
+ * whose object still has an event in flight is chained behind it, so per-object
+ * order is kept. Once the limit is reached the worker waits and the lane fills up.
+ *
+ * An event that fails with a retryable NetSuite error is run again by the
+ * {@link NetSuiteRetryScheduler} after a jittered backoff, without holding a thread.
+ * Until it succeeds or gives up it keeps its in-flight slot and later events for
+ * its object wait behind it, so order is kept and a NetSuite outage fills the lanes
+ * and turns into 503s for Stripe rather than an unbounded backlog.
+ *
+ * Events that were journaled are marked as processed in the {@link WebhookJournal}
+ * once their handler completes; events that still fail stay pending and are
+ * replayed on restart, until they have failed {@code stripe.webhook.journal.max-attempts}
+ * times and are moved to the journal's dead-letter directory.
+ */
+@Service
+public class WebhookEventQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookEventQueue.class);
+
+    private final StripeEventProcessor eventProcessor;
+    private final WebhookJournal journal;
+    private final NetSuiteRetryScheduler retryScheduler;
+    private final WebhookQueueConfig queueConfig;
+    private final Lane[] lanes;
+    private final int laneCapacity;
+    private final int maxInFlightPerLane;
+    private final ScheduledExecutorService laneMonitor;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder enqueueNanos = new LongAdder();
+    private final AtomicLong maxEnqueueNanos = new AtomicLong();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final long startedAtNanos = System.nanoTime();
+
+    public WebhookEventQueue(StripeEventProcessor eventProcessor, WebhookJournal journal,
+                             NetSuiteRetryScheduler retryScheduler, WebhookQueueConfig queueConfig) {
+        this.eventProcessor = eventProcessor;
+        this.journal = journal;
+        this.retryScheduler = retryScheduler;
+        this.queueConfig = queueConfig;
+
+        int laneCount = queueConfig.getLanes() > 0
+                ? queueConfig.getLanes()
+                : Runtime.getRuntime().availableProcessors();
+        this.laneCapacity = Math.max(1, (Math.max(1, queueConfig.getCapacity()) + laneCount - 1) / laneCount);
+        this.maxInFlightPerLane = Math.max(1, queueConfig.getMaxInFlightPerLane());
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(i, laneCapacity, maxInFlightPerLane);
+        }
+
+        this.laneMonitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "webhook-lane-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int checkSeconds = Math.max(1, queueConfig.getHotLaneCheckSeconds());
+        this.laneMonitor.scheduleAtFixedRate(this::detectHotLanes, checkSeconds, checkSeconds, TimeUnit.SECONDS);
+
+        logger.info("Webhook queue started: lanes: {}, capacity per lane: {}, in flight per lane: {}, lane key: {}",
+                laneCount, laneCapacity, maxInFlightPerLane, queueConfig.getLaneKey());
+    }
+
+    /**
+     * Enqueue a verified event for background processing on its lane.
+     *
+     * @param event the verified Stripe event
+     * @param journalSequence the journal sequence of the event, or 0 if it was not journaled
+     * @return true if the event was accepted, false if its lane is full
+     */
+    public boolean submit(InboundEvent event, long journalSequence) {
+        return submit(event, journalSequence, null);
+    }
+
+    /**
+     * Enqueue an event and get notified of its outcome, for callers that report
+     * per-event results such as the bulk import endpoint.
+     *
+     * @param event the Stripe event
+     * @param journalSequence the journal sequence of the event, or 0 if it was not journaled
+     * @param result completed with the processing outcome once the event has been handled,
+     *               or {@link StripeEventProcessor.Outcome#FAILED} if the handler threw or the event
+     *               was dropped from its lane at shutdown
+     * @return true if the event was accepted, false if its lane is full
+     */
+    public boolean submit(InboundEvent event, long journalSequence,
+                          CompletableFuture<StripeEventProcessor.Outcome> result) {
+        long start = System.nanoTime();
+        String key = laneKey(event);
+        Lane lane = lanes[laneIndex(key)];
+        try {
+            lane.executor.execute(new QueuedEvent(lane, key, event, journalSequence, start, result));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            logger.warn("Webhook lane {} full ({} events), rejecting event {}",
+                    lane.index, lane.executor.getQueue().size(), event.getId());
+            return false;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        lane.enqueued.increment();
+        lane.lastKey = key;
+        enqueued.increment();
+        enqueueNanos.add(elapsed);
+        maxEnqueueNanos.accumulateAndGet(elapsed, Math::max);
+        return true;
+    }
+
+    /**
+     * Get the ID that decides the lane of an event: the data object ID or the
+     * customer ID depending on configuration, falling back to the event ID.
+     */
+    private String laneKey(InboundEvent event) {
+        EventProjection projection = event.getProjection();
+        if (projection != null) {
+            if (queueConfig.getLaneKey() == WebhookQueueConfig.LaneKey.CUSTOMER && projection.customer() != null) {
+                return projection.customer();
+            }
+            if (projection.id() != null) {
+                return projection.id();
+            }
+        }
+        return event.getId();
+    }
+
+    private int laneIndex(String key) {
+        int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), lanes.length);
+    }
+
+    /**
+     * Start one event on its lane's worker thread, after the event in flight for
+     * the same key if there is one. Returns without waiting for the handler.
+     */
+    private void process(Lane lane, String key, InboundEvent event, long journalSequence, long enqueuedAtNanos,
+                         CompletableFuture<StripeEventProcessor.Outcome> result) {
+        long start = System.nanoTime();
+        queueWaitNanos.add(start - enqueuedAtNanos);
+        try {
+            lane.inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed.increment();
+            lane.completed.increment();
+            logger.warn("Interrupted before starting event {}, left in journal for replay", event.getId());
+            if (result != null) {
+                result.complete(StripeEventProcessor.Outcome.FAILED);
+            }
+            return;
+        }
+
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture<Void> previous = lane.tails.put(key, done);
+        CompletableFuture<StripeEventProcessor.Outcome> outcome = previous == null || previous.isDone()
+                ? start(event)
+                : previous.thenCompose(ignored -> start(event));
+        outcome.whenComplete((processed, error) -> {
+            if (error == null) {
+                journal.markProcessed(journalSequence);
+                completed.increment();
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                failed.increment();
+                if (journal.markFailed(journalSequence)) {
+                    logger.error("Error processing event {}: {}, moved to the journal's dead-letter directory",
+                            event.getId(), cause.getMessage(), cause);
+                } else {
+                    logger.error("Error processing event {}: {}, left in journal for replay",
+                            event.getId(), cause.getMessage(), cause);
+                }
+            }
+            if (result != null) {
+                result.complete(error == null ? processed : StripeEventProcessor.Outcome.FAILED);
+            }
+            lane.completed.increment();
+            lane.inFlight.release();
+            lane.tails.remove(key, done);
+            done.complete(null);
+        });
+        lane.busyNanos.add(System.nanoTime() - start);
+    }
+
+    /**
+     * Start an event, retrying it on retryable NetSuite errors. A failed attempt
+     * releases the event's deduplication entry, so the next attempt runs the handler again.
+     * That is safe because handlers only read from NetSuite or write idempotently: orders
+     * are keyed by the Stripe payment ID and creating one that exists sets its status.
+     * With the outbox enabled, handlers write to the local outbox only, so the retries
+     * here cover reads and outbox failures; the relay retries NetSuite writes with the
+     * same backoff.
+     */
+    private CompletableFuture<StripeEventProcessor.Outcome> start(InboundEvent event) {
+        return retryScheduler.execute("event:" + event.getId(), () -> {
+            try {
+                return eventProcessor.processEventAsync(event);
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+    }
+
+    /**
+     * Compare each lane's arrivals since the last check with the average lane and
+     * flag lanes above {@code hot-lane-factor} times the average.
+     */
+    private void detectHotLanes() {
+        long[] arrivals = new long[lanes.length];
+        long total = 0;
+        for (int i = 0; i < lanes.length; i++) {
+            long now = lanes[i].enqueued.sum();
+            arrivals[i] = now - lanes[i].enqueuedAtLastCheck;
+            lanes[i].enqueuedAtLastCheck = now;
+            total += arrivals[i];
+        }
+        if (lanes.length < 2) {
+            return;
+        }
+
+        double average = (double) total / lanes.length;
+        for (int i = 0; i < lanes.length; i++) {
+            Lane lane = lanes[i];
+            boolean hot = arrivals[i] > 1 && arrivals[i] > average * queueConfig.getHotLaneFactor();
+            if (hot && !lane.hot) {
+                logger.warn("Webhook lane {} is hot: {} of {} events in the last {}s, depth: {}, recent key: {}",
+                        lane.index, arrivals[i], total, queueConfig.getHotLaneCheckSeconds(),
+                        lane.executor.getQueue().size(), lane.lastKey);
+            }
+            lane.hot = hot;
+            lane.lastIntervalArrivals = arrivals[i];
+        }
+    }
+
+    /**
+     * Get queue depth, latency and utilization figures, overall and per lane.
+     *
+     * @return map of metric name to value
+     */
+    public Map<String, Object> getStats() {
+        long accepted = enqueued.sum();
+        long finished = completed.sum() + failed.sum();
+        long uptimeNanos = Math.max(1, System.nanoTime() - startedAtNanos);
+
+        int depth = 0;
+        int inFlight = 0;
+        int active = 0;
+        long busy = 0;
+        List<Map<String, Object>> laneStats = new ArrayList<>(lanes.length);
+        List<Integer> hotLanes = new ArrayList<>();
+        for (Lane lane : lanes) {
+            int laneDepth = lane.executor.getQueue().size();
+            int laneInFlight = maxInFlightPerLane - lane.inFlight.availablePermits();
+            long laneBusy = lane.busyNanos.sum();
+            depth += laneDepth;
+            inFlight += laneInFlight;
+            active += lane.executor.getActiveCount();
+            busy += laneBusy;
+            if (lane.hot) {
+                hotLanes.add(lane.index);
+            }
+
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("lane", lane.index);
+            stats.put("depth", laneDepth);
+            stats.put("inFlight", laneInFlight);
+            stats.put("enqueued", lane.enqueued.sum());
+            stats.put("completed", lane.completed.sum());
+            stats.put("utilization", (double) laneBusy / uptimeNanos);
+            stats.put("lastIntervalArrivals", lane.lastIntervalArrivals);
+            stats.put("hot", lane.hot);
+            laneStats.add(stats);
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("capacity", laneCapacity * lanes.length);
+        stats.put("laneCount", lanes.length);
+        stats.put("laneCapacity", laneCapacity);
+        stats.put("laneKey", queueConfig.getLaneKey());
+        stats.put("queueDepth", depth);
+        stats.put("inFlight", inFlight);
+        stats.put("maxInFlightPerLane", maxInFlightPerLane);
+        stats.put("activeWorkers", active);
+        stats.put("enqueued", accepted);
+        stats.put("rejected", rejected.sum());
+        stats.put("completed", completed.sum());
+        stats.put("failed", failed.sum());
+        stats.put("avgEnqueueMicros", accepted == 0 ? 0 : enqueueNanos.sum() / accepted / 1_000);
+        stats.put("maxEnqueueMicros", maxEnqueueNanos.get() / 1_000);
+        stats.put("avgQueueWaitMillis", finished == 0 ? 0 : queueWaitNanos.sum() / finished / 1_000_000);
+        stats.put("workerUtilization", (double) busy / ((double) uptimeNanos * lanes.length));
+        stats.put("hotLanes", hotLanes);
+        stats.put("lanes", laneStats);
+        return stats;
+    }
+
+    /**
+     * Stop accepting events and give queued events a chance to finish.
+     */
+    @PreDestroy
+    public void shutdown() {
+        laneMonitor.shutdownNow();
+        for (Lane lane : lanes) {
+            lane.executor.shutdown();
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(queueConfig.getShutdownTimeoutSeconds());
+        try {
+            int left = 0;
+            for (Lane lane : lanes) {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                if (!lane.executor.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+                    left += drop(lane.executor.shutdownNow());
+                }
+            }
+            for (Lane lane : lanes) {
+                // Wait for started events still waiting on NetSuite
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                if (lane.inFlight.tryAcquire(maxInFlightPerLane, remaining, TimeUnit.NANOSECONDS)) {
+                    lane.inFlight.release(maxInFlightPerLane);
+                } else {
+                    left += maxInFlightPerLane - lane.inFlight.availablePermits();
+                }
+            }
+            if (left > 0) {
+                logger.warn("Webhook queue did not drain in {}s, {} events left for journal replay",
+                        queueConfig.getShutdownTimeoutSeconds(), left);
+            }
+        } catch (InterruptedException e) {
+            for (Lane lane : lanes) {
+                drop(lane.executor.shutdownNow());
+            }
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Fail the results of events that never left their lane, so callers waiting
+     * on them (e.g. the bulk import) are not left hanging.
+     *
+     * @return the number of dropped events
+     */
+    private int drop(List<Runnable> queued) {
+        for (Runnable runnable : queued) {
+            if (runnable instanceof QueuedEvent dropped) {
+                failed.increment();
+                if (dropped.result != null) {
+                    dropped.result.complete(StripeEventProcessor.Outcome.FAILED);
+                }
+            }
+        }
+        return queued.size();
+    }
+
+    /**
+     * An event waiting in its lane's queue.
+     */
+    private final class QueuedEvent implements Runnable {
+
+        private final Lane lane;
+        private final String key;
+        private final InboundEvent event;
+        private final long journalSequence;
+        private final long enqueuedAtNanos;
+        private final CompletableFuture<StripeEventProcessor.Outcome> result;
+
+        private QueuedEvent(Lane lane, String key, InboundEvent event, long journalSequence, long enqueuedAtNanos,
+                            CompletableFuture<StripeEventProcessor.Outcome> result) {
+            this.lane = lane;
+            this.key = key;
+            this.event = event;
+            this.journalSequence = journalSequence;
+            this.enqueuedAtNanos = enqueuedAtNanos;
+            this.result = result;
+        }
+
+        @Override
+        public void run() {
+            process(lane, key, event, journalSequence, enqueuedAtNanos, result);
+        }
+    }
+
+    /**
+     * One ordered lane: a bounded queue drained by a single worker thread, and
+     * the events it has started that are still in flight.
+     */
+    private static final class Lane {
+
+        private final int index;
+        private final ThreadPoolExecutor executor;
+        private final Semaphore inFlight;
+        private final Map<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+        private final LongAdder enqueued = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+
+        private volatile String lastKey;
+        private volatile boolean hot;
+        private volatile long lastIntervalArrivals;
+        private long enqueuedAtLastCheck;
+
+        private Lane(int index, int capacity, int maxInFlight) {
+            this.index = index;
+            this.inFlight = new Semaphore(maxInFlight);
+            this.executor = new ThreadPoolExecutor(
+                    1,
+                    1,
+                    0L,
+                    TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(capacity),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "webhook-lane-" + index);
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+            this.executor.prestartAllCoreThreads();
+        }
+    }
+}
@@ -0,0 +1,699 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.WebhookJournalConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Durable append-only journal of verified webhook payloads.
+ *
+ * Payloads are appended to memory-mapped segment files. {@link #append} returns
+ * only after the record has been forced to disk; concurrent appenders share a
+ * single force (group commit), so a burst of webhooks costs one flush instead of
+ * one random write per event. Once the handlers have finished, the worker writes
+ * a "processed" marker via {@link #markProcessed}. On startup, events without a
+ * marker are returned by {@link #getPendingEvents()} for replay.
+ *
+ * An event whose processing failed gets a "failed" marker carrying its attempt
+ * count via {@link #markFailed}. Once it has failed {@code maxAttempts} times,
+ * its payload is written to the dead-letter directory and a "dead letter" marker
+ * stops it from being replayed on every start.
+ *
+ * Record layout: length (int), type (byte), sequence (long), CRC32 (int), payload.
+ * A zero type byte marks the end of the written part of a segment.
+ *
+ * Compaction: fully processed segments are deleted from the oldest end. A sealed
+ * segment that still holds pending events after {@code compactAfterSegments}
+ * newer segments have been written has its pending events copied forward into
+ * the active segment (keeping their sequence numbers) and is then deleted.
+ */
+@Service
+public class WebhookJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookJournal.class);
+
+    private static final int SEGMENT_MAGIC = 0x534A524E;
+    private static final int SEGMENT_VERSION = 1;
+    private static final int SEGMENT_HEADER_BYTES = 8;
+    private static final int RECORD_HEADER_BYTES = 17;
+    private static final byte TYPE_EVENT = 1;
+    private static final byte TYPE_PROCESSED = 2;
+    private static final byte TYPE_FAILED = 3;
+    private static final byte TYPE_DEAD_LETTER = 4;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final WebhookJournalConfig journalConfig;
+
+    /**
+     * Guards segments, pending events, the active segment and sequence counters.
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final Map<Long, PendingRecord> pending = new HashMap<>();
+    private final Map<Long, Integer> failedAttempts = new HashMap<>();
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer sequenceScratch = ByteBuffer.allocate(Long.BYTES);
+    private Path directory;
+    private Path deadLetterDirectory;
+    private Segment active;
+    private long lastSequence;
+    private long writtenSequence;
+
+    /**
+     * Guards the group commit state.
+     */
+    private final Object flushMonitor = new Object();
+    private long durableSequence;
+    private boolean flushing;
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder processedMarkers = new LongAdder();
+    private final LongAdder deletedSegments = new LongAdder();
+    private final LongAdder relocatedEvents = new LongAdder();
+    private final LongAdder failedMarkers = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+
+    public WebhookJournal(WebhookJournalConfig journalConfig) {
+        this.journalConfig = journalConfig;
+    }
+
+    /**
+     * Open the journal directory, recover pending events from existing segments
+     * and start a fresh active segment.
+     */
+    @PostConstruct
+    public void open() {
+        if (!journalConfig.isEnabled()) {
+            logger.info("Webhook journal disabled");
+            return;
+        }
+
+        writeLock.lock();
+        try {
+            directory = Paths.get(journalConfig.getDirectory());
+            Files.createDirectories(directory);
+            deadLetterDirectory = directory.resolve(journalConfig.getDeadLetterDirectory());
+
+            for (Path path : listSegmentFiles()) {
+                Segment segment = Segment.open(path, segmentIdOf(path));
+                segments.put(segment.id, segment);
+                recover(segment);
+            }
+
+            long nextId = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+            active = Segment.create(directory.resolve(segmentFileName(nextId)), nextId,
+                    journalConfig.getSegmentSizeBytes());
+            segments.put(active.id, active);
+            writtenSequence = lastSequence;
+            durableSequence = lastSequence;
+
+            compact();
+
+            logger.info("Webhook journal opened: directory: {}, segments: {}, pendingEvents: {}, failedEvents: {}",
+                    directory.toAbsolutePath(), segments.size(), pending.size(), failedAttempts.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open webhook journal", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Check if the journal is enabled.
+     */
+    public boolean isEnabled() {
+        return journalConfig.isEnabled();
+    }
+
+    /**
+     * Append a verified payload and wait until it is durable on disk.
+     *
+     * @param payload buffer holding the payload
+     * @param offset offset of the payload in the buffer
+     * @param length payload length in bytes
+     * @return the journal sequence of the event, or 0 if the journal is disabled
+     * @throws UncheckedIOException if the record could not be written or flushed
+     */
+    public long append(byte[] payload, int offset, int length) {
+        if (!isEnabled()) {
+            return 0;
+        }
+
+        int maxPayload = journalConfig.getSegmentSizeBytes() - SEGMENT_HEADER_BYTES - RECORD_HEADER_BYTES;
+        if (length > maxPayload) {
+            throw new IllegalArgumentException("Payload of " + length
+                    + " bytes exceeds journal segment capacity of " + maxPayload + " bytes");
+        }
+
+        long sequence;
+        writeLock.lock();
+        try {
+            sequence = ++lastSequence;
+            boolean rolled = writeRecord(TYPE_EVENT, sequence, payload, offset, length, true);
+            writtenSequence = sequence;
+            if (rolled) {
+                compact();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to webhook journal", e);
+        } finally {
+            writeLock.unlock();
+        }
+
+        awaitDurable(sequence);
+        appended.increment();
+        return sequence;
+    }
+
+    /**
+     * Record that an event has been fully processed, so it is not replayed.
+     * The marker is flushed with the next group commit; losing it only causes
+     * a replay, never a lost event.
+     *
+     * @param sequence the journal sequence returned by {@link #append}
+     */
+    public void markProcessed(long sequence) {
+        if (!isEnabled() || sequence <= 0) {
+            return;
+        }
+
+        writeLock.lock();
+        try {
+            PendingRecord record = pending.remove(sequence);
+            if (record == null) {
+                return;
+            }
+            record.segment.pendingCount--;
+            failedAttempts.remove(sequence);
+            if (writeRecord(TYPE_PROCESSED, sequence, null, 0, 0, false)) {
+                compact();
+            }
+            processedMarkers.increment();
+        } catch (IOException e) {
+            logger.error("Failed to write processed marker for journal sequence {}", sequence, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Record that processing an event failed. The event stays pending for replay
+     * until it has failed {@code maxAttempts} times; it is then dead-lettered.
+     * Like the processed marker, the failed marker is flushed with the next group commit.
+     *
+     * @param sequence the journal sequence returned by {@link #append}
+     * @return true if the event was dead-lettered and will not be replayed again
+     */
+    public boolean markFailed(long sequence) {
+        if (!isEnabled() || sequence <= 0) {
+            return false;
+        }
+
+        writeLock.lock();
+        try {
+            if (!pending.containsKey(sequence)) {
+                return false;
+            }
+            int attempts = failedAttempts.merge(sequence, 1, Integer::sum);
+            if (attempts >= journalConfig.getMaxAttempts()) {
+                logger.error("Journal sequence {} failed {} times, moving it to the dead-letter directory",
+                        sequence, attempts);
+                deadLetter(sequence);
+                return true;
+            }
+            if (writeFailedRecord(sequence, attempts)) {
+                compact();
+            }
+            failedMarkers.increment();
+            return false;
+        } catch (IOException e) {
+            logger.error("Failed to write failed marker for journal sequence {}", sequence, e);
+            return false;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Move a pending event to the dead-letter directory so it is no longer replayed,
+     * e.g. because its payload cannot be parsed.
+     *
+     * @param sequence the journal sequence returned by {@link #append}
+     */
+    public void markDeadLetter(long sequence) {
+        if (!isEnabled() || sequence <= 0) {
+            return;
+        }
+
+        writeLock.lock();
+        try {
+            if (pending.containsKey(sequence)) {
+                deadLetter(sequence);
+            }
+        } catch (IOException e) {
+            logger.error("Failed to dead-letter journal sequence {}", sequence, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Get all events without a processed marker, in sequence order.
+     *
+     * @return pending events with a copy of their payload
+     */
+    public List<PendingEvent> getPendingEvents() {
+        if (!isEnabled()) {
+            return List.of();
+        }
+
+        writeLock.lock();
+        try {
+            List<PendingEvent> events = new ArrayList<>(pending.size());
+            new TreeMap<>(pending).forEach((sequence, record) ->
+                    events.add(new PendingEvent(sequence, record.readPayload())));
+            return events;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Get journal size and group commit figures.
+     *
+     * @return map of metric name to value
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        if (!isEnabled()) {
+            return stats;
+        }
+
+        writeLock.lock();
+        try {
+            stats.put("segments", segments.size());
+            stats.put("activeSegment", active.id);
+            stats.put("pendingEvents", pending.size());
+            stats.put("failedEvents", failedAttempts.size());
+            stats.put("lastSequence", lastSequence);
+        } finally {
+            writeLock.unlock();
+        }
+        long flushCount = flushes.sum();
+        stats.put("appended", appended.sum());
+        stats.put("flushes", flushCount);
+        stats.put("avgEventsPerFlush", flushCount == 0 ? 0 : (double) appended.sum() / flushCount);
+        stats.put("processedMarkers", processedMarkers.sum());
+        stats.put("deletedSegments", deletedSegments.sum());
+        stats.put("relocatedEvents", relocatedEvents.sum());
+        stats.put("failedMarkers", failedMarkers.sum());
+        stats.put("deadLettered", deadLettered.sum());
+        return stats;
+    }
+
+    /**
+     * Flush the active segment and release all files.
+     */
+    @PreDestroy
+    public void close() {
+        if (!isEnabled()) {
+            return;
+        }
+
+        writeLock.lock();
+        try {
+            active.buffer.force();
+            for (Segment segment : segments.values()) {
+                segment.close();
+            }
+            logger.info("Webhook journal closed: pendingEvents: {}", pending.size());
+        } catch (IOException e) {
+            logger.error("Failed to close webhook journal", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Wait until the given sequence is durable, flushing as group commit leader
+     * if no other thread is currently flushing.
+     */
+    private void awaitDurable(long sequence) {
+        synchronized (flushMonitor) {
+            while (durableSequence < sequence && flushing) {
+                try {
+                    flushMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for journal flush", e);
+                }
+            }
+            if (durableSequence >= sequence) {
+                return;
+            }
+            flushing = true;
+        }
+
+        long target;
+        Segment segment;
+        writeLock.lock();
+        try {
+            target = writtenSequence;
+            segment = active;
+        } finally {
+            writeLock.unlock();
+        }
+
+        boolean flushed = false;
+        try {
+            segment.buffer.force();
+            flushed = true;
+            flushes.increment();
+        } finally {
+            synchronized (flushMonitor) {
+                if (flushed) {
+                    durableSequence = Math.max(durableSequence, target);
+                }
+                flushing = false;
+                flushMonitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Write one record to the active segment, rolling over to a new segment if it does not fit.
+     * Must be called with the write lock held.
+     *
+     * @return true if a new segment was started
+     */
+    private boolean writeRecord(byte type, long sequence, byte[] payload, int offset, int length,
+                                boolean trackPending) throws IOException {
+        boolean rolled = false;
+        if (active.writePosition + RECORD_HEADER_BYTES + length > active.capacity) {
+            rollSegment();
+            rolled = true;
+        }
+
+        crc.reset();
+        crc.update(type);
+        sequenceScratch.putLong(0, sequence);
+        crc.update(sequenceScratch.array(), 0, Long.BYTES);
+        if (length > 0) {
+            crc.update(payload, offset, length);
+        }
+
+        int position = active.writePosition;
+        MappedByteBuffer buffer = active.buffer;
+        buffer.putInt(position, length);
+        buffer.putLong(position + 5, sequence);
+        buffer.putInt(position + 13, (int) crc.getValue());
+        if (length > 0) {
+            buffer.put(position + RECORD_HEADER_BYTES, payload, offset, length);
+        }
+        // Type last: a zero type byte marks the end of the segment
+        buffer.put(position + 4, type);
+        active.writePosition = position + RECORD_HEADER_BYTES + length;
+
+        if (trackPending) {
+            PendingRecord previous = pending.put(sequence, new PendingRecord(active, position, length));
+            if (previous != null) {
+                previous.segment.pendingCount--;
+            }
+            active.pendingCount++;
+        }
+        return rolled;
+    }
+
+    /**
+     * Write a failed marker whose payload is the attempt count so far.
+     * Must be called with the write lock held.
+     *
+     * @return true if a new segment was started
+     */
+    private boolean writeFailedRecord(long sequence, int attempts) throws IOException {
+        byte[] payload = ByteBuffer.allocate(Integer.BYTES).putInt(attempts).array();
+        return writeRecord(TYPE_FAILED, sequence, payload, 0, payload.length, false);
+    }
+
+    /**
+     * Write the payload of a pending event to the dead-letter directory and then its
+     * dead-letter marker. The file is forced first, so a crash in between only leads
+     * to one more replay. Must be called with the write lock held.
+     */
+    private void deadLetter(long sequence) throws IOException {
+        PendingRecord record = pending.get(sequence);
+        Files.createDirectories(deadLetterDirectory);
+        Path file = deadLetterDirectory.resolve(String.format("event-%020d.json", sequence));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer payload = ByteBuffer.wrap(record.readPayload());
+            while (payload.hasRemaining()) {
+                channel.write(payload);
+            }
+            channel.force(true);
+        }
+
+        pending.remove(sequence);
+        record.segment.pendingCount--;
+        failedAttempts.remove(sequence);
+        if (writeRecord(TYPE_DEAD_LETTER, sequence, null, 0, 0, false)) {
+            compact();
+        }
+        deadLettered.increment();
+    }
+
+    /**
+     * Seal the active segment and start the next one. Must be called with the write lock held.
+     */
+    private void rollSegment() throws IOException {
+        active.buffer.force();
+        long nextId = active.id + 1;
+        active = Segment.create(directory.resolve(segmentFileName(nextId)), nextId,
+                journalConfig.getSegmentSizeBytes());
+        segments.put(active.id, active);
+        logger.debug("Webhook journal rolled to segment {}", nextId);
+    }
+
+    /**
+     * Delete fully processed segments from the oldest end and relocate pending events
+     * out of segments that are too old. Must be called with the write lock held.
+     * Failures are logged only: the appended record itself is already written.
+     */
+    private void compact() {
+        // Segments rolled during relocation are newer than this bound and are left alone
+        long relocateUpTo = active.id - journalConfig.getCompactAfterSegments();
+        try {
+            while (segments.firstEntry().getValue() != active) {
+                Segment oldest = segments.firstEntry().getValue();
+                if (oldest.pendingCount > 0) {
+                    if (oldest.id > relocateUpTo) {
+                        break;
+                    }
+                    // Relocation may roll the active segment, so re-read the map on every pass
+                    relocate(oldest);
+                    active.buffer.force();
+                }
+                segments.remove(oldest.id);
+                oldest.close();
+                Files.deleteIfExists(oldest.path);
+                deletedSegments.increment();
+                logger.debug("Webhook journal deleted segment {}", oldest.id);
+            }
+        } catch (IOException e) {
+            logger.error("Webhook journal compaction failed", e);
+        }
+    }
+
+    /**
+     * Copy the pending events of a segment into the active segment, keeping their
+     * sequence, each followed by its attempt count if it has failed before.
+     */
+    private void relocate(Segment segment) throws IOException {
+        List<Map.Entry<Long, PendingRecord>> toMove = new ArrayList<>();
+        for (Map.Entry<Long, PendingRecord> entry : pending.entrySet()) {
+            if (entry.getValue().segment == segment) {
+                toMove.add(entry);
+            }
+        }
+        toMove.sort(Map.Entry.comparingByKey());
+        for (Map.Entry<Long, PendingRecord> entry : toMove) {
+            byte[] payload = entry.getValue().readPayload();
+            writeRecord(TYPE_EVENT, entry.getKey(), payload, 0, payload.length, true);
+            Integer attempts = failedAttempts.get(entry.getKey());
+            if (attempts != null) {
+                writeFailedRecord(entry.getKey(), attempts);
+            }
+            relocatedEvents.increment();
+        }
+        logger.info("Webhook journal relocated {} pending events out of segment {}", toMove.size(), segment.id);
+    }
+
+    /**
+     * Rebuild pending events from a segment written by a previous run.
+     * Scanning stops at the first zero type byte or corrupt record (torn write).
+     */
+    private void recover(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = SEGMENT_HEADER_BYTES;
+        while (position + RECORD_HEADER_BYTES <= segment.capacity) {
+            byte type = buffer.get(position + 4);
+            if (type < TYPE_EVENT || type > TYPE_DEAD_LETTER) {
+                break;
+            }
+            int length = buffer.getInt(position);
+            if (length < 0 || position + RECORD_HEADER_BYTES + length > segment.capacity) {
+                break;
+            }
+            long sequence = buffer.getLong(position + 5);
+            byte[] payload = new byte[length];
+            buffer.get(position + RECORD_HEADER_BYTES, payload);
+
+            crc.reset();
+            crc.update(type);
+            sequenceScratch.putLong(0, sequence);
+            crc.update(sequenceScratch.array(), 0, Long.BYTES);
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(position + 13)) {
+                logger.warn("Webhook journal segment {} has a corrupt record at offset {}, ignoring the rest",
+                        segment.id, position);
+                break;
+            }
+
+            if (type == TYPE_EVENT) {
+                PendingRecord previous = pending.put(sequence, new PendingRecord(segment, position, length));
+                if (previous != null) {
+                    previous.segment.pendingCount--;
+                }
+                segment.pendingCount++;
+            } else if (type == TYPE_FAILED) {
+                // A relocated event repeats its count, so keep the highest one seen
+                if (pending.containsKey(sequence) && length == Integer.BYTES) {
+                    failedAttempts.merge(sequence, ByteBuffer.wrap(payload).getInt(), Math::max);
+                }
+            } else {
+                PendingRecord processed = pending.remove(sequence);
+                if (processed != null) {
+                    processed.segment.pendingCount--;
+                }
+                failedAttempts.remove(sequence);
+            }
+            lastSequence = Math.max(lastSequence, sequence);
+            position += RECORD_HEADER_BYTES + length;
+        }
+        segment.writePosition = position;
+    }
+
+    private List<Path> listSegmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static String segmentFileName(long id) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX);
+    }
+
+    private static long segmentIdOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * An event that has not been marked as processed.
+     *
+     * @param sequence the journal sequence
+     * @param payload the raw verified payload
+     */
+    public record PendingEvent(long sequence, byte[] payload) {
+    }
+
+    /**
+     * Location of a pending event inside a segment.
+     */
+    private record PendingRecord(Segment segment, int position, int length) {
+
+        byte[] readPayload() {
+            byte[] payload = new byte[length];
+            segment.buffer.get(position + RECORD_HEADER_BYTES, payload);
+            return payload;
+        }
+    }
+
+    /**
+     * One memory-mapped journal file.
+     */
+    private static final class Segment {
+
+        private final long id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private int writePosition = SEGMENT_HEADER_BYTES;
+        private int pendingCount;
+
+        private Segment(long id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.capacity = buffer.capacity();
+        }
+
+        static Segment create(Path path, long id, int size) throws IOException {
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(0, SEGMENT_MAGIC);
+            buffer.putInt(4, SEGMENT_VERSION);
+            buffer.force();
+            return new Segment(id, path, channel, buffer);
+        }
+
+        static Segment open(Path path, long id) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            if (buffer.capacity() < SEGMENT_HEADER_BYTES || buffer.getInt(0) != SEGMENT_MAGIC) {
+                channel.close();
+                throw new IOException("Not a webhook journal segment: " + path);
+            }
+            return new Segment(id, path, channel, buffer);
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.InboundEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Replays journaled webhook events that were acknowledged to Stripe but not
+ * fully processed before the previous shutdown or crash.
+ */
+@Component
+public class WebhookJournalRecovery {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookJournalRecovery.class);
+
+    private static final long QUEUE_FULL_BACKOFF_MILLIS = 50;
+
+    private final WebhookJournal journal;
+    private final StripeEventParser eventParser;
+    private final WebhookEventQueue eventQueue;
+
+    public WebhookJournalRecovery(WebhookJournal journal, StripeEventParser eventParser,
+                                  WebhookEventQueue eventQueue) {
+        this.journal = journal;
+        this.eventParser = eventParser;
+        this.eventQueue = eventQueue;
+    }
+
+    /**
+     * Enqueue all pending journal events once the application is ready.
+     * Waits for queue capacity instead of dropping events.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void replayPendingEvents() throws InterruptedException {
+        List<WebhookJournal.PendingEvent> pendingEvents = journal.getPendingEvents();
+        if (pendingEvents.isEmpty()) {
+            return;
+        }
+
+        logger.info("Replaying {} unprocessed webhook events from journal", pendingEvents.size());
+        int replayed = 0;
+        for (WebhookJournal.PendingEvent pendingEvent : pendingEvents) {
+            InboundEvent event = eventParser.parseTrustedPayload(pendingEvent.payload());
+            if (event == null) {
+                logger.error("Dead-lettering unreadable journal entry, sequence: {}", pendingEvent.sequence());
+                journal.markDeadLetter(pendingEvent.sequence());
+                continue;
+            }
+            while (!eventQueue.submit(event, pendingEvent.sequence())) {
+                Thread.sleep(QUEUE_FULL_BACKOFF_MILLIS);
+            }
+            replayed++;
+        }
+        logger.info("Journal replay complete: {} events enqueued", replayed);
+    }
+}
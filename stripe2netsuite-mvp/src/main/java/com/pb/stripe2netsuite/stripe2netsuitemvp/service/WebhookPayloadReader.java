@@ -0,0 +1,153 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.StripeWebhookConfig;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads webhook request bodies into pooled byte buffers.
+ *
+ * The raw bytes are used as-is for signature verification, journaling and
+ * parsing, so a payload is read once and never converted to a String.
+ * Requests larger than {@code stripe.webhook.max-payload-bytes} are rejected
+ * before the body is read completely.
+ */
+@Component
+public class WebhookPayloadReader {
+
+    private final StripeWebhookConfig webhookConfig;
+    private final BlockingQueue<byte[]> pool;
+
+    public WebhookPayloadReader(StripeWebhookConfig webhookConfig) {
+        this.webhookConfig = webhookConfig;
+        this.pool = new ArrayBlockingQueue<>(Math.max(1, webhookConfig.getBufferPoolSize()));
+    }
+
+    /**
+     * Read a request body.
+     *
+     * @param in the request input stream
+     * @param contentLength the declared content length, read as the exact body size, or -1 if unknown
+     * @return the payload; must be closed to return the buffer to the pool
+     * @throws PayloadTooLargeException if the payload exceeds the configured limit
+     * @throws IOException if the stream cannot be read
+     */
+    public PayloadBuffer read(InputStream in, long contentLength) throws IOException {
+        int maxPayload = webhookConfig.getMaxPayloadBytes();
+        if (contentLength > maxPayload) {
+            throw new PayloadTooLargeException(contentLength, maxPayload);
+        }
+
+        byte[] buffer = acquire((int) Math.max(contentLength, 0));
+        int length = 0;
+        try {
+            if (contentLength >= 0) {
+                // The declared length is trusted: read exactly that many bytes, no probe for more
+                while (length < contentLength) {
+                    int read = in.read(buffer, length, (int) contentLength - length);
+                    if (read < 0) {
+                        break;
+                    }
+                    length += read;
+                }
+            } else {
+                while (true) {
+                    if (length == buffer.length) {
+                        // Probe with a single byte before growing, so a body that ends exactly here costs no copy
+                        int next = in.read();
+                        if (next < 0) {
+                            break;
+                        }
+                        if (length >= maxPayload) {
+                            throw new PayloadTooLargeException(length + 1L, maxPayload);
+                        }
+                        byte[] grown = Arrays.copyOf(buffer, (int) Math.min((long) buffer.length * 2, maxPayload));
+                        release(buffer);
+                        buffer = grown;
+                        buffer[length++] = (byte) next;
+                    }
+                    int read = in.read(buffer, length, buffer.length - length);
+                    if (read < 0) {
+                        break;
+                    }
+                    length += read;
+                }
+            }
+        } catch (IOException e) {
+            release(buffer);
+            throw e;
+        }
+        return new PayloadBuffer(buffer, length);
+    }
+
+    private byte[] acquire(int contentLength) {
+        if (contentLength <= webhookConfig.getBufferSize()) {
+            byte[] pooled = pool.poll();
+            return pooled != null ? pooled : new byte[webhookConfig.getBufferSize()];
+        }
+        return new byte[contentLength];
+    }
+
+    private void release(byte[] buffer) {
+        // Only standard-size buffers go back; one-off large buffers are left to the GC
+        if (buffer.length == webhookConfig.getBufferSize()) {
+            pool.offer(buffer);
+        }
+    }
+
+    /**
+     * A payload held in a (possibly pooled) buffer.
+     * The bytes are only valid until {@link #close()} is called.
+     */
+    public final class PayloadBuffer implements AutoCloseable {
+
+        private byte[] array;
+        private final int length;
+
+        private PayloadBuffer(byte[] array, int length) {
+            this.array = array;
+            this.length = length;
+        }
+
+        /**
+         * Get the backing array; only the first {@link #length()} bytes are valid.
+         */
+        public byte[] array() {
+            return array;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        /**
+         * Copy the payload into an exact-size array that outlives this buffer.
+         */
+        public byte[] toByteArray() {
+            return Arrays.copyOf(array, length);
+        }
+
+        @Override
+        public void close() {
+            if (array != null) {
+                release(array);
+                array = null;
+            }
+        }
+    }
+
+    /**
+     * Thrown when a webhook payload exceeds {@code stripe.webhook.max-payload-bytes}.
+     */
+    public static class PayloadTooLargeException extends IOException {
+
+        public PayloadTooLargeException(long size, int limit) {
+            super("Payload of at least " + size + " bytes exceeds limit of " + limit + " bytes");
+        }
+    }
+}
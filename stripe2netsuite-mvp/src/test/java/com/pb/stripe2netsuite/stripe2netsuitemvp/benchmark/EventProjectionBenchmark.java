@@ -0,0 +1,88 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.StripeWebhookConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.InboundEvent;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.StripeEventParser;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.StripeSignatureVerifier;
+import com.stripe.exception.EventDataObjectDeserializationException;
+import com.stripe.model.EventDataObjectDeserializer;
+import com.stripe.model.StripeObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single-pass {@link com.pb.stripe2netsuite.stripe2netsuitemvp.model.EventProjection}
+ * with materializing the full stripe-java PaymentIntent for a realistic
+ * payment_intent.succeeded payload.
+ *
+ * Run like {@link SignatureVerificationBenchmark}, with this class as the main class.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventProjectionBenchmark {
+
+    private static final String PAYLOAD = """
+            {"id":"evt_3Pbench","object":"event","api_version":"2024-06-20","created":1721000000,
+             "livemode":false,"pending_webhooks":1,"request":{"id":"req_bench","idempotency_key":"key"},
+             "type":"payment_intent.succeeded",
+             "data":{"object":{"id":"pi_3Pbench","object":"payment_intent","amount":4999,
+              "amount_capturable":0,"amount_received":4999,"capture_method":"automatic",
+              "client_secret":"pi_3Pbench_secret","confirmation_method":"automatic","created":1721000000,
+              "currency":"usd","customer":"cus_bench","description":"Order 42","livemode":false,
+              "latest_charge":"ch_3Pbench","metadata":{"orderId":"MOCK-ORDER-042","source":"web"},
+              "payment_method":"pm_bench","payment_method_options":{"card":{"installments":null,
+              "mandate_options":null,"network":null,"request_three_d_secure":"automatic"}},
+              "payment_method_types":["card"],"receipt_email":"buyer@example.com",
+              "shipping":{"address":{"city":"Berlin","country":"DE","line1":"Street 1","line2":null,
+              "postal_code":"10115","state":null},"name":"Buyer"},"status":"succeeded"}}}
+            """;
+
+    private byte[] payload;
+    private StripeEventParser parser;
+
+    @Setup
+    public void setUp() {
+        payload = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        StripeWebhookConfig config = new StripeWebhookConfig();
+        parser = new StripeEventParser(new ObjectMapper(), config, new StripeSignatureVerifier(config));
+    }
+
+    @Benchmark
+    public InboundEvent projection() {
+        return parser.parseTrustedPayload(payload);
+    }
+
+    @Benchmark
+    public StripeObject fullModel() throws EventDataObjectDeserializationException {
+        // The previous path: Gson Event at ingress, then the data object on the worker
+        // (unsafe deserialization, as the payload API version differs from the SDK's)
+        InboundEvent event = new InboundEvent("evt_3Pbench", "payment_intent.succeeded", null, payload);
+        EventDataObjectDeserializer deserializer = event.getStripeEvent().getDataObjectDeserializer();
+        return deserializer.getObject().isPresent() ? deserializer.getObject().get() : deserializer.deserializeUnsafe();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EventProjectionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,77 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.benchmark;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.IdAllocatorConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.IdAllocator;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.IdBlockStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of taking and formatting mock order IDs with 8 threads contending
+ * for one sequence: {@link IdAllocator} against a synchronized counter formatted
+ * with {@code String.format}, as MockNetSuiteService used to do.
+ *
+ * Blocks are leased in memory; with a lease directory a lease also costs a
+ * locked file read and write, once per {@code block-size} IDs.
+ *
+ * Run like {@link NetSuiteSignerBenchmark}, with this class as the main class.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class IdAllocatorBenchmark {
+
+    private IdAllocator allocator;
+    private final Object counterLock = new Object();
+    private long counter;
+
+    @Setup
+    public void setUp() {
+        IdAllocatorConfig config = new IdAllocatorConfig();
+        config.setBlockSize(100);
+        allocator = new IdBlockStore(config).allocator("mock-order", 1);
+    }
+
+    @Benchmark
+    public String synchronizedCounterWithFormat() {
+        long id;
+        synchronized (counterLock) {
+            id = ++counter;
+        }
+        return String.format("MOCK-ORDER-%03d", id);
+    }
+
+    @Benchmark
+    public String allocator() {
+        return allocator.next("MOCK-ORDER-");
+    }
+
+    @Benchmark
+    public long allocatorWithoutFormat() {
+        return allocator.next();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(IdAllocatorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,159 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.benchmark;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.NetSuiteConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.NetSuiteRequestSigner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-thread throughput of building NetSuite OAuth 1.0 Authorization headers:
+ * {@link NetSuiteRequestSigner} against a straightforward implementation that
+ * creates the signing key, a {@link Mac} and a {@code SecureRandom} nonce per
+ * request and builds the parameter string with a TreeMap and URLEncoder.
+ *
+ * One thread measures per-core throughput; the signer keeps no shared mutable
+ * state, so it scales with the number of request threads.
+ *
+ * Run with (JMH forks a JVM, so the classpath must be passed explicitly):
+ * {@code mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+ * "-Dexec.args=-cp %classpath com.pb.stripe2netsuite.stripe2netsuitemvp.benchmark.NetSuiteSignerBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(1)
+@Fork(1)
+public class NetSuiteSignerBenchmark {
+
+    private static final String BASE = "https://1234567-sb1.suitetalk.api.netsuite.com/services/rest/record/v1/";
+
+    private NetSuiteConfig config;
+    private NetSuiteRequestSigner signer;
+    private URI recordUri;
+    private URI queryUri;
+    private final SecureRandom random = new SecureRandom();
+
+    @Setup
+    public void setUp() {
+        config = new NetSuiteConfig();
+        config.setAccountId("1234567-sb1");
+        config.setConsumerKey("ef40afdd8abaac111b13825dd5e5e2ddddb44f86d5a0dd6dcf38c20aae6b67e4");
+        config.setConsumerSecret("d0e7ab1e4d8e6dd7dc7c8d3b0e5e1c6a0a7e2b1f1d6c0f5e2a8b4c3d1e0f9a8b");
+        config.setTokenId("2c4a1c9b5d7e3f1a0b8c6d4e2f0a9b7c5d3e1f0a8b6c4d2e0f9a7b5c3d1e0f8a");
+        config.setTokenSecret("7a5c3e1f9b7d5c3a1e0f8d6b4a2c0e9f7d5b3a1c0e8f6d4b2a0c9e7f5d3b1a0c");
+        signer = new NetSuiteRequestSigner(config);
+        recordUri = URI.create(BASE + "salesOrder/eid:pi_3OqXyZ2eZvKYlo2C1a2b3c4d");
+        queryUri = URI.create(BASE + "customer/1234?fields=entityId,companyName,email,custentity_stripe_customer_id");
+    }
+
+    @Benchmark
+    public String naiveRecord() throws Exception {
+        return naive("PATCH", recordUri);
+    }
+
+    @Benchmark
+    public String signerRecord() {
+        return signer.authorizationHeader("PATCH", recordUri);
+    }
+
+    @Benchmark
+    public String naiveWithQuery() throws Exception {
+        return naive("GET", queryUri);
+    }
+
+    @Benchmark
+    public String signerWithQuery() {
+        return signer.authorizationHeader("GET", queryUri);
+    }
+
+    /**
+     * Baseline: everything derived per request.
+     */
+    private String naive(String method, URI uri) throws Exception {
+        String timestamp = Long.toString(System.currentTimeMillis() / 1000);
+        byte[] nonceBytes = new byte[16];
+        random.nextBytes(nonceBytes);
+        String nonce = Base64.getUrlEncoder().withoutPadding().encodeToString(nonceBytes);
+
+        Map<String, String> oauth = new LinkedHashMap<>();
+        oauth.put("oauth_consumer_key", config.getConsumerKey());
+        oauth.put("oauth_token", config.getTokenId());
+        oauth.put("oauth_signature_method", "HMAC-SHA256");
+        oauth.put("oauth_timestamp", timestamp);
+        oauth.put("oauth_nonce", nonce);
+        oauth.put("oauth_version", "1.0");
+
+        TreeMap<String, List<String>> parameters = new TreeMap<>();
+        oauth.forEach((key, value) -> parameters.computeIfAbsent(encode(key), k -> new ArrayList<>()).add(encode(value)));
+        if (uri.getRawQuery() != null) {
+            for (String pair : uri.getRawQuery().split("&")) {
+                int eq = pair.indexOf('=');
+                String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+                String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+                parameters.computeIfAbsent(encode(key), k -> new ArrayList<>()).add(encode(value));
+            }
+        }
+        StringBuilder normalized = new StringBuilder();
+        parameters.forEach((key, values) -> values.stream().sorted().forEach(value -> {
+            if (normalized.length() > 0) {
+                normalized.append('&');
+            }
+            normalized.append(key).append('=').append(value);
+        }));
+
+        String baseUri = uri.getScheme().toLowerCase() + "://" + uri.getRawAuthority().toLowerCase() + uri.getRawPath();
+        String baseString = method.toUpperCase() + "&" + encode(baseUri) + "&" + encode(normalized.toString());
+        String key = encode(config.getConsumerSecret()) + "&" + encode(config.getTokenSecret());
+
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        String signature = Base64.getEncoder().encodeToString(mac.doFinal(baseString.getBytes(StandardCharsets.UTF_8)));
+
+        StringBuilder header = new StringBuilder("OAuth realm=\"").append(config.getAccountId().toUpperCase().replace('-', '_')).append('"');
+        oauth.forEach((name, value) -> header.append(", ").append(name).append("=\"").append(encode(value)).append('"'));
+        header.append(", oauth_signature=\"").append(encode(signature)).append('"');
+        return header.toString();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8)
+                .replace("+", "%20")
+                .replace("*", "%2A")
+                .replace("%7E", "~");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(NetSuiteSignerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
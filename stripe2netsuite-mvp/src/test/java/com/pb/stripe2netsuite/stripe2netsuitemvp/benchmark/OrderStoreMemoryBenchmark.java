@@ -0,0 +1,86 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.benchmark;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Order;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderQuery;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.ColumnarOrderStore;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.MockOrderStore;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.OrderStore;
+
+import java.util.function.Supplier;
+
+/**
+ * Heap retained per order by {@link MockOrderStore} and {@link ColumnarOrderStore},
+ * and the time of a filtered query over all orders in each.
+ *
+ * JMH measures time, not retained memory, so this is a plain main: it fills each
+ * store with the same orders (1,000,000 by default, or the first argument), runs
+ * a full GC and reads the used heap before and after. Run it alone, with a heap
+ * large enough for the object store, e.g. {@code -Xmx4g}:
+ * {@code mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+ * "-Dexec.args=-Xmx4g -cp %classpath com.pb.stripe2netsuite.stripe2netsuitemvp.benchmark.OrderStoreMemoryBenchmark"}
+ */
+public class OrderStoreMemoryBenchmark {
+
+    private static final String[] STATUSES = {"pending", "paid", "failed", "refunded"};
+    private static final String[] CURRENCIES = {"usd", "eur", "gbp"};
+    private static final int CUSTOMERS = 10_000;
+    private static final int QUERY_RUNS = 10;
+
+    public static void main(String[] args) {
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        System.out.printf("%,d orders, %,d customers%n", orders, CUSTOMERS);
+        measure("indexed (MockOrderStore)", MockOrderStore::new, orders);
+        measure("columnar (ColumnarOrderStore)", ColumnarOrderStore::new, orders);
+    }
+
+    private static void measure(String name, Supplier<OrderStore> factory, int orders) {
+        long before = usedHeap();
+        OrderStore store = factory.get();
+        for (int i = 0; i < orders; i++) {
+            store.put(order(i));
+        }
+        long retained = usedHeap() - before;
+
+        OrderQuery query = new OrderQuery("failed", "CUST-" + 42, null, null, null, null,
+                OrderQuery.SortField.AMOUNT, true, 100);
+        int found = 0;
+        long started = System.nanoTime();
+        for (int run = 0; run < QUERY_RUNS; run++) {
+            found = store.query(query).size();
+        }
+        long queryMicros = (System.nanoTime() - started) / 1_000 / QUERY_RUNS;
+
+        System.out.printf("%-30s %,14d bytes %,8d bytes/order   query %,8d us (%d found)%n",
+                name, retained, retained / orders, queryMicros, found);
+        // Keep the store reachable until it has been measured
+        if (store.size() != orders) {
+            throw new IllegalStateException("Expected " + orders + " orders, found " + store.size());
+        }
+    }
+
+    /**
+     * An order as MockNetSuiteService creates them: strings built per order, not shared constants.
+     */
+    private static Order order(int i) {
+        Order order = new Order(String.format("MOCK-ORDER-%07d", i + 1), new String(STATUSES[i % STATUSES.length]),
+                1_000L + (i * 37L) % 100_000, new String(CURRENCIES[i % CURRENCIES.length]));
+        order.setCustomerId("CUST-" + (i * 7919L) % CUSTOMERS);
+        order.setStripePaymentId("pi_" + Long.toString(0x10000000L + i * 104_729L, 36));
+        order.setDescription("Order " + (i + 1));
+        order.setCreatedAtMillis(1_700_000_000_000L + i * 1_000L);
+        return order;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
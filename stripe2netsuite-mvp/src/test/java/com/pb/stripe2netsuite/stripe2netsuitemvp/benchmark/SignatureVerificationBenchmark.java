@@ -0,0 +1,128 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.benchmark;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.StripeWebhookConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.StripeSignatureVerifier;
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.net.Webhook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares webhook signature verification through the Stripe SDK
+ * ({@link Webhook.Signature#verifyHeader}, as used by {@link Webhook#constructEvent})
+ * with {@link StripeSignatureVerifier}.
+ *
+ * The rotation benchmarks sign with the last of three secrets, which is the worst case:
+ * the SDK path has to be retried per secret, the verifier reuses its parsed header.
+ *
+ * Run with (JMH forks a JVM, so the classpath must be passed explicitly):
+ * {@code mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+ * "-Dexec.args=-cp %classpath com.pb.stripe2netsuite.stripe2netsuitemvp.benchmark.SignatureVerificationBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignatureVerificationBenchmark {
+
+    private static final List<String> SECRETS = List.of("whsec_current", "whsec_previous", "whsec_other_endpoint");
+
+    @Param({"1024", "16384"})
+    public int payloadSize;
+
+    private byte[] payload;
+    private String header;
+    private String rotatedHeader;
+    private StripeSignatureVerifier singleSecretVerifier;
+    private StripeSignatureVerifier rotatingVerifier;
+
+    @Setup
+    public void setUp() throws Exception {
+        StringBuilder json = new StringBuilder("{\"id\":\"evt_bench\",\"object\":\"event\",\"data\":{\"object\":{\"pad\":\"");
+        while (json.length() < payloadSize - 4) {
+            json.append('x');
+        }
+        json.append("\"}}}");
+        payload = json.toString().getBytes(StandardCharsets.UTF_8);
+
+        long timestamp = System.currentTimeMillis() / 1000;
+        header = sign(timestamp, SECRETS.get(0));
+        rotatedHeader = sign(timestamp, SECRETS.get(SECRETS.size() - 1));
+
+        StripeWebhookConfig single = new StripeWebhookConfig();
+        single.setSecret(SECRETS.get(0));
+        singleSecretVerifier = new StripeSignatureVerifier(single);
+
+        StripeWebhookConfig rotating = new StripeWebhookConfig();
+        rotating.setSecret(SECRETS.get(0));
+        rotating.setSecrets(SECRETS.subList(1, SECRETS.size()));
+        rotatingVerifier = new StripeSignatureVerifier(rotating);
+    }
+
+    @Benchmark
+    public boolean stripeSdk() throws SignatureVerificationException {
+        // The SDK works on Strings, so the payload copy is part of its cost
+        String body = new String(payload, StandardCharsets.UTF_8);
+        return Webhook.Signature.verifyHeader(body, header, SECRETS.get(0), Webhook.DEFAULT_TOLERANCE);
+    }
+
+    @Benchmark
+    public StripeSignatureVerifier.Result verifier() {
+        return singleSecretVerifier.verify(payload, payload.length, header);
+    }
+
+    @Benchmark
+    public boolean stripeSdkRotation() {
+        String body = new String(payload, StandardCharsets.UTF_8);
+        for (String secret : SECRETS) {
+            try {
+                if (Webhook.Signature.verifyHeader(body, rotatedHeader, secret, Webhook.DEFAULT_TOLERANCE)) {
+                    return true;
+                }
+            } catch (SignatureVerificationException e) {
+                // try the next secret
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public StripeSignatureVerifier.Result verifierRotation() {
+        return rotatingVerifier.verify(payload, payload.length, rotatedHeader);
+    }
+
+    private String sign(long timestamp, String secret) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        mac.update((timestamp + ".").getBytes(StandardCharsets.UTF_8));
+        mac.update(payload);
+        return "t=" + timestamp + ",v1=" + HexFormat.of().formatHex(mac.doFinal());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SignatureVerificationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
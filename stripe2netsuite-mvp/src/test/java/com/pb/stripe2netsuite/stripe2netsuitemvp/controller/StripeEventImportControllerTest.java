@@ -0,0 +1,171 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.NetSuiteRetryConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.StripeWebhookConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.WebhookBulkImportConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.WebhookJournalConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.WebhookQueueConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.InboundEvent;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.NetSuiteRetryScheduler;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.StripeEventParser;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.StripeEventProcessor;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.StripeSignatureVerifier;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.WebhookEventQueue;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.WebhookJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the bulk import splits NDJSON lines, reports oversize and unparsable lines,
+ * and reports per-line failures and timeouts in input order followed by a summary.
+ */
+class StripeEventImportControllerTest {
+
+    private static final String TOKEN = "import-token";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final NetSuiteRetryScheduler retryScheduler = new NetSuiteRetryScheduler(new NetSuiteRetryConfig());
+    private final CompletableFuture<StripeEventProcessor.Outcome> never = new CompletableFuture<>();
+    private WebhookBulkImportConfig importConfig;
+    private WebhookEventQueue queue;
+    private StripeEventImportController controller;
+
+    @BeforeEach
+    void setUp() {
+        StripeEventProcessor processor = new StripeEventProcessor(null, null) {
+            @Override
+            public CompletableFuture<Outcome> processEventAsync(InboundEvent event) {
+                return switch (event.getId()) {
+                    case "evt_fail" -> CompletableFuture.failedFuture(new IllegalStateException("handler failed"));
+                    case "evt_dup" -> CompletableFuture.completedFuture(Outcome.DUPLICATE);
+                    case "evt_hang" -> never;
+                    default -> CompletableFuture.completedFuture(Outcome.PROCESSED);
+                };
+            }
+        };
+        WebhookJournalConfig journalConfig = new WebhookJournalConfig();
+        journalConfig.setEnabled(false);
+        WebhookQueueConfig queueConfig = new WebhookQueueConfig();
+        queueConfig.setLanes(2);
+        queueConfig.setShutdownTimeoutSeconds(1);
+        queue = new WebhookEventQueue(processor, new WebhookJournal(journalConfig), retryScheduler, queueConfig);
+
+        importConfig = new WebhookBulkImportConfig();
+        importConfig.setToken(TOKEN);
+        importConfig.setMaxLineBytes(200);
+        importConfig.setMaxInFlight(4);
+        StripeWebhookConfig webhookConfig = new StripeWebhookConfig();
+        StripeEventParser parser = new StripeEventParser(objectMapper, webhookConfig,
+                new StripeSignatureVerifier(webhookConfig));
+        controller = new StripeEventImportController(parser, queue, importConfig, objectMapper);
+    }
+
+    @AfterEach
+    void tearDown() {
+        never.complete(StripeEventProcessor.Outcome.PROCESSED);
+        queue.shutdown();
+        retryScheduler.shutdown();
+    }
+
+    private static String event(String id) {
+        return "{\"id\":\"" + id + "\",\"object\":\"event\",\"type\":\"charge.succeeded\","
+                + "\"data\":{\"object\":{\"id\":\"ch_" + id + "\",\"amount\":100}}}";
+    }
+
+    private List<JsonNode> importBody(String body) throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/webhook/stripe/bulk");
+        request.addHeader("Authorization", "Bearer " + TOKEN);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.importEvents(request, response);
+
+        assertEquals(200, response.getStatus());
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : response.getContentAsString().split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+
+    @Test
+    void splitsLinesAndReportsEachInInputOrder() throws IOException {
+        String body = event("evt_1") + "\n"
+                + "\n"
+                + event("evt_2") + "\r\n"
+                + "   \n"
+                + event("evt_dup") + "\n"
+                + event("evt_3");
+
+        List<JsonNode> results = importBody(body);
+
+        assertEquals(5, results.size());
+        assertEquals(List.of(1, 3, 5, 6), results.subList(0, 4).stream().map(node -> node.get("line").asInt()).toList());
+        assertEquals(List.of("evt_1", "evt_2", "evt_dup", "evt_3"),
+                results.subList(0, 4).stream().map(node -> node.get("eventId").asText()).toList());
+        assertEquals("charge.succeeded", results.get(0).get("type").asText());
+        JsonNode summary = results.get(4);
+        assertTrue(summary.get("summary").asBoolean());
+        assertEquals(6, summary.get("lines").asInt());
+        assertEquals(3, summary.get("outcomes").get("PROCESSED").asInt());
+        assertEquals(1, summary.get("outcomes").get("DUPLICATE").asInt());
+    }
+
+    @Test
+    void reportsOversizeUnparsableAndFailedLinesWithoutStopping() throws IOException {
+        String oversize = "{\"id\":\"evt_big\",\"type\":\"charge.succeeded\",\"pad\":\"" + "x".repeat(300) + "\"}";
+        String body = event("evt_1") + "\n"
+                + oversize + "\n"
+                + "not json\n"
+                + event("evt_fail") + "\n"
+                + event("evt_2") + "\n";
+
+        List<JsonNode> results = importBody(body);
+
+        assertEquals(List.of("PROCESSED", "INVALID", "INVALID", "FAILED", "PROCESSED"),
+                results.subList(0, 5).stream().map(node -> node.get("outcome").asText()).toList());
+        assertEquals("Line exceeds 200 bytes", results.get(1).get("error").asText());
+        assertEquals("Not a Stripe event", results.get(2).get("error").asText());
+        assertEquals("evt_fail", results.get(3).get("eventId").asText());
+        JsonNode outcomes = results.get(5).get("outcomes");
+        assertEquals(2, outcomes.get("PROCESSED").asInt());
+        assertEquals(2, outcomes.get("INVALID").asInt());
+        assertEquals(1, outcomes.get("FAILED").asInt());
+    }
+
+    @Test
+    void reportsEventsWithoutAnOutcomeAsTimedOut() throws IOException {
+        importConfig.setOutcomeTimeoutSeconds(1);
+
+        List<JsonNode> results = importBody(event("evt_hang") + "\n" + event("evt_1") + "\n");
+
+        assertEquals("TIMEOUT", results.get(0).get("outcome").asText());
+        assertEquals("PROCESSED", results.get(1).get("outcome").asText());
+        assertEquals(1, results.get(2).get("outcomes").get("TIMEOUT").asInt());
+    }
+
+    @Test
+    void rejectsRequestsWithoutTheBearerToken() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/webhook/stripe/bulk");
+        request.addHeader("Authorization", "Bearer wrong");
+        request.setContent(event("evt_1").getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.importEvents(request, response);
+
+        assertEquals(401, response.getStatus());
+        assertEquals(0L, queue.getStats().get("enqueued"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.CustomerCacheConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.CustomerIndexConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.IdAllocatorConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.MockPersistenceConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.NetSuiteBatchConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.NetSuiteOutboxConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.NetSuiteRetryConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Order;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.CustomerCache;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.CustomerIdIndex;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.CustomerSingleFlight;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.IdBlockStore;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.MockNetSuitePersistence;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.MockNetSuiteService;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.MockOrderStore;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.NetSuiteBatchWriter;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.NetSuiteOutbox;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.NetSuiteRetryScheduler;
+import com.stripe.model.Invoice;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs invoice lifecycle events through InvoiceEventHandler into the mock NetSuite, without the outbox.
+ */
+class InvoiceEventHandlerTest {
+
+    private MockNetSuiteService netSuite;
+    private NetSuiteBatchWriter batchWriter;
+    private NetSuiteRetryScheduler retryScheduler;
+    private InvoiceEventHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        CustomerIdIndex customerIndex = new CustomerIdIndex(new CustomerIndexConfig());
+        netSuite = new MockNetSuiteService(customerIndex, new CustomerSingleFlight(),
+                new CustomerCache(new CustomerCacheConfig(), customerIndex, new CustomerSingleFlight()),
+                new IdBlockStore(new IdAllocatorConfig()), new MockOrderStore(),
+                new MockNetSuitePersistence(new MockPersistenceConfig()));
+        batchWriter = new NetSuiteBatchWriter(netSuite, new NetSuiteBatchConfig());
+        retryScheduler = new NetSuiteRetryScheduler(new NetSuiteRetryConfig());
+        handler = new InvoiceEventHandler(new NetSuiteOutbox(new NetSuiteOutboxConfig(), netSuite, netSuite,
+                batchWriter, retryScheduler, new ObjectMapper()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchWriter.shutdown();
+        retryScheduler.shutdown();
+    }
+
+    private static Invoice invoice(String id) {
+        Invoice invoice = new Invoice();
+        invoice.setId(id);
+        invoice.setCustomer("cus_1234567890");
+        invoice.setTotal(4_200L);
+        invoice.setCurrency("eur");
+        invoice.setNumber("INV-0001");
+        return invoice;
+    }
+
+    @Test
+    void aPaidInvoiceCompletesTheOrderItsCreationMade() {
+        handler.handle("invoice.created", "evt_created", invoice("in_1"));
+        Order created = netSuite.findOrderByStripePaymentIntentId("in_1");
+        assertEquals("pending", created.getStatus());
+
+        handler.handle("invoice.paid", "evt_paid", invoice("in_1"));
+
+        Order paid = netSuite.findOrderByStripePaymentIntentId("in_1");
+        assertEquals(created.getId(), paid.getId());
+        assertEquals("completed", paid.getStatus());
+        assertEquals(1, netSuite.getAllOrders().values().stream()
+                .filter(order -> "in_1".equals(order.getStripePaymentId()))
+                .count());
+    }
+}
@@ -0,0 +1,92 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Order;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderQuery;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the OrderStore contract against ColumnarOrderStore, and checks that it stores orders
+ * field for field and answers queries as MockOrderStore does.
+ */
+class ColumnarOrderStoreTest extends OrderStoreContractTest {
+
+    @Override
+    protected OrderStore newStore() {
+        return new ColumnarOrderStore();
+    }
+
+    @Test
+    void readsBackEveryField() {
+        Order stored = order("ORDER-5", null, null, "gbp", null, null, null);
+        stored.setDescription("No amount yet");
+        store.put(stored);
+
+        Order read = store.get("ORDER-5");
+        assertNotSame(stored, read);
+        assertNull(read.getStatus());
+        assertNull(read.getAmount());
+        assertNull(read.getCustomerId());
+        assertNull(read.getCreatedAtMillis());
+        assertEquals("gbp", read.getCurrency());
+        assertEquals("No amount yet", read.getDescription());
+
+        Order first = store.get("ORDER-1");
+        assertEquals(List.of("failed", "usd", "CUST-A", "pi_1"),
+                List.of(first.getStatus(), first.getCurrency(), first.getCustomerId(), first.getStripePaymentId()));
+        assertEquals(Long.valueOf(500L), first.getAmount());
+        assertEquals(Long.valueOf(1_000L), first.getCreatedAtMillis());
+        assertNull(store.get("ORDER-404"));
+    }
+
+    @Test
+    void answersQueriesAsMockOrderStoreDoes() {
+        MockOrderStore indexed = new MockOrderStore();
+        store.clear();
+        for (int i = 0; i < 3_000; i++) {
+            Order order = order(String.format("ORDER-%05d", (i * 7_919) % 3_000), i % 5 == 0 ? "paid" : "failed",
+                    i % 11 == 0 ? null : (long) (i * 37) % 1_000, i % 2 == 0 ? "usd" : "eur",
+                    "CUST-" + i % 13, "pi_" + i, (long) (i % 400) * 10);
+            indexed.put(order);
+            store.put(order);
+        }
+        store.updateStatus("ORDER-00042", "refunded");
+        indexed.updateStatus("ORDER-00042", "refunded");
+
+        List<OrderQuery> queries = List.of(
+                query("failed", "CUST-3", null, null, OrderQuery.SortField.CREATED_AT, false, 50),
+                query(null, null, 1_000L, 2_000L, OrderQuery.SortField.CREATED_AT, true, 25),
+                query("paid", null, null, null, OrderQuery.SortField.AMOUNT, true, 1_000),
+                query(null, "CUST-7", null, null, OrderQuery.SortField.AMOUNT, false, 40),
+                query("refunded", null, null, null, OrderQuery.SortField.ID, false, 10),
+                query("unknown", null, null, null, OrderQuery.SortField.ID, false, 10),
+                new OrderQuery(null, null, "eur", "pi_7", null, null, OrderQuery.SortField.ID, false, 10));
+        for (OrderQuery query : queries) {
+            assertEquals(ids(indexed.query(query)), ids(store.query(query)), query.toString());
+        }
+        assertEquals(ids(indexed.snapshot().orders()), ids(store.snapshot().orders()));
+    }
+
+    @Test
+    void growsPastItsInitialCapacity() {
+        List<Order> notified = new ArrayList<>();
+        store.setWriteListener(notified::add);
+        for (int i = 0; i < 5_000; i++) {
+            store.put(order("BULK-" + i, "pending", (long) i, "usd", "CUST-" + i, "pi_bulk_" + i, (long) i));
+        }
+
+        assertEquals(5_004, store.size());
+        assertEquals(5_000, notified.size());
+        for (int i = 0; i < 5_000; i += 499) {
+            assertEquals(Long.valueOf(i), store.get("BULK-" + i).getAmount());
+            assertEquals("BULK-" + i, store.findByStripePaymentId("pi_bulk_" + i).getId());
+        }
+        assertEquals("ORDER-3", store.findByStripePaymentId("pi_3").getId());
+        assertEquals(List.of("BULK-4999"), ids(store.query(query(null, "CUST-4999", null, null,
+                OrderQuery.SortField.ID, false, 10))));
+    }
+}
@@ -0,0 +1,191 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.CustomerCacheConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.CustomerIndexConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Customer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs CustomerCache in front of an in-memory NetSuite, counting the reads that reach it.
+ */
+class CustomerCacheTest {
+
+    private CustomerIdIndex customerIndex;
+    private final Map<String, Customer> netSuite = new ConcurrentHashMap<>();
+    private final AtomicInteger netSuiteReads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        customerIndex = new CustomerIdIndex(new CustomerIndexConfig());
+        store(new Customer("MOCK-CUST-001", "John Doe", "john.doe@example.com"), "cus_1234567890");
+        store(new Customer("MOCK-CUST-002", "Jane Smith", "jane.smith@example.com"), "cus_0987654321");
+    }
+
+    private void store(Customer customer, String stripeCustomerId) {
+        customer.setStripeCustomerId(stripeCustomerId);
+        netSuite.put(customer.getId(), customer);
+        customerIndex.put(stripeCustomerId, customer.getId());
+    }
+
+    private CompletableFuture<Customer> read(String customerId) {
+        netSuiteReads.incrementAndGet();
+        return CompletableFuture.completedFuture(netSuite.get(customerId));
+    }
+
+    private CustomerCache cache(CustomerCacheConfig config) {
+        config.setEnabled(true);
+        return new CustomerCache(config, customerIndex, new CustomerSingleFlight());
+    }
+
+    @Test
+    void readsAreServedFromCacheUntilExpiry() throws Exception {
+        CustomerCacheConfig config = new CustomerCacheConfig();
+        config.setTtlMillis(100);
+        config.setNegativeTtlMillis(100);
+        config.setRefreshAheadFraction(1);
+        CustomerCache cache = cache(config);
+
+        assertEquals("John Doe", cache.get("MOCK-CUST-001", this::read).getName());
+        assertEquals("John Doe", cache.get("MOCK-CUST-001", this::read).getName());
+        assertNull(cache.get("MOCK-CUST-404", this::read));
+        assertNull(cache.get("MOCK-CUST-404", this::read));
+        assertEquals(2, netSuiteReads.get());
+        assertEquals(0.5, cache.getStats().get("hitRatio"));
+
+        Thread.sleep(150);
+        cache.get("MOCK-CUST-001", this::read);
+        cache.get("MOCK-CUST-404", this::read);
+        assertEquals(4, netSuiteReads.get());
+        assertEquals(2L, cache.getStats().get("expirations"));
+    }
+
+    @Test
+    void stripeCustomerEventsInvalidateTheEntry() {
+        CustomerCache cache = cache(new CustomerCacheConfig());
+
+        cache.get("MOCK-CUST-001", this::read);
+        cache.invalidateStripeCustomer("cus_1234567890");
+        cache.get("MOCK-CUST-001", this::read);
+
+        assertEquals(2, netSuiteReads.get());
+        assertEquals(1L, cache.getStats().get("invalidations"));
+    }
+
+    @Test
+    void invalidateAllDropsEveryEntry() {
+        CustomerCache cache = cache(new CustomerCacheConfig());
+
+        cache.get("MOCK-CUST-001", this::read);
+        cache.get("MOCK-CUST-404", this::read);
+        cache.invalidateAll();
+        assertEquals(0, cache.getStats().get("entries"));
+        assertEquals(0L, cache.getStats().get("weightBytes"));
+
+        cache.get("MOCK-CUST-001", this::read);
+        assertEquals(3, netSuiteReads.get());
+    }
+
+    @Test
+    void aLoadIsCachedDespiteInvalidationsOfOtherCustomers() {
+        CustomerCache cache = cache(new CustomerCacheConfig());
+        CompletableFuture<Customer> response = new CompletableFuture<>();
+
+        CompletableFuture<Customer> loaded = cache.getAsync("MOCK-CUST-001", id -> response);
+        cache.invalidate("MOCK-CUST-002");
+        cache.invalidateStripeCustomer("cus_not_indexed");
+        response.complete(netSuite.get("MOCK-CUST-001"));
+
+        assertEquals("John Doe", loaded.join().getName());
+        assertEquals("John Doe", cache.get("MOCK-CUST-001", this::read).getName());
+        assertEquals(0, netSuiteReads.get());
+    }
+
+    @Test
+    void aLoadOverlappingAnInvalidationOfItsCustomerIsNotCached() {
+        CustomerCache cache = cache(new CustomerCacheConfig());
+        CompletableFuture<Customer> response = new CompletableFuture<>();
+        Customer created = new Customer("MOCK-CUST-003", "Ada", "ada@example.com");
+        created.setStripeCustomerId("cus_new");
+
+        CompletableFuture<Customer> byId = cache.getAsync("MOCK-CUST-001", id -> response);
+        cache.invalidate("MOCK-CUST-001");
+        response.complete(netSuite.get("MOCK-CUST-001"));
+        assertNotNull(byId.join());
+
+        // Not indexed yet: matched against the customer the load returns
+        CompletableFuture<Customer> newResponse = new CompletableFuture<>();
+        CompletableFuture<Customer> byStripeId = cache.getAsync("MOCK-CUST-003", id -> newResponse);
+        cache.invalidateStripeCustomer("cus_new");
+        newResponse.complete(created);
+        assertEquals("Ada", byStripeId.join().getName());
+
+        cache.get("MOCK-CUST-001", this::read);
+        cache.get("MOCK-CUST-003", this::read);
+        assertEquals(2, netSuiteReads.get());
+    }
+
+    @Test
+    void hotEntriesAreRefreshedAheadOfExpiry() throws Exception {
+        CustomerCacheConfig config = new CustomerCacheConfig();
+        config.setTtlMillis(300);
+        config.setRefreshAheadFraction(0.2);
+        CustomerCache cache = cache(config);
+
+        cache.get("MOCK-CUST-001", this::read);
+        Thread.sleep(100);
+        assertNotNull(cache.get("MOCK-CUST-001", this::read));
+        assertEquals(2, netSuiteReads.get());
+        assertEquals(1L, cache.getStats().get("refreshes"));
+
+        // The refreshed entry is fresh again
+        cache.get("MOCK-CUST-001", this::read);
+        assertEquals(2, netSuiteReads.get());
+    }
+
+    @Test
+    void anEntryKeepsBeingRefreshedAfterARefreshOverlappedAnInvalidation() throws Exception {
+        CustomerCacheConfig config = new CustomerCacheConfig();
+        config.setTtlMillis(400);
+        config.setRefreshAheadFraction(0.2);
+        CustomerCache cache = cache(config);
+        CompletableFuture<Customer> response = new CompletableFuture<>();
+
+        cache.get("MOCK-CUST-001", this::read);
+        Thread.sleep(100);
+        cache.get("MOCK-CUST-001", id -> response);
+        cache.invalidateStripeCustomer("cus_not_indexed");
+        response.complete(netSuite.get("MOCK-CUST-001"));
+
+        Thread.sleep(100);
+        cache.get("MOCK-CUST-001", this::read);
+        assertEquals(2, netSuiteReads.get());
+        assertEquals(2L, cache.getStats().get("refreshes"));
+    }
+
+    @Test
+    void leastRecentlyReadEntriesAreEvictedAboveMaxWeight() {
+        CustomerCacheConfig config = new CustomerCacheConfig();
+        config.setMaxWeightBytes(600);
+        CustomerCache cache = cache(config);
+
+        cache.get("MOCK-CUST-001", this::read);
+        cache.get("MOCK-CUST-002", this::read);
+        cache.get("MOCK-CUST-001", this::read);
+        cache.get("MOCK-CUST-404", this::read);
+        cache.get("MOCK-CUST-405", this::read);
+
+        assertTrue((long) cache.getStats().get("weightBytes") <= 600);
+        assertTrue((long) cache.getStats().get("evictions") >= 1);
+        int reads = netSuiteReads.get();
+        cache.get("MOCK-CUST-405", this::read);
+        assertEquals(reads, netSuiteReads.get());
+    }
+}
@@ -0,0 +1,68 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.CustomerIndexConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that CustomerIdIndex survives a restart through its snapshot.
+ */
+class CustomerIdIndexTest {
+
+    @TempDir
+    Path directory;
+
+    private CustomerIdIndex open(Path snapshotFile) {
+        CustomerIndexConfig config = new CustomerIndexConfig();
+        config.setSnapshotEnabled(true);
+        config.setSnapshotFile(snapshotFile.toString());
+        config.setSnapshotIntervalSeconds(3600);
+        CustomerIdIndex index = new CustomerIdIndex(config);
+        index.open();
+        return index;
+    }
+
+    @Test
+    void entriesAreReloadedFromSnapshot() {
+        Path snapshotFile = directory.resolve("customer-index.snapshot");
+        CustomerIdIndex index = open(snapshotFile);
+        index.put("cus_1", "101");
+        index.put("cus_2", "102");
+        index.remove("cus_2", "999");
+        index.close();
+
+        CustomerIdIndex reopened = open(snapshotFile);
+        try {
+            assertEquals(2, reopened.size());
+            assertEquals("101", reopened.get("cus_1"));
+            assertEquals("102", reopened.get("cus_2"));
+            assertNull(reopened.get("cus_3"));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void corruptSnapshotIsIgnored() throws Exception {
+        Path snapshotFile = directory.resolve("customer-index.snapshot");
+        CustomerIdIndex index = open(snapshotFile);
+        index.put("cus_1", "101");
+        index.close();
+
+        byte[] bytes = Files.readAllBytes(snapshotFile);
+        bytes[bytes.length / 2] ^= 0x7f;
+        Files.write(snapshotFile, bytes);
+
+        CustomerIdIndex reopened = open(snapshotFile);
+        try {
+            assertEquals(0, reopened.size());
+        } finally {
+            reopened.close();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Customer;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that CustomerSingleFlight coalesces calls and that the mock creates one customer per Stripe customer.
+ */
+class CustomerSingleFlightTest {
+
+    @Test
+    void callsForTheSameKeyShareOneExecution() throws Exception {
+        CustomerSingleFlight singleFlight = new CustomerSingleFlight();
+        CompletableFuture<String> lookup = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.execute("stripe:cus_1", () -> lookup);
+        CompletableFuture<String> second = singleFlight.execute("stripe:cus_1", () -> CompletableFuture.completedFuture("other"));
+        CompletableFuture<String> otherKey = singleFlight.execute("stripe:cus_2", () -> CompletableFuture.completedFuture("CUST-2"));
+
+        assertSame(first, second);
+        assertEquals("CUST-2", otherKey.get());
+        lookup.complete("CUST-1");
+        assertEquals("CUST-1", second.get());
+        assertEquals(1L, singleFlight.getStats().get("coalesced"));
+        assertEquals(0, singleFlight.getStats().get("inFlight"));
+
+        // Key is free again once the call completed
+        assertEquals("again", singleFlight.execute("stripe:cus_1", () -> CompletableFuture.completedFuture("again")).get());
+    }
+
+    @Test
+    void failureReachesEveryCaller() {
+        CustomerSingleFlight singleFlight = new CustomerSingleFlight();
+        CompletableFuture<String> lookup = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.execute("customer:42", () -> lookup);
+        CompletableFuture<String> second = singleFlight.execute("customer:42", () -> lookup);
+        lookup.completeExceptionally(NetSuiteException.forStatus(503, "Service unavailable"));
+
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+        assertEquals(0, singleFlight.getStats().get("inFlight"));
+    }
+
+    @Test
+    void concurrentOrdersForANewStripeCustomerCreateOneCustomer() throws Exception {
+        MockNetSuiteService netSuite = new TestMockNetSuiteService();
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<String>> customerIds = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                String paymentId = "pi_" + i;
+                customerIds.add(executor.submit(() -> {
+                    OrderDto dto = new OrderDto();
+                    dto.setStripePaymentId(paymentId);
+                    dto.setStripeCustomerId("cus_new");
+                    dto.setAmount(1_000L);
+                    start.await();
+                    return netSuite.createOrder(dto).getCustomerId();
+                }));
+            }
+            start.countDown();
+
+            Set<String> distinct = ConcurrentHashMap.newKeySet();
+            for (Future<String> customerId : customerIds) {
+                distinct.add(customerId.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, distinct.size());
+            Customer customer = netSuite.getCustomer(distinct.iterator().next());
+            assertEquals("cus_new", customer.getStripeCustomerId());
+            assertEquals(3, netSuite.getCustomerMappings(0, 100).mappings().size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
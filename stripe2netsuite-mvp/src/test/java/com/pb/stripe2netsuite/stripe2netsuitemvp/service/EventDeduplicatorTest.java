@@ -0,0 +1,107 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.WebhookDedupConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that EventDeduplicator drops redeliveries for the whole window across Bloom filter
+ * rotations, forgets expired, released and evicted IDs, and keeps completed IDs across a restart.
+ */
+class EventDeduplicatorTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    @TempDir
+    Path directory;
+
+    private static WebhookDedupConfig config(long windowHours, int maxEntries) {
+        WebhookDedupConfig config = new WebhookDedupConfig();
+        config.setWindowHours(windowHours);
+        config.setMaxEntries(maxEntries);
+        return config;
+    }
+
+    @Test
+    void dropsRedeliveriesForTheWholeWindowAcrossRotations() {
+        long start = System.currentTimeMillis();
+        EventDeduplicator deduplicator = new EventDeduplicator(config(2, 1_000));
+
+        // Added just before the first generation rotates, so it must outlive two rotations
+        assertTrue(deduplicator.tryAcquire("evt_1", start + 59 * MINUTE));
+        deduplicator.complete("evt_1");
+
+        assertTrue(deduplicator.tryAcquire("evt_2", start + 61 * MINUTE));
+        assertTrue(deduplicator.tryAcquire("evt_3", start + 122 * MINUTE));
+        assertFalse(deduplicator.tryAcquire("evt_1", start + 178 * MINUTE));
+
+        // Past the window the ID is processed again
+        assertTrue(deduplicator.tryAcquire("evt_1", start + 180 * MINUTE));
+        assertEquals(1L, deduplicator.getStats().get("duplicates"));
+    }
+
+    @Test
+    void expiredIdsAreProcessedAgainWithoutRotation() {
+        long start = System.currentTimeMillis();
+        EventDeduplicator deduplicator = new EventDeduplicator(config(1, 1_000));
+
+        assertTrue(deduplicator.tryAcquire("evt_1", start));
+        deduplicator.complete("evt_1");
+        assertFalse(deduplicator.tryAcquire("evt_1", start + 59 * MINUTE));
+        assertTrue(deduplicator.tryAcquire("evt_1", start + 60 * MINUTE));
+    }
+
+    @Test
+    void releasedEventsAreProcessedAgainAndInFlightOnesAreNot() {
+        long now = System.currentTimeMillis();
+        EventDeduplicator deduplicator = new EventDeduplicator(config(1, 1_000));
+
+        assertTrue(deduplicator.tryAcquire("evt_1", now));
+        assertFalse(deduplicator.tryAcquire("evt_1", now));
+        assertEquals(1L, deduplicator.getStats().get("inFlightDuplicates"));
+
+        deduplicator.release("evt_1");
+        assertTrue(deduplicator.tryAcquire("evt_1", now));
+        assertEquals(1L, deduplicator.getStats().get("released"));
+    }
+
+    @Test
+    void rotatesFullGenerationsAndProcessesEvictedIdsAgain() {
+        long now = System.currentTimeMillis();
+        EventDeduplicator deduplicator = new EventDeduplicator(config(1, 4));
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(deduplicator.tryAcquire("evt_" + i, now));
+            deduplicator.complete("evt_" + i);
+        }
+        for (int i = 6; i < 10; i++) {
+            assertFalse(deduplicator.tryAcquire("evt_" + i, now), "evt_" + i);
+        }
+        assertTrue(deduplicator.tryAcquire("evt_0", now));
+        assertEquals(7L, deduplicator.getStats().get("evicted"));
+        assertEquals(4, deduplicator.getStats().get("entries"));
+    }
+
+    @Test
+    void keepsCompletedIdsAcrossARestart() {
+        WebhookDedupConfig config = config(1, 1_000);
+        config.setPersistFile(directory.resolve("dedup.bin").toString());
+        EventDeduplicator deduplicator = new EventDeduplicator(config);
+        deduplicator.start();
+        assertTrue(deduplicator.tryAcquire("evt_done"));
+        deduplicator.complete("evt_done");
+        assertTrue(deduplicator.tryAcquire("evt_in_flight"));
+        deduplicator.stop();
+
+        EventDeduplicator restarted = new EventDeduplicator(config);
+        restarted.start();
+        assertFalse(restarted.tryAcquire("evt_done"));
+        assertTrue(restarted.tryAcquire("evt_in_flight"));
+        restarted.stop();
+    }
+}
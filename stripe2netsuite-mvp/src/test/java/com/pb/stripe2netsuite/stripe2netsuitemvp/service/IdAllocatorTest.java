@@ -0,0 +1,81 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.IdAllocatorConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that IdAllocator hands out unique IDs across threads and across stores sharing a lease directory.
+ */
+class IdAllocatorTest {
+
+    @TempDir
+    Path directory;
+
+    private IdBlockStore store(String leaseDirectory, int blockSize) {
+        IdAllocatorConfig config = new IdAllocatorConfig();
+        config.setLeaseDirectory(leaseDirectory);
+        config.setBlockSize(blockSize);
+        return new IdBlockStore(config);
+    }
+
+    @Test
+    void formatMatchesStringFormat() {
+        for (long id : new long[] {0, 7, 42, 999, 1_000, 123_456_789_012L}) {
+            assertEquals(String.format("MOCK-ORDER-%03d", id), IdAllocator.format("MOCK-ORDER-", id));
+        }
+    }
+
+    @Test
+    void startsAtFirstIdAndIncreases() {
+        IdAllocator allocator = store("", 3).allocator("orders", 2);
+
+        assertEquals(2, allocator.next());
+        assertEquals(3, allocator.next());
+        assertEquals(4, allocator.next());
+        assertEquals("MOCK-ORDER-005", allocator.next("MOCK-ORDER-"));
+        assertEquals(2L, allocator.getStats().get("leases"));
+    }
+
+    @Test
+    void instancesSharingALeaseDirectoryNeverCollide() throws Exception {
+        List<IdAllocator> allocators = List.of(
+                store(directory.toString(), 7).allocator("orders", 1),
+                store(directory.toString(), 7).allocator("orders", 1));
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                IdAllocator allocator = allocators.get(i % 2);
+                workers.add(executor.submit(() -> {
+                    for (int n = 0; n < 1_000; n++) {
+                        assertTrue(ids.add(allocator.next()));
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(8_000, ids.size());
+
+        // A restarted instance continues after every block leased before
+        long next = store(directory.toString(), 7).allocator("orders", 1).next();
+        assertTrue(next > ids.stream().mapToLong(Long::longValue).max().orElseThrow());
+    }
+}
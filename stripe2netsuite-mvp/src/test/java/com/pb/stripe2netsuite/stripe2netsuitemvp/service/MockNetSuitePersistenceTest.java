@@ -0,0 +1,169 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.MockPersistenceConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Order;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Restarts the mock NetSuite on the same persistence directory and checks what comes back.
+ */
+class MockNetSuitePersistenceTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Start a mock on the directory, as after a restart: every component is new.
+     */
+    private MockNetSuiteService start(MockNetSuitePersistence persistence) {
+        return new TestMockNetSuiteService(persistence);
+    }
+
+    private MockNetSuitePersistence persistence() {
+        MockPersistenceConfig config = new MockPersistenceConfig();
+        config.setEnabled(true);
+        config.setDirectory(directory.toString());
+        config.setSnapshotIntervalSeconds(3600);
+        return new MockNetSuitePersistence(config);
+    }
+
+    private static OrderDto dto(String stripePaymentId, String stripeCustomerId) {
+        OrderDto dto = new OrderDto();
+        dto.setStripePaymentId(stripePaymentId);
+        dto.setStripeCustomerId(stripeCustomerId);
+        dto.setAmount(2_500L);
+        dto.setCurrency("eur");
+        return dto;
+    }
+
+    private static List<String> statuses(MockNetSuiteService netSuite) {
+        return netSuite.getOrdersSnapshot().orders().stream()
+                .map(order -> order.getId() + "=" + order.getStatus())
+                .toList();
+    }
+
+    @Test
+    void restoresTheSnapshotAndTheLogWrittenAfterIt() {
+        MockNetSuitePersistence persistence = persistence();
+        MockNetSuiteService netSuite = start(persistence);
+        Order first = netSuite.createOrder(dto("pi_1", "cus_new"));
+        netSuite.updateOrderStatus(first.getId(), "failed");
+        persistence.snapshot();
+        netSuite.createPendingOrder(700L, "usd", "After the snapshot", "pi_2");
+        netSuite.markOrderAsPaid("pi_2");
+        List<String> before = statuses(netSuite);
+
+        // No close: the process is gone, the last writes are only in the log
+        MockNetSuitePersistence restartedPersistence = persistence();
+        MockNetSuiteService restarted = start(restartedPersistence);
+        try {
+            assertEquals(before, statuses(restarted));
+            assertEquals("failed", restarted.getOrder(first.getId()).getStatus());
+            assertEquals(Long.valueOf(2_500L), restarted.getOrder(first.getId()).getAmount());
+            assertEquals(3, restarted.getAllCustomers().size());
+
+            // The restored customer is found again; new IDs continue after the restored ones
+            Order next = restarted.createOrder(dto("pi_3", "cus_new"));
+            assertEquals(first.getCustomerId(), next.getCustomerId());
+            assertNull(netSuite.getOrder(next.getId()));
+            restarted.createOrder(dto("pi_4", "cus_other"));
+            assertEquals(4, restarted.getCustomersView().size());
+            assertEquals(2L, restartedPersistence.getStats().get("replayedRecords"));
+        } finally {
+            restartedPersistence.close();
+        }
+    }
+
+    @Test
+    void ignoresATornRecordAtTheEndOfTheLog() throws Exception {
+        MockNetSuitePersistence persistence = persistence();
+        MockNetSuiteService netSuite = start(persistence);
+        netSuite.createPendingOrder(100L, "usd", "Logged", "pi_1");
+        List<String> before = statuses(netSuite);
+
+        Path log;
+        try (Stream<Path> files = Files.list(directory)) {
+            log = files.filter(path -> path.getFileName().toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        Files.write(log, new byte[] {0, 0, 0, 40, 1, 7, 7}, StandardOpenOption.APPEND);
+
+        MockNetSuitePersistence restartedPersistence = persistence();
+        try {
+            assertEquals(before, statuses(start(restartedPersistence)));
+        } finally {
+            restartedPersistence.close();
+        }
+    }
+
+    private Path newestSnapshot() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("snapshot-"))
+                    .max(Path::compareTo)
+                    .orElseThrow();
+        }
+    }
+
+    private static void corrupt(Path file) throws Exception {
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+    }
+
+    @Test
+    void fallsBackToThePreviousSnapshotAndItsLogs() throws Exception {
+        MockNetSuitePersistence persistence = persistence();
+        MockNetSuiteService netSuite = start(persistence);
+        netSuite.createPendingOrder(100L, "usd", "Before the first snapshot", "pi_1");
+        persistence.snapshot();
+        netSuite.createPendingOrder(200L, "usd", "Between the snapshots", "pi_2");
+        persistence.snapshot();
+        netSuite.createPendingOrder(300L, "usd", "After the snapshots", "pi_3");
+        List<String> before = statuses(netSuite);
+        corrupt(newestSnapshot());
+
+        MockNetSuitePersistence restartedPersistence = persistence();
+        try {
+            assertEquals(before, statuses(start(restartedPersistence)));
+        } finally {
+            restartedPersistence.close();
+        }
+    }
+
+    @Test
+    void failsToStartWithoutAReadableSnapshot() throws Exception {
+        MockNetSuitePersistence persistence = persistence();
+        MockNetSuiteService netSuite = start(persistence);
+        netSuite.createPendingOrder(100L, "usd", "Only in the snapshot", "pi_1");
+        persistence.snapshot();
+        corrupt(newestSnapshot());
+
+        assertThrows(UncheckedIOException.class, () -> start(persistence()));
+    }
+
+    @Test
+    void clearingIsReplayed() {
+        MockNetSuiteService netSuite = start(persistence());
+        netSuite.createOrder(dto("pi_1", "cus_new"));
+        netSuite.clearData();
+
+        MockNetSuitePersistence restartedPersistence = persistence();
+        try {
+            MockNetSuiteService restarted = start(restartedPersistence);
+            assertEquals(List.of("MOCK-ORDER-001=pending"), statuses(restarted));
+            assertEquals(2, restarted.getAllCustomers().size());
+        } finally {
+            restartedPersistence.close();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.CursorPage;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Order;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the OrderStore contract against MockOrderStore, and checks cursor paging through the mock NetSuite.
+ */
+class MockOrderStoreTest extends OrderStoreContractTest {
+
+    @Override
+    protected OrderStore newStore() {
+        return new MockOrderStore();
+    }
+
+    @Test
+    void cursorPagesCoverEveryOrderOnce() {
+        MockNetSuiteService netSuite = new TestMockNetSuiteService();
+        for (int i = 0; i < 6; i++) {
+            netSuite.createPendingOrder(100L + i, "usd", "Order " + i, "pi_" + i);
+        }
+
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<Order> page = netSuite.getOrdersPage(cursor, 3);
+            seen.addAll(ids(page.items()));
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(ids(netSuite.getOrdersSnapshot().orders()), seen);
+        assertEquals(7, seen.size());
+        assertThrows(IllegalArgumentException.class, () -> netSuite.getOrdersPage("not base64!", 3));
+    }
+}
@@ -0,0 +1,83 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.NetSuiteLimiterConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.NetSuiteConcurrencyLimiter.Permit;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.service.NetSuiteConcurrencyLimiter.Signal;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks slot accounting, queueing and limit adjustment of NetSuiteConcurrencyLimiter.
+ */
+class NetSuiteConcurrencyLimiterTest {
+
+    private static NetSuiteLimiterConfig config(int initialLimit) {
+        NetSuiteLimiterConfig config = new NetSuiteLimiterConfig();
+        config.setInitialLimit(initialLimit);
+        config.setMaxLimit(10);
+        config.setMaxQueued(2);
+        config.setMaxQueueWaitMillis(200);
+        return config;
+    }
+
+    private static int limit(NetSuiteConcurrencyLimiter limiter) {
+        return (int) limiter.getStats().get("limit");
+    }
+
+    @Test
+    void requestsAboveTheLimitWaitForAFreedSlot() throws Exception {
+        NetSuiteConcurrencyLimiter limiter = new NetSuiteConcurrencyLimiter(config(1));
+
+        Permit first = limiter.acquire().get();
+        CompletableFuture<Permit> second = limiter.acquire();
+        assertFalse(second.isDone());
+        assertEquals(1, limiter.getStats().get("queued"));
+
+        first.release(Signal.IGNORED);
+        assertTrue(second.isDone());
+        assertEquals(1, limiter.getStats().get("inFlight"));
+    }
+
+    @Test
+    void fullQueueAndLongWaitFailRetryably() {
+        NetSuiteConcurrencyLimiter limiter = new NetSuiteConcurrencyLimiter(config(1));
+        limiter.acquire();
+        CompletableFuture<Permit> waiting = limiter.acquire();
+        limiter.acquire();
+
+        ExecutionException full = assertThrows(ExecutionException.class, () -> limiter.acquire().get());
+        assertTrue(((NetSuiteException) full.getCause()).isRetryable());
+
+        ExecutionException timedOut = assertThrows(ExecutionException.class, waiting::get);
+        assertInstanceOf(NetSuiteException.class, timedOut.getCause());
+        assertTrue(((NetSuiteException) timedOut.getCause()).isRetryable());
+    }
+
+    @Test
+    void limitGrowsUnderLoadAndBacksOffOnRejection() throws Exception {
+        NetSuiteLimiterConfig config = config(4);
+        // Latencies of in-memory permits are noise; only the AIMD part is under test
+        config.setLatencyTolerance(1_000);
+        NetSuiteConcurrencyLimiter limiter = new NetSuiteConcurrencyLimiter(config);
+
+        for (int round = 0; round < 20; round++) {
+            List<Permit> permits = new ArrayList<>();
+            for (int i = 0; i < limit(limiter); i++) {
+                permits.add(limiter.acquire().get());
+            }
+            permits.forEach(permit -> permit.release(Signal.SUCCESS));
+        }
+        int grown = limit(limiter);
+        assertTrue(grown > 4, "limit should grow, was " + grown);
+        assertTrue(grown <= 10);
+
+        limiter.acquire().get().release(Signal.DROPPED);
+        assertTrue(limit(limiter) < grown);
+    }
+}
@@ -0,0 +1,270 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.NetSuiteBatchConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.NetSuiteOutboxConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.NetSuiteRetryConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.NetSuiteWriteResult;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Order;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderDto;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderStatusUpdate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs NetSuiteOutbox against the mock NetSuite, including a restart while NetSuite is down,
+ * replayed writes and failures part way through a batch.
+ */
+class NetSuiteOutboxTest {
+
+    @TempDir
+    Path directory;
+
+    private final NetSuiteRetryScheduler retryScheduler = new NetSuiteRetryScheduler(retryConfig());
+
+    private static NetSuiteRetryConfig retryConfig() {
+        NetSuiteRetryConfig config = new NetSuiteRetryConfig();
+        config.setBaseDelayMillis(10);
+        config.setTimerTickMillis(1);
+        return config;
+    }
+
+    @AfterEach
+    void tearDown() {
+        retryScheduler.shutdown();
+    }
+
+    private NetSuiteOutbox open(MockNetSuiteService netSuite) {
+        NetSuiteOutboxConfig config = new NetSuiteOutboxConfig();
+        config.setEnabled(true);
+        config.setDirectory(directory.toString());
+        NetSuiteOutbox outbox = new NetSuiteOutbox(config, netSuite, netSuite,
+                new NetSuiteBatchWriter(netSuite, new NetSuiteBatchConfig()), retryScheduler, new ObjectMapper());
+        outbox.open();
+        return outbox;
+    }
+
+    private static OrderDto order(String stripePaymentId) {
+        OrderDto dto = new OrderDto();
+        dto.setStripePaymentId(stripePaymentId);
+        dto.setAmount(1_000L);
+        dto.setCurrency("usd");
+        dto.setStatus("completed");
+        return dto;
+    }
+
+    private static Set<String> stripePaymentIds(MockNetSuiteService netSuite) {
+        return netSuite.getAllOrders().values().stream()
+                .map(Order::getStripePaymentId)
+                .collect(Collectors.toSet());
+    }
+
+    private static void awaitDrained(NetSuiteOutbox outbox) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((int) outbox.getStats().get("pendingEntries") > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, outbox.getStats().get("pendingEntries"));
+    }
+
+    @Test
+    void recordedWritesReachNetSuite() throws Exception {
+        MockNetSuiteService netSuite = new TestMockNetSuiteService();
+        NetSuiteOutbox outbox = open(netSuite);
+        try {
+            outbox.createOrder(order("ch_1")).get(5, TimeUnit.SECONDS);
+            outbox.createOrder(order("ch_2")).get(5, TimeUnit.SECONDS);
+
+            awaitDrained(outbox);
+            assertTrue(stripePaymentIds(netSuite).containsAll(Set.of("ch_1", "ch_2")));
+            assertEquals(2L, outbox.getStats().get("relayed"));
+        } finally {
+            outbox.close();
+        }
+    }
+
+    @Test
+    void unsentWritesSurviveARestart() throws Exception {
+        MockNetSuiteService unavailable = new TestMockNetSuiteService() {
+            @Override
+            public List<NetSuiteWriteResult> createOrders(List<OrderDto> dtos) {
+                throw NetSuiteException.forStatus(503, "Service unavailable");
+            }
+        };
+        NetSuiteOutbox outbox = open(unavailable);
+        outbox.createOrder(order("ch_3")).get(5, TimeUnit.SECONDS);
+        outbox.createOrder(order("ch_4")).get(5, TimeUnit.SECONDS);
+        outbox.close();
+        assertFalse(stripePaymentIds(unavailable).contains("ch_3"));
+
+        MockNetSuiteService netSuite = new TestMockNetSuiteService();
+        NetSuiteOutbox reopened = open(netSuite);
+        try {
+            awaitDrained(reopened);
+            assertTrue(stripePaymentIds(netSuite).containsAll(Set.of("ch_3", "ch_4")));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void aCreateReplayedAfterATimeoutLeavesOneOrder() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        MockNetSuiteService netSuite = new TestMockNetSuiteService() {
+            @Override
+            public List<NetSuiteWriteResult> createOrders(List<OrderDto> dtos) {
+                List<NetSuiteWriteResult> results = super.createOrders(dtos);
+                if (calls.getAndIncrement() == 0) {
+                    // NetSuite created the order but the answer never arrived
+                    throw new NetSuiteException("POST salesOrder timed out", 0, true);
+                }
+                return results;
+            }
+        };
+        NetSuiteOutbox outbox = open(netSuite);
+        try {
+            outbox.createOrder(order("ch_5")).get(5, TimeUnit.SECONDS);
+
+            awaitDrained(outbox);
+            assertEquals(2, calls.get());
+            assertEquals(1, netSuite.getAllOrders().values().stream()
+                    .filter(order -> "ch_5".equals(order.getStripePaymentId()))
+                    .count());
+        } finally {
+            outbox.close();
+        }
+    }
+
+    @Test
+    void unexpectedErrorsRejectTheEntryInsteadOfRetryingForever() throws Exception {
+        MockNetSuiteService broken = new TestMockNetSuiteService() {
+            @Override
+            public List<NetSuiteWriteResult> createOrders(List<OrderDto> dtos) {
+                throw new IllegalStateException("Cannot map order");
+            }
+        };
+        NetSuiteOutbox outbox = open(broken);
+        try {
+            outbox.createOrder(order("ch_6")).get(5, TimeUnit.SECONDS);
+
+            awaitDrained(outbox);
+            assertEquals(1L, outbox.getStats().get("rejected"));
+            assertEquals(0, outbox.getStats().get("consecutiveFailures"));
+        } finally {
+            outbox.close();
+        }
+    }
+
+    @Test
+    void entriesAfterARetryableFailureWaitForIt() throws Exception {
+        AtomicBoolean down = new AtomicBoolean(true);
+        AtomicInteger paidAttempts = new AtomicInteger();
+        List<String> applied = new CopyOnWriteArrayList<>();
+        MockNetSuiteService netSuite = new TestMockNetSuiteService() {
+            @Override
+            public List<NetSuiteWriteResult> updateOrderStatuses(List<OrderStatusUpdate> updates) {
+                if (down.get()) {
+                    throw NetSuiteException.forStatus(503, "Service unavailable");
+                }
+                List<NetSuiteWriteResult> results = new ArrayList<>();
+                for (OrderStatusUpdate update : updates) {
+                    if (update.status().equals("paid") && paidAttempts.getAndIncrement() == 0) {
+                        results.add(NetSuiteWriteResult.failure("Record is locked", 0, true));
+                    } else {
+                        applied.add(update.status());
+                        results.add(super.updateOrderStatuses(List.of(update)).get(0));
+                    }
+                }
+                return results;
+            }
+        };
+        String orderId = netSuite.createOrder(order("ch_7")).getId();
+
+        // Both updates are recovered into the outbox and sent as one batch
+        NetSuiteOutbox outbox = open(netSuite);
+        outbox.updateOrderStatus(orderId, "paid").get(5, TimeUnit.SECONDS);
+        outbox.updateOrderStatus(orderId, "refunded").get(5, TimeUnit.SECONDS);
+        outbox.close();
+        down.set(false);
+
+        NetSuiteOutbox reopened = open(netSuite);
+        try {
+            awaitDrained(reopened);
+            assertEquals("refunded", netSuite.getOrder(orderId).getStatus());
+            assertEquals("refunded", applied.get(applied.size() - 1));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void withoutTheOutboxConcurrentWritesAreBatched() throws Exception {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        MockNetSuiteService netSuite = new TestMockNetSuiteService() {
+            @Override
+            public List<NetSuiteWriteResult> createOrders(List<OrderDto> dtos) {
+                batchSizes.add(dtos.size());
+                return super.createOrders(dtos);
+            }
+        };
+        NetSuiteBatchConfig batchConfig = new NetSuiteBatchConfig();
+        batchConfig.setLingerMillis(200);
+        NetSuiteBatchWriter batchWriter = new NetSuiteBatchWriter(netSuite, batchConfig);
+        NetSuiteOutbox outbox = new NetSuiteOutbox(new NetSuiteOutboxConfig(), netSuite, netSuite, batchWriter,
+                retryScheduler, new ObjectMapper());
+        outbox.open();
+        try {
+            List<CompletableFuture<Void>> writes = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                writes.add(outbox.createOrder(order("ch_direct_" + i)));
+            }
+            CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+
+            assertEquals(List.of(5), batchSizes);
+            assertTrue(stripePaymentIds(netSuite).contains("ch_direct_4"));
+            // Unknown orders are logged, as before batching
+            outbox.updateOrderStatus("MOCK-ORDER-404", "paid").get(5, TimeUnit.SECONDS);
+        } finally {
+            batchWriter.shutdown();
+        }
+    }
+
+    @Test
+    void theRelayWaitsAsLongAsNetSuiteAsks() throws Exception {
+        List<Long> attemptNanos = new CopyOnWriteArrayList<>();
+        MockNetSuiteService netSuite = new TestMockNetSuiteService() {
+            @Override
+            public List<NetSuiteWriteResult> createOrders(List<OrderDto> dtos) {
+                attemptNanos.add(System.nanoTime());
+                if (attemptNanos.size() == 1) {
+                    throw NetSuiteException.forStatus(429, "Concurrency limit exceeded", 300);
+                }
+                return super.createOrders(dtos);
+            }
+        };
+        NetSuiteOutbox outbox = open(netSuite);
+        try {
+            outbox.createOrder(order("ch_8")).get(5, TimeUnit.SECONDS);
+
+            awaitDrained(outbox);
+            assertEquals(2, attemptNanos.size());
+            assertTrue(attemptNanos.get(1) - attemptNanos.get(0) >= TimeUnit.MILLISECONDS.toNanos(300));
+        } finally {
+            outbox.close();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.NetSuiteConfig;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks NetSuiteRequestSigner against signatures computed independently per RFC 5849.
+ * The credentials contain reserved characters to exercise the percent-encoding.
+ */
+class NetSuiteRequestSignerTest {
+
+    private static final String BASE = "https://1234567-sb1.suitetalk.api.netsuite.com/services/rest/record/v1/";
+
+    private final NetSuiteRequestSigner signer = new NetSuiteRequestSigner(config());
+
+    private static NetSuiteConfig config() {
+        NetSuiteConfig config = new NetSuiteConfig();
+        config.setAccountId("1234567-sb1");
+        config.setConsumerKey("ck~key");
+        config.setConsumerSecret("cs&secret");
+        config.setTokenId("tok/en");
+        config.setTokenSecret("tok secret");
+        return config;
+    }
+
+    @Test
+    void signsRequestWithoutQuery() {
+        String header = signer.authorizationHeader("post", URI.create(BASE + "salesOrder"), 1700000000L, "abc123");
+
+        assertTrue(header.startsWith("OAuth realm=\"1234567_SB1\""));
+        assertTrue(header.contains("oauth_consumer_key=\"ck~key\""));
+        assertTrue(header.contains("oauth_token=\"tok%2Fen\""));
+        assertTrue(header.contains("oauth_signature=\"XTcCLlE1r7IAlKQlfIeB8qKeyzotEby8LFUw%2BBZ%2FYRE%3D\""));
+    }
+
+    @Test
+    void includesSortedQueryParametersInSignature() {
+        URI uri = URI.create(BASE + "customer/42?fields=entityId%2Cemail&a=x%20y");
+        String header = signer.authorizationHeader("GET", uri, 1700000000L, "abc123");
+
+        assertTrue(header.contains("oauth_signature=\"y5D0uNvIpyRq2CPbHTdvQgQvaMUWvJkPS8xBkhc1UMA%3D\""));
+    }
+
+    @Test
+    void generatesDistinctNonces() {
+        URI uri = URI.create(BASE + "salesOrder");
+        assertNotEquals(signer.authorizationHeader("POST", uri), signer.authorizationHeader("POST", uri));
+    }
+}
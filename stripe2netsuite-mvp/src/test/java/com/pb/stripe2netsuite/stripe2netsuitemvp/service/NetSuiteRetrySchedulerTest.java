@@ -0,0 +1,126 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.NetSuiteRetryConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks retry decisions of NetSuiteRetryScheduler and state changes of NetSuiteCircuitBreakers.
+ */
+class NetSuiteRetrySchedulerTest {
+
+    private final NetSuiteRetryConfig config = config();
+    private final NetSuiteRetryScheduler scheduler = new NetSuiteRetryScheduler(config);
+
+    private static NetSuiteRetryConfig config() {
+        NetSuiteRetryConfig config = new NetSuiteRetryConfig();
+        config.setMaxAttempts(3);
+        config.setBaseDelayMillis(5);
+        config.setMaxDelayMillis(20);
+        config.setTimerTickMillis(1);
+        config.setCircuitWindowSize(4);
+        config.setCircuitMinimumCalls(4);
+        config.setCircuitOpenSeconds(60);
+        return config;
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void retryableFailuresAreRetriedUntilSuccess() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<String> result = scheduler.execute("event:evt_1", () -> attempts.incrementAndGet() < 3
+                ? CompletableFuture.failedFuture(NetSuiteException.forStatus(503, null))
+                : CompletableFuture.completedFuture("ok"));
+
+        assertEquals("ok", result.get(5, TimeUnit.SECONDS));
+        assertEquals(3, attempts.get());
+        assertEquals(1L, scheduler.getStats().get("recovered"));
+    }
+
+    @Test
+    void nonRetryableAndExhaustedFailuresAreReturned() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<String> rejected = scheduler.execute("event:evt_2", () -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.failedFuture(NetSuiteException.forStatus(400, "Invalid field"));
+        });
+        ExecutionException fatal = assertThrows(ExecutionException.class, () -> rejected.get(5, TimeUnit.SECONDS));
+        assertFalse(((NetSuiteException) fatal.getCause()).isRetryable());
+        assertEquals(1, attempts.get());
+
+        CompletableFuture<String> down = scheduler.execute("event:evt_3",
+                () -> CompletableFuture.failedFuture(NetSuiteException.forStatus(500, null)));
+        assertThrows(ExecutionException.class, () -> down.get(5, TimeUnit.SECONDS));
+        assertEquals(1L, scheduler.getStats().get("exhausted"));
+    }
+
+    @Test
+    void pendingKeyIsJoinedInsteadOfStartedAgain() throws Exception {
+        CompletableFuture<String> firstAttempt = new CompletableFuture<>();
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<String> first = scheduler.execute("event:evt_4", () -> {
+            attempts.incrementAndGet();
+            return firstAttempt;
+        });
+        CompletableFuture<String> second = scheduler.execute("event:evt_4",
+                () -> CompletableFuture.completedFuture("second"));
+
+        assertSame(first, second);
+        firstAttempt.complete("first");
+        assertEquals("first", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void circuitOpensOnFailuresAndAsksForAWait() {
+        NetSuiteCircuitBreakers breakers = new NetSuiteCircuitBreakers(config);
+        for (int i = 0; i < 4; i++) {
+            breakers.acquire("POST salesOrder");
+            breakers.record("POST salesOrder", false, i % 2 == 0);
+        }
+
+        NetSuiteException open = assertThrows(NetSuiteException.class, () -> breakers.acquire("POST salesOrder"));
+        assertTrue(open.isRetryable());
+        assertTrue(open.getRetryAfterMillis() > 0);
+        assertTrue(breakers.remainingOpenMillis("POST salesOrder") > 0);
+
+        // Other endpoints are unaffected
+        breakers.acquire("GET customer");
+    }
+
+    @Test
+    void onlyTheTrialCallClosesOrReopensAHalfOpenCircuit() {
+        config.setCircuitOpenSeconds(0);
+        NetSuiteCircuitBreakers breakers = new NetSuiteCircuitBreakers(config);
+        for (int i = 0; i < 4; i++) {
+            assertFalse(breakers.acquire("POST salesOrder"));
+        }
+        for (int i = 0; i < 4; i++) {
+            breakers.record("POST salesOrder", false, true);
+        }
+        assertTrue(breakers.acquire("POST salesOrder"));
+
+        // Calls that started before the circuit opened finish while the trial is in flight
+        breakers.record("POST salesOrder", false, false);
+        assertThrows(NetSuiteException.class, () -> breakers.acquire("POST salesOrder"));
+
+        breakers.record("POST salesOrder", true, true);
+        assertTrue(breakers.acquire("POST salesOrder"));
+        breakers.record("POST salesOrder", true, false);
+        assertFalse(breakers.acquire("POST salesOrder"));
+        assertEquals(NetSuiteCircuitBreakers.State.CLOSED,
+                ((Map<?, ?>) breakers.getStats().get("POST salesOrder")).get("state"));
+    }
+}
@@ -0,0 +1,198 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Order;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the OrderStore contract: writes, filtered queries, pages and snapshots.
+ * Each store's test extends it with the store to check.
+ */
+abstract class OrderStoreContractTest {
+
+    protected OrderStore store;
+
+    /**
+     * Create an empty store of the kind under test.
+     */
+    protected abstract OrderStore newStore();
+
+    @BeforeEach
+    void setUp() {
+        store = newStore();
+        store.put(order("ORDER-1", "failed", 500L, "usd", "CUST-A", "pi_1", 1_000L));
+        store.put(order("ORDER-2", "paid", 1_500L, "usd", "CUST-A", "pi_2", 2_000L));
+        store.put(order("ORDER-3", "failed", 2_500L, "eur", "CUST-B", "pi_3", 3_000L));
+        store.put(order("ORDER-4", "failed", 100L, "usd", "CUST-A", "pi_4", 4_000L));
+    }
+
+    static Order order(String id, String status, Long amount, String currency, String customerId,
+                       String stripePaymentId, Long createdAtMillis) {
+        Order order = new Order(id, status, amount, currency);
+        order.setCustomerId(customerId);
+        order.setStripePaymentId(stripePaymentId);
+        order.setCreatedAtMillis(createdAtMillis);
+        return order;
+    }
+
+    static OrderQuery query(String status, String customerId, Long from, Long to,
+                            OrderQuery.SortField sortBy, boolean descending, int limit) {
+        return new OrderQuery(status, customerId, null, null, from, to, sortBy, descending, limit);
+    }
+
+    static List<String> ids(List<Order> orders) {
+        return orders.stream().map(Order::getId).toList();
+    }
+
+    @Test
+    void filtersOnEveryGivenField() {
+        List<Order> result = store.query(query("failed", "CUST-A", null, null,
+                OrderQuery.SortField.CREATED_AT, false, 100));
+
+        assertEquals(List.of("ORDER-1", "ORDER-4"), ids(result));
+        assertEquals("ORDER-3", store.query(new OrderQuery(null, null, null, "pi_3", null, null,
+                OrderQuery.SortField.CREATED_AT, true, 100)).get(0).getId());
+    }
+
+    @Test
+    void statusUpdatesMoveTheOrderBetweenIndexes() {
+        store.updateStatus("ORDER-1", "paid");
+
+        assertEquals(List.of("ORDER-4"), ids(store.query(query("failed", "CUST-A", null, null,
+                OrderQuery.SortField.CREATED_AT, false, 100))));
+        assertEquals(List.of("ORDER-1", "ORDER-2"), ids(store.query(query("paid", null, null, null,
+                OrderQuery.SortField.ID, false, 100))));
+        assertNull(store.updateStatus("ORDER-404", "paid"));
+    }
+
+    @Test
+    void timeRangeIsReadInOrderUpToTheLimit() {
+        List<Order> result = store.query(query(null, null, 2_000L, 5_000L,
+                OrderQuery.SortField.CREATED_AT, true, 2));
+
+        assertEquals(List.of("ORDER-4", "ORDER-3"), ids(result));
+        // The upper bound is exclusive
+        assertEquals(List.of("ORDER-1"), ids(store.query(query(null, null, null, 2_000L,
+                OrderQuery.SortField.CREATED_AT, false, 100))));
+    }
+
+    @Test
+    void sortsByAmount() {
+        List<Order> result = store.query(query("failed", null, null, null,
+                OrderQuery.SortField.AMOUNT, true, 100));
+
+        assertEquals(List.of("ORDER-3", "ORDER-1", "ORDER-4"), ids(result));
+    }
+
+    @Test
+    void replacingAnOrderDropsItsOldIndexEntries() {
+        store.put(order("ORDER-2", "refunded", 1_500L, "gbp", "CUST-C", "pi_2b", 2_000L));
+
+        assertNull(store.findByStripePaymentId("pi_2"));
+        assertEquals("refunded", store.findByStripePaymentId("pi_2b").getStatus());
+        assertTrue(store.query(query(null, "CUST-A", null, null,
+                OrderQuery.SortField.ID, false, 100)).stream().noneMatch(order -> order.getId().equals("ORDER-2")));
+        assertEquals(4, store.size());
+        assertEquals(4, store.query(query(null, null, null, null, OrderQuery.SortField.ID, false, 100)).size());
+    }
+
+    @Test
+    void storedOrdersAreNotChangedByTheirCaller() {
+        List<Order> notified = new ArrayList<>();
+        store.setWriteListener(notified::add);
+        Order order = order("ORDER-5", "pending", 1L, "usd", "CUST-A", "pi_5", 5_000L);
+        store.put(order);
+        order.setStatus("paid");
+
+        assertEquals("pending", store.get("ORDER-5").getStatus());
+        assertEquals("pending", notified.get(0).getStatus());
+        assertEquals(List.of("ORDER-5"), ids(store.query(query("pending", null, null, null,
+                OrderQuery.SortField.ID, false, 100))));
+    }
+
+    @Test
+    void writesAndClearsAreReportedToTheirListeners() {
+        List<String> notified = new ArrayList<>();
+        AtomicInteger clears = new AtomicInteger();
+        store.setWriteListener(order -> notified.add(order.getId() + "=" + order.getStatus()));
+        store.setClearListener(clears::incrementAndGet);
+
+        store.put(order("ORDER-5", "pending", 1L, "usd", "CUST-A", null, 5_000L));
+        store.updateStatus("ORDER-5", "paid");
+        store.updateStatus("ORDER-404", "paid");
+        store.clear();
+
+        assertEquals(List.of("ORDER-5=pending", "ORDER-5=paid"), notified);
+        assertEquals(1, clears.get());
+    }
+
+    @Test
+    void snapshotKeepsTheOrdersAsTheyWere() {
+        OrderStore.Snapshot snapshot = store.snapshot();
+        Order updated = store.updateStatus("ORDER-1", "paid");
+        store.put(order("ORDER-5", "paid", 1L, "usd", "CUST-A", null, 0L));
+        store.clear();
+
+        assertEquals(4, snapshot.version());
+        assertEquals("failed", snapshot.orders().get(0).getStatus());
+        assertEquals("paid", updated.getStatus());
+        assertEquals(List.of("ORDER-1", "ORDER-2", "ORDER-3", "ORDER-4"), ids(snapshot.orders()));
+        assertEquals(7, store.snapshot().version());
+        assertEquals(List.of(), store.snapshot().orders());
+        assertEquals(0, store.size());
+        assertNull(store.get("ORDER-1"));
+    }
+
+    @Test
+    void snapshotsTakenDuringWritesMatchTheirVersion() throws Exception {
+        long base = store.snapshot().version();
+        int writes = 20_000;
+        Thread writer = new Thread(() -> {
+            for (int write = 1; write <= writes; write++) {
+                store.updateStatus("ORDER-" + (write % 4 + 1), "status-" + write);
+            }
+        });
+        writer.start();
+
+        int checked = 0;
+        while (writer.isAlive() || checked == 0) {
+            OrderStore.Snapshot snapshot = store.snapshot();
+            long applied = snapshot.version() - base;
+            for (Order order : snapshot.orders()) {
+                int slot = Integer.parseInt(order.getId().substring("ORDER-".length())) - 1;
+                // The last write to this order at or before the snapshot's version
+                long last = applied - Math.floorMod(applied - slot, 4);
+                if (last > 0) {
+                    assertEquals("status-" + last, order.getStatus(), "at version " + snapshot.version());
+                }
+            }
+            assertEquals(4, snapshot.orders().size());
+            checked++;
+        }
+        writer.join();
+        assertEquals(base + writes, store.snapshot().version());
+    }
+
+    @Test
+    void pagesStartAfterTheGivenId() {
+        assertEquals(List.of("ORDER-1", "ORDER-2"), ids(store.page(null, 2)));
+        assertEquals(List.of("ORDER-3", "ORDER-4"), ids(store.page("ORDER-2", 5)));
+    }
+
+    @Test
+    void pagesFollowIdOrderAcrossWrites() {
+        store.put(order("ORDER-0", "paid", 1L, "usd", "CUST-A", null, 0L));
+        assertEquals(List.of("ORDER-0", "ORDER-1"), ids(store.page(null, 2)));
+
+        store.put(order("ORDER-25", "paid", 1L, "usd", "CUST-A", null, 0L));
+        assertEquals(List.of("ORDER-25", "ORDER-3", "ORDER-4"), ids(store.page("ORDER-2", 5)));
+        assertEquals(List.of(), store.page("ORDER-4", 5));
+    }
+}
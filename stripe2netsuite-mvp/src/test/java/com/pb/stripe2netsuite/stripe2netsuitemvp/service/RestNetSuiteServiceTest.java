@@ -0,0 +1,347 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.CustomerCacheConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.CustomerIndexConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.NetSuiteConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.NetSuiteHttpConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.NetSuiteLimiterConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.NetSuiteRetryConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Customer;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.CustomerMappingPage;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.NetSuiteWriteResult;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.Order;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderDto;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.OrderStatusUpdate;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs RestNetSuiteService against a local stand-in for the NetSuite REST API.
+ */
+class RestNetSuiteServiceTest {
+
+    private HttpServer server;
+    private NetSuiteConfig config;
+    private NetSuiteHttpConfig httpConfig;
+    private RestNetSuiteService service;
+    private CustomerIdIndex customerIndex;
+    private final CustomerCacheConfig customerCacheConfig = new CustomerCacheConfig();
+    private final List<Recorded> requests = new CopyOnWriteArrayList<>();
+    private volatile String suiteQlPrefer;
+
+    private record Recorded(String method, String path, String authorization, String body) {
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/services/rest/record/v1/", this::handle);
+        server.createContext("/app/site/hosting/restlet.nl", this::handleRestlet);
+        server.createContext("/services/rest/query/v1/suiteql", this::handleSuiteQl);
+        server.start();
+
+        config = new NetSuiteConfig();
+        config.setAccountId("1234567-sb1");
+        config.setConsumerKey("consumer-key");
+        config.setConsumerSecret("consumer-secret");
+        config.setTokenId("token-id");
+        config.setTokenSecret("token-secret");
+        config.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+
+        httpConfig = new NetSuiteHttpConfig();
+        httpConfig.setResponseTimeoutMillis(2_000);
+        customerIndex = new CustomerIdIndex(new CustomerIndexConfig());
+        service = new RestNetSuiteService(config, httpConfig, new NetSuiteRequestSigner(config),
+                new NetSuiteConcurrencyLimiter(new NetSuiteLimiterConfig()),
+                new NetSuiteCircuitBreakers(new NetSuiteRetryConfig()), customerIndex,
+                new CustomerSingleFlight(), new CustomerCache(customerCacheConfig, customerIndex,
+                new CustomerSingleFlight()), new ObjectMapper());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        requests.add(new Recorded(exchange.getRequestMethod(), exchange.getRequestURI().toString(),
+                exchange.getRequestHeaders().getFirst("Authorization"), body));
+
+        if (path.endsWith("/salesOrder") && body.contains("\"externalId\":\"pi_dup")) {
+            respond(exchange, 400, "{\"o:errorDetails\":[{\"detail\":\"A record with this external ID already exists\"}]}");
+        } else if (path.endsWith("/salesOrder/eid:pi_dup_existing")) {
+            respond(exchange, 200, "{\"links\":[{\"rel\":\"self\"}],\"id\":\"4700\",\"externalId\":\"pi_dup_existing\"}");
+        } else if (path.endsWith("/salesOrder/eid:pi_dup_missing")) {
+            respond(exchange, 404, "{\"o:errorDetails\":[{\"detail\":\"Record not found\"}]}");
+        } else if (path.endsWith("/salesOrder") && exchange.getRequestMethod().equals("POST")) {
+            exchange.getResponseHeaders().add("Location", "http://netsuite/services/rest/record/v1/salesOrder/4711");
+            exchange.sendResponseHeaders(204, -1);
+        } else if (path.endsWith("/salesOrder/eid:pi_missing")) {
+            respond(exchange, 404, "{\"o:errorDetails\":[{\"detail\":\"Record not found\"}]}");
+        } else if (path.contains("/salesOrder/")) {
+            exchange.sendResponseHeaders(204, -1);
+        } else if (path.endsWith("/customer/42")) {
+            respond(exchange, 200, "{\"links\":[{\"rel\":\"self\"}],\"id\":\"42\",\"entityId\":\"CUST-42\","
+                    + "\"email\":\"ada@example.com\",\"custentity_stripe_customer_id\":\"cus_42\"}");
+        } else if (path.endsWith("/customer/busy")) {
+            respond(exchange, 429, "{\"o:errorDetails\":[{\"detail\":\"Concurrency limit exceeded\"}]}");
+        } else {
+            respond(exchange, 400, "{\"o:errorDetails\":[{\"detail\":\"Invalid field value\"}]}");
+        }
+    }
+
+    private void handleRestlet(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        requests.add(new Recorded(exchange.getRequestMethod(), exchange.getRequestURI().toString(),
+                exchange.getRequestHeaders().getFirst("Authorization"), body));
+
+        if (body.contains("\"createOrders\"")) {
+            // Second record rejected, third never reached
+            respond(exchange, 200, "{\"results\":[{\"id\":\"5001\"},"
+                    + "{\"error\":\"Invalid customer\",\"retryable\":false}]}");
+        } else {
+            respond(exchange, 503, "{\"o:errorDetails\":[{\"detail\":\"Service unavailable\"}]}");
+        }
+    }
+
+    private void handleSuiteQl(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        requests.add(new Recorded(exchange.getRequestMethod(), exchange.getRequestURI().toString(),
+                exchange.getRequestHeaders().getFirst("Authorization"), body));
+        suiteQlPrefer = exchange.getRequestHeaders().getFirst("Prefer");
+
+        if (exchange.getRequestURI().getQuery().contains("offset=0")) {
+            respond(exchange, 200, "{\"links\":[],\"count\":2,\"hasMore\":true,\"items\":["
+                    + "{\"links\":[],\"id\":\"42\",\"custentity_stripe_customer_id\":\"cus_42\"},"
+                    + "{\"links\":[],\"id\":\"43\",\"custentity_stripe_customer_id\":\"cus_43\"}]}");
+        } else {
+            respond(exchange, 200, "{\"links\":[],\"count\":0,\"hasMore\":false,\"items\":[]}");
+        }
+    }
+
+    private RestNetSuiteService restletService() {
+        config.setRestletScriptId("customscript_stripe_batch");
+        config.setRestletDeploymentId("customdeploy1");
+        config.setRestletUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/app/site/hosting/restlet.nl");
+        return new RestNetSuiteService(config, httpConfig, new NetSuiteRequestSigner(config),
+                new NetSuiteConcurrencyLimiter(new NetSuiteLimiterConfig()),
+                new NetSuiteCircuitBreakers(new NetSuiteRetryConfig()), customerIndex,
+                new CustomerSingleFlight(), new CustomerCache(customerCacheConfig, customerIndex,
+                new CustomerSingleFlight()), new ObjectMapper());
+    }
+
+    private static OrderDto orderDto(String paymentId) {
+        OrderDto dto = new OrderDto();
+        dto.setStripePaymentId(paymentId);
+        dto.setAmount(1000L);
+        return dto;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    @Test
+    void createOrderPostsSalesOrderAndReadsIdFromLocation() {
+        OrderDto dto = new OrderDto();
+        dto.setStripePaymentId("pi_123");
+        dto.setStripeCustomerId("cus_42");
+        dto.setAmount(5000L);
+        dto.setCurrency("usd");
+        dto.setStatus("completed");
+
+        Order order = service.createOrder(dto);
+
+        assertEquals("4711", order.getId());
+        assertEquals("completed", order.getStatus());
+        Recorded request = requests.get(0);
+        assertEquals("POST", request.method());
+        assertTrue(request.body().contains("\"externalId\":\"pi_123\""));
+        assertTrue(request.body().contains("\"custbody_stripe_amount\":5000"));
+        assertTrue(request.authorization().startsWith("OAuth realm=\"1234567_SB1\""));
+        assertTrue(request.authorization().contains("oauth_signature_method=\"HMAC-SHA256\""));
+        assertTrue(request.authorization().contains("oauth_signature=\""));
+    }
+
+    @Test
+    void createOrderMovesTheOrderAnEarlierCreateMadeToTheNewStatus() {
+        OrderDto paid = orderDto("pi_dup_existing");
+        paid.setStatus("completed");
+        Order order = service.createOrder(paid);
+
+        assertEquals("4700", order.getId());
+        assertEquals("pi_dup_existing", order.getStripePaymentId());
+        assertEquals("completed", order.getStatus());
+        assertEquals("GET", requests.get(1).method());
+        assertTrue(requests.get(1).path().contains("/salesOrder/eid:pi_dup_existing"));
+        assertEquals("PATCH", requests.get(2).method());
+        assertTrue(requests.get(2).path().endsWith("/salesOrder/4700"));
+        assertTrue(requests.get(2).body().contains("\"custbody_stripe_status\":\"completed\""));
+
+        NetSuiteException rejected = assertThrows(NetSuiteException.class,
+                () -> service.createOrder(orderDto("pi_dup_missing")));
+        assertEquals(400, rejected.getStatusCode());
+        assertFalse(rejected.isRetryable());
+    }
+
+    @Test
+    void markOrderAsPaidAddressesOrderByExternalId() {
+        Order order = service.markOrderAsPaid("pi_123");
+
+        assertNotNull(order);
+        assertEquals("paid", order.getStatus());
+        assertEquals("PATCH", requests.get(0).method());
+        assertTrue(requests.get(0).path().endsWith("/salesOrder/eid:pi_123"));
+        assertNull(service.markOrderAsPaid("pi_missing"));
+    }
+
+    @Test
+    void getCustomerReadsFieldsAndSkipsLinks() {
+        Customer customer = service.getCustomer("42");
+
+        assertEquals("42", customer.getId());
+        assertEquals("CUST-42", customer.getName());
+        assertEquals("ada@example.com", customer.getEmail());
+        assertEquals("cus_42", customer.getStripeCustomerId());
+        assertTrue(requests.get(0).path().contains("fields="));
+    }
+
+    @Test
+    void getCustomerIsReadThroughTheCustomerCache() {
+        customerCacheConfig.setEnabled(true);
+
+        assertEquals("CUST-42", service.getCustomer("42").getName());
+        assertEquals("CUST-42", service.getCustomerAsync("42").join().getName());
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    void indexedCustomerIsReferencedByInternalId() {
+        service.getCustomer("42");
+        requests.clear();
+
+        OrderDto dto = orderDto("pi_123");
+        dto.setStripeCustomerId("cus_42");
+        service.createOrder(dto);
+        dto.setStripeCustomerId("cus_unknown");
+        service.createOrder(dto);
+
+        assertTrue(requests.get(0).body().contains("\"entity\":{\"id\":\"42\"}"));
+        assertTrue(requests.get(1).body().contains("\"entity\":{\"externalId\":\"cus_unknown\"}"));
+    }
+
+    @Test
+    void getCustomerMappingsPagesThroughSuiteQl() {
+        CustomerMappingPage first = service.getCustomerMappings(0, 2);
+        CustomerMappingPage second = service.getCustomerMappings(2, 2);
+
+        assertEquals(2, first.mappings().size());
+        assertEquals("cus_43", first.mappings().get(1).stripeCustomerId());
+        assertEquals("43", first.mappings().get(1).customerId());
+        assertTrue(first.hasMore());
+        assertTrue(second.mappings().isEmpty());
+        assertFalse(second.hasMore());
+
+        Recorded request = requests.get(0);
+        assertEquals("POST", request.method());
+        assertTrue(request.path().endsWith("?limit=2&offset=0"));
+        assertTrue(request.authorization().startsWith("OAuth realm="));
+        assertEquals("transient", suiteQlPrefer);
+        assertTrue(request.body().contains("custentity_stripe_customer_id IS NOT NULL"));
+    }
+
+    @Test
+    void errorsAreClassifiedAsRetryableOrNot() {
+        NetSuiteException busy = assertThrows(NetSuiteException.class, () -> service.getCustomer("busy"));
+        assertEquals(429, busy.getStatusCode());
+        assertTrue(busy.isRetryable());
+        assertTrue(busy.getMessage().contains("Concurrency limit exceeded"));
+
+        NetSuiteException invalid = assertThrows(NetSuiteException.class, () -> service.getCustomer("bad"));
+        assertEquals(400, invalid.getStatusCode());
+        assertFalse(invalid.isRetryable());
+    }
+
+    @Test
+    void connectionFailureIsRetryable() {
+        server.stop(0);
+
+        NetSuiteException e = assertThrows(NetSuiteException.class, () -> service.updateOrderStatus("4711", "paid"));
+        assertEquals(0, e.getStatusCode());
+        assertTrue(e.isRetryable());
+    }
+
+    @Test
+    void asyncCallsCompleteWithResultOrNetSuiteException() throws Exception {
+        CompletableFuture<Customer> customer = service.getCustomerAsync("42");
+        CompletableFuture<Customer> busy = service.getCustomerAsync("busy");
+
+        assertEquals("CUST-42", customer.get().getName());
+        ExecutionException e = assertThrows(ExecutionException.class, busy::get);
+        NetSuiteException cause = assertInstanceOf(NetSuiteException.class, e.getCause());
+        assertEquals(429, cause.getStatusCode());
+        assertNull(service.markOrderAsPaidAsync("pi_missing").get());
+    }
+
+    @Test
+    void createOrdersSendsOneRestletCallWithPerRecordResults() {
+        RestNetSuiteService restlet = restletService();
+        try {
+            List<NetSuiteWriteResult> results = restlet.createOrders(
+                    List.of(orderDto("pi_1"), orderDto("pi_2"), orderDto("pi_3")));
+
+            assertEquals(1, requests.size());
+            Recorded request = requests.get(0);
+            assertTrue(request.path().contains("script=customscript_stripe_batch&deploy=customdeploy1"));
+            assertTrue(request.body().contains("\"externalId\":\"pi_3\""));
+            assertTrue(request.authorization().startsWith("OAuth realm="));
+
+            assertEquals(3, results.size());
+            assertTrue(results.get(0).isSuccess());
+            assertEquals("5001", results.get(0).order().getId());
+            assertEquals("Invalid customer", results.get(1).error());
+            assertFalse(results.get(1).retryable());
+            assertFalse(results.get(2).isSuccess());
+        } finally {
+            restlet.shutdown();
+        }
+    }
+
+    @Test
+    void failedRestletCallFailsEveryRecord() {
+        RestNetSuiteService restlet = restletService();
+        try {
+            List<NetSuiteWriteResult> results = restlet.updateOrderStatuses(
+                    List.of(new OrderStatusUpdate("1", "paid"), new OrderStatusUpdate("2", "paid")));
+
+            assertEquals(2, results.size());
+            for (NetSuiteWriteResult result : results) {
+                assertEquals(503, result.statusCode());
+                assertTrue(result.retryable());
+            }
+        } finally {
+            restlet.shutdown();
+        }
+    }
+}
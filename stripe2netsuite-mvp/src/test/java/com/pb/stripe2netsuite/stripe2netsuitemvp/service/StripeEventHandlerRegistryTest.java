@@ -0,0 +1,108 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.WebhookDedupConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.handler.ProjectionEventHandler;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.handler.StripeEventHandler;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.EventProjection;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.InboundEvent;
+import com.stripe.model.Charge;
+import com.stripe.model.StripeObject;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that StripeEventHandlerRegistry routes a type to the projection only when its handler
+ * is a ProjectionEventHandler that opts out of the Stripe object, and that the processor otherwise
+ * hands it the materialized object.
+ */
+class StripeEventHandlerRegistryTest {
+
+    /**
+     * Only implements {@link #handle}.
+     */
+    private static class ObjectOnlyHandler implements StripeEventHandler {
+
+        final List<StripeObject> handled = new ArrayList<>();
+
+        @Override
+        public boolean canHandle(String eventType) {
+            return true;
+        }
+
+        @Override
+        public void handle(String eventType, String eventId, StripeObject stripeObject) {
+            handled.add(stripeObject);
+        }
+
+        @Override
+        public String[] getSupportedEventTypes() {
+            return new String[] {"charge.refunded"};
+        }
+    }
+
+    /**
+     * Handles charge.succeeded from the projection and charge.failed from the Stripe object.
+     */
+    private static class ProjectionHandler extends ObjectOnlyHandler implements ProjectionEventHandler {
+
+        final List<EventProjection> projected = new ArrayList<>();
+
+        @Override
+        public boolean requiresStripeObject(String eventType) {
+            return !eventType.equals("charge.succeeded");
+        }
+
+        @Override
+        public void handleProjection(String eventType, String eventId, EventProjection projection) {
+            projected.add(projection);
+        }
+
+        @Override
+        public String[] getSupportedEventTypes() {
+            return new String[] {"charge.succeeded", "charge.failed"};
+        }
+    }
+
+    private static StripeEventProcessor processor(StripeEventHandlerRegistry registry) {
+        WebhookDedupConfig dedupConfig = new WebhookDedupConfig();
+        dedupConfig.setEnabled(false);
+        return new StripeEventProcessor(registry, new EventDeduplicator(dedupConfig));
+    }
+
+    private static InboundEvent event(String type) {
+        String json = "{\"id\":\"evt_1\",\"object\":\"event\",\"type\":\"" + type + "\","
+                + "\"data\":{\"object\":{\"id\":\"ch_1\",\"object\":\"charge\",\"amount\":100,\"currency\":\"usd\"}}}";
+        return new InboundEvent("evt_1", type, new EventProjection("ch_1", "charge", 100L, "usd", null, null, null),
+                json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void routesOnlyTypesTheHandlerProjectsToTheProjection() {
+        ObjectOnlyHandler objectOnly = new ObjectOnlyHandler();
+        ProjectionHandler projection = new ProjectionHandler();
+        StripeEventHandlerRegistry registry = new StripeEventHandlerRegistry(List.of(objectOnly, projection));
+
+        assertFalse(registry.isProjected("charge.refunded"));
+        assertTrue(registry.isProjected("charge.succeeded"));
+        assertFalse(registry.isProjected("charge.failed"));
+        assertFalse(registry.isProjected("charge.unknown"));
+
+        StripeEventProcessor processor = processor(registry);
+        assertEquals(StripeEventProcessor.Outcome.PROCESSED, processor.processEvent(event("charge.refunded")));
+        assertEquals(1, objectOnly.handled.size());
+        assertEquals("ch_1", ((Charge) objectOnly.handled.get(0)).getId());
+
+        assertEquals(StripeEventProcessor.Outcome.PROCESSED, processor.processEvent(event("charge.succeeded")));
+        assertEquals(List.of(), projection.handled);
+        assertEquals("ch_1", projection.projected.get(0).id());
+
+        assertEquals(StripeEventProcessor.Outcome.PROCESSED, processor.processEvent(event("charge.failed")));
+        assertEquals(1, projection.handled.size());
+        assertEquals(1, projection.projected.size());
+    }
+}
@@ -0,0 +1,131 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.StripeWebhookConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.EventProjection;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.InboundEvent;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that StripeEventParser projects the data object of the event types handled from
+ * projections, and rejects malformed payloads or payloads missing the event id or type.
+ */
+class StripeEventParserTest {
+
+    private static final String SECRET = "whsec_test";
+
+    private static StripeEventParser parser(boolean verifySignature) {
+        StripeWebhookConfig config = new StripeWebhookConfig();
+        config.setSecret(SECRET);
+        config.setVerifySignature(verifySignature);
+        return new StripeEventParser(new ObjectMapper(), config, new StripeSignatureVerifier(config));
+    }
+
+    private static InboundEvent parse(String json) {
+        return parser(false).parseTrustedPayload(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String event(String type, String object) {
+        return "{\"id\":\"evt_1\",\"object\":\"event\",\"api_version\":\"2024-06-20\",\"created\":1700000000,"
+                + "\"type\":\"" + type + "\",\"livemode\":false,\"pending_webhooks\":1,"
+                + "\"request\":{\"id\":null,\"idempotency_key\":null},"
+                + "\"data\":{\"object\":" + object + ",\"previous_attributes\":{\"status\":\"open\"}}}";
+    }
+
+    @Test
+    void projectsPaymentIntentEvents() {
+        String paymentIntent = "{\"id\":\"pi_1\",\"object\":\"payment_intent\",\"amount\":2000,"
+                + "\"amount_received\":2000,\"currency\":\"usd\",\"customer\":\"cus_1\",\"status\":\"succeeded\","
+                + "\"charges\":{\"data\":[{\"id\":\"ch_1\",\"amount\":1}]},"
+                + "\"metadata\":{\"source\":\"web\",\"orderId\":\"ORDER-1\"}}";
+        for (String type : List.of("payment_intent.succeeded", "payment_intent.created",
+                "payment_intent.canceled", "payment_intent.requires_action")) {
+            InboundEvent event = parse(event(type, paymentIntent));
+            assertEquals("evt_1", event.getId());
+            assertEquals(type, event.getType());
+            assertEquals(new EventProjection("pi_1", "payment_intent", 2000L, "usd", "cus_1", "succeeded", "ORDER-1"),
+                    event.getProjection());
+        }
+    }
+
+    @Test
+    void projectsChargeEventsWithAnExpandedCustomer() {
+        String charge = "{\"id\":\"ch_1\",\"object\":\"charge\",\"amount\":1500,\"currency\":\"eur\","
+                + "\"customer\":{\"id\":\"cus_2\",\"object\":\"customer\",\"metadata\":{\"orderId\":\"other\"}},"
+                + "\"status\":\"succeeded\",\"metadata\":{}}";
+        for (String type : List.of("charge.succeeded", "charge.captured", "charge.updated")) {
+            assertEquals(new EventProjection("ch_1", "charge", 1500L, "eur", "cus_2", "succeeded", null),
+                    parse(event(type, charge)).getProjection());
+        }
+    }
+
+    @Test
+    void projectsInvoiceEventsFromTheirTotal() {
+        String invoice = "{\"id\":\"in_1\",\"object\":\"invoice\",\"total\":4200,\"currency\":\"gbp\","
+                + "\"customer\":\"cus_3\",\"status\":\"void\",\"lines\":{\"data\":[{\"amount\":4200}]}}";
+        for (String type : List.of("invoice.voided", "invoice.deleted", "invoice.payment_action_required")) {
+            assertEquals(new EventProjection("in_1", "invoice", 4200L, "gbp", "cus_3", "void", null),
+                    parse(event(type, invoice)).getProjection());
+        }
+    }
+
+    @Test
+    void leavesMissingOrMistypedFieldsNull() {
+        assertNull(parse(event("charge.succeeded", "{\"id\":\"ch_1\"}")).getProjection().amount());
+
+        EventProjection mistyped = parse(event("charge.succeeded", "{\"id\":\"ch_1\",\"amount\":\"12\","
+                + "\"total\":null,\"customer\":null,\"metadata\":\"none\",\"status\":\"failed\"}")).getProjection();
+        assertEquals(new EventProjection("ch_1", null, null, null, null, "failed", null), mistyped);
+
+        // Containers where a value is expected are skipped whole, and the fields after them still read
+        EventProjection nested = parse(event("charge.succeeded", "{\"id\":{\"value\":\"ch_x\"},"
+                + "\"amount\":{\"value\":1,\"currency\":\"eur\"},\"status\":[\"x\",{\"id\":\"y\"}],"
+                + "\"object\":[],\"total\":[3],\"currency\":\"usd\",\"customer\":{\"id\":[\"cus_x\"]},"
+                + "\"metadata\":{\"orderId\":{\"id\":\"o\"}}}")).getProjection();
+        assertEquals(new EventProjection(null, null, null, "usd", null, null, null), nested);
+        InboundEvent retyped = parse("{\"id\":\"evt_1\",\"type\":{\"id\":\"evt_x\"},\"data\":{},"
+                + "\"type\":\"charge.succeeded\"}");
+        assertEquals("evt_1", retyped.getId());
+        assertEquals("charge.succeeded", retyped.getType());
+
+        assertNull(parse("{\"id\":\"evt_1\",\"type\":\"charge.succeeded\"}").getProjection());
+        assertNull(parse("{\"id\":\"evt_1\",\"type\":\"charge.succeeded\",\"data\":[]}").getProjection());
+        assertNull(parse("{\"id\":\"evt_1\",\"type\":\"charge.succeeded\",\"data\":{\"object\":\"ch_1\"}}")
+                .getProjection());
+    }
+
+    @Test
+    void rejectsMalformedPayloadsAndMissingIdOrType() {
+        for (String json : List.of("", "not json", "[]", "\"event\"", "{\"id\":\"evt_1\",\"type\":",
+                "{\"type\":\"charge.succeeded\",\"data\":{}}", "{\"id\":\"evt_1\",\"data\":{}}")) {
+            assertNull(parse(json), json);
+        }
+    }
+
+    @Test
+    void verifiesTheSignatureOverTheValidBytesOnly() throws Exception {
+        byte[] json = event("charge.succeeded", "{\"id\":\"ch_1\"}").getBytes(StandardCharsets.UTF_8);
+        byte[] buffer = Arrays.copyOf(json, json.length + 64);
+        long timestamp = System.currentTimeMillis() / 1000;
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        mac.update((timestamp + ".").getBytes(StandardCharsets.UTF_8));
+        String header = "t=" + timestamp + ",v1=" + HexFormat.of().formatHex(mac.doFinal(json));
+
+        InboundEvent event = parser(true).parseEvent(buffer, json.length, header);
+        assertEquals("ch_1", event.getProjection().id());
+        assertArrayEquals(json, event.getPayload());
+
+        assertNull(parser(true).parseEvent(buffer, json.length, header.replace("v1=", "v1=0")));
+        assertNull(parser(true).parseEvent(buffer, json.length, null));
+    }
+}
@@ -0,0 +1,147 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.StripeWebhookConfig;
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.net.Webhook;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that StripeSignatureVerifier accepts and rejects the same headers as the Stripe SDK,
+ * including secret rotation, expired timestamps and malformed headers.
+ */
+class StripeSignatureVerifierTest {
+
+    private static final String SECRET = "whsec_current";
+    private static final String PAYLOAD = "{\"id\":\"evt_1\",\"object\":\"event\",\"type\":\"charge.succeeded\"}";
+
+    private static StripeSignatureVerifier verifier(long toleranceSeconds, String secret, String... secrets) {
+        StripeWebhookConfig config = new StripeWebhookConfig();
+        config.setSecret(secret);
+        config.setSecrets(List.of(secrets));
+        config.setToleranceSeconds(toleranceSeconds);
+        return new StripeSignatureVerifier(config);
+    }
+
+    private static String signature(String timestamp, String secret) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return HexFormat.of().formatHex(mac.doFinal((timestamp + "." + PAYLOAD).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static long now() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    private static StripeSignatureVerifier.Result verify(StripeSignatureVerifier verifier, String header) {
+        byte[] payload = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        return verifier.verify(payload, payload.length, header);
+    }
+
+    private static boolean sdkAccepts(String header, String secret, long toleranceSeconds) {
+        try {
+            return Webhook.Signature.verifyHeader(PAYLOAD, header, secret, toleranceSeconds);
+        } catch (SignatureVerificationException | NumberFormatException e) {
+            // The SDK lets an unparsable timestamp escape as NumberFormatException
+            return false;
+        }
+    }
+
+    @Test
+    void acceptsAComputedV1Signature() throws Exception {
+        String timestamp = Long.toString(now());
+        String header = "t=" + timestamp + ",v1=" + signature(timestamp, SECRET);
+
+        assertEquals(StripeSignatureVerifier.Result.VALID, verify(verifier(300, SECRET), header));
+        assertTrue(sdkAccepts(header, SECRET, 300));
+
+        // Extra schemes and a second, stale v1 entry are ignored as the SDK ignores them
+        String withExtras = "t=" + timestamp + ",v0=abc,v1=" + "0".repeat(64)
+                + ",v1=" + signature(timestamp, SECRET);
+        assertEquals(StripeSignatureVerifier.Result.VALID, verify(verifier(300, SECRET), withExtras));
+        assertTrue(sdkAccepts(withExtras, SECRET, 300));
+
+        // The SDK compares lower-case hex only
+        String upperCase = "t=" + timestamp + ",v1=" + signature(timestamp, SECRET).toUpperCase();
+        assertEquals(StripeSignatureVerifier.Result.NO_MATCHING_SIGNATURE, verify(verifier(300, SECRET), upperCase));
+        assertFalse(sdkAccepts(upperCase, SECRET, 300));
+
+        // The SDK signs the parsed timestamp, so leading zeros in the header are not signed
+        String zeroPadded = "t=00" + timestamp + ",v1=" + signature(timestamp, SECRET);
+        assertEquals(StripeSignatureVerifier.Result.VALID, verify(verifier(300, SECRET), zeroPadded));
+        assertTrue(sdkAccepts(zeroPadded, SECRET, 300));
+    }
+
+    @Test
+    void usesTheSecretAsConfigured() throws Exception {
+        String timestamp = Long.toString(now());
+        String padded = " " + SECRET + " ";
+        String header = "t=" + timestamp + ",v1=" + signature(timestamp, SECRET);
+
+        assertFalse(sdkAccepts(header, padded, 300));
+        assertEquals(StripeSignatureVerifier.Result.NO_MATCHING_SIGNATURE, verify(verifier(300, padded), header));
+        assertEquals(StripeSignatureVerifier.Result.VALID,
+                verify(verifier(300, padded), "t=" + timestamp + ",v1=" + signature(timestamp, padded)));
+    }
+
+    @Test
+    void acceptsEitherSecretDuringRotation() throws Exception {
+        StripeSignatureVerifier verifier = verifier(300, "whsec_new", "whsec_old");
+        String timestamp = Long.toString(now());
+
+        assertEquals(StripeSignatureVerifier.Result.VALID,
+                verify(verifier, "t=" + timestamp + ",v1=" + signature(timestamp, "whsec_new")));
+        assertEquals(StripeSignatureVerifier.Result.VALID,
+                verify(verifier, "t=" + timestamp + ",v1=" + signature(timestamp, "whsec_old")));
+        assertEquals(StripeSignatureVerifier.Result.NO_MATCHING_SIGNATURE,
+                verify(verifier, "t=" + timestamp + ",v1=" + signature(timestamp, "whsec_unknown")));
+
+        @SuppressWarnings("unchecked")
+        List<Long> matches = (List<Long>) verifier.getStats().get("matchesPerSecret");
+        assertEquals(List.of(1L, 1L), matches);
+    }
+
+    @Test
+    void appliesTheToleranceAsTheSdkDoes() throws Exception {
+        String expired = Long.toString(now() - 1_000);
+        String expiredHeader = "t=" + expired + ",v1=" + signature(expired, SECRET);
+        String future = Long.toString(now() + 1_000);
+        String futureHeader = "t=" + future + ",v1=" + signature(future, SECRET);
+
+        assertEquals(StripeSignatureVerifier.Result.TIMESTAMP_OUTSIDE_TOLERANCE,
+                verify(verifier(300, SECRET), expiredHeader));
+        assertFalse(sdkAccepts(expiredHeader, SECRET, 300));
+
+        // Only old timestamps are rejected, and a tolerance of zero disables the check
+        assertEquals(StripeSignatureVerifier.Result.VALID, verify(verifier(300, SECRET), futureHeader));
+        assertTrue(sdkAccepts(futureHeader, SECRET, 300));
+        assertEquals(StripeSignatureVerifier.Result.VALID, verify(verifier(0, SECRET), expiredHeader));
+        assertTrue(sdkAccepts(expiredHeader, SECRET, 0));
+    }
+
+    @Test
+    void rejectsMalformedHeaders() throws Exception {
+        StripeSignatureVerifier verifier = verifier(300, SECRET);
+        String timestamp = Long.toString(now());
+        String signature = signature(timestamp, SECRET);
+
+        assertEquals(StripeSignatureVerifier.Result.MISSING_HEADER, verify(verifier, null));
+        assertEquals(StripeSignatureVerifier.Result.MISSING_HEADER, verify(verifier, ""));
+        for (String header : List.of("v1=" + signature, "t=" + timestamp, "t=abc,v1=" + signature,
+                "t=,v1=" + signature, "garbage")) {
+            assertEquals(StripeSignatureVerifier.Result.MALFORMED_HEADER, verify(verifier, header), header);
+            assertFalse(sdkAccepts(header, SECRET, 300), header);
+        }
+        assertEquals(StripeSignatureVerifier.Result.NO_MATCHING_SIGNATURE,
+                verify(verifier, "t=" + timestamp + ",v1=" + signature.substring(2)));
+        assertEquals(StripeSignatureVerifier.Result.NO_MATCHING_SIGNATURE,
+                verify(verifier, "t=" + timestamp + ",v1=" + "zz" + signature.substring(2)));
+    }
+}
@@ -0,0 +1,42 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.CustomerCacheConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.CustomerIndexConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.IdAllocatorConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.MockPersistenceConfig;
+
+/**
+ * MockNetSuiteService with fresh, in-memory collaborators, as the tests use it.
+ * Tests that fake NetSuite behaviour subclass it anonymously.
+ */
+class TestMockNetSuiteService extends MockNetSuiteService {
+
+    TestMockNetSuiteService() {
+        this(new CustomerIdIndex(new CustomerIndexConfig()));
+    }
+
+    /**
+     * Share the customer index with the component under test.
+     */
+    TestMockNetSuiteService(CustomerIdIndex customerIndex) {
+        super(customerIndex, new CustomerSingleFlight(), disabledCache(customerIndex),
+                new IdBlockStore(new IdAllocatorConfig()), new MockOrderStore(),
+                new MockNetSuitePersistence(new MockPersistenceConfig()));
+    }
+
+    /**
+     * Restore from and log to the given persistence, as after a restart: every other component is new.
+     */
+    TestMockNetSuiteService(MockNetSuitePersistence persistence) {
+        this(new CustomerIdIndex(new CustomerIndexConfig()), persistence);
+    }
+
+    private TestMockNetSuiteService(CustomerIdIndex customerIndex, MockNetSuitePersistence persistence) {
+        super(customerIndex, new CustomerSingleFlight(), disabledCache(customerIndex),
+                new IdBlockStore(new IdAllocatorConfig()), new MockOrderStore(), persistence);
+    }
+
+    private static CustomerCache disabledCache(CustomerIdIndex customerIndex) {
+        return new CustomerCache(new CustomerCacheConfig(), customerIndex, new CustomerSingleFlight());
+    }
+}
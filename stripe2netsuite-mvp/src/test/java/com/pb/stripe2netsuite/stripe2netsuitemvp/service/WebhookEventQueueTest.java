@@ -0,0 +1,202 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.NetSuiteRetryConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.StripeWebhookConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.WebhookJournalConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.WebhookQueueConfig;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.controller.StripeWebhookController;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.EventProjection;
+import com.pb.stripe2netsuite.stripe2netsuitemvp.model.InboundEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that WebhookEventQueue rejects events when a lane is full, keeps per-object order across lanes,
+ * drains queued events on shutdown and fails the results of events it has to drop.
+ */
+class WebhookEventQueueTest {
+
+    private final NetSuiteRetryScheduler retryScheduler = new NetSuiteRetryScheduler(new NetSuiteRetryConfig());
+    private WebhookEventQueue queue;
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) {
+            queue.shutdown();
+        }
+        retryScheduler.shutdown();
+    }
+
+    private static WebhookQueueConfig config(int lanes, int capacity, int maxInFlightPerLane) {
+        WebhookQueueConfig config = new WebhookQueueConfig();
+        config.setLanes(lanes);
+        config.setCapacity(capacity);
+        config.setMaxInFlightPerLane(maxInFlightPerLane);
+        config.setShutdownTimeoutSeconds(5);
+        return config;
+    }
+
+    private static WebhookJournal disabledJournal() {
+        WebhookJournalConfig config = new WebhookJournalConfig();
+        config.setEnabled(false);
+        return new WebhookJournal(config);
+    }
+
+    private WebhookEventQueue queue(WebhookQueueConfig config,
+                                    Function<InboundEvent, CompletableFuture<StripeEventProcessor.Outcome>> handler) {
+        StripeEventProcessor processor = new StripeEventProcessor(null, null) {
+            @Override
+            public CompletableFuture<StripeEventProcessor.Outcome> processEventAsync(InboundEvent event) {
+                return handler.apply(event);
+            }
+        };
+        queue = new WebhookEventQueue(processor, disabledJournal(), retryScheduler, config);
+        return queue;
+    }
+
+    private static InboundEvent event(String id, String objectId) {
+        EventProjection projection = new EventProjection(objectId, "payment_intent", 1_000L, "usd",
+                "cus_1", "succeeded", null);
+        return new InboundEvent(id, "payment_intent.succeeded", projection, new byte[0]);
+    }
+
+    @Test
+    void fullLaneRejectsEventsAndTheWebhookAnswers503() throws Exception {
+        CompletableFuture<StripeEventProcessor.Outcome> gate = new CompletableFuture<>();
+        CountDownLatch started = new CountDownLatch(1);
+        queue(config(1, 1, 1), event -> {
+            started.countDown();
+            return gate;
+        });
+
+        // One event in flight, one held by the worker waiting for a slot and one queued fill the lane
+        assertTrue(queue.submit(event("evt_0", "pi_0"), 0));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(queue.submit(event("evt_1", "pi_1"), 0));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!queue.getStats().get("queueDepth").equals(0) && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(queue.submit(event("evt_2", "pi_2"), 0));
+        assertFalse(queue.submit(event("evt_3", "pi_3"), 0));
+        assertEquals(1L, queue.getStats().get("rejected"));
+
+        StripeWebhookConfig webhookConfig = new StripeWebhookConfig();
+        webhookConfig.setVerifySignature(false);
+        StripeWebhookController controller = new StripeWebhookController(
+                new StripeEventParser(new ObjectMapper(), webhookConfig, new StripeSignatureVerifier(webhookConfig)),
+                disabledJournal(), queue, new WebhookPayloadReader(webhookConfig));
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/webhook/stripe");
+        request.setContent(("{\"id\":\"evt_full\",\"type\":\"payment_intent.succeeded\","
+                + "\"data\":{\"object\":{\"id\":\"pi_full\"}}}").getBytes(StandardCharsets.UTF_8));
+
+        ResponseEntity<String> response = controller.handleStripeWebhook(request);
+        assertEquals(503, response.getStatusCode().value());
+
+        gate.complete(StripeEventProcessor.Outcome.PROCESSED);
+    }
+
+    @Test
+    void keepsPerObjectOrderAcrossLanes() throws Exception {
+        Map<String, List<String>> seen = new ConcurrentHashMap<>();
+        queue(config(4, 1_000, 8), event -> {
+            // Finish in reverse start order per lane to catch events overtaking their predecessor
+            long delay = 10 - Long.parseLong(event.getId().substring(event.getId().lastIndexOf('_') + 1)) % 10;
+            return CompletableFuture.supplyAsync(() -> {
+                seen.computeIfAbsent(event.getProjection().id(),
+                        key -> Collections.synchronizedList(new ArrayList<>())).add(event.getId());
+                return StripeEventProcessor.Outcome.PROCESSED;
+            }, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS));
+        });
+
+        List<CompletableFuture<StripeEventProcessor.Outcome>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            for (int object = 0; object < 8; object++) {
+                CompletableFuture<StripeEventProcessor.Outcome> result = new CompletableFuture<>();
+                assertTrue(queue.submit(event("evt_" + object + "_" + i, "pi_" + object), 0, result));
+                results.add(result);
+            }
+        }
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        assertEquals(8, seen.size());
+        for (int object = 0; object < 8; object++) {
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                expected.add("evt_" + object + "_" + i);
+            }
+            assertEquals(expected, seen.get("pi_" + object));
+        }
+        assertEquals(80L, queue.getStats().get("completed"));
+    }
+
+    @Test
+    void shutdownDrainsQueuedEvents() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        List<String> processed = Collections.synchronizedList(new ArrayList<>());
+        queue(config(2, 100, 1), event -> {
+            started.countDown();
+            return CompletableFuture.supplyAsync(() -> {
+                processed.add(event.getId());
+                return StripeEventProcessor.Outcome.PROCESSED;
+            }, CompletableFuture.delayedExecutor(5, TimeUnit.MILLISECONDS));
+        });
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(queue.submit(event("evt_" + i, "pi_" + i % 3), 0));
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        queue.shutdown();
+
+        assertEquals(20, processed.size());
+        assertEquals(20L, queue.getStats().get("completed"));
+        assertFalse(queue.submit(event("evt_late", "pi_0"), 0));
+    }
+
+    @Test
+    void shutdownFailsTheResultsOfEventsLeftInTheLanes() throws Exception {
+        CompletableFuture<StripeEventProcessor.Outcome> gate = new CompletableFuture<>();
+        CountDownLatch started = new CountDownLatch(1);
+        WebhookQueueConfig config = config(1, 10, 1);
+        config.setShutdownTimeoutSeconds(0);
+        queue(config, event -> {
+            started.countDown();
+            return gate;
+        });
+
+        List<CompletableFuture<StripeEventProcessor.Outcome>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            CompletableFuture<StripeEventProcessor.Outcome> result = new CompletableFuture<>();
+            assertTrue(queue.submit(event("evt_" + i, "pi_" + i), 0, result));
+            results.add(result);
+            if (i == 0) {
+                assertTrue(started.await(5, TimeUnit.SECONDS));
+            }
+        }
+        queue.shutdown();
+
+        // The first event is still waiting on NetSuite; the others never started
+        assertFalse(results.get(0).isDone());
+        for (CompletableFuture<StripeEventProcessor.Outcome> result : results.subList(1, 4)) {
+            assertEquals(StripeEventProcessor.Outcome.FAILED, result.get(5, TimeUnit.SECONDS));
+        }
+        gate.complete(StripeEventProcessor.Outcome.PROCESSED);
+        assertEquals(StripeEventProcessor.Outcome.PROCESSED, results.get(0).get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,155 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.WebhookJournalConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that WebhookJournal replays unprocessed events after a restart, ignores a torn tail,
+ * compacts old segments and dead-letters events that keep failing.
+ */
+class WebhookJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private WebhookJournal journal;
+
+    @AfterEach
+    void tearDown() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private WebhookJournalConfig config() {
+        WebhookJournalConfig config = new WebhookJournalConfig();
+        config.setEnabled(true);
+        config.setDirectory(directory.toString());
+        config.setSegmentSizeBytes(64 * 1024);
+        return config;
+    }
+
+    private WebhookJournal reopen(WebhookJournalConfig config) {
+        if (journal != null) {
+            journal.close();
+        }
+        journal = new WebhookJournal(config);
+        journal.open();
+        return journal;
+    }
+
+    private long append(String payload) {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        return journal.append(bytes, 0, bytes.length);
+    }
+
+    private List<String> pendingPayloads() {
+        return journal.getPendingEvents().stream()
+                .map(event -> new String(event.payload(), StandardCharsets.UTF_8))
+                .toList();
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+
+    @Test
+    void replaysOnlyUnprocessedEventsAfterRestart() {
+        WebhookJournalConfig config = config();
+        reopen(config);
+        long first = append("{\"id\":\"evt_1\"}");
+        long second = append("{\"id\":\"evt_2\"}");
+        long third = append("{\"id\":\"evt_3\"}");
+        journal.markProcessed(second);
+
+        reopen(config);
+        assertEquals(List.of(first, third),
+                journal.getPendingEvents().stream().map(WebhookJournal.PendingEvent::sequence).toList());
+        assertEquals(List.of("{\"id\":\"evt_1\"}", "{\"id\":\"evt_3\"}"), pendingPayloads());
+        assertEquals(third + 1, append("{\"id\":\"evt_4\"}"));
+    }
+
+    @Test
+    void ignoresATornRecordAtTheEndOfASegment() throws IOException {
+        WebhookJournalConfig config = config();
+        reopen(config);
+        append("{\"id\":\"evt_1\"}");
+        append("{\"id\":\"evt_2\"}");
+        journal.close();
+        journal = null;
+
+        // Damage the second payload as a write interrupted by a crash would
+        int secondPayload = 8 + 17 + "{\"id\":\"evt_1\"}".length() + 17;
+        try (FileChannel channel = FileChannel.open(segmentFiles().get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {'X'}), secondPayload + 2);
+        }
+
+        reopen(config);
+        assertEquals(List.of("{\"id\":\"evt_1\"}"), pendingPayloads());
+        assertEquals(2, append("{\"id\":\"evt_2\"}"));
+        reopen(config);
+        assertEquals(List.of("{\"id\":\"evt_1\"}", "{\"id\":\"evt_2\"}"), pendingPayloads());
+    }
+
+    @Test
+    void compactionRelocatesPendingEventsAndDeletesProcessedSegments() throws IOException {
+        WebhookJournalConfig config = config();
+        config.setSegmentSizeBytes(256);
+        config.setCompactAfterSegments(1);
+        reopen(config);
+
+        String payload = "x".repeat(100);
+        long kept = append("{\"id\":\"evt_kept\"}");
+        for (int i = 0; i < 20; i++) {
+            journal.markProcessed(append(payload));
+        }
+
+        assertTrue((long) journal.getStats().get("relocatedEvents") > 0);
+        assertTrue((long) journal.getStats().get("deletedSegments") > 0);
+        assertTrue(segmentFiles().size() <= 3, segmentFiles().toString());
+        assertEquals(List.of("{\"id\":\"evt_kept\"}"), pendingPayloads());
+
+        reopen(config);
+        assertEquals(kept, journal.getPendingEvents().get(0).sequence());
+        assertEquals(List.of("{\"id\":\"evt_kept\"}"), pendingPayloads());
+    }
+
+    @Test
+    void deadLettersAnEventAfterMaxAttemptsAcrossRestarts() throws IOException {
+        WebhookJournalConfig config = config();
+        config.setMaxAttempts(2);
+        reopen(config);
+        long poison = append("{\"id\":\"evt_poison\"}");
+        append("{\"id\":\"evt_ok\"}");
+
+        assertFalse(journal.markFailed(poison));
+        reopen(config);
+        assertEquals(1, journal.getStats().get("failedEvents"));
+        assertEquals(2, journal.getPendingEvents().size());
+
+        assertTrue(journal.markFailed(poison));
+        assertEquals(List.of("{\"id\":\"evt_ok\"}"), pendingPayloads());
+        Path deadLetter = directory.resolve("dead-letter").resolve(String.format("event-%020d.json", poison));
+        assertEquals("{\"id\":\"evt_poison\"}", Files.readString(deadLetter));
+
+        reopen(config);
+        assertEquals(List.of("{\"id\":\"evt_ok\"}"), pendingPayloads());
+        assertEquals(0, journal.getStats().get("failedEvents"));
+    }
+}
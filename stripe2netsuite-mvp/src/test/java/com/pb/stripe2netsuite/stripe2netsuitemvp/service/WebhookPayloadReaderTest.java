@@ -0,0 +1,119 @@
+package com.pb.stripe2netsuite.stripe2netsuitemvp.service;
+
+import com.pb.stripe2netsuite.stripe2netsuitemvp.config.StripeWebhookConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that WebhookPayloadReader reads chunked and exact-length bodies and rejects oversized ones.
+ */
+class WebhookPayloadReaderTest {
+
+    private WebhookPayloadReader reader;
+
+    @BeforeEach
+    void setUp() {
+        StripeWebhookConfig config = new StripeWebhookConfig();
+        config.setBufferSize(16);
+        config.setBufferPoolSize(2);
+        config.setMaxPayloadBytes(100);
+        reader = new WebhookPayloadReader(config);
+    }
+
+    private static byte[] body(int length) {
+        byte[] body = new byte[length];
+        for (int i = 0; i < length; i++) {
+            body[i] = (byte) ('a' + i % 26);
+        }
+        return body;
+    }
+
+    /**
+     * Hands out at most three bytes per read, like a chunked request arriving in pieces,
+     * and fails if it is read after the end of the body.
+     */
+    private static final class TrickleInputStream extends InputStream {
+
+        private final byte[] body;
+        private final boolean failPastEnd;
+        private int position;
+
+        TrickleInputStream(byte[] body, boolean failPastEnd) {
+            this.body = body;
+            this.failPastEnd = failPastEnd;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position == body.length) {
+                if (failPastEnd) {
+                    throw new IOException("Read past the declared length");
+                }
+                return -1;
+            }
+            return body[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (position == body.length) {
+                return read();
+            }
+            int count = Math.min(Math.min(length, 3), body.length - position);
+            System.arraycopy(body, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+    }
+
+    @Test
+    void readsAChunkedBodyLargerThanOneBuffer() throws IOException {
+        byte[] body = body(70);
+        try (WebhookPayloadReader.PayloadBuffer payload = reader.read(new TrickleInputStream(body, false), -1)) {
+            assertEquals(70, payload.length());
+            assertArrayEquals(body, payload.toByteArray());
+        }
+    }
+
+    @Test
+    void readsAChunkedBodyThatEndsExactlyAtTheBufferSizeWithoutGrowing() throws IOException {
+        byte[] body = body(16);
+        try (WebhookPayloadReader.PayloadBuffer payload = reader.read(new TrickleInputStream(body, false), -1)) {
+            assertEquals(16, payload.length());
+            assertEquals(16, payload.array().length);
+            assertArrayEquals(body, payload.toByteArray());
+        }
+    }
+
+    @Test
+    void trustsTheContentLengthWithoutReadingFurther() throws IOException {
+        for (int length : new int[] {0, 16, 40, 100}) {
+            byte[] body = body(length);
+            try (WebhookPayloadReader.PayloadBuffer payload = reader.read(new TrickleInputStream(body, true), length)) {
+                assertEquals(length, payload.length());
+                assertArrayEquals(body, payload.toByteArray());
+                assertEquals(Math.max(length, 16), payload.array().length);
+            }
+        }
+    }
+
+    @Test
+    void rejectsOversizedBodies() throws IOException {
+        assertThrows(WebhookPayloadReader.PayloadTooLargeException.class,
+                () -> reader.read(new ByteArrayInputStream(body(101)), 101));
+        assertThrows(WebhookPayloadReader.PayloadTooLargeException.class,
+                () -> reader.read(new TrickleInputStream(body(101), false), -1));
+
+        try (WebhookPayloadReader.PayloadBuffer payload = reader.read(new TrickleInputStream(body(100), false), -1)) {
+            assertEquals(100, payload.length());
+            assertArrayEquals(body(100), Arrays.copyOf(payload.array(), payload.length()));
+        }
+    }
+}